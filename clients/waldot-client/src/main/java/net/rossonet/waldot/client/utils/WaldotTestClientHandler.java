@@ -11,6 +11,7 @@ import org.eclipse.milo.opcua.sdk.client.AddressSpace.BrowseOptions;
 import org.eclipse.milo.opcua.sdk.client.NodeCache;
 import org.eclipse.milo.opcua.sdk.client.OpcUaClient;
 import org.eclipse.milo.opcua.sdk.client.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.client.nodes.UaObjectNode;
 import org.eclipse.milo.opcua.sdk.client.subscriptions.MonitoredItemSynchronizationException;
 import org.eclipse.milo.opcua.sdk.client.subscriptions.OpcUaMonitoredItem;
 import org.eclipse.milo.opcua.sdk.client.subscriptions.OpcUaSubscription;
@@ -72,6 +73,31 @@ public class WaldotTestClientHandler implements AutoCloseable {
 		}
 	}
 
+	/**
+	 * calls a method of the vertex or of the edge, the server finds the element
+	 * from the object id of the call
+	 */
+	public String[] callElementMethodWithOpcUa(final NodeId elementNodeId, final String methodName,
+			final String... inputs) {
+		try {
+			resetCache();
+			final UaObjectNode elementNode = client.getOpcUaClient().getAddressSpace().getObjectNode(elementNodeId);
+			final Variant[] inputVariants = new Variant[inputs.length];
+			for (int i = 0; i < inputs.length; i++) {
+				inputVariants[i] = new Variant(inputs[i]);
+			}
+			final Variant[] outputs = elementNode.callMethod(methodName, inputVariants);
+			final List<String> out = new ArrayList<>();
+			for (final Variant output : outputs) {
+				out.add((String) output.getValue());
+			}
+			return out.toArray(new String[0]);
+		} catch (final Exception e) {
+			e.printStackTrace();
+			return new String[] { "", e.getMessage() };
+		}
+	}
+
 	public boolean checkOpcUaEdgeBrowserNameNameValueEquals(final WaldotEdge edge, final String expectedValue) {
 		try {
 			resetCache();
@@ -53,6 +53,7 @@ import net.rossonet.waldot.utils.ThreadHelper;
 public class WaldOTAgentClientImplV1 implements WaldOTAgentClient {
 
 	private static final String ABOUT_COMMAND = "about";
+	private static final String BULK_LOAD_COMMAND = "bulk load";
 	private final static Logger logger = LoggerFactory.getLogger(WaldOTAgentClient.class);
 	private static final String QUERY_COMMAND = "query";
 	public static String SELFSIGNED_CERTIFICATE_ALIAS = "waldot-selfsigned";
@@ -110,6 +111,23 @@ public class WaldOTAgentClientImplV1 implements WaldOTAgentClient {
 		}
 	}
 
+	/**
+	 * loads vertices and edges with one call, the lines use the format of the
+	 * server "bulk load" command: "vertex,id[,key,value...]" or
+	 * "edge,sourceId,targetId,label[,key,value...]"
+	 */
+	public List<String> bulkLoad(List<String> lines) throws UaException {
+		final UaObjectNode cmdNode = getOpcUaClient().getAddressSpace()
+				.getObjectNode(new NodeId(2, MiloStrategy.GENERAL_CMD_DIRECTORY));
+		final Variant[] outputs = cmdNode.callMethod(BULK_LOAD_COMMAND,
+				new Variant[] { new Variant(String.join("\n", lines)) });
+		final List<String> out = new ArrayList<>();
+		for (final Variant output : outputs) {
+			out.add((String) output.getValue());
+		}
+		return out;
+	}
+
 	private boolean checkClientConnected(final OpcUaClient clientOpc) throws Exception {
 		return clientOpc != null && getClientSessionWithTimeout(clientOpc).getServerNonce() != null;
 	}
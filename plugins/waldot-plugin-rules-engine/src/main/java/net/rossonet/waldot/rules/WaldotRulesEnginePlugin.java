@@ -54,6 +54,7 @@ public class WaldotRulesEnginePlugin implements PluginListener, AutoCloseable {
 	public static final long DEFAULT_EXECUTION_TIMEOUT_MS_IN_COMPUTE = 120000; // 2 minuti;
 	public static final double DEFAULT_PRIORITY_FACTOR_IN_COMPUTE = 100.0;
 	public static final int DEFAULT_PRIORITY_VALUE = 100;
+	public static final long DEFAULT_PUBLICATION_INTERVAL_MS = 200;
 	public static final int DEFAULT_THREAD_POOL_SIZE_IN_COMPUTE = 1;
 	public static final String ERRORS_SIZE_LABEL = "Errors";
 	private static final String EXECUTE_EDGE_LABEL = "execute";
@@ -63,6 +64,7 @@ public class WaldotRulesEnginePlugin implements PluginListener, AutoCloseable {
 	private final static Logger logger = LoggerFactory.getLogger(WaldotRulesEnginePlugin.class);
 	public static final String PRIORITY_FACTOR_FIELD = "Factor";
 	public static final String PRIORITY_FIELD = "Priority";
+	public static final String PUBLICATION_INTERVAL_LABEL = "Publication";
 	public static final String QUEUE_SIZE_LABEL = "Queue";
 	public static final String RULE_NODE_PARAMETER = "rule";
 	public static final String THREAD_POOL_SIZE_FIELD = "Threads";
@@ -229,7 +231,7 @@ public class WaldotRulesEnginePlugin implements PluginListener, AutoCloseable {
 	}
 
 	private void registerJexlEngine(final WaldotNamespace waldotNamespace) {
-		jexlEngine = JexlExecutor.generateEngine();
+		jexlEngine = JexlExecutor.generateEngine(JexlExecutor.EngineProfile.PRODUCTION);
 		baseJexlContext.set(ConsoleStrategy.LOG_LABEL, logger);
 		baseJexlContext.set(ConsoleStrategy.TRAVERSE_LABEL, waldotNamespace.getGremlinGraph().traversal());
 		baseJexlContext.set(ConsoleStrategy.GRAPH_LABEL, waldotNamespace.getGremlinGraph());
@@ -8,7 +8,6 @@ import net.rossonet.waldot.api.models.MonitoredEdge;
 import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotNamespace;
 import net.rossonet.waldot.api.models.WaldotVertex;
-import net.rossonet.waldot.rules.WaldotRulesEnginePlugin;
 import net.rossonet.waldot.rules.vertices.ComputableFireableAbstractOpcVertex;
 import net.rossonet.waldot.rules.vertices.ComputeVertex;
 
@@ -43,9 +42,12 @@ public class ComputeMonitoredEdge extends MonitoredEdge {
 
 	@Override
 	public void propertyChanged(final UaNode node, final String label, final DataValue value) {
-		if (label.equals(WaldotRulesEnginePlugin.QUEUE_SIZE_LABEL.toLowerCase())) {
-			final int calcolatedPriority = getPriority();
-			((ComputeVertex) getSourceVertex()).notifyQueueSizeChange(node, label, value, calcolatedPriority);
-		}
+		// la proprietà della coda è pubblicata in differita, le variazioni della coda
+		// arrivano direttamente dal vertice con queueSizeChanged
+	}
+
+	public void queueSizeChanged(final ComputableFireableAbstractOpcVertex node, final int queueSize) {
+		final int calcolatedPriority = getPriority();
+		((ComputeVertex) getSourceVertex()).notifyQueueSizeChange(node, queueSize, calcolatedPriority);
 	}
 }
@@ -1,5 +1,8 @@
 package net.rossonet.waldot.rules.vertices;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.eclipse.milo.opcua.sdk.server.model.objects.BaseEventType;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
@@ -9,14 +12,27 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import net.rossonet.waldot.api.PropertyObserver;
 import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.jexl.HysteresisPriorityQueue;
 import net.rossonet.waldot.opc.AbstractOpcVertex;
 import net.rossonet.waldot.rules.WaldotRulesEnginePlugin;
+import net.rossonet.waldot.rules.edges.ComputeMonitoredEdge;
 import net.rossonet.waldot.rules.events.FireableAction;
 import net.rossonet.waldot.rules.events.RunnableEvent;
 
+/**
+ * Base of the vertices that queue the fired events for the compute vertex.
+ *
+ * <p>The queue size and the counters of the subclasses are kept in memory and
+ * published to their OPC UA variables by the timer of the namespace, at most
+ * once every publication interval, and on close. The Gremlin and the OPC UA
+ * reads see the same published values. The compute vertex is signalled
+ * directly by the queue operations, without waiting for the publication.</p>
+ */
 public abstract class ComputableFireableAbstractOpcVertex extends AbstractOpcVertex implements AutoCloseable {
 
 	private static final long CLEAN_UP_INTERVAL_MS = 10000L; // intervallo di pulizia della coda (10 secondi)
@@ -27,6 +43,16 @@ public abstract class ComputableFireableAbstractOpcVertex extends AbstractOpcVer
 
 	private final long lastCleanUpTimeMs = System.currentTimeMillis();
 
+	private static final Logger logger = LoggerFactory.getLogger(ComputableFireableAbstractOpcVertex.class);
+
+	private volatile long publicationIntervalMs = WaldotRulesEnginePlugin.DEFAULT_PUBLICATION_INTERVAL_MS;
+
+	private final Object publicationLock = new Object();
+
+	private final AtomicBoolean publicationScheduled = new AtomicBoolean(false);
+
+	private long publishedQueueSize = -1;
+
 	public ComputableFireableAbstractOpcVertex(WaldotGraph graph, UaNodeContext context, NodeId nodeId,
 			QualifiedName browseName, LocalizedText displayName, LocalizedText description, UInteger writeMask,
 			UInteger userWriteMask, UByte eventNotifier, long version) {
@@ -47,7 +73,25 @@ public abstract class ComputableFireableAbstractOpcVertex extends AbstractOpcVer
 	@Override
 	public void close() throws Exception {
 		eventQueue.cleanUp();
+		publishCounters();
+	}
 
+	/**
+	 * Schedules the publication of the counters, the changes in the same
+	 * interval are published together. With a zero interval the publication
+	 * runs as soon as the timer is free.
+	 */
+	protected void countersChanged() {
+		if (publicationScheduled.compareAndSet(false, true)) {
+			getNamespace().getTimer().schedule(() -> {
+				publicationScheduled.set(false);
+				try {
+					publishCounters();
+				} catch (final Throwable t) {
+					logger.error("Error publishing the counters of node " + getNodeId(), t);
+				}
+			}, publicationIntervalMs, TimeUnit.MILLISECONDS);
+		}
 	}
 
 	@Override
@@ -64,6 +108,14 @@ public abstract class ComputableFireableAbstractOpcVertex extends AbstractOpcVer
 		return hysteresisTimeMs;
 	}
 
+	public long getPublicationIntervalMs() {
+		return publicationIntervalMs;
+	}
+
+	public int getQueueSize() {
+		return eventQueue == null ? 0 : eventQueue.size();
+	}
+
 	protected abstract FireableAction getRunnableEvent(UaNode node, BaseEventType event);
 
 	protected abstract FireableAction getRunnablePropertyEvent(UaNode node, String propertyLabel);
@@ -75,7 +127,7 @@ public abstract class ComputableFireableAbstractOpcVertex extends AbstractOpcVer
 	public boolean offer(RunnableEvent message, int priority) {
 		final boolean ok = eventQueue.offer(message, priority);
 		if (ok) {
-			property(WaldotRulesEnginePlugin.QUEUE_SIZE_LABEL.toLowerCase(), eventQueue.size());
+			queueSizeChanged();
 		}
 		return ok;
 	}
@@ -83,12 +135,47 @@ public abstract class ComputableFireableAbstractOpcVertex extends AbstractOpcVer
 	public RunnableEvent poll() {
 		final RunnableEvent poll = eventQueue.poll();
 		if (poll != null) {
-			property(WaldotRulesEnginePlugin.QUEUE_SIZE_LABEL.toLowerCase(), eventQueue.size());
+			queueSizeChanged();
 		}
 		cleanUpIfNeeded();
 		return poll;
 	}
 
+	/**
+	 * Writes the counters changed since the last publication to the OPC UA
+	 * variables of the vertex.
+	 */
+	public void publishCounters() {
+		if (isRemoved() || inComputerMode()) {
+			return;
+		}
+		synchronized (publicationLock) {
+			publishChangedCounters();
+		}
+	}
+
+	/**
+	 * Called with the publication lock held, the subclasses with other counters
+	 * publish them here.
+	 */
+	protected void publishChangedCounters() {
+		final long queueSize = getQueueSize();
+		if (queueSize != publishedQueueSize) {
+			publishedQueueSize = queueSize;
+			property(WaldotRulesEnginePlugin.QUEUE_SIZE_LABEL.toLowerCase(), queueSize);
+		}
+	}
+
+	private void queueSizeChanged() {
+		final int queueSize = eventQueue.size();
+		for (final PropertyObserver observer : propertyObservers) {
+			if (observer instanceof ComputeMonitoredEdge) {
+				((ComputeMonitoredEdge) observer).queueSizeChanged(this, queueSize);
+			}
+		}
+		countersChanged();
+	}
+
 	protected void setHysteresisTimeMs(long hysteresisTimeMs) {
 		if (hysteresisTimeMs < 0) {
 			throw new IllegalArgumentException("Hysteresis time must be non-negative");
@@ -107,9 +194,16 @@ public abstract class ComputableFireableAbstractOpcVertex extends AbstractOpcVer
 		}
 	}
 
+	protected void setPublicationIntervalMs(long publicationIntervalMs) {
+		if (publicationIntervalMs < 0) {
+			throw new IllegalArgumentException("Publication interval must be non-negative");
+		}
+		this.publicationIntervalMs = publicationIntervalMs;
+	}
+
 	public RunnableEvent take() throws InterruptedException {
 		final RunnableEvent take = eventQueue.take();
-		property(WaldotRulesEnginePlugin.QUEUE_SIZE_LABEL.toLowerCase(), eventQueue.size());
+		queueSizeChanged();
 		cleanUpIfNeeded();
 		return take;
 	}
@@ -252,18 +252,15 @@ public class ComputeVertex extends AbstractOpcVertex implements AutoCloseable {
 
 	}
 
-	public void notifyQueueSizeChange(UaNode sourceNode, String queueSizeLabel, DataValue queueSize,
-			int executorEdgePriority) {
-		final Object size = queueSize.getValue().getValue();
-		if (isActive() && size instanceof Number) {
-			final int intSize = ((Number) size).intValue();
-			if (intSize > 0) {
+	public void notifyQueueSizeChange(UaNode sourceNode, int queueSize, int executorEdgePriority) {
+		if (isActive()) {
+			if (queueSize > 0) {
 				if (!dirtyNodes.stream().anyMatch(dirtyNode -> dirtyNode.getNodeId().equals(sourceNode.getNodeId()))) {
 					if (!servedFireableNodes.containsKey(sourceNode.getNodeId())) {
 						servedFireableNodes.put(sourceNode.getNodeId(),
 								(ComputableFireableAbstractOpcVertex) sourceNode);
 					}
-					dirtyNodes.offer(new DirtyNode(sourceNode.getNodeId(), executorEdgePriority, intSize));
+					dirtyNodes.offer(new DirtyNode(sourceNode.getNodeId(), executorEdgePriority, queueSize));
 					property(WaldotRulesEnginePlugin.QUEUE_SIZE_LABEL.toLowerCase(), dirtyNodes.size());
 				}
 			} else {
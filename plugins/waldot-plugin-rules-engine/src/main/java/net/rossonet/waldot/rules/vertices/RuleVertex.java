@@ -3,6 +3,7 @@ package net.rossonet.waldot.rules.vertices;
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
 
 import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.jexl3.JexlScript;
 import org.eclipse.milo.opcua.sdk.core.QualifiedProperty;
@@ -141,6 +142,8 @@ public class RuleVertex extends ComputableFireableAbstractOpcVertex {
 				WaldotRulesEnginePlugin.ERRORS_SIZE_LABEL, NodeIds.Int64);
 		PluginListener.addParameterToTypeNode(waldotNamespace, dockerTypeNode,
 				WaldotRulesEnginePlugin.DEBUG_LEVEL_LABEL, NodeIds.Int16);
+		PluginListener.addParameterToTypeNode(waldotNamespace, dockerTypeNode,
+				WaldotRulesEnginePlugin.PUBLICATION_INTERVAL_LABEL, NodeIds.Int64);
 	}
 
 	private String action = WaldotRulesEnginePlugin.DEFAULT_ACTION_VALUE;
@@ -153,15 +156,20 @@ public class RuleVertex extends ComputableFireableAbstractOpcVertex {
 	private final QualifiedProperty<String> conditionProperty;
 	private int debug = 0;
 	private final QualifiedProperty<Integer> debugProperty;
-	private transient long errors = 0;
+	private transient final LongAdder errors = new LongAdder();
 	private final QualifiedProperty<Long> errorsSizeProperty;
 	private final QualifiedProperty<Long> execSizeProperty;
-	private transient long executed = 0;
+	private transient final LongAdder executed = new LongAdder();
 	private long hysteresis = 0;
 	private final QualifiedProperty<Long> hysteresisProperty;
 	private ClonableMapContext jexlContext;
+	private long publication = WaldotRulesEnginePlugin.DEFAULT_PUBLICATION_INTERVAL_MS;
+	private final QualifiedProperty<Long> publicationProperty;
+	private transient long publishedErrors = -1;
+	private transient long publishedExecuted = -1;
+	private transient long publishedTotal = -1;
 	private final QualifiedProperty<Long> queueSizeProperty;
-	private transient long total = 0;
+	private transient final LongAdder total = new LongAdder();
 	private final QualifiedProperty<Long> totSizeProperty;
 	protected final WaldotNamespace waldotNamespace;
 	private final WaldotRulesEnginePlugin waldotRulesEnginePlugin;
@@ -227,6 +235,19 @@ public class RuleVertex extends ComputableFireableAbstractOpcVertex {
 				Long.class);
 		setProperty(hysteresisProperty, hysteresis);
 		setHysteresisTimeMs(hysteresis);
+		final String keyValuesPropertyPublication = MiloStrategy.getKeyValuesProperty(propertyKeyValues,
+				WaldotRulesEnginePlugin.PUBLICATION_INTERVAL_LABEL.toLowerCase());
+		if (keyValuesPropertyPublication != null && !keyValuesPropertyPublication.isEmpty()) {
+			publication = Long.valueOf(keyValuesPropertyPublication);
+		} else {
+			publication = WaldotRulesEnginePlugin.DEFAULT_PUBLICATION_INTERVAL_MS;
+		}
+		publicationProperty = new QualifiedProperty<Long>(getNamespace().getNamespaceUri(),
+				WaldotRulesEnginePlugin.PUBLICATION_INTERVAL_LABEL,
+				MiloSingleServerBaseReferenceNodeBuilder.labelVertexTypeNode.getNodeId().expanded(), ValueRanks.Scalar,
+				Long.class);
+		setProperty(publicationProperty, publication);
+		setPublicationIntervalMs(publication);
 		queueSizeProperty = new QualifiedProperty<Long>(getNamespace().getNamespaceUri(),
 				WaldotRulesEnginePlugin.QUEUE_SIZE_LABEL,
 				MiloSingleServerBaseReferenceNodeBuilder.labelVertexTypeNode.getNodeId().expanded(), ValueRanks.Scalar,
@@ -256,12 +277,21 @@ public class RuleVertex extends ComputableFireableAbstractOpcVertex {
 	@Override
 	public void close() throws Exception {
 		closed = true;
+		publishCounters();
 	}
 
 	private FireableAction generateRunnableEvent() {
 		return new RuleVertexFireableAction();
 	}
 
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	public long getExecuted() {
+		return executed.sum();
+	}
+
 	private ClonableMapContext getJexlContext() {
 		if (jexlContext == null) {
 			jexlContext = new ClonableMapContext(waldotRulesEnginePlugin.baseJexlContext());
@@ -280,6 +310,10 @@ public class RuleVertex extends ComputableFireableAbstractOpcVertex {
 		return generateRunnableEvent();
 	}
 
+	public long getTotal() {
+		return total.sum();
+	}
+
 	@Override
 	public void notifyPropertyValueChanging(String label, DataValue value) {
 		super.notifyPropertyValueChanging(label, value);
@@ -302,6 +336,11 @@ public class RuleVertex extends ComputableFireableAbstractOpcVertex {
 			setProperty(hysteresisProperty, hysteresis);
 			setHysteresisTimeMs(hysteresis);
 		}
+		if (label.equals(WaldotRulesEnginePlugin.PUBLICATION_INTERVAL_LABEL.toLowerCase())) {
+			publication = Long.valueOf(value.getValue().getValue().toString());
+			setProperty(publicationProperty, publication);
+			setPublicationIntervalMs(publication);
+		}
 		if (label.equals(WaldotRulesEnginePlugin.QUEUE_SIZE_LABEL.toLowerCase())) {
 			final Long newQueueSize = Long.valueOf(value.getValue().getValue().toString());
 			setProperty(queueSizeProperty, newQueueSize);
@@ -320,6 +359,26 @@ public class RuleVertex extends ComputableFireableAbstractOpcVertex {
 		}
 	}
 
+	@Override
+	protected void publishChangedCounters() {
+		super.publishChangedCounters();
+		final long totalValue = total.sum();
+		if (totalValue != publishedTotal) {
+			publishedTotal = totalValue;
+			property(WaldotRulesEnginePlugin.TOTAL_SIZE_LABEL.toLowerCase(), totalValue);
+		}
+		final long executedValue = executed.sum();
+		if (executedValue != publishedExecuted) {
+			publishedExecuted = executedValue;
+			property(WaldotRulesEnginePlugin.ACTION_EXECUTED_SIZE_LABEL.toLowerCase(), executedValue);
+		}
+		final long errorsValue = errors.sum();
+		if (errorsValue != publishedErrors) {
+			publishedErrors = errorsValue;
+			property(WaldotRulesEnginePlugin.ERRORS_SIZE_LABEL.toLowerCase(), errorsValue);
+		}
+	}
+
 	public void sendDebugEvent(DebugEventType eventType, String message) {
 		if (debug > 0) {
 			try {
@@ -351,18 +410,18 @@ public class RuleVertex extends ComputableFireableAbstractOpcVertex {
 	}
 
 	public void updateExecuted() {
-		executed++;
-		property(WaldotRulesEnginePlugin.ACTION_EXECUTED_SIZE_LABEL.toLowerCase(), executed);
+		executed.increment();
+		countersChanged();
 	}
 
 	public void updateThrowable() {
-		errors++;
-		property(WaldotRulesEnginePlugin.ERRORS_SIZE_LABEL.toLowerCase(), errors);
+		errors.increment();
+		countersChanged();
 	}
 
 	public void updateTotal() {
-		total++;
-		property(WaldotRulesEnginePlugin.TOTAL_SIZE_LABEL.toLowerCase(), total);
+		total.increment();
+		countersChanged();
 	}
 
 }
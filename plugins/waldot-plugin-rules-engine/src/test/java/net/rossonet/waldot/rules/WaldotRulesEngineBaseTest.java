@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.naming.ConfigurationException;
 
@@ -15,10 +16,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInfo;
 import org.junit.jupiter.api.TestMethodOrder;
 
+import net.rossonet.waldot.api.PropertyObserver;
 import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.client.utils.WaldotTestClientHandler;
 import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.LoggerHistoryStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.structure.OpcFactory;
+import net.rossonet.waldot.rules.vertices.RuleVertex;
 import net.rossonet.waldot.utils.LogHelper;
 import net.rossonet.waldot.utils.NetworkHelper;
 
@@ -195,6 +198,40 @@ public class WaldotRulesEngineBaseTest {
 		}
 	}
 
+	@Test
+	public void publicationCoalescingTest() throws InterruptedException, ExecutionException, ConfigurationException {
+		LogHelper.changeJulLogLevel("fine");
+		simpleServerInit();
+		final RuleVertex counted = (RuleVertex) g.addVertex("id", "counted", "type", "rule", "name", "Counted",
+				"condition", "false", "publication", "1000");
+		final AtomicInteger publications = new AtomicInteger();
+		final PropertyObserver observer = (node, label, value) -> {
+			if (label.equals(WaldotRulesEnginePlugin.TOTAL_SIZE_LABEL.toLowerCase())) {
+				publications.incrementAndGet();
+			}
+		};
+		counted.addPropertyObserver(observer);
+		for (int i = 0; i < 100; i++) {
+			counted.updateTotal();
+		}
+		// le letture non pubblicano i contatori, lo fa solo il timer
+		counted.property(WaldotRulesEnginePlugin.TOTAL_SIZE_LABEL.toLowerCase());
+		counted.properties();
+		assert !waldotTestClientHandler.checkOpcUaVertexValueEquals("counted", "total", 100);
+		assert publications.get() == 0;
+		Thread.sleep(1500);
+		assert publications.get() == 1;
+		assert waldotTestClientHandler.checkOpcUaVertexValueEquals("counted", "total", 100);
+		assert waldotTestClientHandler.checkVertexValueEquals("counted", "total", 100);
+		// con intervallo zero la pubblicazione segue ogni modifica
+		counted.property("publication", 0L);
+		counted.updateTotal();
+		Thread.sleep(500);
+		assert publications.get() == 2;
+		assert waldotTestClientHandler.checkOpcUaVertexValueEquals("counted", "total", 101);
+		counted.removePropertyObserver(observer);
+	}
+
 	private void simpleServerInit() throws ConfigurationException, InterruptedException, ExecutionException {
 		bootstrapUrlServerInit("file:///tmp/boot.conf");
 	}
@@ -7,7 +7,10 @@ import org.eclipse.milo.opcua.sdk.server.items.DataItem;
 import org.eclipse.milo.opcua.sdk.server.items.MonitoredItem;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
 
+import net.rossonet.waldot.api.models.WaldotBulkLoader;
 import net.rossonet.waldot.api.models.WaldotCommand;
+import net.rossonet.waldot.api.models.WaldotEdge;
+import net.rossonet.waldot.api.models.WaldotVertex;
 
 /**
  * NamespaceListener interface for handling events related to the Waldot
@@ -78,6 +81,16 @@ public interface NamespaceListener {
 	default void onCommandRemoved(final WaldotCommand command) {
 	}
 
+	/**
+	 * Called once for every batch completed by a bulk loader.
+	 * 
+	 * @param vertices the vertices added by the batch
+	 * @param edges the edges added by the batch
+	 * @see WaldotBulkLoader
+	 */
+	default void onBulkLoad(final List<WaldotVertex> vertices, final List<WaldotEdge> edges) {
+	}
+
 	/**
 	 * Called when data items (monitored items) are created.
 	 * 
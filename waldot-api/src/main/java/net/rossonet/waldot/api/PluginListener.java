@@ -1,7 +1,9 @@
 package net.rossonet.waldot.api;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.eclipse.milo.opcua.sdk.core.AccessLevel;
 import org.eclipse.milo.opcua.sdk.core.Reference;
@@ -21,6 +23,7 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 import org.eclipse.milo.opcua.stack.core.types.structured.AccessRestrictionType;
 import org.eclipse.milo.opcua.stack.core.types.structured.RolePermissionType;
 
+import net.rossonet.waldot.api.models.WaldotBulkLoader;
 import net.rossonet.waldot.api.models.WaldotCommand;
 import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotGraph;
@@ -278,6 +281,31 @@ public interface PluginListener {
 			String type, Object[] propertyKeyValues) {
 	}
 
+	/**
+	 * Notifies the plugin that a batch of edges of one of its types has been
+	 * added by a bulk loader.
+	 * 
+	 * <p>The default implementation calls
+	 * {@link #notifyAddEdge(WaldotEdge, WaldotVertex, WaldotVertex, String, String, Object[])}
+	 * for every edge, with the current properties of the edge as key-values.
+	 * Plugins can override it to set up the whole batch at once.</p>
+	 * 
+	 * @param type the edge type, accepted by {@link #containsEdgeType(String)}
+	 * @param edges the new edges
+	 * @see WaldotBulkLoader
+	 */
+	default void notifyAddEdges(final String type, final List<WaldotEdge> edges) {
+		for (final WaldotEdge edge : edges) {
+			final List<Object> keyValues = new ArrayList<>();
+			edge.properties().forEachRemaining(property -> {
+				keyValues.add(property.key());
+				keyValues.add(property.value());
+			});
+			notifyAddEdge(edge, (WaldotVertex) edge.outVertex(), (WaldotVertex) edge.inVertex(), edge.label(), type,
+					keyValues.toArray());
+		}
+	}
+
 	/**
 	 * Notifies the plugin that an edge has been removed from the graph.
 	 * 
@@ -37,6 +37,20 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
  */
 public interface PropertyObserver {
 
+	/**
+	 * Tells whether the notifications of this observer are deferred to the
+	 * commit of a graph transaction.
+	 * 
+	 * <p>Observers that keep internal structures of the graph in sync, like the
+	 * indexes, return false to be notified immediately. The default is true.</p>
+	 * 
+	 * @return true to be notified once per changed property at commit
+	 * @see net.rossonet.waldot.api.models.WaldotGraph#deferNotification(Object, Runnable)
+	 */
+	default boolean isDeferredInTransaction() {
+		return true;
+	}
+
 	/**
 	 * Called when a property value changes on an OPC UA node.
 	 * 
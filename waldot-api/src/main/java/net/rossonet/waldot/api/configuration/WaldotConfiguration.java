@@ -41,6 +41,17 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
  */
 public interface WaldotConfiguration extends Serializable, Map<String, String> {
 
+	/**
+	 * history strategy that only logs the history requests
+	 */
+	String HISTORY_STRATEGY_LOGGER = "logger";
+
+	/**
+	 * history strategy that stores the historized properties in the time series
+	 * of the history directory
+	 */
+	String HISTORY_STRATEGY_TIME_SERIES = "timeseries";
+
 	/**
 	 * Gets the description for the About command.
 	 * 
@@ -121,6 +132,50 @@ public interface WaldotConfiguration extends Serializable, Map<String, String> {
 	 */
 	URL getBootUrl();
 
+	/**
+	 * Gets the description for the BulkLoad command.
+	 * 
+	 * @return the description string
+	 */
+	String getBulkLoadCommandDescription();
+
+	/**
+	 * Checks if the BulkLoad command is executable.
+	 * 
+	 * @return true if executable
+	 */
+	Boolean getBulkLoadCommandExecutable();
+
+	/**
+	 * Gets the label for the BulkLoad command.
+	 * 
+	 * @return the label string
+	 */
+	String getBulkLoadCommandLabel();
+
+	/**
+	 * Checks if the BulkLoad command is executable by regular users.
+	 * 
+	 * @return true if user executable
+	 */
+	Boolean getBulkLoadCommandUserExecutable();
+
+	/**
+	 * Gets the user write mask for the BulkLoad command.
+	 * 
+	 * @return the write mask
+	 * @see UInteger
+	 */
+	UInteger getBulkLoadCommandUserWriteMask();
+
+	/**
+	 * Gets the write mask for the BulkLoad command.
+	 * 
+	 * @return the write mask
+	 * @see UInteger
+	 */
+	UInteger getBulkLoadCommandWriteMask();
+
 	/**
 	 * Gets the default delay for facts validity in milliseconds.
 	 * 
@@ -281,6 +336,21 @@ public interface WaldotConfiguration extends Serializable, Map<String, String> {
 	 */
 	String getHelpDirectory();
 
+	/**
+	 * Gets the directory of the time series of the historized properties.
+	 * 
+	 * @return the directory path string
+	 */
+	String getHistoryDirectory();
+
+	/**
+	 * Gets the history strategy of the server, {@link #HISTORY_STRATEGY_LOGGER}
+	 * or {@link #HISTORY_STRATEGY_TIME_SERIES}.
+	 * 
+	 * @return the name of the history strategy
+	 */
+	String getHistoryStrategy();
+
 	/**
 	 * Gets the browse name for the interface root node.
 	 * 
@@ -353,6 +423,25 @@ public interface WaldotConfiguration extends Serializable, Map<String, String> {
 	 */
 	UInteger getOsCheckDelayCommandWriteMask();
 
+	/**
+	 * Gets the directory of the graph snapshots and of the write ahead log.
+	 * 
+	 * <p>When the directory is set the graph is restored from it at startup,
+	 * in place of the bootstrap procedure, and every change is logged to it.</p>
+	 * 
+	 * @return the directory path string, or null to keep the graph in memory
+	 *         only
+	 */
+	String getPersistenceDirectory();
+
+	/**
+	 * Gets the interval between two graph snapshots.
+	 * 
+	 * @return the interval in milliseconds, zero or negative to write the
+	 *         snapshot only on close
+	 */
+	long getPersistenceSnapshotIntervalMs();
+
 	/**
 	 * Gets the browse name for the root node.
 	 * 
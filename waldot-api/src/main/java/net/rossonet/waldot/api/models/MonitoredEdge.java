@@ -1,8 +1,11 @@
 package net.rossonet.waldot.api.models;
 
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.tinkerpop.gremlin.structure.Property;
 import org.eclipse.milo.opcua.sdk.server.model.objects.BaseEventType;
@@ -17,6 +20,17 @@ import net.rossonet.waldot.api.strategies.MiloStrategy;
 
 public abstract class MonitoredEdge implements EventObserver, PropertyObserver {
 
+	// configurazione letta con la versione delle proprietà di controllo
+	private static final class VersionedConfiguration {
+		private final MonitoredEdgeConfiguration configuration;
+		private final long version;
+
+		private VersionedConfiguration(final long version, final MonitoredEdgeConfiguration configuration) {
+			this.version = version;
+			this.configuration = configuration;
+		}
+	}
+
 	public static final String ABSOLUTE = "absolute";
 	public static final String ACTIVE_LABEL = "active";
 	public static final String DEADBAND_LABEL = "deadband-value";
@@ -29,6 +43,14 @@ public abstract class MonitoredEdge implements EventObserver, PropertyObserver {
 	public static final String PERCENTAGE = "percentage";
 	public static final String PROPERTY_ACTIVE_LABEL = "active-property";
 	public static final String SEPARATOR = ",";
+	/**
+	 * edge properties that are parsed in the {@link MonitoredEdgeConfiguration}
+	 */
+	public static final Set<String> CONFIGURATION_LABELS = Set.of(ACTIVE_LABEL, DEADBAND_LABEL, DEADBAND_TYPE_LABEL,
+			DELAY_LABEL, EVENT_ACTIVE_LABEL, MONITORED_PROPERTIES_LABEL, PROPERTY_ACTIVE_LABEL,
+			MiloStrategy.MONITOR_EDGE_PRIORITY_FIELD.toLowerCase());
+	private volatile VersionedConfiguration configuration;
+	private final AtomicLong configurationVersion = new AtomicLong();
 	private final WaldotEdge edge;
 	private final WaldotNamespace engine;
 	private final WaldotVertex sourceVertex;
@@ -69,47 +91,11 @@ public abstract class MonitoredEdge implements EventObserver, PropertyObserver {
 	}
 
 	protected boolean checkContainsInPropertyArray(final String propertyLabel, final String label) {
-		if (label == null) {
-			logger.warn("Label is null, cannot check in property array");
-			return true;
-		}
-		if (label.contains(SEPARATOR)) {
-			logger.warn("Label contains separator '{}', which may cause issues in property array parsing: {}",
-					SEPARATOR, label);
-			return true;
-		}
-		if (label.isEmpty()) {
-			logger.warn("Label is empty, cannot check in property array");
-			return true;
-		}
-		try {
-			final Property<Object> property = edge.property(propertyLabel);
-			if (property.isPresent()) {
-				final Object value = property.value();
-				if (value instanceof String && !((String) value).isEmpty()) {
-					final List<String> values = Arrays.asList(((String) value).split(SEPARATOR));
-					if (values.contains(JOLLY_LABEL) || values.contains(label)) {
-						return true;
-					} else {
-						return false;
-					}
-				} else {
-					// se la proprietà è presente ma non è una stringa o è vuota, considero che non
-					// abbia specificato alcuna proprietà da monitorare, quindi considero che non
-					// sia monitorata
-					return false;
-				}
-			}
-			return true; // se la proprietà non esiste, considero che non sia stata specificata la
-							// volontà di monitorare tutte le proprietà
-		} catch (final Exception e) {
-			// in caso di errori di conversione, per ora considero la volontà di monitorare
-			// la proprietà
-			logger.warn("Error checking property array '{}', defaulting to include label '{}'. Error: {}",
-					propertyLabel, label, e.getMessage());
+		if (!isValidPropertyLabel(label)) {
 			return true;
 		}
-
+		final Set<String> values = readPropertyArray(propertyLabel);
+		return values == null || values.contains(label);
 	}
 
 	protected long checkLongInProperty(final String propertyLabel) {
@@ -140,6 +126,30 @@ public abstract class MonitoredEdge implements EventObserver, PropertyObserver {
 
 	protected abstract void createObserverNeeded();
 
+	/**
+	 * called by the edge after the new value of one of its properties is
+	 * stored, the configuration is rebuilt at the next notification if a control
+	 * property is changed.
+	 */
+	public void edgePropertyChanged(final String label) {
+		if (CONFIGURATION_LABELS.contains(label)) {
+			invalidateConfiguration();
+		}
+	}
+
+	public MonitoredEdgeConfiguration getConfiguration() {
+		// la versione è letta prima delle proprietà, una lettura concorrente a una
+		// modifica resta valida solo fino all'invalidazione successiva
+		final long version = configurationVersion.get();
+		final VersionedConfiguration current = configuration;
+		if (current != null && current.version == version) {
+			return current.configuration;
+		}
+		final MonitoredEdgeConfiguration newConfiguration = readConfiguration();
+		configuration = new VersionedConfiguration(version, newConfiguration);
+		return newConfiguration;
+	}
+
 	public WaldotEdge getEdge() {
 		return edge;
 	}
@@ -147,26 +157,7 @@ public abstract class MonitoredEdge implements EventObserver, PropertyObserver {
 	protected abstract Object getLastValue(String propertyLabel);
 
 	protected int getPriority() {
-		int calcolatedPriority = MiloStrategy.MONITOR_EDGE_DEFAULT_PRIORITY_VALUE;
-		final Property<Object> priorityValue = getEdge()
-				.property(MiloStrategy.MONITOR_EDGE_PRIORITY_FIELD.toLowerCase());
-		if (priorityValue.isPresent()) {
-			final Object priority = priorityValue.value();
-			if (priority instanceof Integer) {
-				calcolatedPriority = (Integer) priority;
-			} else if (priority instanceof String) {
-				try {
-					calcolatedPriority = Integer.parseInt((String) priority);
-				} catch (final NumberFormatException e) {
-					logger.warn("Invalid priority value: {}", priorityValue);
-					calcolatedPriority = MiloStrategy.MONITOR_EDGE_DEFAULT_PRIORITY_VALUE;
-				}
-			} else {
-				logger.warn("Unsupported priority value type: {}", priorityValue.getClass());
-				calcolatedPriority = MiloStrategy.MONITOR_EDGE_DEFAULT_PRIORITY_VALUE;
-			}
-		}
-		return calcolatedPriority;
+		return getConfiguration().getPriority();
 	}
 
 	protected WaldotVertex getSourceVertex() {
@@ -181,85 +172,160 @@ public abstract class MonitoredEdge implements EventObserver, PropertyObserver {
 		createObserverNeeded();
 	}
 
+	public void invalidateConfiguration() {
+		configurationVersion.incrementAndGet();
+	}
+
 	protected boolean isActive() {
-		return checkBinaryInProperty(ACTIVE_LABEL);
+		return getConfiguration().isActive();
 	}
 
-	// attenzione alle performance di questa logica, se è necessario potrebbe essere
-	// utile implementare un sistema di caching del valore del deadband
 	protected boolean isDeadBandExceeded(final String propertyLabel, final DataValue dataValue) {
-		final Property<Object> deadBandValue = edge.property(DEADBAND_LABEL);
-		if (deadBandValue.isPresent()) {
-			if (dataValue == null) {
-				logger.warn("DataValue is null for property '{}', cannot check deadband", propertyLabel);
-				return true; // se il DataValue è null, non applico il deadband
-			}
-			if (dataValue.getValue() == null) {
-				logger.warn("DataValue value is null for property '{}', cannot check deadband", propertyLabel);
-				return true; // se il valore del DataValue è null, non applico il deadband
-			}
-			final Object value = dataValue.getValue().getValue();
-			if (value == null || !(value instanceof Number)) {
-				return true; // se il valore non è numerico o è null, non applico il deadband
-			}
-			final Object dbValue = deadBandValue.value();
-			if (dbValue instanceof Number) {
-				final Property<Object> deadBandType = edge.property(DEADBAND_TYPE_LABEL);
-				if (deadBandValue.isPresent()) {
-					final Object dbType = deadBandType.value();
-					if (dbType instanceof String) {
-						final Object lastVal = getLastValue(propertyLabel);
-						if (lastVal instanceof Number) {
-							final double last = ((Number) lastVal).doubleValue();
-							if (PERCENTAGE.equalsIgnoreCase((String) dbType)) {
-								// deadband percentuale
-								return Math.abs(((Number) value).doubleValue() - last) > Math
-										.abs(last * ((Number) dbValue).doubleValue() / 100);
-							} else if (ABSOLUTE.equalsIgnoreCase((String) dbType)) {
-								// deadband assoluto
-								return Math.abs(((Number) value).doubleValue() - last) > ((Number) dbValue)
-										.doubleValue();
-							} else {
-								logger.warn("Unsupported deadband type '{}', defaulting to no deadband", dbType);
-								return true; // se il tipo di deadband non è supportato, non applico il deadband
-							}
-						} else {
-							// se l'ultimo valore non è numerico, non applico il deadband
-							return true;
-						}
-					} else {
-						// se deadbant type non è una stringa, considero sempre superato
-						return true;
-					}
-				} else {
-					// se il deadband type non è specificato, considero sempre superato
-					return true;
-				}
-			} else {
-				// se il valore del deadband non è numerico, non applico il deadband
-				return true;
-			}
-		} else {
-			// se il valore del deadband non è specificato, considero sempre superato
+		final MonitoredEdgeConfiguration currentConfiguration = getConfiguration();
+		if (!currentConfiguration.hasDeadband()) {
+			// se il deadband o il suo tipo non sono specificati, considero sempre superato
 			return true;
 		}
+		if (dataValue == null) {
+			logger.warn("DataValue is null for property '{}', cannot check deadband", propertyLabel);
+			return true; // se il DataValue è null, non applico il deadband
+		}
+		if (dataValue.getValue() == null) {
+			logger.warn("DataValue value is null for property '{}', cannot check deadband", propertyLabel);
+			return true; // se il valore del DataValue è null, non applico il deadband
+		}
+		final Object value = dataValue.getValue().getValue();
+		if (value == null || !(value instanceof Number)) {
+			return true; // se il valore non è numerico o è null, non applico il deadband
+		}
+		final Object lastVal = getLastValue(propertyLabel);
+		if (!(lastVal instanceof Number)) {
+			// se l'ultimo valore non è numerico, non applico il deadband
+			return true;
+		}
+		final double last = ((Number) lastVal).doubleValue();
+		final double deadband = currentConfiguration.getDeadband();
+		final String dbType = currentConfiguration.getDeadbandType();
+		if (PERCENTAGE.equalsIgnoreCase(dbType)) {
+			// deadband percentuale
+			return Math.abs(((Number) value).doubleValue() - last) > Math.abs(last * deadband / 100);
+		} else if (ABSOLUTE.equalsIgnoreCase(dbType)) {
+			// deadband assoluto
+			return Math.abs(((Number) value).doubleValue() - last) > deadband;
+		} else {
+			logger.warn("Unsupported deadband type '{}', defaulting to no deadband", dbType);
+			return true; // se il tipo di deadband non è supportato, non applico il deadband
+		}
 	}
 
 	protected boolean isDelayProperty() {
-		final long checkLongInProperty = checkLongInProperty(DELAY_LABEL);
-		return checkLongInProperty > 0;
+		return getConfiguration().isDelayed();
 	}
 
 	protected boolean isEventNotificationActive() {
-		return checkBinaryInProperty(EVENT_ACTIVE_LABEL);
+		return getConfiguration().isEventNotificationActive();
 	}
 
 	protected boolean isMonitoredProperty(final String label) {
-		return checkContainsInPropertyArray(MONITORED_PROPERTIES_LABEL, label);
+		return !isValidPropertyLabel(label) || getConfiguration().isMonitoredProperty(label);
 	}
 
 	protected boolean isPropertyNotificationActive() {
-		return checkBinaryInProperty(PROPERTY_ACTIVE_LABEL);
+		return getConfiguration().isPropertyNotificationActive();
+	}
+
+	private boolean isValidPropertyLabel(final String label) {
+		if (label == null) {
+			logger.warn("Label is null, cannot check in property array");
+			return false;
+		}
+		if (label.contains(SEPARATOR)) {
+			logger.warn("Label contains separator '{}', which may cause issues in property array parsing: {}",
+					SEPARATOR, label);
+			return false;
+		}
+		if (label.isEmpty()) {
+			logger.warn("Label is empty, cannot check in property array");
+			return false;
+		}
+		return true;
+	}
+
+	protected MonitoredEdgeConfiguration readConfiguration() {
+		Double deadband = null;
+		String deadbandType = null;
+		try {
+			final Property<Object> deadBandValue = edge.property(DEADBAND_LABEL);
+			if (deadBandValue.isPresent() && deadBandValue.value() instanceof Number) {
+				deadband = ((Number) deadBandValue.value()).doubleValue();
+				final Property<Object> deadBandTypeValue = edge.property(DEADBAND_TYPE_LABEL);
+				if (deadBandTypeValue.isPresent() && deadBandTypeValue.value() instanceof String) {
+					deadbandType = (String) deadBandTypeValue.value();
+				}
+			}
+		} catch (final Exception e) {
+			logger.warn("Error reading deadband of edge {}, deadband disabled. Error: {}", edge, e.getMessage());
+			deadband = null;
+			deadbandType = null;
+		}
+		final MonitoredEdgeConfiguration newConfiguration = new MonitoredEdgeConfiguration(
+				checkBinaryInProperty(ACTIVE_LABEL), checkBinaryInProperty(EVENT_ACTIVE_LABEL),
+				checkBinaryInProperty(PROPERTY_ACTIVE_LABEL), readPropertyArray(MONITORED_PROPERTIES_LABEL), deadband,
+				deadbandType, checkLongInProperty(DELAY_LABEL), readPriority());
+		logger.debug("Configuration of edge {} rebuilt: {}", edge, newConfiguration);
+		return newConfiguration;
+	}
+
+	private int readPriority() {
+		int calcolatedPriority = MiloStrategy.MONITOR_EDGE_DEFAULT_PRIORITY_VALUE;
+		final Property<Object> priorityValue = getEdge()
+				.property(MiloStrategy.MONITOR_EDGE_PRIORITY_FIELD.toLowerCase());
+		if (priorityValue.isPresent()) {
+			final Object priority = priorityValue.value();
+			if (priority instanceof Integer) {
+				calcolatedPriority = (Integer) priority;
+			} else if (priority instanceof String) {
+				try {
+					calcolatedPriority = Integer.parseInt((String) priority);
+				} catch (final NumberFormatException e) {
+					logger.warn("Invalid priority value: {}", priorityValue);
+					calcolatedPriority = MiloStrategy.MONITOR_EDGE_DEFAULT_PRIORITY_VALUE;
+				}
+			} else {
+				logger.warn("Unsupported priority value type: {}", priority.getClass());
+				calcolatedPriority = MiloStrategy.MONITOR_EDGE_DEFAULT_PRIORITY_VALUE;
+			}
+		}
+		return calcolatedPriority;
+	}
+
+	/**
+	 * @return the values of the property, null if all the values are accepted
+	 */
+	private Set<String> readPropertyArray(final String propertyLabel) {
+		try {
+			final Property<Object> property = edge.property(propertyLabel);
+			if (property.isPresent()) {
+				final Object value = property.value();
+				if (value instanceof String && !((String) value).isEmpty()) {
+					final List<String> values = Arrays.asList(((String) value).split(SEPARATOR));
+					return values.contains(JOLLY_LABEL) ? null : new HashSet<>(values);
+				} else {
+					// se la proprietà è presente ma non è una stringa o è vuota, considero che non
+					// abbia specificato alcuna proprietà da monitorare, quindi considero che non
+					// sia monitorata
+					return Set.of();
+				}
+			}
+			return null; // se la proprietà non esiste, considero che non sia stata specificata la
+							// volontà di monitorare tutte le proprietà
+		} catch (final Exception e) {
+			// in caso di errori di conversione, per ora considero la volontà di monitorare
+			// la proprietà
+			logger.warn("Error checking property array '{}', defaulting to all the properties. Error: {}",
+					propertyLabel, e.getMessage());
+			return null;
+		}
 	}
 
 	public void remove() {
@@ -270,7 +336,7 @@ public abstract class MonitoredEdge implements EventObserver, PropertyObserver {
 			final int calcolatedPriority) {
 		engine.getTimer().schedule(() -> {
 			destinationVertex.fireEvent(node, event, calcolatedPriority);
-		}, checkLongInProperty(DELAY_LABEL), TimeUnit.MILLISECONDS);
+		}, getConfiguration().getDelay(), TimeUnit.MILLISECONDS);
 
 	}
 
@@ -278,14 +344,14 @@ public abstract class MonitoredEdge implements EventObserver, PropertyObserver {
 			final String propertyLabel, final DataValue dataValue, final int calcolatedPriority) {
 		engine.getTimer().schedule(() -> {
 			destinationVertex.fireProperty(node, propertyLabel, dataValue, calcolatedPriority);
-		}, checkLongInProperty(DELAY_LABEL), TimeUnit.MILLISECONDS);
+		}, getConfiguration().getDelay(), TimeUnit.MILLISECONDS);
 
 	}
 
 	protected void sendWithDelay(final WaldotVertex destinationVertex, final String propertyLabel, final Object value) {
 		engine.getTimer().schedule(() -> {
 			destinationVertex.property(propertyLabel, value);
-		}, checkLongInProperty(DELAY_LABEL), TimeUnit.MILLISECONDS);
+		}, getConfiguration().getDelay(), TimeUnit.MILLISECONDS);
 
 	}
 
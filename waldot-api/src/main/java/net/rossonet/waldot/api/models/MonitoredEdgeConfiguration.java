@@ -0,0 +1,99 @@
+package net.rossonet.waldot.api.models;
+
+import java.util.Set;
+
+/**
+ * Immutable snapshot of the control properties of a {@link MonitoredEdge}.
+ *
+ * <p>The snapshot is parsed once from the edge properties and rebuilt only when
+ * one of the control properties changes, so the notifications never read the
+ * OPC UA nodes of the edge.</p>
+ *
+ * @Author Andrea Ambrosini - Rossonet s.c.a.r.l.
+ * @see MonitoredEdge#getConfiguration()
+ */
+public final class MonitoredEdgeConfiguration {
+
+	private final boolean active;
+	private final Double deadband;
+	private final String deadbandType;
+	private final long delay;
+	private final boolean eventNotificationActive;
+	private final Set<String> monitoredProperties;
+	private final int priority;
+	private final boolean propertyNotificationActive;
+
+	/**
+	 * @param monitoredProperties the labels of the monitored properties, null to
+	 *                            monitor all the properties
+	 * @param deadband            the deadband value, null when the deadband is
+	 *                            not configured or not numeric
+	 * @param deadbandType        the deadband type, null when it is not
+	 *                            configured
+	 */
+	public MonitoredEdgeConfiguration(final boolean active, final boolean eventNotificationActive,
+			final boolean propertyNotificationActive, final Set<String> monitoredProperties, final Double deadband,
+			final String deadbandType, final long delay, final int priority) {
+		this.active = active;
+		this.eventNotificationActive = eventNotificationActive;
+		this.propertyNotificationActive = propertyNotificationActive;
+		this.monitoredProperties = monitoredProperties == null ? null : Set.copyOf(monitoredProperties);
+		this.deadband = deadband;
+		this.deadbandType = deadbandType;
+		this.delay = delay;
+		this.priority = priority;
+	}
+
+	public Double getDeadband() {
+		return deadband;
+	}
+
+	public String getDeadbandType() {
+		return deadbandType;
+	}
+
+	public long getDelay() {
+		return delay;
+	}
+
+	public Set<String> getMonitoredProperties() {
+		return monitoredProperties;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	public boolean hasDeadband() {
+		return deadband != null && deadbandType != null;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+
+	public boolean isDelayed() {
+		return delay > 0;
+	}
+
+	public boolean isEventNotificationActive() {
+		return eventNotificationActive;
+	}
+
+	public boolean isMonitoredProperty(final String label) {
+		return monitoredProperties == null || monitoredProperties.contains(label);
+	}
+
+	public boolean isPropertyNotificationActive() {
+		return propertyNotificationActive;
+	}
+
+	@Override
+	public String toString() {
+		return "MonitoredEdgeConfiguration [active=" + active + ", eventNotificationActive=" + eventNotificationActive
+				+ ", propertyNotificationActive=" + propertyNotificationActive + ", monitoredProperties="
+				+ (monitoredProperties == null ? MonitoredEdge.JOLLY_LABEL : monitoredProperties) + ", deadband="
+				+ deadband + ", deadbandType=" + deadbandType + ", delay=" + delay + ", priority=" + priority + "]";
+	}
+
+}
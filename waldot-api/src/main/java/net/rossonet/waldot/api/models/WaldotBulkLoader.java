@@ -0,0 +1,102 @@
+package net.rossonet.waldot.api.models;
+
+/**
+ * WaldotBulkLoader loads streams of vertices and edges into the graph in
+ * batches.
+ *
+ * <p>The elements are built as soon as they are added and published once per
+ * batch: the OPC UA address space, the traversals, the secondary indexes, the
+ * plugin callbacks of the new edges and the namespace listeners see the whole
+ * batch together. A batch is completed when it reaches the batch size, on
+ * {@link #flush()}, on {@link #close()} and when the graph is closed.</p>
+ *
+ * <p>Until the batch is completed the new elements are visible only to the
+ * loader itself, which finds them by id in {@link #addEdge(Object, Object,
+ * String, Object...)}. A loader must be used by a single thread.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * try (WaldotBulkLoader loader = graph.bulkLoader()) {
+ *     loader.addVertex("id", "pump-1", "label", "pump", "directory", "plant/line1");
+ *     loader.addVertex("id", "tank-1", "label", "tank", "directory", "plant/line1");
+ *     loader.addEdge("pump-1", "tank-1", "feeds", "flow", 12.5);
+ * }
+ * }</pre>
+ *
+ * @Author Andrea Ambrosini - Rossonet s.c.a.r.l.
+ * @see WaldotGraph#bulkLoader()
+ * @see WaldotNamespace#createBulkLoader(int)
+ */
+public interface WaldotBulkLoader extends AutoCloseable {
+
+	/**
+	 * Default number of elements in a batch.
+	 */
+	int DEFAULT_BATCH_SIZE = 10_000;
+
+	/**
+	 * Adds an edge between two vertices.
+	 *
+	 * <p>The vertices are looked up by id, first among the vertices loaded by
+	 * this loader and then in the graph.</p>
+	 *
+	 * @param sourceId the id of the source vertex
+	 * @param targetId the id of the target vertex
+	 * @param label the edge label
+	 * @param keyValues optional property key-value pairs
+	 * @return the created edge
+	 * @throws IllegalArgumentException if a vertex does not exist
+	 */
+	WaldotEdge addEdge(Object sourceId, Object targetId, String label, Object... keyValues);
+
+	/**
+	 * Adds an edge between two vertices.
+	 *
+	 * @param sourceVertex the source vertex
+	 * @param targetVertex the target vertex
+	 * @param label the edge label
+	 * @param keyValues optional property key-value pairs
+	 * @return the created edge
+	 */
+	WaldotEdge addEdge(WaldotVertex sourceVertex, WaldotVertex targetVertex, String label, Object... keyValues);
+
+	/**
+	 * Adds a vertex.
+	 *
+	 * <p>The id is read from the key-values like in {@code graph.addVertex()},
+	 * when it is missing a new NodeId is assigned.</p>
+	 *
+	 * @param keyValues property key-value pairs
+	 * @return the created vertex
+	 */
+	WaldotVertex addVertex(Object... keyValues);
+
+	/**
+	 * Completes the current batch, then the loader does not accept new
+	 * elements.
+	 */
+	@Override
+	void close();
+
+	/**
+	 * Completes the current batch: publishes the elements with their index
+	 * entries, notifies the plugins and the namespace listeners.
+	 */
+	void flush();
+
+	/**
+	 * @return the number of elements in a batch
+	 */
+	int getBatchSize();
+
+	/**
+	 * @return the number of edges loaded
+	 */
+	long getEdgeCount();
+
+	/**
+	 * @return the number of vertices loaded
+	 */
+	long getVertexCount();
+
+}
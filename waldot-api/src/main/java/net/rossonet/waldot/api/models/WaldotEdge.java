@@ -76,7 +76,8 @@ public interface WaldotEdge extends Edge, WaldotElement, BaseObjectType {
 	 * Adds a related property to this edge.
 	 * 
 	 * <p>This associates a WaldotProperty with this edge. The property
-	 * is tracked for cleanup when the edge is removed.</p>
+	 * is tracked for cleanup when the edge is removed and indexed by key, the
+	 * OPC UA node of the property is resolved from this table.</p>
 	 * 
 	 * @param property the WaldotProperty to add
 	 * @see WaldotProperty
@@ -115,6 +116,15 @@ public interface WaldotEdge extends Edge, WaldotElement, BaseObjectType {
 	 */
 	public <T> Optional<T> getProperty(QualifiedProperty<T> property);
 
+	/**
+	 * Returns the property of this edge with the given key.
+	 * 
+	 * @param key the property key
+	 * @return the WaldotProperty, or null if the edge has no such property
+	 * @see #addRelatedProperty(WaldotProperty)
+	 */
+	WaldotProperty<Object> getRelatedProperty(String key);
+
 	/**
 	 * Returns all property observers registered on this edge.
 	 * 
@@ -123,6 +133,13 @@ public interface WaldotEdge extends Edge, WaldotElement, BaseObjectType {
 	 */
 	List<PropertyObserver> getPropertyObservers();
 
+	/**
+	 * Called after a new property value has been stored on this edge.
+	 * 
+	 * @param label the property label
+	 */
+	void notifyPropertyValueChanged(String label);
+
 	/**
 	 * Called before a property value is changed on this edge.
 	 * 
@@ -151,4 +168,14 @@ public interface WaldotEdge extends Edge, WaldotElement, BaseObjectType {
 	 */
 	void removeRelatedOpcUaNodes();
 
+	/**
+	 * Removes a property from the property table of the edge.
+	 * 
+	 * <p>Called by the strategy when the property is removed, the counterpart
+	 * of {@link #addRelatedProperty(WaldotProperty)}.</p>
+	 * 
+	 * @param property the WaldotProperty to remove
+	 */
+	void removeRelatedProperty(WaldotProperty<?> property);
+
 }
@@ -1,13 +1,11 @@
 package net.rossonet.waldot.api.models;
 
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Element;
@@ -102,6 +100,27 @@ public interface WaldotGraph extends Graph, AutoCloseable {
 	 */
 	public static final String VP = "vp";
 
+	/**
+	 * Opens a bulk loader with the default batch size.
+	 * 
+	 * @return a new bulk loader, to be closed at the end of the load
+	 * @see WaldotBulkLoader
+	 */
+	default WaldotBulkLoader bulkLoader() {
+		return bulkLoader(WaldotBulkLoader.DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Opens a bulk loader.
+	 * 
+	 * @param batchSize the number of elements in a batch
+	 * @return a new bulk loader, to be closed at the end of the load
+	 * @see WaldotBulkLoader
+	 */
+	default WaldotBulkLoader bulkLoader(final int batchSize) {
+		return getWaldotNamespace().createBulkLoader(batchSize);
+	}
+
 	/**
 	 * Creates an iterator for graph elements with optional filtering.
 	 * 
@@ -109,6 +128,11 @@ public interface WaldotGraph extends Graph, AutoCloseable {
 	 * It handles conversion between NodeId and native element IDs, and applies
 	 * GraphComputer filtering when in OLAP mode.</p>
 	 * 
+	 * <p>The iterator is lazy and weakly consistent: it walks the element map
+	 * without copying it, so {@code limit()} or {@code hasNext()} stop the scan
+	 * early. Elements added or removed during the iteration may or may not be
+	 * returned.</p>
+	 * 
 	 * @param <T> the type of element to iterate
 	 * @param <W> the type of WaldotElement in the map
 	 * @param cast the class to cast elements to
@@ -120,16 +144,12 @@ public interface WaldotGraph extends Graph, AutoCloseable {
 	 * @see Iterator
 	 * @see IdManager
 	 */
+	@SuppressWarnings("unchecked")
 	default <T extends Element, W extends WaldotElement> Iterator<T> createElementIterator(final Class<T> cast,
 			final Class<W> clazz, final Map<NodeId, W> elements, final IdManager<?> idManager, final NodeId[] ids) {
 		final Iterator<T> iterator;
-		final Collection<Entry<NodeId, W>> originalList = elements.entrySet();
-		final Map<NodeId, T> convertedList = new HashMap<>();
-		for (final Entry<NodeId, W> data : originalList) {
-			convertedList.put(data.getKey(), (T) data.getValue());
-		}
 		if (0 == ids.length) {
-			iterator = new WaldotGraphIterator<>(convertedList.values().iterator());
+			iterator = new WaldotGraphIterator<>((Iterator<T>) (Iterator<?>) elements.values().iterator());
 		} else {
 			final List<Object> idList = Arrays.asList((Object[]) ids);
 			return new WaldotGraphIterator<>(IteratorUtils.filter(IteratorUtils.map(idList, id -> {
@@ -138,7 +158,7 @@ public interface WaldotGraph extends Graph, AutoCloseable {
 				}
 				final Object iid = cast.isAssignableFrom(id.getClass()) ? cast.cast(id).id()
 						: idManager.convert(this, id);
-				return convertedList.get(idManager.convert(this, iid));
+				return (T) elements.get(idManager.convert(this, iid));
 			}).iterator(), Objects::nonNull));
 		}
 		return (getWaldotNamespace().inComputerMode()) ? (Iterator<T>) (cast.equals(Vertex.class)
@@ -148,6 +168,119 @@ public interface WaldotGraph extends Graph, AutoCloseable {
 				: iterator;
 	}
 
+	/**
+	 * Creates a vertex-centric index on the edges with a label.
+	 * 
+	 * <p>The incident edges of every vertex are kept sorted on the value of the
+	 * key, so that traversals like
+	 * {@code g.V(hub).outE('telemetry').order().by('timestamp', desc).limit(50)}
+	 * or {@code g.V(hub).outE('fire').has('priority', gt(5))} read a slice of
+	 * the neighborhood instead of sorting or filtering all of it.</p>
+	 * 
+	 * @param edgeLabel the label of the indexed edges
+	 * @param key the property key the edges are sorted on
+	 * @see #dropEdgeIndex(String, String)
+	 */
+	void createEdgeIndex(String edgeLabel, String key);
+
+	/**
+	 * Creates an exact-match (hash) index on a property key.
+	 * 
+	 * <p>The index is populated with the current elements and then kept in sync
+	 * with property writes and element removal. Traversals like
+	 * {@code g.V().has('serial','X123')} are answered from the index instead of a
+	 * full scan.</p>
+	 * 
+	 * @param key the property key to index
+	 * @param elementClass the element class to index ({@link Vertex} or
+	 *                     {@link Edge})
+	 * @see #createRangeIndex(String, Class)
+	 * @see #dropIndex(String, Class)
+	 */
+	void createIndex(String key, Class<? extends Element> elementClass);
+
+	/**
+	 * Creates an exact-match (hash) index on a property key.
+	 * 
+	 * <p>Console friendly variant of {@link #createIndex(String, Class)}, the
+	 * element type is "vertex" or "edge".</p>
+	 * 
+	 * @param key the property key to index
+	 * @param elementType "vertex" or "edge"
+	 */
+	void createIndex(String key, String elementType);
+
+	/**
+	 * Creates an ordered index on a property key.
+	 * 
+	 * <p>Besides exact matches, an ordered index answers range predicates like
+	 * {@code lt}, {@code gte} or {@code between}.</p>
+	 * 
+	 * @param key the property key to index
+	 * @param elementClass the element class to index ({@link Vertex} or
+	 *                     {@link Edge})
+	 * @see #createIndex(String, Class)
+	 */
+	void createRangeIndex(String key, Class<? extends Element> elementClass);
+
+	/**
+	 * Creates an ordered index on a property key.
+	 * 
+	 * <p>Console friendly variant of {@link #createRangeIndex(String, Class)},
+	 * the element type is "vertex" or "edge".</p>
+	 * 
+	 * @param key the property key to index
+	 * @param elementType "vertex" or "edge"
+	 */
+	void createRangeIndex(String key, String elementType);
+
+	/**
+	 * Defers a change notification to the commit of the transaction open in the
+	 * current thread, or to the end of the write that is changing the element.
+	 * 
+	 * <p>In a transaction, notifications with the same key are coalesced: only
+	 * the last one is delivered, in the position of the first. A null key is
+	 * never coalesced. The deferred notifications are discarded on rollback.
+	 * Outside a transaction the notification runs, uncoalesced, as soon as the
+	 * current thread releases the locks of the elements it is writing, so the
+	 * observers never run while those locks are held.</p>
+	 * 
+	 * <p>The default implementation has no transactions and no locks.</p>
+	 * 
+	 * @param key the coalescing key, or null
+	 * @param notification the notification to deliver
+	 * @return true if the notification was deferred, false if the caller must
+	 *         notify immediately
+	 * @see #tx()
+	 */
+	default boolean deferNotification(final Object key, final Runnable notification) {
+		return false;
+	}
+
+	/**
+	 * Drops the vertex-centric index on the edges with a label.
+	 * 
+	 * @param edgeLabel the label of the indexed edges
+	 * @param key the property key the edges are sorted on
+	 */
+	void dropEdgeIndex(String edgeLabel, String key);
+
+	/**
+	 * Drops the index on a property key.
+	 * 
+	 * @param key the indexed property key
+	 * @param elementClass the indexed element class
+	 */
+	void dropIndex(String key, Class<? extends Element> elementClass);
+
+	/**
+	 * Drops the index on a property key.
+	 * 
+	 * @param key the indexed property key
+	 * @param elementType "vertex" or "edge"
+	 */
+	void dropIndex(String key, String elementType);
+
 	/**
 	 * Returns the total count of edges in the graph.
 	 * 
@@ -176,6 +309,28 @@ public interface WaldotGraph extends Graph, AutoCloseable {
 	 */
 	WaldotGraphComputerView getGraphComputerView();
 
+	/**
+	 * Returns the property keys indexed for an element class.
+	 * 
+	 * @param elementClass the element class ({@link Vertex} or {@link Edge})
+	 * @return the indexed property keys
+	 */
+	Set<String> getIndexedKeys(Class<? extends Element> elementClass);
+
+	/**
+	 * Returns the buffer collecting the writes of the transaction open in the
+	 * current thread.
+	 *
+	 * <p>The default implementation has no transactions and writes directly to
+	 * the namespace.</p>
+	 *
+	 * @return the buffer of the open transaction, or null to write directly
+	 * @see WaldotTransactionBuffer
+	 */
+	default WaldotTransactionBuffer getTransactionBuffer() {
+		return null;
+	}
+
 	/**
 	 * Returns the total count of vertices in the graph.
 	 * 
@@ -99,6 +99,18 @@ public interface WaldotGraphComputerView {
 	 */
 	List<VertexProperty<?>> getProperty(Vertex vertex, String key);
 
+	/**
+	 * Gets the vertices the computation runs on.
+	 * 
+	 * <p>The vertices are a detached snapshot of the topology taken when the
+	 * view is created, so that vertex programs and map reduce jobs do not touch
+	 * the live OPC UA nodes. Compute keys written during the execution live on
+	 * these vertices.</p>
+	 * 
+	 * @return the snapshot vertices, already filtered by the GraphFilter
+	 */
+	List<Vertex> getVertices();
+
 	/**
 	 * Checks if an edge is legal within the GraphComputer view.
 	 * 
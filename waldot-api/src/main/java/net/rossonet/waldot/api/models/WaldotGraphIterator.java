@@ -55,6 +55,8 @@ public class WaldotGraphIterator<E> implements CloseableIterator<E> {
 	public void close() {
 		if (!finished) {
 			StoreIteratorCounter.INSTANCE.decrement();
+			// the wrapped iterator can be lazy on another resource, release it too
+			CloseableIterator.closeIterator(orig);
 		}
 		finished = true;
 	}
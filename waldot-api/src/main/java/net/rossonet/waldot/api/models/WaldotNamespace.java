@@ -134,6 +134,23 @@ public interface WaldotNamespace extends AutoCloseable {
 	 */
 	WaldotVertex addVertex(NodeId nodeId, Object[] keyValues);
 
+	/**
+	 * Closes the open bulk loaders, their pending batches are published. Called
+	 * when the graph is closed.
+	 * 
+	 * @see WaldotBulkLoader#close()
+	 */
+	void closeBulkLoaders();
+
+	/**
+	 * Creates a loader that adds vertices and edges in batches.
+	 * 
+	 * @param batchSize the number of elements in a batch
+	 * @return the bulk loader
+	 * @see WaldotBulkLoader
+	 */
+	WaldotBulkLoader createBulkLoader(int batchSize);
+
 	/**
 	 * Creates a GraphComputer view for OLAP processing.
 	 * 
@@ -322,6 +339,20 @@ public interface WaldotNamespace extends AutoCloseable {
 	 */
 	ConsoleStrategy getConsoleStrategy();
 
+	/**
+	 * Returns the number of edges connected to a vertex without collecting them.
+	 * 
+	 * <p>The count is the size of {@link #getEdges(WaldotVertex, Direction, String[])}
+	 * with the same arguments, read from the adjacency counters.</p>
+	 * 
+	 * @param vertex the vertex to query
+	 * @param direction the direction (OUT, IN, or BOTH)
+	 * @param edgeLabels optional array of edge labels to filter
+	 * @return the number of edges
+	 * @see Direction
+	 */
+	int getDegree(WaldotVertex vertex, Direction direction, String[] edgeLabels);
+
 	/**
 	 * Returns the incoming vertex of an edge.
 	 * 
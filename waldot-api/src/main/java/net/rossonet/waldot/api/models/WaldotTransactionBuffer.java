@@ -0,0 +1,75 @@
+package net.rossonet.waldot.api.models;
+
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+
+/**
+ * WaldotTransactionBuffer collects the writes of the graph transaction open in
+ * the current thread.
+ *
+ * <p>The writes are not applied to the OPC UA address space until the commit,
+ * so the other threads never see a transaction half done and a rollback only
+ * discards the buffer. The elements created in the transaction are returned as
+ * pending elements with their final id. The traversals of the transaction
+ * thread read the buffered writes, the other threads see them after the
+ * commit.</p>
+ *
+ * <p>The vertices and edges call the buffer in place of the namespace when
+ * {@link WaldotGraph#getTransactionBuffer()} is not null.</p>
+ *
+ * @Author Andrea Ambrosini - Rossonet s.c.a.r.l.
+ * @see WaldotGraph#getTransactionBuffer()
+ */
+public interface WaldotTransactionBuffer {
+
+	/**
+	 * Buffers a new edge.
+	 *
+	 * @param outVertex the source vertex, existing or pending
+	 * @param label the edge label
+	 * @param inVertex the target vertex, existing or pending
+	 * @param keyValues optional property key-value pairs
+	 * @return the pending edge
+	 */
+	Edge addEdge(Vertex outVertex, String label, Vertex inVertex, Object... keyValues);
+
+	/**
+	 * Buffers a new vertex.
+	 *
+	 * @param keyValues property key-value pairs, the id is assigned now when
+	 *                  missing
+	 * @return the pending vertex
+	 */
+	Vertex addVertex(Object... keyValues);
+
+	/**
+	 * Buffers the write of an edge property.
+	 *
+	 * @param edge the edge, existing or pending
+	 * @param key the property key
+	 * @param value the property value
+	 * @return the written property
+	 */
+	<V> Property<V> property(Edge edge, String key, V value);
+
+	/**
+	 * Buffers the write of a vertex property.
+	 *
+	 * @param vertex the vertex, existing or pending
+	 * @param key the property key
+	 * @param value the property value
+	 * @return the written property
+	 */
+	<V> VertexProperty<V> property(Vertex vertex, String key, V value);
+
+	/**
+	 * Buffers the removal of a vertex, an edge or a vertex property.
+	 *
+	 * @param element the element to remove
+	 */
+	void remove(Element element);
+
+}
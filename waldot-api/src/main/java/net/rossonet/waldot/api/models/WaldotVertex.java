@@ -89,7 +89,9 @@ public interface WaldotVertex extends Vertex, WaldotElement, BaseObjectType {
 	 * Adds a related property to this vertex.
 	 * 
 	 * <p>This associates a WaldotVertexProperty with this vertex. The property
-	 * is tracked for cleanup when the vertex is removed.</p>
+	 * is tracked for cleanup when the vertex is removed and indexed by key, so
+	 * that {@code property(key)} and the OPC UA node of the property are
+	 * resolved without walking the OPC UA references.</p>
 	 * 
 	 * @param property the WaldotVertexProperty to add
 	 * @see WaldotVertexProperty
@@ -194,6 +196,19 @@ public interface WaldotVertex extends Vertex, WaldotElement, BaseObjectType {
 	 */
 	List<PropertyObserver> getPropertyObservers();
 
+	/**
+	 * Returns the property of this vertex with the given key.
+	 * 
+	 * <p>A single lookup in the property table, without the copy made by
+	 * {@link #getVertexProperties()}.</p>
+	 * 
+	 * @param key the property key
+	 * @return the WaldotVertexProperty, or null if the vertex has no such
+	 *         property
+	 * @see #addRelatedProperty(WaldotVertexProperty)
+	 */
+	WaldotVertexProperty<Object> getRelatedProperty(String key);
+
 	/**
 	 * Returns an immutable map of all vertex properties.
 	 * 
@@ -284,4 +299,14 @@ public interface WaldotVertex extends Vertex, WaldotElement, BaseObjectType {
 	 */
 	void removeRelatedOpcUaNodes();
 
+	/**
+	 * Removes a property from the property table of the vertex.
+	 * 
+	 * <p>Called by the strategy when the property is removed, the counterpart
+	 * of {@link #addRelatedProperty(WaldotVertexProperty)}.</p>
+	 * 
+	 * @param property the WaldotVertexProperty to remove
+	 */
+	void removeRelatedProperty(WaldotVertexProperty<?> property);
+
 }
@@ -33,7 +33,9 @@ public abstract class GremlinElement extends UaObjectNode implements WaldotEleme
 
 	protected long currentVersion;
 
-	private boolean removed = false;
+	private volatile int handle = -1;
+
+	private volatile boolean removed = false;
 
 	protected GremlinElement(final UaNodeContext context, final NodeId nodeId, final QualifiedName browseName,
 			final LocalizedText displayName, final LocalizedText description, final UInteger writeMask,
@@ -65,6 +67,16 @@ public abstract class GremlinElement extends UaObjectNode implements WaldotEleme
 		return ElementHelper.areEqual(this, object);
 	}
 
+	/**
+	 * Returns the dense integer handle assigned to the element by the graph
+	 * adjacency, -1 if the element has no handle.
+	 *
+	 * @return the handle of the element
+	 */
+	public int getHandle() {
+		return handle;
+	}
+
 	@Override
 	public int hashCode() {
 		return ElementHelper.hashCode(this);
@@ -91,6 +103,24 @@ public abstract class GremlinElement extends UaObjectNode implements WaldotEleme
 
 	}
 
+	/**
+	 * Sets the dense integer handle of the element, reserved to the graph
+	 * adjacency.
+	 *
+	 * @param handle the handle, -1 to clear it
+	 */
+	public void setHandle(final int handle) {
+		this.handle = handle;
+	}
+
+	/**
+	 * Marks the element as removed, reserved to the strategy that removes it
+	 * while holding the lock of the element.
+	 */
+	public void setRemoved() {
+		this.removed = true;
+	}
+
 	@Override
 	public long version() {
 		return this.currentVersion;
@@ -7,6 +7,7 @@ import org.eclipse.milo.opcua.sdk.server.AddressSpace.HistoryUpdateContext;
 import org.eclipse.milo.opcua.sdk.server.items.DataItem;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
 import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadDetails;
 import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadResult;
@@ -123,6 +124,17 @@ public interface HistoryStrategy extends AutoCloseable {
 	 */
 	void onDataItemsModified(List<DataItem> dataItems);
 
+	/**
+	 * Called when a vertex is removed from the graph.
+	 * 
+	 * <p>Implementations can release the state kept for the vertex, the stored
+	 * history of its properties is not removed.</p>
+	 * 
+	 * @param vertexId the NodeId of the removed vertex
+	 */
+	default void onVertexRemoved(final NodeId vertexId) {
+	}
+
 	/**
 	 * Handles OPC UA event updates.
 	 * 
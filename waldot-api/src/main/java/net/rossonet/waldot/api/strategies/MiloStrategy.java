@@ -14,11 +14,13 @@ import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.eclipse.milo.opcua.sdk.core.Reference;
 import org.eclipse.milo.opcua.sdk.core.nodes.Node;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaFolderNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
 import org.eclipse.milo.opcua.stack.core.NodeIds;
 import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
 
 import net.rossonet.waldot.api.models.IdManager;
+import net.rossonet.waldot.api.models.WaldotBulkLoader;
 import net.rossonet.waldot.api.models.WaldotCommand;
 import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotGraph;
@@ -326,6 +328,23 @@ public interface MiloStrategy extends AutoCloseable {
 	 */
 	WaldotVertex addVertex(NodeId nodeId, Object[] keyValues);
 
+	/**
+	 * Closes the open bulk loaders, their pending batches are published. Called
+	 * when the graph is closed.
+	 * 
+	 * @see WaldotBulkLoader#close()
+	 */
+	void closeBulkLoaders();
+
+	/**
+	 * Creates a loader that adds vertices and edges in batches.
+	 * 
+	 * @param batchSize the number of elements in a batch
+	 * @return the bulk loader
+	 * @see WaldotBulkLoader
+	 */
+	WaldotBulkLoader createBulkLoader(int batchSize);
+
 	/**
 	 * Creates a GraphComputer view for OLAP processing.
 	 * 
@@ -387,6 +406,16 @@ public interface MiloStrategy extends AutoCloseable {
 	 */
 	UaFolderNode getAssetRootFolderNode();
 
+	/**
+	 * Returns the number of edges connected to a vertex.
+	 * 
+	 * @param opcVertex the vertex to query
+	 * @param direction the direction to traverse
+	 * @param edgeLabels optional edge label filter
+	 * @return the size of the map returned by getEdges with the same arguments
+	 */
+	int getDegree(WaldotVertex opcVertex, Direction direction, String[] edgeLabels);
+
 	/**
 	 * Returns the incoming vertex of an edge.
 	 * 
@@ -431,6 +460,32 @@ public interface MiloStrategy extends AutoCloseable {
 	 */
 	<DATA_TYPE> List<WaldotProperty<DATA_TYPE>> getProperties(WaldotEdge edge);
 
+	/**
+	 * Returns the OPC UA node of a vertex or edge property.
+	 * 
+	 * <p>The property nodes are not registered in the node manager of the
+	 * namespace: they are resolved on request from the property table of the
+	 * owning element, for the browse, read, write and monitored items of the
+	 * clients.</p>
+	 * 
+	 * @param nodeId the NodeId of the property
+	 * @return the property node, or null if no element has such property
+	 */
+	UaNode getPropertyNode(NodeId nodeId);
+
+	/**
+	 * Returns the references of the property nodes resolved by
+	 * {@link #getPropertyNode(NodeId)}.
+	 * 
+	 * <p>For a vertex or an edge the forward references to its property nodes,
+	 * for a property node the inverse references to its element, otherwise an
+	 * empty list.</p>
+	 * 
+	 * @param nodeId the NodeId of an element or of a property
+	 * @return list of references
+	 */
+	List<Reference> getPropertyNodeReferences(NodeId nodeId);
+
 	/**
 	 * Returns the edge that owns a property.
 	 * 
@@ -585,6 +640,18 @@ public interface MiloStrategy extends AutoCloseable {
 	 */
 	void resetNameSpace();
 
+	/**
+	 * Restores the graph from the configured persistence directory.
+	 * 
+	 * <p>Only the first call loads the last snapshot and replays the changes
+	 * logged after it, from then on the changes of the graph are logged.</p>
+	 * 
+	 * @return true if a persisted graph was found, false if the persistence is
+	 *         not configured or empty
+	 * @see net.rossonet.waldot.api.configuration.WaldotConfiguration#getPersistenceDirectory()
+	 */
+	boolean restorePersistedGraph();
+
 	/**
 	 * Updates an event generator configuration.
 	 * 
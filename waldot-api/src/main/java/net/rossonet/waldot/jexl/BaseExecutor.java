@@ -77,6 +77,14 @@ public interface BaseExecutor extends AutoCloseable {
 	 */
 	void addOrUpdateContext(String id, Object context);
 
+	/**
+	 * Discards the compiled expressions kept by the executor.
+	 * 
+	 * <p>Called when the functions or commands available to the expressions
+	 * are rebuilt.</p>
+	 */
+	void invalidateCache();
+
 	/**
 	 * Sets a function object for use in expressions.
 	 * 
@@ -18,21 +18,57 @@ import net.rossonet.waldot.utils.LogHelper;
 
 public class JexlExecutor implements BaseExecutor {
 
-	private static final boolean DEBUG_FLAG = true;
+	/**
+	 * Configuration of the JEXL engine.
+	 */
+	public enum EngineProfile {
+		/**
+		 * debug info in the compiled scripts, errors report line and column.
+		 */
+		DEBUG(true),
+		/**
+		 * no debug info, lighter scripts for the repeated evaluations.
+		 */
+		PRODUCTION(false);
+
+		private final boolean debug;
+
+		EngineProfile(final boolean debug) {
+			this.debug = debug;
+		}
+
+		public boolean isDebug() {
+			return debug;
+		}
+	}
+
+	public static final int DEFAULT_SCRIPT_CACHE_SIZE = 512;
 
 	protected static final Logger LOGGER = LoggerFactory.getLogger("JEXEL");
 
+	private static final String[] NO_PARAMETERS = new String[0];
+
 	/**
-	 * Generates a new JEXL engine with unrestricted permissions.
+	 * Generates a new JEXL engine with unrestricted permissions and debug info.
 	 * 
 	 * @return a new JexlEngine instance configured for unrestricted expression evaluation
 	 */
 	public static JexlEngine generateEngine() {
+		return generateEngine(EngineProfile.DEBUG);
+	}
+
+	/**
+	 * Generates a new JEXL engine with unrestricted permissions.
+	 * 
+	 * @param profile the configuration of the engine
+	 * @return a new JexlEngine instance configured for unrestricted expression evaluation
+	 */
+	public static JexlEngine generateEngine(final EngineProfile profile) {
 		// XXX: provare la restrizione dei permessi o la sandbox
 		// return new
 		// JexlBuilder().permissions(classPermissions).debug(true).silent(false).strict(false).create();
-		final JexlEngine j = new JexlBuilder().permissions(JexlPermissions.UNRESTRICTED).debug(DEBUG_FLAG).silent(false)
-				.strict(true).create();
+		final JexlEngine j = new JexlBuilder().permissions(JexlPermissions.UNRESTRICTED).debug(profile.isDebug())
+				.silent(false).strict(true).create();
 		return j;
 	}
 
@@ -44,16 +80,34 @@ public class JexlExecutor implements BaseExecutor {
 
 	protected final Set<Class<?>> functionObjects = new HashSet<>();
 
-	private JexlEngine jexl = generateEngine();
+	private JexlEngine jexl;
 	private final String name;
+	private final EngineProfile profile;
+	private final JexlScriptCache scriptCache;
 
 	/**
-	 * Creates a new JexlExecutor with the given name.
+	 * Creates a new JexlExecutor with the given name, the production engine
+	 * profile and the default script cache.
 	 * 
 	 * @param name the name identifier for this executor instance
 	 */
 	public JexlExecutor(String name) {
+		this(name, EngineProfile.PRODUCTION, DEFAULT_SCRIPT_CACHE_SIZE);
+	}
+
+	/**
+	 * Creates a new JexlExecutor.
+	 * 
+	 * @param name            the name identifier for this executor instance
+	 * @param profile         the configuration of the JEXL engine
+	 * @param scriptCacheSize the number of compiled scripts kept, 0 disables the
+	 *                        cache
+	 */
+	public JexlExecutor(final String name, final EngineProfile profile, final int scriptCacheSize) {
 		this.name = name;
+		this.profile = profile;
+		this.jexl = generateEngine(profile);
+		this.scriptCache = new JexlScriptCache(scriptCacheSize);
 	}
 
 	@Override
@@ -63,10 +117,29 @@ public class JexlExecutor implements BaseExecutor {
 
 	@Override
 	public void close() throws Exception {
+		if (LOGGER.isDebugEnabled()) {
+			LOGGER.debug("closing executor {} with {}", name, scriptCache);
+		}
+		scriptCache.invalidateAll();
 		jexl.clearCache();
 		jexl = null;
 	}
 
+	/**
+	 * Returns the compiled script of the expression, from the cache when it has
+	 * already been parsed.
+	 * 
+	 * @param expression     the JEXL source
+	 * @param parameterNames the names of the script parameters
+	 * @return the compiled script
+	 */
+	public JexlScript compile(final String expression, final String... parameterNames) {
+		final JexlEngine engine = jexl;
+		return scriptCache.get(expression, parameterNames,
+				() -> parameterNames.length == 0 ? engine.createScript(expression)
+						: engine.createScript(expression, parameterNames));
+	}
+
 	@Override
 	public Object execute(final String expression) {
 		return execute(expression, baseJexlContext);
@@ -75,7 +148,7 @@ public class JexlExecutor implements BaseExecutor {
 	@Override
 	public Object execute(final String expression, final JexlContext jexlContext) {
 		try {
-			final JexlScript compiled = jexl.createScript(expression);
+			final JexlScript compiled = compile(expression, NO_PARAMETERS);
 			return compiled.execute(jexlContext);
 		} catch (final Exception e) {
 			LOGGER.error("Unable to execute expression: '" + expression + "' > " + e.getMessage() + "\n"
@@ -84,6 +157,16 @@ public class JexlExecutor implements BaseExecutor {
 		}
 	}
 
+	/**
+	 * Returns the context of the expressions run without an explicit context,
+	 * with the function objects and the variables set by the expressions.
+	 * 
+	 * @return the base context of this executor
+	 */
+	public JexlContext getBaseContext() {
+		return baseJexlContext;
+	}
+
 	/**
 	 * Returns the name identifier of this executor.
 	 * 
@@ -93,6 +176,29 @@ public class JexlExecutor implements BaseExecutor {
 		return name;
 	}
 
+	/**
+	 * Returns the engine profile of this executor.
+	 * 
+	 * @return the engine profile
+	 */
+	public EngineProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Returns the compiled-script cache, with the hit and miss statistics.
+	 * 
+	 * @return the script cache of this executor
+	 */
+	public JexlScriptCache getScriptCache() {
+		return scriptCache;
+	}
+
+	@Override
+	public void invalidateCache() {
+		scriptCache.invalidateAll();
+	}
+
 	@Override
 	public void setFunctionObject(final String id, final Object function) {
 		functionList.add(id);
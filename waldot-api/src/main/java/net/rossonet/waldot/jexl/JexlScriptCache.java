@@ -0,0 +1,182 @@
+package net.rossonet.waldot.jexl;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.commons.jexl3.JexlScript;
+
+/**
+ * JexlScriptCache is a bounded, thread-safe LRU cache of compiled JEXL
+ * scripts.
+ *
+ * <p>The scripts are keyed by source text and parameter names, so a repeated
+ * expression is parsed only the first time. The compilation runs outside the
+ * lock, two threads missing the same key at the same time may both compile it
+ * and the first stored script wins.</p>
+ *
+ * <p>Example usage:</p>
+ * <pre>{@code
+ * JexlScriptCache cache = new JexlScriptCache(256);
+ * JexlScript script = cache.get("a + b", new String[0], () -> engine.createScript("a + b"));
+ * long hits = cache.getHitCount();
+ * }</pre>
+ *
+ * @Author Andrea Ambrosini - Rossonet s.c.a.r.l.
+ * @see JexlExecutor
+ */
+public final class JexlScriptCache {
+
+	private static final class ScriptKey {
+		private final int hash;
+		private final String[] parameterNames;
+		private final String source;
+
+		private ScriptKey(final String source, final String[] parameterNames) {
+			this.source = source;
+			this.parameterNames = parameterNames == null ? new String[0] : parameterNames.clone();
+			this.hash = 31 * source.hashCode() + Arrays.hashCode(this.parameterNames);
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof ScriptKey)) {
+				return false;
+			}
+			final ScriptKey other = (ScriptKey) object;
+			return hash == other.hash && source.equals(other.source)
+					&& Arrays.equals(parameterNames, other.parameterNames);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final int maximumSize;
+
+	private final LongAdder misses = new LongAdder();
+
+	private final Map<ScriptKey, JexlScript> scripts;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maximumSize the number of scripts kept, 0 disables the cache
+	 */
+	public JexlScriptCache(final int maximumSize) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("cache size must not be negative");
+		}
+		this.maximumSize = maximumSize;
+		this.scripts = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<ScriptKey, JexlScript> eldest) {
+				if (size() > JexlScriptCache.this.maximumSize) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the compiled script, compiling it on a miss.
+	 *
+	 * @param source         the source text of the script
+	 * @param parameterNames the names of the script parameters
+	 * @param compiler       compiles the script when it is not cached
+	 * @return the compiled script
+	 */
+	public JexlScript get(final String source, final String[] parameterNames, final Supplier<JexlScript> compiler) {
+		Objects.requireNonNull(source, "source");
+		if (maximumSize == 0) {
+			misses.increment();
+			return compiler.get();
+		}
+		final ScriptKey key = new ScriptKey(source, parameterNames);
+		synchronized (scripts) {
+			final JexlScript cached = scripts.get(key);
+			if (cached != null) {
+				hits.increment();
+				return cached;
+			}
+		}
+		misses.increment();
+		final JexlScript compiled = compiler.get();
+		synchronized (scripts) {
+			final JexlScript concurrent = scripts.putIfAbsent(key, compiled);
+			return concurrent == null ? compiled : concurrent;
+		}
+	}
+
+	/**
+	 * @return the number of scripts removed to respect the maximum size
+	 */
+	public long getEvictionCount() {
+		return evictions.sum();
+	}
+
+	/**
+	 * @return the number of lookups answered by the cache
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the ratio between hits and lookups, 0 without lookups
+	 */
+	public double getHitRate() {
+		final long hitCount = hits.sum();
+		final long lookups = hitCount + misses.sum();
+		return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * @return the number of lookups that compiled the script
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * Removes all the compiled scripts, the statistics are kept.
+	 */
+	public void invalidateAll() {
+		synchronized (scripts) {
+			scripts.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (scripts) {
+			return scripts.size();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "JexlScriptCache [size=" + size() + ", maximumSize=" + maximumSize + ", hits=" + hits.sum()
+				+ ", misses=" + misses.sum() + ", evictions=" + evictions.sum() + "]";
+	}
+
+}
@@ -1,13 +1,13 @@
 package net.rossonet.waldot.opc;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
@@ -34,7 +34,6 @@ import org.slf4j.LoggerFactory;
 import net.rossonet.waldot.api.EventObserver;
 import net.rossonet.waldot.api.PropertyObserver;
 import net.rossonet.waldot.api.models.WaldotCommand;
-import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotElement;
 import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.api.models.WaldotGraphComputerView;
@@ -82,7 +81,7 @@ public abstract class AbstractOpcCommand extends GremlinCommandVertex implements
 
 	private final String directory;
 
-	protected final List<EventObserver> eventObservers = new ArrayList<>();
+	protected final List<EventObserver> eventObservers = new CopyOnWriteArrayList<>();
 
 	protected final WaldotGraph graph;
 
@@ -92,7 +91,7 @@ public abstract class AbstractOpcCommand extends GremlinCommandVertex implements
 
 	protected final List<Argument> outputArguments = new ArrayList<>();
 
-	protected final List<PropertyObserver> propertyObservers = new ArrayList<>();
+	protected final List<PropertyObserver> propertyObservers = new CopyOnWriteArrayList<>();
 
 	protected final WaldotNamespace waldotNamespace;
 
@@ -167,13 +166,9 @@ public abstract class AbstractOpcCommand extends GremlinCommandVertex implements
 
 	@Override
 	public Iterator<Edge> edges(final Direction direction, final String... edgeLabels) {
-		final Collection<WaldotEdge> values = getNamespace().getEdges(this, direction, edgeLabels).values();
-		final Collection<Edge> edges = new ArrayList<>();
-		for (final WaldotEdge edge : values) {
-			edges.add(edge);
-		}
-
-		final Iterator<Edge> edgeIterator = edges.iterator();
+		// la mappa restituita dal namespace è già una copia, non serve copiarla ancora
+		final Iterator<Edge> edgeIterator = (Iterator) getNamespace().getEdges(this, direction, edgeLabels).values()
+				.iterator();
 		return inComputerMode()
 				? IteratorUtils.filter(edgeIterator, edge -> getGraphComputerView().legalEdge(this, edge))
 				: edgeIterator;
@@ -238,6 +233,11 @@ public abstract class AbstractOpcCommand extends GremlinCommandVertex implements
 		return Collections.emptyList();
 	}
 
+	@Override
+	public WaldotVertexProperty<Object> getRelatedProperty(final String key) {
+		return null;
+	}
+
 	@Override
 	public ImmutableMap<String, WaldotVertexProperty<Object>> getVertexProperties() {
 		return ImmutableMap.of();
@@ -371,6 +371,12 @@ public abstract class AbstractOpcCommand extends GremlinCommandVertex implements
 
 	}
 
+	@Override
+	public void removeRelatedProperty(WaldotVertexProperty<?> property) {
+		// not needed for Command
+
+	}
+
 	@Override
 	public Object[] runCommand(final String[] methodInputs) {
 		return runCommand(null, methodInputs);
@@ -1,9 +1,9 @@
 package net.rossonet.waldot.opc;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.tinkerpop.gremlin.structure.Element;
@@ -44,13 +44,13 @@ public abstract class AbstractOpcProperty<DATA_TYPE> extends GremlinProperty<DAT
 		implements WaldotProperty<DATA_TYPE> {
 	protected boolean allowNullPropertyValues = false;
 
-	protected final List<EventObserver> eventObservers = new ArrayList<>();
+	protected final List<EventObserver> eventObservers = new CopyOnWriteArrayList<>();
 	protected final WaldotGraph graph;
 
 	private ByteString icon;
 
 	protected final Logger logger = LoggerFactory.getLogger(getClass());
-	protected final List<PropertyObserver> propertyObservers = new ArrayList<>();
+	protected final List<PropertyObserver> propertyObservers = new CopyOnWriteArrayList<>();
 	private final WaldotEdge referenceEdge;
 
 	public AbstractOpcProperty(final WaldotGraph graph, final WaldotEdge edge, final String key, final DATA_TYPE value,
@@ -68,11 +68,9 @@ public abstract class AbstractOpcProperty<DATA_TYPE> extends GremlinProperty<DAT
 			final DataValue dataValue = DataValue.newValue().setStatus(StatusCode.GOOD).setSourceTime(DateTime.now())
 					.setValue(variant).build();
 			setValue(dataValue);
-			edge.addComponent(this);
 		} catch (final Exception a) {
 			final DataValue errorDataValue = DataValue.newValue().setStatus(StatusCode.BAD).build();
 			setValue(errorDataValue);
-			edge.addComponent(this);
 			logger.error(LogHelper.stackTraceToString(a));
 		}
 	}
@@ -141,6 +139,7 @@ public abstract class AbstractOpcProperty<DATA_TYPE> extends GremlinProperty<DAT
 	public void setValue(DataValue value) {
 		referenceEdge.notifyPropertyValueChanging(key(), value);
 		super.setValue(value);
+		referenceEdge.notifyPropertyValueChanged(key());
 	}
 
 	@Override
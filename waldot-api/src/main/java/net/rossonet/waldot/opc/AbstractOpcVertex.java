@@ -3,13 +3,15 @@ package net.rossonet.waldot.opc;
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ubyte;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
@@ -38,10 +40,10 @@ import org.slf4j.LoggerFactory;
 
 import net.rossonet.waldot.api.EventObserver;
 import net.rossonet.waldot.api.PropertyObserver;
-import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.api.models.WaldotGraphComputerView;
 import net.rossonet.waldot.api.models.WaldotNamespace;
+import net.rossonet.waldot.api.models.WaldotTransactionBuffer;
 import net.rossonet.waldot.api.models.WaldotVertex;
 import net.rossonet.waldot.api.models.WaldotVertexProperty;
 import net.rossonet.waldot.api.models.base.GremlinElement;
@@ -63,21 +65,22 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 	protected boolean allowNullPropertyValues = false;
 	private transient boolean ensurePostActive = false;
 
-	protected transient final List<EventObserver> eventObservers = new ArrayList<>();
+	protected transient final List<EventObserver> eventObservers = new CopyOnWriteArrayList<>();
 	protected transient final WaldotGraph graph;
 
 	private String historyContext = null;
 	private final QualifiedProperty<String> historyContextProperty;
 	private final QualifiedProperty<Boolean> historyProperty;
 	private final QualifiedProperty<String> labelProperty;
-
-	private final Set<WaldotVertexProperty<?>> linkedProperties = new HashSet<>();
 	private transient final Logger logger = LoggerFactory.getLogger(getClass());
 
-	protected transient final List<PropertyObserver> propertyObservers = new ArrayList<>();
+	protected transient final List<PropertyObserver> propertyObservers = new CopyOnWriteArrayList<>();
 
 	private final QualifiedProperty<String> typeProperty;
 
+	// tabella delle proprietà per chiave, allineata ai nodi OPC UA dalla strategia
+	private final Map<String, WaldotVertexProperty<Object>> vertexProperties = new ConcurrentHashMap<>();
+
 	public AbstractOpcVertex(final WaldotGraph graph, final UaNodeContext context, final NodeId nodeId,
 			final QualifiedName browseName, final LocalizedText displayName, final LocalizedText description,
 			final UInteger writeMask, final UInteger userWriteMask, final UByte eventNotifier, final long version) {
@@ -107,7 +110,15 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 		if (null == vertex) {
 			throw Graph.Exceptions.argumentCanNotBeNull("vertex");
 		}
-		if (this.isRemoved() || ((WaldotVertex) vertex).isRemoved()) {
+		if (this.isRemoved()) {
+			throw elementAlreadyRemoved(Vertex.class, getNodeId());
+		}
+		// in transazione anche verso i vertici non ancora applicati
+		final WaldotTransactionBuffer buffer = graph.getTransactionBuffer();
+		if (buffer != null) {
+			return buffer.addEdge(this, label, vertex, keyValues);
+		}
+		if (((WaldotVertex) vertex).isRemoved()) {
 			throw elementAlreadyRemoved(Vertex.class, getNodeId());
 		}
 		return getNamespace().addEdge(this, (WaldotVertex) vertex, label, keyValues);
@@ -123,9 +134,10 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 		propertyObservers.add(propertyObserver);
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public void addRelatedProperty(WaldotVertexProperty<?> property) {
-		linkedProperties.add(property);
+		vertexProperties.put(property.key(), (WaldotVertexProperty<Object>) property);
 		property.setHistorizing(activeHistory);
 
 	}
@@ -137,12 +149,9 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 
 	@Override
 	public Iterator<Edge> edges(final Direction direction, final String... edgeLabels) {
-		final Collection<WaldotEdge> values = getNamespace().getEdges(this, direction, edgeLabels).values();
-		final Collection<Edge> edges = new ArrayList<>();
-		for (final WaldotEdge edge : values) {
-			edges.add(edge);
-		}
-		final Iterator<Edge> edgeIterator = edges.iterator();
+		// la mappa restituita dal namespace è già una copia, non serve copiarla ancora
+		final Iterator<Edge> edgeIterator = (Iterator) getNamespace().getEdges(this, direction, edgeLabels).values()
+				.iterator();
 		return inComputerMode()
 				? IteratorUtils.filter(edgeIterator, edge -> getGraphComputerView().legalEdge(this, edge))
 				: edgeIterator;
@@ -170,7 +179,6 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 	@Override
 	public String[] getPropertiesAsStringArray() {
 		final List<String> props = new ArrayList<>();
-		final ImmutableMap<String, WaldotVertexProperty<Object>> vertexProperties = getVertexProperties();
 		for (final Entry<String, WaldotVertexProperty<Object>> entry : vertexProperties.entrySet()) {
 			final String key = entry.getKey();
 			props.add(key);
@@ -185,9 +193,14 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 		return propertyObservers;
 	}
 
+	@Override
+	public WaldotVertexProperty<Object> getRelatedProperty(final String key) {
+		return vertexProperties.get(key);
+	}
+
 	@Override
 	public ImmutableMap<String, WaldotVertexProperty<Object>> getVertexProperties() {
-		return ImmutableMap.copyOf(getNamespace().getVertexProperties(this));
+		return ImmutableMap.copyOf(vertexProperties);
 	}
 
 	@Override
@@ -202,10 +215,7 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 
 	@Override
 	public Set<String> keys() {
-		if (null == getVertexProperties()) {
-			return Collections.emptySet();
-		}
-		return inComputerMode() ? super.keys() : getVertexProperties().keySet();
+		return inComputerMode() ? super.keys() : Collections.unmodifiableSet(vertexProperties.keySet());
 	}
 
 	@Override
@@ -241,7 +251,7 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 				logger.info("History deactivated for vertex {}", this);
 			}
 			setProperty(historyProperty, activeHistory);
-			for (final WaldotVertexProperty<?> property : linkedProperties) {
+			for (final WaldotVertexProperty<?> property : vertexProperties.values()) {
 				property.setHistorizing(activeHistory);
 			}
 		}
@@ -262,9 +272,20 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 			final LocalizedText description = new LocalizedText((String) value.getValue().getValue());
 			setDescription(description);
 		}
-		propertyObservers.forEach(observer -> observer.propertyChanged(this, label, value));
+		final Entry<NodeId, String> changeKey = Map.entry(getNodeId(), label);
+		for (final PropertyObserver observer : propertyObservers) {
+			// in transazione le notifiche sono raggruppate al commit
+			if (!observer.isDeferredInTransaction() || !graph.deferNotification(Map.entry(observer, changeKey),
+					() -> observer.propertyChanged(this, label, value))) {
+				observer.propertyChanged(this, label, value);
+			}
+		}
 		if (activeHistory) {
-			getNamespace().getHistoryStrategy().registerHistoryRecord(historyContext, this, label, value);
+			final String context = historyContext;
+			if (!graph.deferNotification(Map.entry(HistoryStrategy.class, changeKey), () -> getNamespace()
+					.getHistoryStrategy().registerHistoryRecord(context, this, label, value))) {
+				getNamespace().getHistoryStrategy().registerHistoryRecord(historyContext, this, label, value);
+			}
 		}
 	}
 
@@ -288,20 +309,19 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 			return (Iterator) getGraphComputerView().getProperties(this).stream()
 					.filter(p -> ElementHelper.keyExists(p.key(), propertyKeys)).iterator();
 		} else {
-			final ImmutableMap<String, WaldotVertexProperty<Object>> vertexProperties = getVertexProperties();
-			if (null == vertexProperties) {
-				return Collections.emptyIterator();
-			}
 			if (propertyKeys.length == 0) {
-				return (Iterator) vertexProperties.values().iterator();
+				return (Iterator) Collections.unmodifiableCollection(vertexProperties.values()).iterator();
+			}
+			if (propertyKeys.length == 1) {
+				final WaldotVertexProperty<Object> property = vertexProperties.get(propertyKeys[0]);
+				return property == null ? Collections.emptyIterator()
+						: (Iterator) Collections.singleton(property).iterator();
 			}
 			final Set<VertexProperty<V>> result = new HashSet<>();
-			for (final Entry<String, WaldotVertexProperty<Object>> p : vertexProperties.entrySet()) {
-				for (final String key : propertyKeys) {
-					if (p.getKey().equals(key)) {
-						result.add((VertexProperty<V>) p.getValue());
-						break;
-					}
+			for (final String key : propertyKeys) {
+				final WaldotVertexProperty<Object> property = vertexProperties.get(key);
+				if (property != null) {
+					result.add((VertexProperty<V>) property);
 				}
 			}
 			return result.iterator();
@@ -323,12 +343,8 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 				throw Vertex.Exceptions.multiplePropertiesExistForProvidedKey(key);
 			}
 		} else {
-			for (final Entry<String, WaldotVertexProperty<Object>> p : getVertexProperties().entrySet()) {
-				if (p.getKey().equals(key)) {
-					return (VertexProperty<V>) p.getValue();
-				}
-			}
-			return VertexProperty.<V>empty();
+			final WaldotVertexProperty<Object> property = vertexProperties.get(key);
+			return property == null ? VertexProperty.<V>empty() : (VertexProperty<V>) property;
 		}
 	}
 
@@ -353,12 +369,21 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 			ElementHelper.attachProperties(vertexProperty, keyValues);
 			return vertexProperty;
 		} else {
+			final WaldotTransactionBuffer buffer = graph.getTransactionBuffer();
+			if (buffer != null) {
+				return buffer.property(this, key, value);
+			}
 			return getNamespace().createOrUpdateWaldotVertexProperty(this, key, value);
 		}
 	}
 
 	@Override
 	public void remove() {
+		final WaldotTransactionBuffer buffer = graph.getTransactionBuffer();
+		if (buffer != null) {
+			buffer.remove(this);
+			return;
+		}
 		this.graph.removeVertex(this.getNodeId());
 		super.remove();
 	}
@@ -379,6 +404,11 @@ public abstract class AbstractOpcVertex extends GremlinElement implements Waldot
 
 	}
 
+	@Override
+	public void removeRelatedProperty(WaldotVertexProperty<?> property) {
+		vertexProperties.remove(property.key(), property);
+	}
+
 	@Override
 	public String toString() {
 		return WaldotGraph.V + WaldotGraph.L_BRACKET + getNodeId().toParseableString() + WaldotGraph.R_BRACKET;
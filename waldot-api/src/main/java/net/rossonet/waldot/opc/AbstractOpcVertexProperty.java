@@ -1,17 +1,18 @@
 package net.rossonet.waldot.opc;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.Property;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.eclipse.milo.opcua.sdk.core.AccessLevel;
 import org.eclipse.milo.opcua.sdk.server.nodes.AttributeObserver;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNodeContext;
@@ -31,6 +32,7 @@ import org.slf4j.LoggerFactory;
 import net.rossonet.waldot.api.PropertyObserver;
 import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.api.models.WaldotNamespace;
+import net.rossonet.waldot.api.models.WaldotTransactionBuffer;
 import net.rossonet.waldot.api.models.WaldotVertex;
 import net.rossonet.waldot.api.models.WaldotVertexProperty;
 import net.rossonet.waldot.api.models.base.GremlinProperty;
@@ -55,7 +57,7 @@ public abstract class AbstractOpcVertexProperty<DATA_TYPE> extends GremlinProper
 	private ByteString icon;
 
 	protected final Logger logger = LoggerFactory.getLogger(getClass());
-	protected final List<PropertyObserver> propertyObservers = new ArrayList<>();
+	protected final List<PropertyObserver> propertyObservers = new CopyOnWriteArrayList<>();
 
 	private final WaldotVertex referenceVertex;
 
@@ -74,11 +76,9 @@ public abstract class AbstractOpcVertexProperty<DATA_TYPE> extends GremlinProper
 			final DataValue dataValue = DataValue.newValue().setStatus(StatusCode.GOOD).setSourceTime(DateTime.now())
 					.setValue(variant).build();
 			setValue(dataValue);
-			vertex.addComponent(this);
 		} catch (final Exception a) {
 			final DataValue errorDataValue = DataValue.newValue().setStatus(StatusCode.BAD).build();
 			setValue(errorDataValue);
-			vertex.addComponent(this);
 			logger.error(LogHelper.stackTraceToString(a));
 		}
 		addAttributeObserver(this);
@@ -153,7 +153,21 @@ public abstract class AbstractOpcVertexProperty<DATA_TYPE> extends GremlinProper
 
 	@Override
 	public void remove() {
-		getVertexPropertyReference().removeComponent(this);
+		final WaldotTransactionBuffer buffer = graph.getTransactionBuffer();
+		if (buffer != null) {
+			buffer.remove(this);
+			return;
+		}
+		// il nodo della proprietà non è nel node manager, si toglie dalla tabella del vertice
+		getNamespace().removeVertexProperty(getNodeId());
+	}
+
+	@Override
+	public void setHistorizing(final Boolean historizing) {
+		super.setHistorizing(historizing);
+		// the HistoryRead service is advertised only while the values are recorded
+		setAccessLevel(withHistoryRead(getAccessLevel(), Boolean.TRUE.equals(historizing)));
+		setUserAccessLevel(withHistoryRead(getUserAccessLevel(), Boolean.TRUE.equals(historizing)));
 	}
 
 	@Override
@@ -178,4 +192,10 @@ public abstract class AbstractOpcVertexProperty<DATA_TYPE> extends GremlinProper
 		return (DATA_TYPE) getValue().getValue().getValue();
 	}
 
+	private static UByte withHistoryRead(final UByte accessLevel, final boolean historyRead) {
+		final int level = accessLevel == null ? 0 : accessLevel.intValue();
+		return UByte.valueOf(historyRead ? level | AccessLevel.HistoryRead.getValue()
+				: level & ~AccessLevel.HistoryRead.getValue());
+	}
+
 }
@@ -0,0 +1,106 @@
+package net.rossonet.waldot.api.models;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.eclipse.milo.opcua.sdk.server.model.objects.BaseEventType;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.rossonet.waldot.api.strategies.MiloStrategy;
+
+class MonitoredEdgeTest {
+
+	private static Property<Object> property(final Object value) {
+		@SuppressWarnings("unchecked")
+		final Property<Object> property = mock(Property.class);
+		when(property.isPresent()).thenReturn(true);
+		when(property.value()).thenReturn(value);
+		return property;
+	}
+
+	private final AtomicReference<Object> active = new AtomicReference<>(true);
+	private WaldotEdge mockEdge;
+	private MonitoredEdge monitoredEdge;
+
+	@BeforeEach
+	void setUp() {
+		mockEdge = mock(WaldotEdge.class);
+		when(mockEdge.property(anyString())).thenReturn(Property.empty());
+		when(mockEdge.property(MonitoredEdge.ACTIVE_LABEL)).thenAnswer(invocation -> property(active.get()));
+		monitoredEdge = new MonitoredEdge(mock(WaldotNamespace.class), mockEdge, mock(WaldotVertex.class),
+				mock(WaldotVertex.class)) {
+
+			@Override
+			protected void createObserverNeeded() {
+			}
+
+			@Override
+			public void fireEvent(final UaNode node, final BaseEventType event) {
+			}
+
+			@Override
+			protected Object getLastValue(final String propertyLabel) {
+				return null;
+			}
+
+			@Override
+			public void propertyChanged(final UaNode node, final String label, final DataValue value) {
+			}
+		};
+	}
+
+	@Test
+	void testConfigurationCached() {
+		final MonitoredEdgeConfiguration configuration = monitoredEdge.getConfiguration();
+		assertTrue(configuration.isActive());
+		assertSame(configuration, monitoredEdge.getConfiguration());
+		monitoredEdge.edgePropertyChanged("not-a-control-property");
+		assertSame(configuration, monitoredEdge.getConfiguration());
+		verify(mockEdge, times(1)).property(MonitoredEdge.ACTIVE_LABEL);
+	}
+
+	@Test
+	void testConfigurationRebuiltAfterControlPropertyChange() {
+		final MonitoredEdgeConfiguration configuration = monitoredEdge.getConfiguration();
+		active.set(false);
+		monitoredEdge.edgePropertyChanged(MonitoredEdge.ACTIVE_LABEL);
+		final MonitoredEdgeConfiguration rebuilt = monitoredEdge.getConfiguration();
+		assertNotSame(configuration, rebuilt);
+		assertFalse(rebuilt.isActive());
+		assertEquals(MiloStrategy.MONITOR_EDGE_DEFAULT_PRIORITY_VALUE, rebuilt.getPriority());
+	}
+
+	@Test
+	void testConfigurationReadDuringChangeIsNotKept() {
+		final AtomicBoolean changing = new AtomicBoolean(true);
+		// la proprietà cambia mentre la configurazione viene letta
+		when(mockEdge.property(MonitoredEdge.ACTIVE_LABEL)).thenAnswer(invocation -> {
+			final Property<Object> read = property(active.get());
+			if (changing.getAndSet(false)) {
+				active.set(false);
+				monitoredEdge.edgePropertyChanged(MonitoredEdge.ACTIVE_LABEL);
+			}
+			return read;
+		});
+		assertTrue(monitoredEdge.getConfiguration().isActive());
+		assertFalse(monitoredEdge.getConfiguration().isActive());
+		assertFalse(monitoredEdge.getConfiguration().isActive());
+		verify(mockEdge, times(2)).property(MonitoredEdge.ACTIVE_LABEL);
+	}
+
+}
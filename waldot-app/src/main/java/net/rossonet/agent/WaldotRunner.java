@@ -1,5 +1,8 @@
 package net.rossonet.agent;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 
@@ -9,6 +12,7 @@ import org.slf4j.LoggerFactory;
 
 import net.rossonet.waldot.api.configuration.OpcConfiguration;
 import net.rossonet.waldot.api.configuration.WaldotConfiguration;
+import net.rossonet.waldot.api.strategies.HistoryStrategy;
 import net.rossonet.waldot.auth.DefaultAnonymousValidator;
 import net.rossonet.waldot.auth.DefaultIdentityValidator;
 import net.rossonet.waldot.auth.DefaultX509IdentityValidator;
@@ -19,6 +23,8 @@ import net.rossonet.waldot.gremlin.opcgraph.strategies.client.BaseClientManageme
 import net.rossonet.waldot.gremlin.opcgraph.strategies.console.BaseConsoleStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.MiloSingleServerBaseStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.LoggerHistoryStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.TimeSeriesHistoryStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries.TimeSeriesPolicy;
 import net.rossonet.waldot.namespaces.HomunculusNamespace;
 import net.rossonet.waldot.opc.WaldotOpcUaServer;
 import picocli.CommandLine.Command;
@@ -121,6 +127,10 @@ public class WaldotRunner implements Callable<Integer>, AutoCloseable {
 
 	protected String helpDirectory;
 
+	protected String historyDirectory;
+
+	protected String historyStrategy;
+
 	protected int httpsBindPort;
 
 	protected String interfaceRootNodeBrowseName;
@@ -135,6 +145,8 @@ public class WaldotRunner implements Callable<Integer>, AutoCloseable {
 
 	protected String path;
 
+	protected String persistenceDirectory;
+
 	protected String productName;
 
 	protected String productUri;
@@ -177,6 +189,21 @@ public class WaldotRunner implements Callable<Integer>, AutoCloseable {
 		}
 	}
 
+	protected HistoryStrategy createHistoryStrategy(final WaldotConfiguration configuration) {
+		if (WaldotConfiguration.HISTORY_STRATEGY_LOGGER.equals(configuration.getHistoryStrategy())) {
+			return new LoggerHistoryStrategy();
+		}
+		if (!WaldotConfiguration.HISTORY_STRATEGY_TIME_SERIES.equals(configuration.getHistoryStrategy())) {
+			throw new IllegalArgumentException("unknown history strategy " + configuration.getHistoryStrategy());
+		}
+		try {
+			return new TimeSeriesHistoryStrategy(Path.of(configuration.getHistoryDirectory()),
+					TimeSeriesPolicy.defaultPolicy());
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
 	public String getAboutCommandDescription() {
 
 		return aboutCommandDescription;
@@ -330,6 +357,14 @@ public class WaldotRunner implements Callable<Integer>, AutoCloseable {
 		return helpDirectory;
 	}
 
+	public String getHistoryDirectory() {
+		return historyDirectory;
+	}
+
+	public String getHistoryStrategy() {
+		return historyStrategy;
+	}
+
 	public int getHttpsBindPort() {
 		return httpsBindPort;
 	}
@@ -362,6 +397,10 @@ public class WaldotRunner implements Callable<Integer>, AutoCloseable {
 		return path;
 	}
 
+	public String getPersistenceDirectory() {
+		return persistenceDirectory;
+	}
+
 	public String getProductName() {
 		return productName;
 	}
@@ -424,11 +463,20 @@ public class WaldotRunner implements Callable<Integer>, AutoCloseable {
 		Thread.currentThread().setName("WaldOT_main");
 		Thread.currentThread().setPriority(Thread.MAX_PRIORITY);
 		final WaldotConfiguration configuration = DefaultHomunculusConfiguration.getDefault();
+		if (historyDirectory != null) {
+			configuration.put(DefaultHomunculusConfiguration.HISTORY_DIRECTORY_KEY, historyDirectory);
+		}
+		if (historyStrategy != null) {
+			configuration.put(DefaultHomunculusConfiguration.HISTORY_STRATEGY_KEY, historyStrategy);
+		}
+		if (persistenceDirectory != null) {
+			configuration.put(DefaultHomunculusConfiguration.PERSISTENCE_DIRECTORY_KEY, persistenceDirectory);
+		}
 		final OpcConfiguration serverConfiguration = DefaultOpcUaConfiguration.getDefault();
 		waldot = new WaldotOpcUaServer(configuration, serverConfiguration, new DefaultAnonymousValidator(configuration),
 				new DefaultIdentityValidator(configuration), new DefaultX509IdentityValidator(configuration));
 		final HomunculusNamespace namespace = new HomunculusNamespace(waldot, new MiloSingleServerBaseStrategy(),
-				new LoggerHistoryStrategy(), new BaseConsoleStrategy(), configuration,
+				createHistoryStrategy(configuration), new BaseConsoleStrategy(), configuration,
 				new SingleFileBootstrapStrategy(), new BaseClientManagementStrategy(), bootUrl);
 		waldot.startup(namespace).get();
 		waldot.waitCompletion();
@@ -554,6 +602,14 @@ public class WaldotRunner implements Callable<Integer>, AutoCloseable {
 		this.helpDirectory = helpDirectory;
 	}
 
+	public void setHistoryDirectory(final String historyDirectory) {
+		this.historyDirectory = historyDirectory;
+	}
+
+	public void setHistoryStrategy(final String historyStrategy) {
+		this.historyStrategy = historyStrategy;
+	}
+
 	public void setHttpsBindPort(final int httpsBindPort) {
 		this.httpsBindPort = httpsBindPort;
 	}
@@ -582,6 +638,10 @@ public class WaldotRunner implements Callable<Integer>, AutoCloseable {
 		this.path = path;
 	}
 
+	public void setPersistenceDirectory(final String persistenceDirectory) {
+		this.persistenceDirectory = persistenceDirectory;
+	}
+
 	public void setProductName(final String productName) {
 		this.productName = productName;
 	}
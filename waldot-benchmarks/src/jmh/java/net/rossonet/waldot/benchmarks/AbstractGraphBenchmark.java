@@ -0,0 +1,53 @@
+package net.rossonet.waldot.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.rossonet.waldot.api.models.WaldotGraph;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.LoggerHistoryStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.structure.OpcFactory;
+import net.rossonet.waldot.utils.LogHelper;
+
+/**
+ * Starts an in-process OPC UA server with its HomunculusNamespace for every
+ * trial, the benchmarks work on the gremlin graph of the namespace.
+ */
+@State(Scope.Benchmark)
+public abstract class AbstractGraphBenchmark {
+
+	private Path bootstrapDirectory;
+
+	protected WaldotGraph g;
+
+	protected void populate() throws Exception {
+		// override to prepare the graph of the benchmark
+	}
+
+	@Setup(Level.Trial)
+	public void startGraph() throws Exception {
+		LogHelper.changeJulLogLevel("warning");
+		bootstrapDirectory = Files.createTempDirectory("waldot-benchmark");
+		g = OpcFactory.getOpcGraph("file://" + bootstrapDirectory.resolve("boot.conf").toAbsolutePath(),
+				new LoggerHistoryStrategy());
+		populate();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopGraph() throws Exception {
+		if (g != null && g.getWaldotNamespace() != null) {
+			g.getWaldotNamespace().close();
+			g = null;
+		}
+		if (bootstrapDirectory != null) {
+			Files.deleteIfExists(bootstrapDirectory.resolve("boot.conf"));
+			Files.deleteIfExists(bootstrapDirectory);
+		}
+	}
+
+}
@@ -0,0 +1,74 @@
+package net.rossonet.waldot.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.MiloSingleServerBaseElementIds;
+
+/**
+ * Lookups of the adjacency index: a map keyed by NodeId, the handle of the
+ * NodeId followed by the array read (the lookups by NodeId) and the array read
+ * with the handle cached on the element (the lookups from a live element).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ElementHandleBenchmark {
+
+	private int counter = 0;
+	private MiloSingleServerBaseElementIds elementIds;
+	private int[] handles;
+	private Map<NodeId, NodeId> map;
+	private NodeId[] nodeIds;
+
+	@Param({ "1000", "100000" })
+	public int size;
+
+	@Benchmark
+	public NodeId cachedHandle() {
+		return elementIds.getNodeId(handles[next()]);
+	}
+
+	@Benchmark
+	public NodeId handleOfNodeId() {
+		return elementIds.getNodeId(elementIds.getHandle(nodeIds[next()]));
+	}
+
+	@Benchmark
+	public NodeId mapOfNodeId() {
+		return map.get(nodeIds[next()]);
+	}
+
+	private int next() {
+		final int index = counter;
+		counter = index + 1 == size ? 0 : index + 1;
+		return index;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		elementIds = new MiloSingleServerBaseElementIds();
+		map = new ConcurrentHashMap<>();
+		nodeIds = new NodeId[size];
+		handles = new int[size];
+		for (int i = 0; i < size; i++) {
+			// stessa forma degli id dei vertici del namespace
+			nodeIds[i] = new NodeId(2, "vertex-" + i);
+			handles[i] = elementIds.intern(nodeIds[i]);
+			map.put(nodeIds[i], nodeIds[i]);
+		}
+	}
+
+}
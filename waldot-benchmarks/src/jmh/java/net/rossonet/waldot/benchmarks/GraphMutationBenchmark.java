@@ -0,0 +1,38 @@
+package net.rossonet.waldot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Vertex and edge insertion through MiloSingleServerBaseStrategy.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GraphMutationBenchmark extends AbstractGraphBenchmark {
+
+	private long counter = 0;
+	private Vertex hub;
+
+	@Benchmark
+	public Edge addEdge() {
+		final Vertex target = g.addVertex("id", "edge-target-" + counter++, "value", counter);
+		return hub.addEdge("link", target, "weight", 0.5d);
+	}
+
+	@Benchmark
+	public Vertex addVertex() {
+		return g.addVertex("id", "vertex-" + counter++, "name", "benchmark vertex", "value", counter);
+	}
+
+	@Override
+	protected void populate() {
+		hub = g.addVertex("id", "hub", "name", "hub vertex");
+	}
+
+}
@@ -0,0 +1,69 @@
+package net.rossonet.waldot.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Neighbor traversal and has() lookups, with and without secondary indexes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GraphTraversalBenchmark extends AbstractGraphBenchmark {
+
+	@Param({ "false", "true" })
+	public boolean indexed;
+
+	@Param({ "1000" })
+	public int size;
+
+	@Benchmark
+	public List<Vertex> hasEquality() {
+		return g.traversal().V().has("name", "vertex " + (size / 2)).toList();
+	}
+
+	@Benchmark
+	public List<Vertex> hasLabel() {
+		return g.traversal().V().hasLabel("group").toList();
+	}
+
+	@Benchmark
+	public List<Vertex> hasRange() {
+		return g.traversal().V().has("value", P.between(size / 4, size / 2)).toList();
+	}
+
+	@Benchmark
+	public long neighbors() {
+		return g.traversal().V().hasLabel("group").out("member").count().next();
+	}
+
+	@Benchmark
+	public long twoHopNeighbors() {
+		return g.traversal().V().hasLabel("group").out("member").in("member").count().next();
+	}
+
+	@Override
+	protected void populate() {
+		if (indexed) {
+			g.createIndex("name", Vertex.class);
+			g.createRangeIndex("value", Vertex.class);
+		}
+		final Vertex[] groups = new Vertex[10];
+		for (int i = 0; i < groups.length; i++) {
+			groups[i] = g.addVertex("id", "group-" + i, T.label, "group", "name", "group " + i);
+		}
+		for (int i = 0; i < size; i++) {
+			final Vertex vertex = g.addVertex("id", "vertex-" + i, "name", "vertex " + i, "value", i);
+			groups[i % groups.length].addEdge("member", vertex);
+		}
+	}
+
+}
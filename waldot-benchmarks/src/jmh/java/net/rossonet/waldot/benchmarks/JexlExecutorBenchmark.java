@@ -0,0 +1,60 @@
+package net.rossonet.waldot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.rossonet.waldot.jexl.JexlExecutor;
+
+/**
+ * JexlExecutor.execute on the expressions used by rules and consoles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JexlExecutorBenchmark {
+
+	private long counter = 0;
+	private JexlExecutor executor;
+
+	@Param({ "DEBUG", "PRODUCTION" })
+	public JexlExecutor.EngineProfile profile;
+
+	// 0 parses the expression on every execution
+	@Param({ "0", "512" })
+	public int scriptCacheSize;
+
+	@Benchmark
+	public Object executeArithmetic() {
+		executor.addOrUpdateContext("a", counter++);
+		return executor.execute("a + b * 2");
+	}
+
+	@Benchmark
+	public Object executeCondition() {
+		executor.addOrUpdateContext("a", counter++);
+		return executor.execute("a % 2 == 0 && b > 10 ? 'even' : 'odd'");
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		executor = new JexlExecutor("benchmark", profile, scriptCacheSize);
+		executor.addOrUpdateContext("a", 0L);
+		executor.addOrUpdateContext("b", 21L);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		executor.close();
+	}
+
+}
@@ -0,0 +1,46 @@
+package net.rossonet.waldot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Property writes on a vertex monitored by link-from edges, every write is
+ * propagated by the MonitoredEdge observers to all the destinations.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PropertyFanOutBenchmark extends AbstractGraphBenchmark {
+
+	private long counter = 0;
+
+	@Param({ "1", "10", "100" })
+	public int fanOut;
+
+	private Vertex source;
+
+	@Override
+	protected void populate() {
+		source = g.addVertex("id", "source", "name", "source vertex", "a", 0);
+		for (int i = 0; i < fanOut; i++) {
+			final Vertex destination = g.addVertex("id", "destination-" + i, "name", "destination vertex", "a", 0);
+			destination.addEdge("link from source", source, "type", "link-from");
+		}
+	}
+
+	@Benchmark
+	public void writeMonitoredProperty() {
+		source.property("a", counter++);
+	}
+
+	@Benchmark
+	public Object readProperty() {
+		return source.property("a").value();
+	}
+
+}
@@ -0,0 +1,39 @@
+package net.rossonet.waldot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+/**
+ * Rule firing throughput, every write on the input fires the rule through its
+ * fire edge. The condition and the action are JEXL scripts executed by the
+ * rule engine.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RuleFiringBenchmark extends AbstractGraphBenchmark {
+
+	private long counter = 0;
+	private Vertex input;
+
+	@Benchmark
+	public void fireRule() {
+		input.property("value", counter++);
+	}
+
+	@Override
+	protected void populate() {
+		input = g.addVertex("id", "input", "name", "input", "value", "0");
+		final Vertex rule = g.addVertex("id", "rule", "type", "rule", "name", "benchmark rule", "counter", "0",
+				"condition", "g.V().has('id', 'input').next().property('value').value() >= 0", "action",
+				"self.property('counter', g.V().has('id', 'input').next().property('value').value())");
+		final Vertex compute = g.addVertex("id", "compute", "type", "compute", "name", "compute");
+		compute.addEdge("runner", rule, "type", "execute");
+		input.addEdge("fire", rule, "type", "fire");
+	}
+
+}
@@ -0,0 +1,52 @@
+package net.rossonet.waldot.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import net.rossonet.zenoh.api.message.TelemetryCodec;
+import net.rossonet.zenoh.api.message.TelemetryCodecs;
+import net.rossonet.zenoh.api.message.TelemetryMessage;
+import net.rossonet.zenoh.api.message.TelemetryQuality;
+import net.rossonet.zenoh.exception.ZenohSerializationException;
+
+/**
+ * Encode and decode of the Zenoh telemetry payloads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class TelemetryCodecBenchmark {
+
+	private TelemetryCodec codec;
+	@Param({ "binary", "json" })
+	public String codecName;
+	private byte[] encoded;
+	private TelemetryMessage<Double> message;
+
+	@Benchmark
+	public TelemetryMessage<?> decode() throws ZenohSerializationException {
+		return TelemetryCodecs.decode(encoded);
+	}
+
+	@Benchmark
+	public byte[] encode() throws ZenohSerializationException {
+		return codec.encode(message);
+	}
+
+	@Setup(Level.Trial)
+	public void setup() throws ZenohSerializationException {
+		codec = "json".equals(codecName) ? TelemetryCodecs.JSON : TelemetryCodecs.BINARY;
+		message = new TelemetryMessage<>(42, 21.5d, System.currentTimeMillis(), TelemetryQuality.GOOD, 60_000);
+		encoded = encode();
+	}
+
+}
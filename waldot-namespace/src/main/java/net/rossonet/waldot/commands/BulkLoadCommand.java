@@ -0,0 +1,98 @@
+package net.rossonet.waldot.commands;
+
+import java.util.Arrays;
+
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.core.ValueRanks;
+import org.eclipse.milo.opcua.sdk.server.methods.AbstractMethodInvocationHandler.InvocationContext;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+
+import net.rossonet.waldot.api.models.WaldotBulkLoader;
+import net.rossonet.waldot.api.models.WaldotNamespace;
+import net.rossonet.waldot.api.strategies.MiloStrategy;
+import net.rossonet.waldot.opc.AbstractOpcCommand;
+
+/**
+ * Loads the elements with a {@link WaldotBulkLoader}, one element per line:
+ *
+ * <pre>
+ * vertex,&lt;id&gt;[,key,value...]
+ * edge,&lt;source id&gt;,&lt;target id&gt;,&lt;label&gt;[,key,value...]
+ * </pre>
+ */
+public class BulkLoadCommand extends AbstractOpcCommand {
+
+	public static final String EDGE_LINE = "edge";
+	public static final String FIELD_SEPARATOR = ",";
+	public static final String VERTEX_LINE = "vertex";
+
+	public BulkLoadCommand(WaldotNamespace waldotNamespace) {
+		super(waldotNamespace.getGremlinGraph(), waldotNamespace,
+				waldotNamespace.getConfiguration().getBulkLoadCommandLabel(),
+				waldotNamespace.getConfiguration().getBulkLoadCommandDescription(),
+				waldotNamespace.getConfiguration().getBulkLoadCommandWriteMask(),
+				waldotNamespace.getConfiguration().getBulkLoadCommandUserWriteMask(),
+				waldotNamespace.getConfiguration().getBulkLoadCommandExecutable(),
+				waldotNamespace.getConfiguration().getBulkLoadCommandUserExecutable());
+		super.addOutputArgument("output", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
+				LocalizedText.english("command output"));
+		super.addOutputArgument("error", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
+				LocalizedText.english("command error"));
+		super.addInputArgument("elements", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
+				LocalizedText.english("elements to load, one per line"));
+		this.addReference(new Reference(this.getNodeId(), NodeIds.HasModellingRule,
+				NodeIds.ModellingRule_Mandatory.expanded(), true));
+	}
+
+	@Override
+	public Object clone() {
+		return new BulkLoadCommand(this.waldotNamespace);
+	}
+
+	@Override
+	public String getDirectory() {
+		return MiloStrategy.GENERAL_CMD_DIRECTORY;
+	}
+
+	private void loadLine(final WaldotBulkLoader loader, final String line) {
+		final String[] fields = line.split(FIELD_SEPARATOR, -1);
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = fields[i].trim();
+		}
+		if (VERTEX_LINE.equalsIgnoreCase(fields[0]) && fields.length >= 2 && fields.length % 2 == 0) {
+			final Object[] keyValues = new Object[fields.length];
+			keyValues[0] = MiloStrategy.ID_PARAMETER;
+			System.arraycopy(fields, 1, keyValues, 1, fields.length - 1);
+			loader.addVertex(keyValues);
+		} else if (EDGE_LINE.equalsIgnoreCase(fields[0]) && fields.length >= 4 && fields.length % 2 == 0) {
+			loader.addEdge(fields[1], fields[2], fields[3],
+					(Object[]) Arrays.copyOfRange(fields, 4, fields.length));
+		} else {
+			throw new IllegalArgumentException("malformed line: " + line);
+		}
+	}
+
+	@Override
+	public String[] runCommand(InvocationContext invocationContext, String[] inputValues) {
+		final String[] output = new String[2];
+		int lineNumber = 0;
+		try (WaldotBulkLoader loader = getNamespace().createBulkLoader(WaldotBulkLoader.DEFAULT_BATCH_SIZE)) {
+			try {
+				for (final String line : inputValues[0].split("\\R")) {
+					lineNumber++;
+					if (!line.isBlank()) {
+						loadLine(loader, line);
+					}
+				}
+				output[0] = loader.getVertexCount() + " vertices and " + loader.getEdgeCount() + " edges loaded";
+				output[1] = "";
+			} catch (final Exception e) {
+				output[0] = loader.getVertexCount() + " vertices and " + loader.getEdgeCount() + " edges loaded";
+				output[1] = "line " + lineNumber + ": " + e.getMessage();
+			}
+		}
+		return output;
+	}
+
+}
@@ -1,6 +1,7 @@
 package net.rossonet.waldot.configuration;
 
 import java.net.URL;
+import java.nio.file.Path;
 import java.util.HashMap;
 
 import org.eclipse.milo.opcua.sdk.core.WriteMask;
@@ -15,7 +16,15 @@ public class DefaultHomunculusConfiguration extends HashMap<String, String> impl
 	private static final String DEFAULT_ABOUT_COMMAND_LABEL = "about";
 	private static final boolean DEFAULT_ABOUT_COMMAND_USER_EXECUTABLE = true;
 	public static String DEFAULT_HELP_DIRECTORY = "/app/help";
+	public static final String DEFAULT_HISTORY_DIRECTORY = Path
+			.of(System.getProperty("user.home"), ".waldot", "history").toString();
+	public static final String DEFAULT_HISTORY_STRATEGY = HISTORY_STRATEGY_TIME_SERIES;
+	public static final long DEFAULT_PERSISTENCE_SNAPSHOT_INTERVAL_MS = 10 * 60 * 1000L;
 	private static final UInteger DEFAULT_WRITE_MASK = UInteger.valueOf(WriteMask.Executable.getValue());
+	public static final String HISTORY_DIRECTORY_KEY = "waldot.history.directory";
+	public static final String HISTORY_STRATEGY_KEY = "waldot.history.strategy";
+	public static final String PERSISTENCE_DIRECTORY_KEY = "waldot.persistence.directory";
+	public static final String PERSISTENCE_SNAPSHOT_INTERVAL_KEY = "waldot.persistence.snapshot.interval";
 	private static final long serialVersionUID = 4132363257864835403L;
 
 	public static WaldotConfiguration getDefault() {
@@ -80,6 +89,36 @@ public class DefaultHomunculusConfiguration extends HashMap<String, String> impl
 		return null;
 	}
 
+	@Override
+	public String getBulkLoadCommandDescription() {
+		return "load vertices and edges in batches, one element per line";
+	}
+
+	@Override
+	public Boolean getBulkLoadCommandExecutable() {
+		return true;
+	}
+
+	@Override
+	public String getBulkLoadCommandLabel() {
+		return "bulk load";
+	}
+
+	@Override
+	public Boolean getBulkLoadCommandUserExecutable() {
+		return true;
+	}
+
+	@Override
+	public UInteger getBulkLoadCommandUserWriteMask() {
+		return DEFAULT_WRITE_MASK;
+	}
+
+	@Override
+	public UInteger getBulkLoadCommandWriteMask() {
+		return DEFAULT_WRITE_MASK;
+	}
+
 	@Override
 	public long getDefaultFactsValidDelayMs() {
 		return 0;
@@ -192,6 +231,16 @@ public class DefaultHomunculusConfiguration extends HashMap<String, String> impl
 		return DEFAULT_HELP_DIRECTORY;
 	}
 
+	@Override
+	public String getHistoryDirectory() {
+		return getOrDefault(HISTORY_DIRECTORY_KEY, DEFAULT_HISTORY_DIRECTORY);
+	}
+
+	@Override
+	public String getHistoryStrategy() {
+		return getOrDefault(HISTORY_STRATEGY_KEY, DEFAULT_HISTORY_STRATEGY);
+	}
+
 	@Override
 	public String getInterfaceRootNodeBrowseName() {
 		return "Commands";
@@ -242,6 +291,18 @@ public class DefaultHomunculusConfiguration extends HashMap<String, String> impl
 		return DEFAULT_WRITE_MASK;
 	}
 
+	@Override
+	public String getPersistenceDirectory() {
+		// senza directory il grafo resta solo in memoria
+		return getOrDefault(PERSISTENCE_DIRECTORY_KEY, null);
+	}
+
+	@Override
+	public long getPersistenceSnapshotIntervalMs() {
+		final String interval = get(PERSISTENCE_SNAPSHOT_INTERVAL_KEY);
+		return interval == null ? DEFAULT_PERSISTENCE_SNAPSHOT_INTERVAL_MS : Long.parseLong(interval);
+	}
+
 	@Override
 	public String getRootNodeBrowseName() {
 		return "Gremlin Engine";
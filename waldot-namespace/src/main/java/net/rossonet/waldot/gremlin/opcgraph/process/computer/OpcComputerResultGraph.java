@@ -0,0 +1,386 @@
+package net.rossonet.waldot.gremlin.opcgraph.process.computer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.configuration2.BaseConfiguration;
+import org.apache.commons.configuration2.Configuration;
+import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Transaction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.apache.tinkerpop.gremlin.structure.util.star.StarGraph;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+
+/**
+ * Read-only graph returned by {@link OpcGraphComputer} when the result graph
+ * is {@link GraphComputer.ResultGraph#NEW}. It is built on the snapshot of the
+ * computation, so the values of the compute keys are not written in the OPC UA
+ * address space.
+ */
+public final class OpcComputerResultGraph implements Graph {
+
+	private final class ResultEdge implements Edge {
+
+		private final Edge edge;
+		private final Object inVertexId;
+		private final Object outVertexId;
+
+		private ResultEdge(final Edge edge) {
+			this.edge = edge;
+			this.outVertexId = edge.outVertex().id();
+			this.inVertexId = edge.inVertex().id();
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			return ElementHelper.areEqual(this, object);
+		}
+
+		@Override
+		public Graph graph() {
+			return OpcComputerResultGraph.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return ElementHelper.hashCode(this);
+		}
+
+		@Override
+		public Object id() {
+			return edge.id();
+		}
+
+		@Override
+		public String label() {
+			return edge.label();
+		}
+
+		@Override
+		public <V> Iterator<Property<V>> properties(final String... propertyKeys) {
+			return edge.properties(propertyKeys);
+		}
+
+		@Override
+		public <V> Property<V> property(final String key, final V value) {
+			throw Element.Exceptions.propertyAdditionNotSupported();
+		}
+
+		@Override
+		public void remove() {
+			throw Edge.Exceptions.edgeRemovalNotSupported();
+		}
+
+		@Override
+		public String toString() {
+			return StringFactory.edgeString(this);
+		}
+
+		@Override
+		public Iterator<Vertex> vertices(final Direction direction) {
+			switch (direction) {
+			case OUT:
+				return IteratorUtils.of(resultVertices.get(outVertexId));
+			case IN:
+				return IteratorUtils.of(resultVertices.get(inVertexId));
+			default:
+				return IteratorUtils.of(resultVertices.get(outVertexId), resultVertices.get(inVertexId));
+			}
+		}
+	}
+
+	private final class ResultVertex implements Vertex {
+
+		private final StarGraph.StarVertex vertex;
+
+		private ResultVertex(final StarGraph.StarVertex vertex) {
+			this.vertex = vertex;
+		}
+
+		@Override
+		public Edge addEdge(final String label, final Vertex inVertex, final Object... keyValues) {
+			throw Vertex.Exceptions.edgeAdditionsNotSupported();
+		}
+
+		@Override
+		public Iterator<Edge> edges(final Direction direction, final String... edgeLabels) {
+			final List<Edge> edges = new ArrayList<>();
+			if (direction != Direction.IN) {
+				addEdges(edges, Direction.OUT, edgeLabels);
+			}
+			if (direction != Direction.OUT) {
+				addEdges(edges, Direction.IN, edgeLabels);
+			}
+			return edges.iterator();
+		}
+
+		private void addEdges(final List<Edge> edges, final Direction direction, final String... edgeLabels) {
+			vertex.edges(direction, edgeLabels).forEachRemaining(starEdge -> {
+				final Edge edge = resultEdges.get(starEdge.id());
+				// only the edges with both endpoints in the result graph
+				if (edge != null) {
+					edges.add(edge);
+				}
+			});
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			return ElementHelper.areEqual(this, object);
+		}
+
+		@Override
+		public Graph graph() {
+			return OpcComputerResultGraph.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return ElementHelper.hashCode(this);
+		}
+
+		@Override
+		public Object id() {
+			return vertex.id();
+		}
+
+		@Override
+		public String label() {
+			return vertex.label();
+		}
+
+		@Override
+		public <V> Iterator<VertexProperty<V>> properties(final String... propertyKeys) {
+			return vertex.properties(propertyKeys);
+		}
+
+		@Override
+		public <V> VertexProperty<V> property(final VertexProperty.Cardinality cardinality, final String key,
+				final V value, final Object... keyValues) {
+			throw Element.Exceptions.propertyAdditionNotSupported();
+		}
+
+		@Override
+		public void remove() {
+			throw Vertex.Exceptions.vertexRemovalNotSupported();
+		}
+
+		@Override
+		public String toString() {
+			return StringFactory.vertexString(this);
+		}
+
+		@Override
+		public Iterator<Vertex> vertices(final Direction direction, final String... edgeLabels) {
+			final List<Edge> outEdges = new ArrayList<>();
+			final List<Edge> inEdges = new ArrayList<>();
+			if (direction != Direction.IN) {
+				addEdges(outEdges, Direction.OUT, edgeLabels);
+			}
+			if (direction != Direction.OUT) {
+				addEdges(inEdges, Direction.IN, edgeLabels);
+			}
+			final List<Vertex> vertices = new ArrayList<>(outEdges.size() + inEdges.size());
+			outEdges.forEach(edge -> vertices.add(resultVertices.get(((ResultEdge) edge).inVertexId)));
+			inEdges.forEach(edge -> vertices.add(resultVertices.get(((ResultEdge) edge).outVertexId)));
+			return vertices.iterator();
+		}
+	}
+
+	private static final Configuration EMPTY_CONFIGURATION = new BaseConfiguration() {
+		{
+			this.setProperty(Graph.GRAPH, OpcComputerResultGraph.class.getName());
+		}
+	};
+
+	private final Map<Object, Edge> resultEdges = new LinkedHashMap<>();
+
+	private final Map<Object, Vertex> resultVertices = new LinkedHashMap<>();
+
+	public OpcComputerResultGraph(final List<Vertex> vertices, final boolean includeEdges) {
+		for (final Vertex vertex : vertices) {
+			resultVertices.put(vertex.id(), new ResultVertex((StarGraph.StarVertex) vertex));
+		}
+		if (includeEdges) {
+			for (final Vertex vertex : vertices) {
+				vertex.edges(Direction.OUT).forEachRemaining(edge -> {
+					// edges with an endpoint filtered out of the computation are dropped
+					if (resultVertices.containsKey(edge.inVertex().id())) {
+						resultEdges.put(edge.id(), new ResultEdge(edge));
+					}
+				});
+			}
+		}
+	}
+
+	@Override
+	public Vertex addVertex(final Object... keyValues) {
+		throw Exceptions.vertexAdditionsNotSupported();
+	}
+
+	@Override
+	public void close() {
+		resultEdges.clear();
+		resultVertices.clear();
+	}
+
+	@Override
+	public GraphComputer compute() {
+		return new OpcGraphComputer(this);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <C extends GraphComputer> C compute(final Class<C> graphComputerClass) {
+		if (!graphComputerClass.equals(OpcGraphComputer.class)) {
+			throw Graph.Exceptions.graphDoesNotSupportProvidedGraphComputer(graphComputerClass);
+		}
+		return (C) compute();
+	}
+
+	@Override
+	public Configuration configuration() {
+		return EMPTY_CONFIGURATION;
+	}
+
+	@Override
+	public Iterator<Edge> edges(final Object... edgeIds) {
+		return elements(resultEdges, edgeIds);
+	}
+
+	private <E extends Element> Iterator<E> elements(final Map<Object, E> elements, final Object... ids) {
+		if (ids.length == 0) {
+			return new ArrayList<>(elements.values()).iterator();
+		}
+		final List<E> result = new ArrayList<>(ids.length);
+		for (final Object id : ids) {
+			final E element = elements.get(id instanceof Element ? ((Element) id).id() : id);
+			if (element != null) {
+				result.add(element);
+			}
+		}
+		return result.iterator();
+	}
+
+	@Override
+	public Features features() {
+		return new Features() {
+
+			@Override
+			public EdgeFeatures edge() {
+				return new EdgeFeatures() {
+
+					@Override
+					public boolean supportsAddEdges() {
+						return false;
+					}
+
+					@Override
+					public boolean supportsAddProperty() {
+						return false;
+					}
+
+					@Override
+					public boolean supportsRemoveEdges() {
+						return false;
+					}
+
+					@Override
+					public boolean supportsRemoveProperty() {
+						return false;
+					}
+				};
+			}
+
+			@Override
+			public GraphFeatures graph() {
+				return new GraphFeatures() {
+
+					@Override
+					public boolean supportsPersistence() {
+						return false;
+					}
+
+					@Override
+					public boolean supportsThreadedTransactions() {
+						return false;
+					}
+
+					@Override
+					public boolean supportsTransactions() {
+						return false;
+					}
+
+					@Override
+					public VariableFeatures variables() {
+						return new VariableFeatures() {
+
+							@Override
+							public boolean supportsVariables() {
+								return false;
+							}
+						};
+					}
+				};
+			}
+
+			@Override
+			public VertexFeatures vertex() {
+				return new VertexFeatures() {
+
+					@Override
+					public boolean supportsAddProperty() {
+						return false;
+					}
+
+					@Override
+					public boolean supportsAddVertices() {
+						return false;
+					}
+
+					@Override
+					public boolean supportsRemoveProperty() {
+						return false;
+					}
+
+					@Override
+					public boolean supportsRemoveVertices() {
+						return false;
+					}
+				};
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return StringFactory.graphString(this, "vertices:" + resultVertices.size() + " edges:" + resultEdges.size());
+	}
+
+	@Override
+	public Transaction tx() {
+		throw Exceptions.transactionsNotSupported();
+	}
+
+	@Override
+	public Variables variables() {
+		throw Exceptions.variablesNotSupported();
+	}
+
+	@Override
+	public Iterator<Vertex> vertices(final Object... vertexIds) {
+		return elements(resultVertices, vertexIds);
+	}
+
+}
@@ -18,6 +18,7 @@ import org.apache.tinkerpop.gremlin.process.computer.ComputerResult;
 import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
 import org.apache.tinkerpop.gremlin.process.computer.GraphFilter;
 import org.apache.tinkerpop.gremlin.process.computer.MapReduce;
+import org.apache.tinkerpop.gremlin.process.computer.VertexComputeKey;
 import org.apache.tinkerpop.gremlin.process.computer.VertexProgram;
 import org.apache.tinkerpop.gremlin.process.computer.traversal.strategy.optimization.GraphFilterStrategy;
 import org.apache.tinkerpop.gremlin.process.computer.util.ComputerGraph;
@@ -32,11 +33,13 @@ import org.apache.tinkerpop.gremlin.structure.Property;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
 
+import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.api.models.WaldotGraphComputerView;
-import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
-
-//XXX da implementare completamente la versione OLAP
 
+/**
+ * OLAP computer of the graph, the vertex programs run on the snapshot taken by
+ * {@link OpcGraphComputerView}, partitioned across the {@link OpcWorkerPool}.
+ */
 public final class OpcGraphComputer implements GraphComputer {
 
 	private static class SynchronizedIterator<V> {
@@ -68,7 +71,7 @@ public final class OpcGraphComputer implements GraphComputer {
 	 */
 	private final ExecutorService computerService = Executors.newSingleThreadExecutor(_threadFactoryBoss);
 	private boolean executed = false;
-	private final AbstractOpcGraph graph;
+	private final Graph graph;
 	private final GraphFilter graphFilter = new GraphFilter();
 	private final Set<MapReduce> mapReducers = new HashSet<>();
 	private OpcMemory memory;
@@ -82,10 +85,31 @@ public final class OpcGraphComputer implements GraphComputer {
 
 	private int workers = Runtime.getRuntime().availableProcessors();
 
-	public OpcGraphComputer(final AbstractOpcGraph graph) {
+	public OpcGraphComputer(final Graph graph) {
 		this.graph = graph;
 	}
 
+	private WaldotGraphComputerView createGraphComputerView() {
+		final Set<VertexComputeKey> computeKeys = null != this.vertexProgram
+				? this.vertexProgram.getVertexComputeKeys()
+				: Collections.emptySet();
+		if (this.graph instanceof WaldotGraph) {
+			return ((WaldotGraph) this.graph).getWaldotNamespace().createGraphComputerView((WaldotGraph) this.graph,
+					this.graphFilter, computeKeys);
+		}
+		// result graph of a previous computation
+		return new OpcGraphComputerView(this.graph, this.graphFilter, computeKeys);
+	}
+
+	/**
+	 * drops the view from the original source graph
+	 */
+	private void dropGraphComputerView() {
+		if (this.graph instanceof WaldotGraph && ((WaldotGraph) this.graph).getWaldotNamespace().inComputerMode()) {
+			((WaldotGraph) this.graph).getWaldotNamespace().dropGraphComputerView();
+		}
+	}
+
 	@Override
 	public GraphComputer edges(final Traversal<Vertex, Edge> edgeFilter) {
 		this.graphFilter.setEdgeFilter(edgeFilter);
@@ -198,10 +222,8 @@ public final class OpcGraphComputer implements GraphComputer {
 		this.memory = new OpcMemory(this.vertexProgram, this.mapReducers);
 		final Future<ComputerResult> result = computerService.submit(() -> {
 			final long time = System.currentTimeMillis();
-			final WaldotGraphComputerView view = graph.getWaldotNamespace().createGraphComputerView(this.graph,
-					this.graphFilter,
-					null != this.vertexProgram ? this.vertexProgram.getVertexComputeKeys() : Collections.emptySet());
-			final OpcWorkerPool workers = new OpcWorkerPool(this.graph, this.memory, this.workers);
+			final WaldotGraphComputerView view = createGraphComputerView();
+			final OpcWorkerPool workers = new OpcWorkerPool(view.getVertices(), this.memory, this.workers);
 			try {
 				if (null != this.vertexProgram) {
 					// execute the vertex program
@@ -243,7 +265,8 @@ public final class OpcGraphComputer implements GraphComputer {
 				for (final MapReduce mapReduce : mapReducers) {
 					final OpcMapEmitter<?, ?> mapEmitter = new OpcMapEmitter<>(
 							mapReduce.doStage(MapReduce.Stage.REDUCE));
-					final SynchronizedIterator<Vertex> vertices = new SynchronizedIterator<>(this.graph.vertices());
+					final SynchronizedIterator<Vertex> vertices = new SynchronizedIterator<>(
+							view.getVertices().iterator());
 					workers.setMapReduce(mapReduce);
 					workers.executeMapReduce(workerMapReduce -> {
 						workerMapReduce.workerStart(MapReduce.Stage.MAP);
@@ -290,9 +313,10 @@ public final class OpcGraphComputer implements GraphComputer {
 				// update runtime and return the newly computed graph
 				this.memory.setRuntime(System.currentTimeMillis() - time);
 				this.memory.complete(); // drop all transient properties and set iteration
+				// the live graph leaves the computer mode before the compute keys are written back
+				dropGraphComputerView();
 				// determine the resultant graph based on the result graph/persist state
 				final Graph resultGraph = view.processResultGraphPersist(this.resultGraph, this.persist);
-				graph.getWaldotNamespace().dropGraphComputerView(); // drop the view from the original source graph
 				return new DefaultComputerResult(resultGraph, this.memory.asImmutable());
 			} catch (final InterruptedException ie) {
 				workers.closeNow();
@@ -302,6 +326,7 @@ public final class OpcGraphComputer implements GraphComputer {
 				throw new RuntimeException(ex);
 			} finally {
 				workers.close();
+				dropGraphComputerView();
 			}
 		});
 		this.computerService.shutdown();
@@ -19,120 +19,90 @@
 package net.rossonet.waldot.gremlin.opcgraph.process.computer;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
 import org.apache.tinkerpop.gremlin.process.computer.GraphFilter;
 import org.apache.tinkerpop.gremlin.process.computer.VertexComputeKey;
-import org.apache.tinkerpop.gremlin.process.traversal.step.map.PropertiesStep;
+import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
-import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.Property;
-import org.apache.tinkerpop.gremlin.structure.T;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.VertexProperty;
 import org.apache.tinkerpop.gremlin.structure.util.empty.EmptyGraph;
+import org.apache.tinkerpop.gremlin.structure.util.star.StarGraph;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
 
-import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.api.models.WaldotGraphComputerView;
-import net.rossonet.waldot.api.models.WaldotVertex;
-import net.rossonet.waldot.api.models.WaldotVertexProperty;
-import net.rossonet.waldot.gremlin.opcgraph.structure.OpcGraph;
 
 /**
+ * View of the graph used by {@link OpcGraphComputer}.
+ *
+ * The topology is copied once in a {@link StarGraph} per vertex (properties
+ * and incident edges), so the vertex programs run on a compact snapshot and
+ * never touch the live OPC UA nodes. Compute keys are kept on the snapshot and
+ * only the final values of the non transient keys are written back, when the
+ * result graph is the original one.
+ *
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
-// TODO capire come migliorare le performance su opc
 public final class OpcGraphComputerView implements WaldotGraphComputerView {
 
 	protected final Map<String, VertexComputeKey> computeKeys;
-	private final Map<Element, Map<String, List<VertexProperty<?>>>> computeProperties;
-	private final WaldotGraph graph;
-	private final GraphFilter graphFilter;
-	private final Map<Object, Set<Object>> legalEdges = new HashMap<>();
-	private final Set<Object> legalVertices = new HashSet<>();
-	private final Set<String> retainVertexProperties;
+	private final Graph graph;
+	private final Map<Object, StarGraph.StarVertex> snapshot = new LinkedHashMap<>();
+	private final List<Vertex> vertices;
 
-	public OpcGraphComputerView(final WaldotGraph graph, final GraphFilter graphFilter,
+	public OpcGraphComputerView(final Graph graph, final GraphFilter graphFilter,
 			final Set<VertexComputeKey> computeKeys) {
 		this.graph = graph;
 		this.computeKeys = new HashMap<>();
 		computeKeys.forEach(key -> this.computeKeys.put(key.getKey(), key));
-		this.computeProperties = new ConcurrentHashMap<>();
-		this.graphFilter = graphFilter;
-		if (this.graphFilter.hasFilter()) {
-			graph.vertices().forEachRemaining(vertex -> {
-				boolean legalVertex = false;
-				if (this.graphFilter.hasVertexFilter() && this.graphFilter.legalVertex(vertex)) {
-					this.legalVertices.add(vertex.id());
-					legalVertex = true;
-				}
-				if ((legalVertex || !this.graphFilter.hasVertexFilter()) && this.graphFilter.hasEdgeFilter()) {
-					final Set<Object> edges = new HashSet<>();
-					this.legalEdges.put(vertex.id(), edges);
-					this.graphFilter.legalEdges(vertex).forEachRemaining(edge -> edges.add(edge.id()));
-				}
-			});
-		}
-		if (this.graphFilter.hasVertexPropertyFilter()) {
-			retainVertexProperties = new HashSet<>(Arrays
-					.asList(((PropertiesStep) graphFilter.getVertexPropertyFilter().getStartStep()).getPropertyKeys()));
-		} else {
-			retainVertexProperties = null;
-		}
-	}
-
-	private void addPropertiesToOriginalGraph() {
-		graph.getWaldotNamespace().dropGraphComputerView();
-		this.computeProperties.forEach((element, properties) -> {
-			properties.forEach((key, vertexProperties) -> {
-				vertexProperties.forEach(vertexProperty -> {
-					final VertexProperty<?> newVertexProperty = ((Vertex) element).property(
-							VertexProperty.Cardinality.list, vertexProperty.key(), vertexProperty.value(), T.id,
-							vertexProperty.id());
-					vertexProperty.properties().forEachRemaining(property -> {
-						newVertexProperty.property(property.key(), property.value());
-					});
-				});
-			});
+		graph.vertices().forEachRemaining(vertex -> {
+			final StarGraph starGraph = StarGraph.of(vertex);
+			final Optional<StarGraph> filtered = graphFilter.hasFilter() ? starGraph.applyGraphFilter(graphFilter)
+					: Optional.of(starGraph);
+			filtered.ifPresent(star -> snapshot.put(star.getStarVertex().id(), star.getStarVertex()));
 		});
-		this.computeProperties.clear();
+		this.vertices = Collections.unmodifiableList(new ArrayList<>(snapshot.values()));
 	}
 
 	@Override
-	public <V> VertexProperty<V> addProperty(Vertex opcVertex, String key, V value) {
-		// XXX Completare Gremlin OLAP
-		return null;
+	public <V> VertexProperty<V> addProperty(final Vertex vertex, final String key, final V value) {
+		if (!isComputeKey(key)) {
+			throw GraphComputer.Exceptions.providedKeyIsNotAnElementComputeKey(key);
+		}
+		return getStarVertex(vertex).property(VertexProperty.Cardinality.list, key, value);
 	}
 
-	/*
-	 * public <V> Property<V> addProperty(final OpcVertex vertex, final String key,
-	 * final V value) { ElementHelper.validateProperty(key, value); if
-	 * (isComputeKey(key)) { OpcVertexProperty<V> property = new
-	 * OpcVertexProperty<V>(graph, null, vertex, key, value) {
-	 * 
-	 * @Override public void remove() { removeProperty(vertex, key, this); } };
-	 * this.addValue(vertex, key, property); return property; } else { throw
-	 * GraphComputer.Exceptions.providedKeyIsNotAnElementComputeKey(key); } }
-	 */
-	private void addValue(final Vertex vertex, final String key, final VertexProperty property) {
-		final Map<String, List<VertexProperty<?>>> elementProperties = this.computeProperties.computeIfAbsent(vertex,
-				k -> new HashMap<>());
-		elementProperties.compute(key, (k, v) -> {
-			if (null == v) {
-				v = new ArrayList<>();
+	private void addPropertiesToOriginalGraph() {
+		for (final StarGraph.StarVertex starVertex : snapshot.values()) {
+			final Map<String, List<Object>> values = new HashMap<>();
+			for (final VertexComputeKey computeKey : computeKeys.values()) {
+				if (!computeKey.isTransient()) {
+					starVertex.properties(computeKey.getKey()).forEachRemaining(property -> values
+							.computeIfAbsent(property.key(), k -> new ArrayList<>()).add(property.value()));
+				}
 			}
-			v.add(property);
-			return v;
-		});
+			if (values.isEmpty()) {
+				continue;
+			}
+			final Iterator<Vertex> original = graph.vertices(starVertex.id());
+			if (!original.hasNext()) {
+				// removed from the live graph during the computation
+				continue;
+			}
+			final Vertex vertex = original.next();
+			values.forEach((key, list) -> vertex.property(key, list.size() == 1 ? list.get(0) : list));
+		}
 	}
 
 	@Override
@@ -140,8 +110,8 @@ public final class OpcGraphComputerView implements WaldotGraphComputerView {
 		// remove all transient properties from the vertices
 		for (final VertexComputeKey computeKey : this.computeKeys.values()) {
 			if (computeKey.isTransient()) {
-				for (final Map<String, List<VertexProperty<?>>> properties : this.computeProperties.values()) {
-					properties.remove(computeKey.getKey());
+				for (final StarGraph.StarVertex starVertex : snapshot.values()) {
+					starVertex.properties(computeKey.getKey()).forEachRemaining(Property::remove);
 				}
 			}
 		}
@@ -149,58 +119,41 @@ public final class OpcGraphComputerView implements WaldotGraphComputerView {
 
 	@Override
 	public List<Property> getProperties(final Vertex vertex) {
-		final List<Property> list = new ArrayList<>();
-		for (final VertexProperty properties : getPropertiesMap(vertex).values()) {
-			list.add(properties);
-		}
-		for (final List<VertexProperty<?>> properties : this.computeProperties
-				.getOrDefault(vertex, Collections.emptyMap()).values()) {
-			list.addAll(properties);
-		}
-		return list;
-	}
-
-	private Map<String, WaldotVertexProperty<Object>> getPropertiesMap(final Vertex vertex) {
-		final Map<String, WaldotVertexProperty<Object>> propertiesMap = ((WaldotVertex) vertex).getVertexProperties();
-		if (retainVertexProperties != null) {
-			propertiesMap.keySet().retainAll(retainVertexProperties);
-		}
-		return propertiesMap;
+		return IteratorUtils.list(getStarVertex(vertex).properties());
 	}
 
 	@Override
 	public List<VertexProperty<?>> getProperty(final Vertex vertex, final String key) {
-		// if the vertex property is already on the vertex, use that.
-		final List<VertexProperty<?>> vertexProperty = this.getValue(vertex, key);
-		return vertexProperty;
+		return IteratorUtils.list(getStarVertex(vertex).properties(key));
 	}
 
-	//////////////////////
+	private StarGraph.StarVertex getStarVertex(final Vertex vertex) {
+		final StarGraph.StarVertex starVertex = snapshot.get(vertex.id());
+		if (starVertex == null) {
+			throw new IllegalArgumentException("Vertex " + vertex.id() + " is not part of the computer view");
+		}
+		return starVertex;
+	}
 
-	private List<VertexProperty<?>> getValue(final Vertex vertex, final String key) {
-		return this.computeProperties.getOrDefault(vertex, Collections.emptyMap()).getOrDefault(key,
-				Collections.emptyList());
+	@Override
+	public List<Vertex> getVertices() {
+		return vertices;
 	}
 
 	private boolean isComputeKey(final String key) {
 		return this.computeKeys.containsKey(key);
 	}
 
-	//////////////////////
-
 	@Override
 	public boolean legalEdge(final Vertex vertex, final Edge edge) {
-		return !this.graphFilter.hasEdgeFilter() || this.legalEdges.get(vertex.id()).contains(edge.id());
+		final StarGraph.StarVertex starVertex = snapshot.get(vertex.id());
+		return starVertex != null && IteratorUtils
+				.anyMatch(starVertex.edges(Direction.BOTH), starEdge -> starEdge.id().equals(edge.id()));
 	}
 
 	@Override
 	public boolean legalVertex(final Vertex vertex) {
-		return !this.graphFilter.hasVertexFilter() || this.legalVertices.contains(vertex.id());
-	}
-
-	private WaldotGraph open() {
-		// XXX Completare Gremlin OLAP
-		return null;
+		return snapshot.containsKey(vertex.id());
 	}
 
 	@Override
@@ -212,63 +165,24 @@ public final class OpcGraphComputerView implements WaldotGraphComputerView {
 			} else {
 				return EmptyGraph.instance();
 			}
-		} else if (GraphComputer.Persist.VERTEX_PROPERTIES == persist) {
-			if (GraphComputer.ResultGraph.ORIGINAL == resultGraph) {
-				this.addPropertiesToOriginalGraph();
-				return this.graph;
-			} else {
-				// TODO capire come gestire
-				final WaldotGraph newGraph = open();
-				this.graph.vertices().forEachRemaining(vertex -> {
-					final Vertex newVertex = newGraph.addVertex(T.id, vertex.id(), T.label, vertex.label());
-					vertex.properties().forEachRemaining(vertexProperty -> {
-						final VertexProperty<?> newVertexProperty = newVertex.property(VertexProperty.Cardinality.list,
-								vertexProperty.key(), vertexProperty.value(), T.id, vertexProperty.id());
-						vertexProperty.properties().forEachRemaining(property -> {
-							newVertexProperty.property(property.key(), property.value());
-						});
-					});
-				});
-				return newGraph;
-			}
-		} else { // Persist.EDGES
-			if (GraphComputer.ResultGraph.ORIGINAL == resultGraph) {
-				this.addPropertiesToOriginalGraph();
-				return this.graph;
-			} else {
-				final OpcGraph newGraph = OpcGraph.open();
-				this.graph.vertices().forEachRemaining(vertex -> {
-					final Vertex newVertex = newGraph.addVertex(T.id, vertex.id(), T.label, vertex.label());
-					vertex.properties().forEachRemaining(vertexProperty -> {
-						final VertexProperty<?> newVertexProperty = newVertex.property(VertexProperty.Cardinality.list,
-								vertexProperty.key(), vertexProperty.value(), T.id, vertexProperty.id());
-						vertexProperty.properties().forEachRemaining(property -> {
-							newVertexProperty.property(property.key(), property.value());
-						});
-					});
-				});
-				this.graph.edges().forEachRemaining(edge -> {
-					final Vertex outVertex = newGraph.vertices(edge.outVertex().id()).next();
-					final Vertex inVertex = newGraph.vertices(edge.inVertex().id()).next();
-					final Edge newEdge = outVertex.addEdge(edge.label(), inVertex, T.id, edge.id());
-					edge.properties().forEachRemaining(property -> newEdge.property(property.key(), property.value()));
-				});
-				return newGraph;
-			}
+		} else if (GraphComputer.ResultGraph.ORIGINAL == resultGraph) {
+			// the topology is not changed by the computer, only the compute keys are written
+			this.addPropertiesToOriginalGraph();
+			return this.graph;
+		} else {
+			return new OpcComputerResultGraph(vertices, GraphComputer.Persist.EDGES == persist);
 		}
 	}
 
 	@Override
 	public void removeProperty(final Vertex vertex, final String key, final VertexProperty property) {
-		if (isComputeKey(key)) {
-			this.removeValue(vertex, key, property);
-		} else {
+		if (!isComputeKey(key)) {
 			throw GraphComputer.Exceptions.providedKeyIsNotAnElementComputeKey(key);
 		}
+		getStarVertex(vertex).properties(key).forEachRemaining(starProperty -> {
+			if (starProperty.equals(property)) {
+				starProperty.remove();
+			}
+		});
 	}
-
-	private void removeValue(final Vertex vertex, final String key, final VertexProperty property) {
-		this.computeProperties.<List<Map<String, VertexProperty<?>>>>getOrDefault(vertex, Collections.emptyMap())
-				.get(key).remove(property);
-	}
-}
\ No newline at end of file
+}
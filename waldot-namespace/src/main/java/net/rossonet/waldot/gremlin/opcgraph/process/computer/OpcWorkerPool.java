@@ -26,10 +26,6 @@ import org.apache.tinkerpop.gremlin.process.computer.util.VertexProgramPool;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.util.function.TriConsumer;
 
-import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
-import net.rossonet.waldot.gremlin.opcgraph.structure.OpcGraph;
-import net.rossonet.waldot.gremlin.opcgraph.structure.OpcHelper;
-
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -47,7 +43,7 @@ import java.util.function.Consumer;
  */
 public final class OpcWorkerPool implements AutoCloseable {
 
-    private static final BasicThreadFactory THREAD_FACTORY_WORKER = new BasicThreadFactory.Builder().namingPattern("tinker-worker-%d").build();
+    private static final BasicThreadFactory THREAD_FACTORY_WORKER = new BasicThreadFactory.Builder().namingPattern("opc-worker-%d").build();
 
     private final int numberOfWorkers;
     private final ExecutorService workerPool;
@@ -58,31 +54,21 @@ public final class OpcWorkerPool implements AutoCloseable {
     private final Queue<OpcWorkerMemory> workerMemoryPool = new ConcurrentLinkedQueue<>();
     private final List<List<Vertex>> workerVertices = new ArrayList<>();
 
-    public OpcWorkerPool(final AbstractOpcGraph graph, final OpcMemory memory, final int numberOfWorkers) {
+    public OpcWorkerPool(final List<Vertex> vertices, final OpcMemory memory, final int numberOfWorkers) {
         this.numberOfWorkers = numberOfWorkers;
         this.workerPool = Executors.newFixedThreadPool(numberOfWorkers, THREAD_FACTORY_WORKER);
         this.completionService = new ExecutorCompletionService<>(this.workerPool);
         for (int i = 0; i < this.numberOfWorkers; i++) {
             this.workerMemoryPool.add(new OpcWorkerMemory(memory));
-            this.workerVertices.add(new ArrayList<>());
         }
-        int batchSize = graph.getVerticesCount() / this.numberOfWorkers;
+        // contiguous partitions of the snapshot, the last worker takes the remainder
+        int batchSize = vertices.size() / this.numberOfWorkers;
         if (0 == batchSize)
             batchSize = 1;
-        int counter = 0;
-        int index = 0;
-
-        List<Vertex> currentWorkerVertices = this.workerVertices.get(index);
-        final Iterator<Vertex> iterator = graph.vertices();
-        while (iterator.hasNext()) {
-            final Vertex vertex = iterator.next();
-            if (counter++ < batchSize || index == this.workerVertices.size() - 1) {
-                currentWorkerVertices.add(vertex);
-            } else {
-                currentWorkerVertices = this.workerVertices.get(++index);
-                currentWorkerVertices.add(vertex);
-                counter = 1;
-            }
+        for (int i = 0; i < this.numberOfWorkers; i++) {
+            final int from = Math.min(i * batchSize, vertices.size());
+            final int to = i == this.numberOfWorkers - 1 ? vertices.size() : Math.min(from + batchSize, vertices.size());
+            this.workerVertices.add(vertices.subList(from, to));
         }
     }
 
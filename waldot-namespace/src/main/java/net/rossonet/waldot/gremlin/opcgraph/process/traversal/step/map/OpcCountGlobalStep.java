@@ -31,20 +31,67 @@ import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
 import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
 import net.rossonet.waldot.gremlin.opcgraph.structure.OpcGraph;
 import net.rossonet.waldot.gremlin.opcgraph.structure.OpcHelper;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcGraphStatistics;
 
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 
 /**
+ * Count of the elements of the graph. With labels or with a property key the
+ * count is read from the {@link OpcGraphStatistics} instead of the size of the
+ * graph.
+ *
  * @author Marko A. Rodriguez (http://markorodriguez.com)
  */
 public final class OpcCountGlobalStep<S extends Element> extends AbstractStep<S, Long> {
 
     private final Class<S> elementClass;
+    private final Set<String> labels;
+    private final String propertyKey;
     private boolean done = false;
 
     public OpcCountGlobalStep(final Traversal.Admin traversal, final Class<S> elementClass) {
+        this(traversal, elementClass, null, null);
+    }
+
+    /**
+     * @param labels      the labels of the counted elements, null for any label
+     * @param propertyKey the key the counted elements must have, null for any
+     */
+    public OpcCountGlobalStep(final Traversal.Admin traversal, final Class<S> elementClass, final Set<String> labels,
+            final String propertyKey) {
         super(traversal);
         this.elementClass = elementClass;
+        this.labels = labels;
+        this.propertyKey = propertyKey;
+    }
+
+    public Class<S> getElementClass() {
+        return this.elementClass;
+    }
+
+    public Set<String> getLabels() {
+        return this.labels;
+    }
+
+    public String getPropertyKey() {
+        return this.propertyKey;
+    }
+
+    private long count(final AbstractOpcGraph graph) {
+        final OpcGraphStatistics statistics = graph.getIndexManager().getStatistics();
+        if (null != this.labels) {
+            long count = 0;
+            for (final String label : this.labels) {
+                count += statistics.getLabelCount(this.elementClass, label);
+            }
+            return count;
+        }
+        if (null != this.propertyKey) {
+            return statistics.getKeyCount(this.elementClass, this.propertyKey);
+        }
+        return Vertex.class.isAssignableFrom(this.elementClass) ? graph.getVerticesCount() : graph.getEdgesCount();
     }
 
     @Override
@@ -52,22 +99,21 @@ public final class OpcCountGlobalStep<S extends Element> extends AbstractStep<S,
         if (!this.done) {
             this.done = true;
             final AbstractOpcGraph graph = (AbstractOpcGraph) this.getTraversal().getGraph().get();
-            return this.getTraversal().getTraverserGenerator().generate(Vertex.class.isAssignableFrom(this.elementClass) ?
-                            (long) graph.getVerticesCount() :
-                            (long) graph.getEdgesCount(),
-                    (Step) this, 1L);
+            return this.getTraversal().getTraverserGenerator().generate(this.count(graph), (Step) this, 1L);
         } else
             throw FastNoSuchElementException.instance();
     }
 
     @Override
     public String toString() {
-        return StringFactory.stepString(this, this.elementClass.getSimpleName().toLowerCase());
+        return StringFactory.stepString(this, this.elementClass.getSimpleName().toLowerCase(), this.labels,
+                this.propertyKey);
     }
 
     @Override
     public int hashCode() {
-        return super.hashCode() ^ this.elementClass.hashCode();
+        return super.hashCode() ^ this.elementClass.hashCode() ^ Objects.hashCode(this.labels)
+                ^ Objects.hashCode(this.propertyKey);
     }
 
     @Override
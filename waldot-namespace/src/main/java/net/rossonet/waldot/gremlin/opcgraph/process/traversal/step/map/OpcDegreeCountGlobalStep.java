@@ -0,0 +1,75 @@
+package net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Operator;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.ReducingBarrierStep;
+import org.apache.tinkerpop.gremlin.process.traversal.traverser.TraverserRequirement;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.apache.tinkerpop.gremlin.util.function.ConstantSupplier;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+
+import net.rossonet.waldot.api.models.WaldotVertex;
+
+/**
+ * Replaces outE().count(), inE().count() and bothE().count(): the edges of
+ * every vertex are counted by the adjacency index in O(labels) instead of
+ * being collected and iterated.
+ */
+public final class OpcDegreeCountGlobalStep<S extends Vertex> extends ReducingBarrierStep<S, Long> {
+
+	private final Direction direction;
+	private final String[] edgeLabels;
+
+	public OpcDegreeCountGlobalStep(final Traversal.Admin traversal, final Direction direction,
+			final String... edgeLabels) {
+		super(traversal);
+		this.direction = direction;
+		this.edgeLabels = edgeLabels;
+		this.setSeedSupplier(new ConstantSupplier<>(0L));
+		this.setReducingBiOperator(Operator.sumLong);
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public String[] getEdgeLabels() {
+		return edgeLabels;
+	}
+
+	@Override
+	public Set<TraverserRequirement> getRequirements() {
+		return Collections.singleton(TraverserRequirement.BULK);
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode() ^ direction.hashCode() ^ Arrays.hashCode(edgeLabels);
+	}
+
+	@Override
+	public Long projectTraverser(final Traverser.Admin<S> traverser) {
+		final S vertex = traverser.get();
+		final long degree;
+		if (vertex instanceof WaldotVertex && !((WaldotVertex) vertex).inComputerMode()) {
+			degree = ((WaldotVertex) vertex).getNamespace().getDegree((WaldotVertex) vertex, direction, edgeLabels);
+		} else {
+			// la vista del computer filtra gli archi, si contano uno ad uno
+			degree = IteratorUtils.count(vertex.edges(direction, edgeLabels));
+		}
+		return degree * traverser.bulk();
+	}
+
+	@Override
+	public String toString() {
+		return StringFactory.stepString(this, direction, Arrays.asList(edgeLabels));
+	}
+
+}
@@ -0,0 +1,64 @@
+package net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.AbstractStep;
+import org.apache.tinkerpop.gremlin.process.traversal.util.FastNoSuchElementException;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+
+import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
+
+/**
+ * Replaces groupCount().by(label) and label().groupCount() on all the vertices
+ * or edges of the graph: the map is built from the label counters of the graph
+ * statistics in O(labels).
+ */
+public final class OpcLabelCountGlobalStep<S extends Element> extends AbstractStep<S, Map<Object, Long>> {
+
+	private boolean done = false;
+	private final Class<S> elementClass;
+
+	public OpcLabelCountGlobalStep(final Traversal.Admin traversal, final Class<S> elementClass) {
+		super(traversal);
+		this.elementClass = elementClass;
+	}
+
+	public Class<S> getElementClass() {
+		return elementClass;
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode() ^ this.elementClass.hashCode();
+	}
+
+	@Override
+	protected Traverser.Admin<Map<Object, Long>> processNextStart() throws NoSuchElementException {
+		if (this.done) {
+			throw FastNoSuchElementException.instance();
+		}
+		this.done = true;
+		final AbstractOpcGraph graph = (AbstractOpcGraph) this.getTraversal().getGraph().get();
+		final Map<Object, Long> result = new HashMap<>(
+				graph.getIndexManager().getStatistics().getLabelCounts(this.elementClass));
+		return this.getTraversal().getTraverserGenerator().generate(result, (Step) this, 1L);
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		this.done = false;
+	}
+
+	@Override
+	public String toString() {
+		return StringFactory.stepString(this, this.elementClass.getSimpleName().toLowerCase());
+	}
+
+}
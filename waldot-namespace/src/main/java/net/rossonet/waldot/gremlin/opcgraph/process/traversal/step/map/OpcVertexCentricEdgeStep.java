@@ -0,0 +1,112 @@
+package net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Order;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.Traverser;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.FlatMapStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcVertexCentricIndex;
+
+/**
+ * Replaces outE(label) and inE(label) followed by range has() or by
+ * order().by(key) on a key with a vertex-centric index: the edges of every
+ * vertex are read from the index already filtered and sorted, and under
+ * order().limit(n) only the first n of them. The global order() and limit()
+ * stay after the step, so that the result is the same with many start
+ * vertices. When the index can not answer, the edges of the vertex are
+ * filtered by the predicates.
+ */
+public final class OpcVertexCentricEdgeStep extends FlatMapStep<Vertex, Edge> {
+
+	private final Direction direction;
+	private final String edgeLabel;
+	private final List<HasContainer> hasContainers;
+	private final String key;
+	private final long limit;
+	private final Order order;
+
+	/**
+	 * @param hasContainers predicates on the key answered by the index
+	 * @param order         the order of the key, null if the edges are not sorted
+	 * @param limit         edges read for every vertex when sorted, -1 for all
+	 */
+	public OpcVertexCentricEdgeStep(final Traversal.Admin traversal, final Direction direction,
+			final String edgeLabel, final String key, final List<HasContainer> hasContainers, final Order order,
+			final long limit) {
+		super(traversal);
+		this.direction = direction;
+		this.edgeLabel = edgeLabel;
+		this.key = key;
+		this.hasContainers = hasContainers;
+		this.order = order;
+		this.limit = limit;
+	}
+
+	@Override
+	protected Iterator<Edge> flatMap(final Traverser.Admin<Vertex> traverser) {
+		final Vertex vertex = traverser.get();
+		if (vertex instanceof WaldotVertex && !((WaldotVertex) vertex).inComputerMode()
+				&& vertex.graph() instanceof AbstractOpcGraph) {
+			final OpcVertexCentricIndex index = ((AbstractOpcGraph) vertex.graph()).getIndexManager()
+					.getEdgeIndex(edgeLabel, key);
+			if (index != null) {
+				final Iterator<Edge> edges = index.edges(vertex, direction, hasContainers, order == Order.desc,
+						order == null ? -1 : limit);
+				if (edges != null) {
+					return edges;
+				}
+			}
+		}
+		// indice rimosso o valori non ordinabili, l'ordinamento resta al passo globale
+		return IteratorUtils.filter(vertex.edges(direction, edgeLabel),
+				edge -> HasContainer.testAll(edge, hasContainers));
+	}
+
+	public Direction getDirection() {
+		return direction;
+	}
+
+	public String getEdgeLabel() {
+		return edgeLabel;
+	}
+
+	public List<HasContainer> getHasContainers() {
+		return hasContainers;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public long getLimit() {
+		return limit;
+	}
+
+	public Order getOrder() {
+		return order;
+	}
+
+	@Override
+	public int hashCode() {
+		return super.hashCode() ^ direction.hashCode() ^ edgeLabel.hashCode() ^ key.hashCode()
+				^ hasContainers.hashCode() ^ Objects.hashCode(order) ^ Long.hashCode(limit);
+	}
+
+	@Override
+	public String toString() {
+		return StringFactory.stepString(this, direction, edgeLabel, key, hasContainers, order, limit);
+	}
+
+}
@@ -20,22 +20,29 @@ package net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.sideEffect;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 import org.apache.tinkerpop.gremlin.process.traversal.GremlinTypeErrorException;
 import org.apache.tinkerpop.gremlin.process.traversal.P;
 import org.apache.tinkerpop.gremlin.process.traversal.step.HasContainerHolder;
 import org.apache.tinkerpop.gremlin.process.traversal.step.filter.FilterStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.RangeGlobalStep;
 import org.apache.tinkerpop.gremlin.process.traversal.step.map.GraphStep;
 import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
 import org.apache.tinkerpop.gremlin.process.traversal.util.AndP;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.util.CloseableIterator;
 import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.apache.tinkerpop.gremlin.util.iterator.FastNoSuchElementException;
 
 import net.rossonet.waldot.api.models.WaldotGraphIterator;
 import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
@@ -47,6 +54,46 @@ import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
 public final class OpcGraphStep<S, E extends Element> extends GraphStep<S, E>
 		implements HasContainerHolder, AutoCloseable {
 
+	/**
+	 * Lazy filter that releases the filtered iterator when closed.
+	 */
+	private static final class CloseableFilterIterator<E> implements CloseableIterator<E> {
+		private final Iterator<E> iterator;
+		private E next;
+		private final Predicate<E> predicate;
+
+		private CloseableFilterIterator(final Iterator<E> iterator, final Predicate<E> predicate) {
+			this.iterator = iterator;
+			this.predicate = predicate;
+		}
+
+		@Override
+		public void close() {
+			CloseableIterator.closeIterator(iterator);
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (null == next && iterator.hasNext()) {
+				final E candidate = iterator.next();
+				if (predicate.test(candidate)) {
+					next = candidate;
+				}
+			}
+			return null != next;
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext()) {
+				throw FastNoSuchElementException.instance();
+			}
+			final E result = next;
+			next = null;
+			return result;
+		}
+	}
+
 	private final List<HasContainer> hasContainers = new ArrayList<>();
 	/**
 	 * List of iterators opened by this step.
@@ -94,7 +141,14 @@ public final class OpcGraphStep<S, E extends Element> extends GraphStep<S, E>
 		} else if (this.ids.length > 0) {
 			iterator = this.iteratorList(graph.edges(this.ids));
 		} else {
-			iterator = this.iteratorList(graph.edges());
+			final Collection<Edge> indexedEdges = this.indexedElements(graph, Edge.class);
+			if (null != indexedEdges) {
+				iterator = this.iteratorList(indexedEdges.iterator());
+			} else if (this.isParallelScan(graph, graph.getEdgesCount())) {
+				iterator = this.parallelScan(graph, graph.getWaldotNamespace().getEdges().values());
+			} else {
+				iterator = this.iteratorList(graph.edges());
+			}
 		}
 
 		iterators.add(iterator);
@@ -112,38 +166,75 @@ public final class OpcGraphStep<S, E extends Element> extends GraphStep<S, E>
 		return super.hashCode() ^ this.hasContainers.hashCode();
 	}
 
+	/**
+	 * candidates from the secondary index answering the most selective container,
+	 * null when no index can be used. The has containers are still tested on the
+	 * candidates. The indexes do not see the writes of the transaction of the
+	 * thread, its reads scan the elements.
+	 */
+	private <E extends Element> Collection<E> indexedElements(final AbstractOpcGraph graph,
+			final Class<E> elementClass) {
+		if (null != graph.getTransactionReads()) {
+			return null;
+		}
+		final HasContainer indexedContainer = graph.getIndexManager().selectIndexedContainer(elementClass,
+				this.hasContainers);
+		return null == indexedContainer ? null : graph.getIndexManager().lookup(elementClass, indexedContainer);
+	}
+
+	/**
+	 * the unindexed scan of a large graph is filtered in parallel, unless a
+	 * limit() can stop the lazy scan early, the graph is seen by a graph computer
+	 * or the thread reads the writes of its transaction
+	 */
+	private boolean isParallelScan(final AbstractOpcGraph graph, final int size) {
+		final int threshold = graph.getParallelScanThreshold();
+		if (this.hasContainers.isEmpty() || 0 == threshold || size < threshold
+				|| graph.getWaldotNamespace().inComputerMode() || null != graph.getTransactionReads()) {
+			return false;
+		}
+		return !TraversalHelper.hasStepOfAssignableClassRecursively(RangeGlobalStep.class,
+				TraversalHelper.getRootTraversal(this.getTraversal()));
+	}
+
 	private <E extends Element> Iterator<E> iteratorList(final Iterator<E> iterator) {
-		final List<E> list = new ArrayList<>();
+		// lazy filter, limit() and hasNext() stop the scan of the graph early
+		if (this.hasContainers.isEmpty()) {
+			return new WaldotGraphIterator<>(iterator);
+		}
+		return new WaldotGraphIterator<>(new CloseableFilterIterator<>(iterator, this::testHasContainers));
+	}
 
+	/**
+	 * orders the containers tested on every element, the most selective first.
+	 */
+	public void orderHasContainers(final Comparator<HasContainer> comparator) {
+		this.hasContainers.sort(comparator);
+	}
+
+	private <E extends Element> Iterator<E> parallelScan(final AbstractOpcGraph graph,
+			final Collection<? extends E> elements) {
+		return new WaldotGraphIterator<>(new OpcParallelScanIterator<E>(elements, this::testHasContainers,
+				ForkJoinPool.commonPool(), graph.getParallelScanPartitionSize()));
+	}
+
+	private boolean testHasContainers(final Element e) {
 		try {
-			while (iterator.hasNext()) {
-				final E e = iterator.next();
-				try {
-					if (HasContainer.testAll(e, this.hasContainers)) {
-						list.add(e);
-					}
-				} catch (final GremlinTypeErrorException ex) {
-					if (getTraversal().isRoot() || !(getTraversal().getParent() instanceof FilterStep)) {
-						/*
-						 * Either we are at the top level of the query, or our parent query is not a
-						 * FilterStep and thus cannot handle a GremlinTypeErrorException. In any of
-						 * these cases we do a binary reduction from ERROR -> FALSE and filter the
-						 * solution quietly.
-						 */
-					} else {
-						// not a ternary -> binary reducer, pass the ERROR on
-						throw ex;
-					}
-				}
+			return HasContainer.testAll(e, this.hasContainers);
+		} catch (final GremlinTypeErrorException ex) {
+			if (getTraversal().isRoot() || !(getTraversal().getParent() instanceof FilterStep)) {
+				/*
+				 * Either we are at the top level of the query, or our parent query is not a
+				 * FilterStep and thus cannot handle a GremlinTypeErrorException. In any of
+				 * these cases we do a binary reduction from ERROR -> FALSE and filter the
+				 * solution quietly.
+				 */
+				return false;
+			} else {
+				// not a ternary -> binary reducer, pass the ERROR on
+				throw ex;
 			}
-		} finally {
-			// close the old iterator to release resources since we are returning a new
-			// iterator (over list)
-			// out of this function.
-			CloseableIterator.closeIterator(iterator);
 		}
-
-		return new WaldotGraphIterator<>(list.iterator());
 	}
 
 	@Override
@@ -167,7 +258,14 @@ public final class OpcGraphStep<S, E extends Element> extends GraphStep<S, E>
 		} else if (this.ids.length > 0) {
 			iterator = this.iteratorList(graph.vertices(this.ids));
 		} else {
-			iterator = this.iteratorList(graph.vertices());
+			final Collection<Vertex> indexedVertices = this.indexedElements(graph, Vertex.class);
+			if (null != indexedVertices) {
+				iterator = this.iteratorList(indexedVertices.iterator());
+			} else if (this.isParallelScan(graph, graph.getVerticesCount())) {
+				iterator = this.parallelScan(graph, graph.getWaldotNamespace().getVertices().values());
+			} else {
+				iterator = this.iteratorList(graph.vertices());
+			}
 		}
 
 		iterators.add(iterator);
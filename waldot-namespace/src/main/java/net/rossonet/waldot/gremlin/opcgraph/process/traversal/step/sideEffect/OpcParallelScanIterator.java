@@ -0,0 +1,164 @@
+package net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.sideEffect;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+
+import org.apache.tinkerpop.gremlin.structure.util.CloseableIterator;
+import org.apache.tinkerpop.gremlin.util.iterator.FastNoSuchElementException;
+
+/**
+ * Full scan of a large element map split in partitions filtered in parallel on
+ * a ForkJoin pool. The matches are returned partition after partition in the
+ * iteration order of the map, so that the result is the same of the lazy scan.
+ * The partitions are submitted on demand, at most the parallelism of the pool
+ * ahead of the one read by the consumer, so a consumer that stops early does
+ * not filter the whole graph. The errors of the predicate are raised in the
+ * position of their element, as in the lazy scan. Closing the iterator stops
+ * the partitions still running.
+ */
+public final class OpcParallelScanIterator<E> implements CloseableIterator<E> {
+
+	// errore del predicato, tenuto nella posizione dell'elemento che lo ha causato
+	private static final class Failure {
+		private final RuntimeException error;
+
+		private Failure(final RuntimeException error) {
+			this.error = error;
+		}
+	}
+
+	/**
+	 * minimum number of elements of a partition, below this size the cost of the
+	 * tasks exceeds the gain
+	 */
+	public static final int DEFAULT_MINIMUM_PARTITION_SIZE = 4096;
+
+	/**
+	 * elements of the graph above which the unindexed scans are filtered in
+	 * parallel
+	 */
+	public static final int DEFAULT_THRESHOLD = 100_000;
+
+	// partizioni per thread del pool, bilanciano i predicati di costo diverso
+	private static final int PARTITIONS_PER_THREAD = 4;
+
+	// partizioni in esecuzione oltre a quella letta dal consumatore
+	private final int ahead;
+
+	private volatile boolean closed = false;
+
+	private final int count;
+
+	private Iterator<Object> current = Collections.emptyIterator();
+
+	private E next;
+
+	private int nextPartition = 0;
+
+	// elementi accettati e Failure, nell'ordine della mappa
+	private final Deque<CompletableFuture<List<Object>>> partitions = new ArrayDeque<>();
+
+	private final ForkJoinPool pool;
+
+	private final Predicate<? super E> predicate;
+
+	private final Object[] snapshot;
+
+	/**
+	 * @param elements             the elements to scan, copied when the iterator
+	 *                             is created
+	 * @param predicate            the filter, tested on the threads of the pool
+	 * @param pool                 the pool running the partitions
+	 * @param minimumPartitionSize the minimum number of elements of a partition
+	 */
+	public OpcParallelScanIterator(final Collection<? extends E> elements, final Predicate<? super E> predicate,
+			final ForkJoinPool pool, final int minimumPartitionSize) {
+		if (minimumPartitionSize < 1) {
+			throw new IllegalArgumentException("Minimum partition size must be positive");
+		}
+		this.snapshot = elements.toArray();
+		this.predicate = predicate;
+		this.pool = pool;
+		this.count = Math.max(1,
+				Math.min(pool.getParallelism() * PARTITIONS_PER_THREAD, snapshot.length / minimumPartitionSize));
+		this.ahead = Math.max(1, pool.getParallelism());
+	}
+
+	@Override
+	public void close() {
+		closed = true;
+		partitions.forEach(partition -> partition.cancel(false));
+		partitions.clear();
+		nextPartition = count;
+		current = Collections.emptyIterator();
+		next = null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Object> filter(final Object[] snapshot, final int from, final int to,
+			final Predicate<? super E> predicate) {
+		final List<Object> results = new ArrayList<>();
+		for (int i = from; i < to && !closed; i++) {
+			try {
+				if (predicate.test((E) snapshot[i])) {
+					results.add(snapshot[i]);
+				}
+			} catch (final RuntimeException e) {
+				results.add(new Failure(e));
+			}
+		}
+		return results;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean hasNext() {
+		while (null == next) {
+			if (current.hasNext()) {
+				final Object result = current.next();
+				if (result instanceof Failure) {
+					throw ((Failure) result).error;
+				}
+				next = (E) result;
+			} else if (submit()) {
+				final CompletableFuture<List<Object>> partition = partitions.poll();
+				// le partizioni successive sono filtrate mentre il consumatore legge questa
+				submit();
+				current = partition.join().iterator();
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public E next() {
+		if (!hasNext()) {
+			throw FastNoSuchElementException.instance();
+		}
+		final E result = next;
+		next = null;
+		return result;
+	}
+
+	// sottomette le partizioni fino ad averne ahead in attesa, false se non ne restano
+	private boolean submit() {
+		while (partitions.size() < ahead && nextPartition < count) {
+			final int from = (int) ((long) snapshot.length * nextPartition / count);
+			final int to = (int) ((long) snapshot.length * (nextPartition + 1) / count);
+			partitions.add(CompletableFuture.supplyAsync(() -> filter(snapshot, from, to, predicate), pool));
+			nextPartition++;
+		}
+		return !partitions.isEmpty();
+	}
+
+}
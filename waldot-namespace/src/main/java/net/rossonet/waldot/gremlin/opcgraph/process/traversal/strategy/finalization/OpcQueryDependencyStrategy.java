@@ -0,0 +1,240 @@
+package net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.finalization;
+
+import java.util.Collection;
+import java.util.Optional;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.Contains;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.lambda.ValueTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.step.HasContainerHolder;
+import org.apache.tinkerpop.gremlin.process.traversal.step.LambdaHolder;
+import org.apache.tinkerpop.gremlin.process.traversal.step.Mutating;
+import org.apache.tinkerpop.gremlin.process.traversal.step.TraversalParent;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.CallStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.EdgeOtherVertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.EdgeVertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.ElementMapStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.GraphStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.PropertiesStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.PropertyMapStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.VertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.sideEffect.InjectStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.sideEffect.IoStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.AbstractTraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.verification.ReadOnlyStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.verification.VerificationException;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+import net.rossonet.waldot.api.models.WaldotGraph;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map.OpcCountGlobalStep;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map.OpcDegreeCountGlobalStep;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map.OpcLabelCountGlobalStep;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map.OpcVertexCentricEdgeStep;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcQueryCache;
+
+/**
+ * Records in the {@link OpcQueryCache.Dependencies} of the running cached
+ * query the labels, the ids and the property keys the traversal can read.
+ * Traversals that fail the {@link ReadOnlyStrategy} verification, run lambdas
+ * or services or run on a graph computer make the query not cacheable. Outside of a cached query the strategy does
+ * nothing.
+ */
+public final class OpcQueryDependencyStrategy
+		extends AbstractTraversalStrategy<TraversalStrategy.FinalizationStrategy>
+		implements TraversalStrategy.FinalizationStrategy {
+
+	private static final OpcQueryDependencyStrategy INSTANCE = new OpcQueryDependencyStrategy();
+
+	private static final String LABEL_KEY = T.label.getAccessor();
+
+	public static OpcQueryDependencyStrategy instance() {
+		return INSTANCE;
+	}
+
+	private OpcQueryDependencyStrategy() {
+	}
+
+	private void addGraphStep(final OpcQueryCache.Dependencies dependencies, final GraphStep<?, ?> graphStep,
+			final Optional<Graph> graph) {
+		final Class<? extends Element> elementClass = graphStep.getReturnClass();
+		if (graphStep.getIds().length > 0) {
+			for (final Object id : graphStep.getIds()) {
+				final Object nodeId = getNodeId(id, graph);
+				if (nodeId == null) {
+					dependencies.addAllLabels(elementClass);
+					return;
+				}
+				dependencies.addId(elementClass, nodeId);
+			}
+			return;
+		}
+		if (graphStep instanceof HasContainerHolder) {
+			for (final HasContainer hasContainer : ((HasContainerHolder) graphStep).getHasContainers()) {
+				if (LABEL_KEY.equals(hasContainer.getKey()) && addLabels(dependencies, elementClass, hasContainer)) {
+					return;
+				}
+			}
+		}
+		dependencies.addAllLabels(elementClass);
+	}
+
+	private void addKeys(final OpcQueryCache.Dependencies dependencies, final String... keys) {
+		if (keys == null || keys.length == 0) {
+			dependencies.addAllKeys();
+			return;
+		}
+		for (final String key : keys) {
+			dependencies.addKey(key);
+		}
+	}
+
+	/**
+	 * @return true if the container selects the labels of the elements
+	 */
+	private boolean addLabels(final OpcQueryCache.Dependencies dependencies,
+			final Class<? extends Element> elementClass, final HasContainer hasContainer) {
+		if (hasContainer.getBiPredicate() == Compare.eq && hasContainer.getValue() instanceof String) {
+			dependencies.addLabel(elementClass, (String) hasContainer.getValue());
+			return true;
+		}
+		if (hasContainer.getBiPredicate() == Contains.within && hasContainer.getValue() instanceof Collection) {
+			for (final Object label : (Collection<?>) hasContainer.getValue()) {
+				if (!(label instanceof String)) {
+					return false;
+				}
+			}
+			((Collection<?>) hasContainer.getValue())
+					.forEach(label -> dependencies.addLabel(elementClass, (String) label));
+			return true;
+		}
+		return false;
+	}
+
+	private void addLabels(final OpcQueryCache.Dependencies dependencies,
+			final Class<? extends Element> elementClass, final String... labels) {
+		if (labels == null || labels.length == 0) {
+			dependencies.addAllLabels(elementClass);
+			return;
+		}
+		for (final String label : labels) {
+			dependencies.addLabel(elementClass, label);
+		}
+	}
+
+	private void addSteps(final OpcQueryCache.Dependencies dependencies, final Traversal.Admin<?, ?> traversal,
+			final Optional<Graph> graph) {
+		if (traversal instanceof ValueTraversal) {
+			dependencies.addKey(((ValueTraversal<?, ?>) traversal).getPropertyKey());
+			return;
+		}
+		for (final Step<?, ?> step : traversal.getSteps()) {
+			if (step instanceof Mutating || step instanceof LambdaHolder || step instanceof CallStep
+					|| step instanceof IoStep) {
+				dependencies.setNotCacheable();
+				return;
+			}
+			if (step instanceof GraphStep) {
+				addGraphStep(dependencies, (GraphStep<?, ?>) step, graph);
+			} else if (step instanceof InjectStep) {
+				// elementi passati dal chiamante, di qualunque label
+				dependencies.addAllLabels(Vertex.class);
+				dependencies.addAllLabels(Edge.class);
+			} else if (step instanceof OpcCountGlobalStep) {
+				final OpcCountGlobalStep<?> countStep = (OpcCountGlobalStep<?>) step;
+				if (countStep.getLabels() != null) {
+					countStep.getLabels().forEach(label -> dependencies.addLabel(countStep.getElementClass(), label));
+				} else {
+					dependencies.addAllLabels(countStep.getElementClass());
+				}
+				if (countStep.getPropertyKey() != null) {
+					dependencies.addKey(countStep.getPropertyKey());
+				}
+			} else if (step instanceof OpcLabelCountGlobalStep) {
+				dependencies.addAllLabels(((OpcLabelCountGlobalStep<?>) step).getElementClass());
+			} else if (step instanceof OpcDegreeCountGlobalStep) {
+				addLabels(dependencies, Edge.class, ((OpcDegreeCountGlobalStep<?>) step).getEdgeLabels());
+			} else if (step instanceof OpcVertexCentricEdgeStep) {
+				dependencies.addLabel(Edge.class, ((OpcVertexCentricEdgeStep) step).getEdgeLabel());
+				dependencies.addKey(((OpcVertexCentricEdgeStep) step).getKey());
+			} else if (step instanceof VertexStep) {
+				final VertexStep<?> vertexStep = (VertexStep<?>) step;
+				addLabels(dependencies, Edge.class, vertexStep.getEdgeLabels());
+				if (vertexStep.returnsVertex()) {
+					dependencies.addAllLabels(Vertex.class);
+				}
+			} else if (step instanceof EdgeVertexStep || step instanceof EdgeOtherVertexStep) {
+				dependencies.addAllLabels(Vertex.class);
+			} else if (step instanceof PropertiesStep) {
+				addKeys(dependencies, ((PropertiesStep<?>) step).getPropertyKeys());
+			} else if (step instanceof PropertyMapStep) {
+				addKeys(dependencies, ((PropertyMapStep<?, ?>) step).getPropertyKeys());
+			} else if (step instanceof ElementMapStep) {
+				addKeys(dependencies, ((ElementMapStep<?, ?>) step).getPropertyKeys());
+			}
+			if (step instanceof HasContainerHolder) {
+				((HasContainerHolder) step).getHasContainers().forEach(hasContainer -> {
+					if (hasContainer.getKey() != null) {
+						dependencies.addKey(hasContainer.getKey());
+					}
+				});
+			}
+			if (step instanceof TraversalParent) {
+				for (final Traversal.Admin<?, ?> child : ((TraversalParent) step).getLocalChildren()) {
+					addSteps(dependencies, child, graph);
+				}
+				for (final Traversal.Admin<?, ?> child : ((TraversalParent) step).getGlobalChildren()) {
+					addSteps(dependencies, child, graph);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void apply(final Traversal.Admin<?, ?> traversal) {
+		final OpcQueryCache.Dependencies dependencies = OpcQueryCache.getRecordingDependencies();
+		if (dependencies == null || !traversal.isRoot()) {
+			return;
+		}
+		dependencies.addTraversal();
+		if (TraversalHelper.onGraphComputer(traversal)) {
+			dependencies.setNotCacheable();
+			return;
+		}
+		try {
+			// si salvano solo le traversal verificate in sola lettura, figlie comprese
+			ReadOnlyStrategy.instance().apply(traversal);
+		} catch (final VerificationException e) {
+			dependencies.setNotCacheable();
+			return;
+		}
+		addSteps(dependencies, traversal, traversal.getGraph());
+	}
+
+	/**
+	 * @return the node id of the element id, null if it can not be converted
+	 */
+	private Object getNodeId(final Object id, final Optional<Graph> graph) {
+		if (id instanceof Element) {
+			return ((Element) id).id();
+		}
+		if (!graph.isPresent() || !(graph.get() instanceof WaldotGraph)) {
+			return null;
+		}
+		final WaldotGraph waldotGraph = (WaldotGraph) graph.get();
+		try {
+			return waldotGraph.getWaldotNamespace().getNodeIdManager().convert(waldotGraph, id);
+		} catch (final RuntimeException e) {
+			return null;
+		}
+	}
+
+}
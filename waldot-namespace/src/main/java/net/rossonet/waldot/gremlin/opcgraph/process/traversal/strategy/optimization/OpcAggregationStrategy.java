@@ -0,0 +1,168 @@
+package net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.optimization;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.Contains;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.lambda.TokenTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.HasStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.TraversalFilterStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.CountGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.GraphStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.GroupCountStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.LabelStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.PropertiesStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.VertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.AbstractTraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.T;
+
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map.OpcCountGlobalStep;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map.OpcDegreeCountGlobalStep;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map.OpcLabelCountGlobalStep;
+
+/**
+ * Answers the aggregations of the dashboards from the counters maintained by
+ * the graph, without iterating the elements.
+ *
+ * @example <pre>
+ * g.V().groupCount().by(label)      // is replaced by OpcLabelCountGlobalStep
+ * g.E().label().groupCount()        // is replaced by OpcLabelCountGlobalStep
+ * g.V().hasLabel('rule').count()    // is replaced by OpcCountGlobalStep
+ * g.V().has('name').count()         // is replaced by OpcCountGlobalStep
+ * g.V(x).outE('feeds').count()      // outE().count() is replaced by OpcDegreeCountGlobalStep
+ * </pre>
+ */
+public final class OpcAggregationStrategy extends AbstractTraversalStrategy<TraversalStrategy.ProviderOptimizationStrategy>
+		implements TraversalStrategy.ProviderOptimizationStrategy {
+
+	private static final OpcAggregationStrategy INSTANCE = new OpcAggregationStrategy();
+
+	private static final String LABEL_KEY = T.label.getAccessor();
+
+	public static OpcAggregationStrategy instance() {
+		return INSTANCE;
+	}
+
+	private OpcAggregationStrategy() {
+	}
+
+	@Override
+	public void apply(final Traversal.Admin<?, ?> traversal) {
+		if (TraversalHelper.onGraphComputer(traversal)) {
+			return;
+		}
+		for (final CountGlobalStep<?> countStep : TraversalHelper.getStepsOfClass(CountGlobalStep.class, traversal)) {
+			final Step<?, ?> previousStep = countStep.getPreviousStep();
+			if (previousStep instanceof VertexStep && ((VertexStep<?>) previousStep).returnsEdge()
+					&& previousStep.getLabels().isEmpty()) {
+				final VertexStep<?> vertexStep = (VertexStep<?>) previousStep;
+				final Step<?, Long> degreeStep = new OpcDegreeCountGlobalStep<>(traversal, vertexStep.getDirection(),
+						vertexStep.getEdgeLabels());
+				TraversalHelper.replaceStep((Step) vertexStep, (Step) degreeStep, traversal);
+				TraversalHelper.copyLabels(countStep, degreeStep, false);
+				traversal.removeStep(countStep);
+			}
+		}
+		if (!traversal.isRoot()) {
+			return;
+		}
+		final List<Step> steps = traversal.getSteps();
+		if (steps.size() < 2 || !(steps.get(0) instanceof GraphStep) || 0 != ((GraphStep) steps.get(0)).getIds().length
+				|| !steps.get(0).getLabels().isEmpty()) {
+			return;
+		}
+		final Class<? extends Element> elementClass = ((GraphStep<?, ?>) steps.get(0)).getReturnClass();
+		final Step<?, ?> lastStep = steps.get(steps.size() - 1);
+		final Step<?, ?> aggregationStep;
+		if (steps.size() == 2 && lastStep instanceof GroupCountStep && isLabelKey((GroupCountStep<?, ?>) lastStep)) {
+			aggregationStep = new OpcLabelCountGlobalStep<>(traversal, elementClass);
+		} else if (steps.size() == 3 && steps.get(1) instanceof LabelStep && steps.get(1).getLabels().isEmpty()
+				&& lastStep instanceof GroupCountStep
+				&& ((GroupCountStep<?, ?>) lastStep).getLocalChildren().isEmpty()) {
+			aggregationStep = new OpcLabelCountGlobalStep<>(traversal, elementClass);
+		} else if (steps.size() == 3 && lastStep instanceof CountGlobalStep && steps.get(1).getLabels().isEmpty()) {
+			final Set<String> labels = getLabels(steps.get(1));
+			final String propertyKey = labels == null ? getPropertyKey(steps.get(1)) : null;
+			if (labels == null && propertyKey == null) {
+				return;
+			}
+			aggregationStep = new OpcCountGlobalStep<>(traversal, elementClass, labels, propertyKey);
+		} else {
+			return;
+		}
+		TraversalHelper.removeAllSteps(traversal);
+		traversal.addStep(aggregationStep);
+		lastStep.getLabels().forEach(aggregationStep::addLabel);
+	}
+
+	@Override
+	public Set<Class<? extends ProviderOptimizationStrategy>> applyPost() {
+		return Collections.singleton(OpcGraphStepStrategy.class);
+	}
+
+	/**
+	 * @return the labels of hasLabel(), null if the step is not a plain hasLabel()
+	 */
+	private Set<String> getLabels(final Step<?, ?> step) {
+		if (!(step instanceof HasStep) || ((HasStep<?>) step).getHasContainers().size() != 1) {
+			return null;
+		}
+		final HasContainer hasContainer = ((HasStep<?>) step).getHasContainers().get(0);
+		if (!LABEL_KEY.equals(hasContainer.getKey())) {
+			return null;
+		}
+		final Set<String> labels = new LinkedHashSet<>();
+		if (hasContainer.getBiPredicate() == Compare.eq && hasContainer.getValue() instanceof String) {
+			labels.add((String) hasContainer.getValue());
+		} else if (hasContainer.getBiPredicate() == Contains.within && hasContainer.getValue() instanceof Collection) {
+			for (final Object label : (Collection<?>) hasContainer.getValue()) {
+				if (!(label instanceof String)) {
+					return null;
+				}
+				labels.add((String) label);
+			}
+		} else {
+			return null;
+		}
+		return labels;
+	}
+
+	/**
+	 * @return the key of has(key), null if the step is not a plain has(key)
+	 */
+	private String getPropertyKey(final Step<?, ?> step) {
+		if (!(step instanceof TraversalFilterStep)) {
+			return null;
+		}
+		final List<? extends Traversal.Admin<?, ?>> children = ((TraversalFilterStep<?>) step).getLocalChildren();
+		if (children.size() != 1 || children.get(0).getSteps().size() != 1
+				|| !(children.get(0).getStartStep() instanceof PropertiesStep)) {
+			return null;
+		}
+		final String[] keys = ((PropertiesStep<?>) children.get(0).getStartStep()).getPropertyKeys();
+		return keys.length == 1 ? keys[0] : null;
+	}
+
+	private boolean isLabelKey(final GroupCountStep<?, ?> groupCountStep) {
+		final List<? extends Traversal.Admin<?, ?>> children = groupCountStep.getLocalChildren();
+		if (children.size() != 1) {
+			return false;
+		}
+		final Traversal.Admin<?, ?> keyTraversal = children.get(0);
+		if (keyTraversal instanceof TokenTraversal) {
+			return ((TokenTraversal<?, ?>) keyTraversal).getToken() == T.label;
+		}
+		return keyTraversal.getSteps().size() == 1 && keyTraversal.getStartStep() instanceof LabelStep;
+	}
+
+}
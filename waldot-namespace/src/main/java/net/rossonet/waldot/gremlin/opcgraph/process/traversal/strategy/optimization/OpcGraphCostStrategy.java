@@ -0,0 +1,115 @@
+package net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.optimization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.HasStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.EdgeOtherVertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.EdgeVertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.GraphStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.VertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.AbstractTraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.sideEffect.OpcGraphStep;
+import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcGraphStatistics;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcIndexManager;
+
+/**
+ * Orders the has containers of the graph steps and of the has steps by the
+ * number of elements they let through, estimated by the indexes and by the
+ * {@link OpcGraphStatistics} of the graph, so that the most selective
+ * predicates are tested first and discard the elements early. The choice
+ * between index and scan is done by the graph step when it starts.
+ *
+ * @example <pre>
+ * g.V().hasLabel('person').has('age', 29)   // tests age before the label
+ * g.V().out().has('type', 'a').has('serial', 7) // tests serial before type
+ * </pre>
+ */
+public final class OpcGraphCostStrategy extends AbstractTraversalStrategy<TraversalStrategy.ProviderOptimizationStrategy>
+		implements TraversalStrategy.ProviderOptimizationStrategy {
+
+	private static final OpcGraphCostStrategy INSTANCE = new OpcGraphCostStrategy();
+
+	public static OpcGraphCostStrategy instance() {
+		return INSTANCE;
+	}
+
+	private OpcGraphCostStrategy() {
+	}
+
+	@Override
+	public void apply(final Traversal.Admin<?, ?> traversal) {
+		if (TraversalHelper.onGraphComputer(traversal)) {
+			return;
+		}
+		final Optional<Graph> graph = TraversalHelper.getRootTraversal(traversal).getGraph();
+		if (!graph.isPresent() || !(graph.get() instanceof AbstractOpcGraph)) {
+			return;
+		}
+		final OpcIndexManager indexManager = ((AbstractOpcGraph) graph.get()).getIndexManager();
+		for (final OpcGraphStep<?, ?> graphStep : TraversalHelper.getStepsOfClass(OpcGraphStep.class, traversal)) {
+			if (graphStep.getHasContainers().size() > 1) {
+				graphStep.orderHasContainers(bySelectivity(indexManager, graphStep.getReturnClass()));
+			}
+		}
+		for (final HasStep<?> hasStep : TraversalHelper.getStepsOfClass(HasStep.class, traversal)) {
+			final Class<? extends Element> elementClass = getElementClass(hasStep.getPreviousStep());
+			if (elementClass == null || hasStep.getHasContainers().size() < 2) {
+				continue;
+			}
+			final List<HasContainer> ordered = new ArrayList<>(hasStep.getHasContainers());
+			ordered.sort(bySelectivity(indexManager, elementClass));
+			if (!ordered.equals(hasStep.getHasContainers())) {
+				ordered.forEach(hasStep::removeHasContainer);
+				ordered.forEach(hasStep::addHasContainer);
+			}
+		}
+	}
+
+	@Override
+	public Set<Class<? extends ProviderOptimizationStrategy>> applyPrior() {
+		return Collections.singleton(OpcGraphStepStrategy.class);
+	}
+
+	private Comparator<HasContainer> bySelectivity(final OpcIndexManager indexManager,
+			final Class<? extends Element> elementClass) {
+		// una stima per container, l'ordinamento stabile conserva l'ordine a parità di costo
+		final Map<HasContainer, Long> estimates = new IdentityHashMap<>();
+		return Comparator.comparingLong(hasContainer -> estimates.computeIfAbsent(hasContainer,
+				k -> indexManager.estimateCount(elementClass, k)));
+	}
+
+	private Class<? extends Element> getElementClass(final Step<?, ?> previousStep) {
+		if (previousStep instanceof GraphStep) {
+			return ((GraphStep<?, ?>) previousStep).getReturnClass();
+		}
+		if (previousStep instanceof VertexStep) {
+			return ((VertexStep<?>) previousStep).returnsVertex() ? Vertex.class : Edge.class;
+		}
+		if (previousStep instanceof EdgeVertexStep || previousStep instanceof EdgeOtherVertexStep) {
+			return Vertex.class;
+		}
+		if (previousStep instanceof HasStep) {
+			return getElementClass(previousStep.getPreviousStep());
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,156 @@
+package net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.optimization;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.Order;
+import org.apache.tinkerpop.gremlin.process.traversal.Step;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.lambda.ValueTraversal;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.HasStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.filter.RangeGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.OrderGlobalStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.map.VertexStep;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.process.traversal.strategy.AbstractTraversalStrategy;
+import org.apache.tinkerpop.gremlin.process.traversal.util.TraversalHelper;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map.OpcVertexCentricEdgeStep;
+import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcIndexManager;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcVertexCentricIndex;
+
+/**
+ * Reads the incident edges of a label from a {@link OpcVertexCentricIndex}
+ * when they are filtered on, or sorted by, the indexed key. The range
+ * predicates on the key are moved into the {@link OpcVertexCentricEdgeStep},
+ * order() and limit() are left in place and only bound the edges read for
+ * every vertex.
+ *
+ * @example <pre>
+ * g.V(hub).outE('telemetry').order().by('timestamp', desc).limit(50)
+ * g.V(hub).outE('fire').has('priority', gt(5))
+ * </pre>
+ */
+public final class OpcVertexCentricIndexStrategy
+		extends AbstractTraversalStrategy<TraversalStrategy.ProviderOptimizationStrategy>
+		implements TraversalStrategy.ProviderOptimizationStrategy {
+
+	private static final OpcVertexCentricIndexStrategy INSTANCE = new OpcVertexCentricIndexStrategy();
+
+	public static OpcVertexCentricIndexStrategy instance() {
+		return INSTANCE;
+	}
+
+	private OpcVertexCentricIndexStrategy() {
+	}
+
+	@Override
+	public void apply(final Traversal.Admin<?, ?> traversal) {
+		if (TraversalHelper.onGraphComputer(traversal)) {
+			return;
+		}
+		final Optional<Graph> graph = TraversalHelper.getRootTraversal(traversal).getGraph();
+		if (!graph.isPresent() || !(graph.get() instanceof AbstractOpcGraph)) {
+			return;
+		}
+		final OpcIndexManager indexManager = ((AbstractOpcGraph) graph.get()).getIndexManager();
+		for (final VertexStep<?> vertexStep : TraversalHelper.getStepsOfClass(VertexStep.class, traversal)) {
+			if (!vertexStep.returnsEdge() || vertexStep.getDirection() == Direction.BOTH
+					|| vertexStep.getEdgeLabels().length != 1) {
+				continue;
+			}
+			final String edgeLabel = vertexStep.getEdgeLabels()[0];
+			Step<?, ?> nextStep = vertexStep.getNextStep();
+			HasStep<?> hasStep = null;
+			if (nextStep instanceof HasStep && nextStep.getLabels().isEmpty()) {
+				hasStep = (HasStep<?>) nextStep;
+				nextStep = nextStep.getNextStep();
+			}
+			final OrderGlobalStep<?, ?> orderStep = nextStep instanceof OrderGlobalStep
+					? (OrderGlobalStep<?, ?>) nextStep
+					: null;
+			final String orderKey = getOrderKey(orderStep);
+			final boolean ordered = orderKey != null && indexManager.getEdgeIndex(edgeLabel, orderKey) != null;
+			final String key = ordered ? orderKey : getRangeKey(indexManager, edgeLabel, hasStep);
+			if (key == null) {
+				continue;
+			}
+			final List<HasContainer> pushed = new ArrayList<>();
+			final List<HasContainer> remaining = new ArrayList<>();
+			if (hasStep != null) {
+				for (final HasContainer hasContainer : hasStep.getHasContainers()) {
+					if (key.equals(hasContainer.getKey()) && isRange(hasContainer)) {
+						pushed.add(hasContainer);
+					} else {
+						remaining.add(hasContainer);
+					}
+				}
+			}
+			if (pushed.isEmpty() && !ordered) {
+				continue;
+			}
+			final Order order = ordered ? (Order) orderStep.getComparators().get(0).getValue1() : null;
+			// il limite per vertice vale solo se nessun filtro segue l'indice
+			final long limit = order != null && remaining.isEmpty()
+					&& orderStep.getNextStep() instanceof RangeGlobalStep
+							? ((RangeGlobalStep<?>) orderStep.getNextStep()).getHighRange()
+							: -1;
+			final OpcVertexCentricEdgeStep edgeStep = new OpcVertexCentricEdgeStep(traversal,
+					vertexStep.getDirection(), edgeLabel, key, pushed, order, limit);
+			TraversalHelper.copyLabels(vertexStep, edgeStep, false);
+			TraversalHelper.replaceStep((Step) vertexStep, (Step) edgeStep, traversal);
+			if (hasStep != null) {
+				pushed.forEach(hasStep::removeHasContainer);
+				if (hasStep.getHasContainers().isEmpty()) {
+					traversal.removeStep(hasStep);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the key of order().by(key) or order().by(key, desc), null for any
+	 *         other order
+	 */
+	private String getOrderKey(final OrderGlobalStep<?, ?> orderStep) {
+		if (orderStep == null || orderStep.getComparators().size() != 1) {
+			return null;
+		}
+		final Traversal.Admin<?, ?> byTraversal = orderStep.getComparators().get(0).getValue0();
+		final Comparator<?> comparator = orderStep.getComparators().get(0).getValue1();
+		if (!(byTraversal instanceof ValueTraversal) || (comparator != Order.asc && comparator != Order.desc)) {
+			return null;
+		}
+		return ((ValueTraversal<?, ?>) byTraversal).getPropertyKey();
+	}
+
+	/**
+	 * @return the first key with a vertex-centric index among the range
+	 *         predicates of the has step, null if there is none
+	 */
+	private String getRangeKey(final OpcIndexManager indexManager, final String edgeLabel, final HasStep<?> hasStep) {
+		if (hasStep == null) {
+			return null;
+		}
+		for (final HasContainer hasContainer : hasStep.getHasContainers()) {
+			if (hasContainer.getKey() != null && isRange(hasContainer)
+					&& indexManager.getEdgeIndex(edgeLabel, hasContainer.getKey()) != null) {
+				return hasContainer.getKey();
+			}
+		}
+		return null;
+	}
+
+	private boolean isRange(final HasContainer hasContainer) {
+		return hasContainer.getBiPredicate() instanceof Compare && hasContainer.getBiPredicate() != Compare.neq
+				&& (hasContainer.getValue() instanceof Number || hasContainer.getValue() instanceof String);
+	}
+
+}
@@ -26,6 +26,7 @@ import org.apache.tinkerpop.gremlin.structure.service.Service;
 import org.apache.tinkerpop.gremlin.structure.util.CloseableIterator;
 import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
 
+import net.rossonet.waldot.api.models.WaldotVertex;
 import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
 
 import java.util.Collections;
@@ -37,6 +38,7 @@ import static org.apache.tinkerpop.gremlin.util.CollectionUtil.asMap;
 
 /**
  * Count the IN/OUT/BOTH edges for a set of vertices. Demonstrates a {@link Service.Type#Streaming} service.
+ * The degree of the graph vertices is read from the adjacency counters in O(labels).
  */
 public class OpcDegreeCentralityFactory extends OpcServiceRegistry.OpcServiceFactory<Vertex,Long> implements Service<Vertex, Long> {
 
@@ -86,9 +88,14 @@ public class OpcDegreeCentralityFactory extends OpcServiceRegistry.OpcServiceFac
 
         final Vertex v = in.get();
         final long count;
-        try (CloseableIterator<Edge> it = CloseableIterator.of(v.edges(direction))) {
-            count = IteratorUtils.count(it);
-        };
+        if (v instanceof WaldotVertex && !((WaldotVertex) v).inComputerMode()) {
+            // dai contatori dell'indice di adiacenza, senza scorrere gli archi
+            count = graph.getWaldotNamespace().getDegree((WaldotVertex) v, direction, new String[0]);
+        } else {
+            try (CloseableIterator<Edge> it = CloseableIterator.of(v.edges(direction))) {
+                count = IteratorUtils.count(it);
+            }
+        }
 
         return CloseableIterator.of(LongStream.range(0, in.bulk()).map(i -> count).iterator());
     }
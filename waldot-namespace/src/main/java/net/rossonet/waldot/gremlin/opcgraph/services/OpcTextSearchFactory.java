@@ -20,11 +20,15 @@ package net.rossonet.waldot.gremlin.opcgraph.services;
 
 import static org.apache.tinkerpop.gremlin.util.CollectionUtil.asMap;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.tinkerpop.gremlin.structure.Edge;
 import org.apache.tinkerpop.gremlin.structure.Element;
@@ -33,14 +37,18 @@ import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.VertexProperty;
 import org.apache.tinkerpop.gremlin.structure.service.Service;
 import org.apache.tinkerpop.gremlin.structure.util.CloseableIterator;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
 
 import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
 import net.rossonet.waldot.gremlin.opcgraph.structure.OpcHelper;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcTextIndex;
 
 /**
- * Inefficient text search implementation (scan+filter), searches for
- * {@link Property}s by token/regex. Demonstrates a {@link Service.Type#Start}
- * service.
+ * Text search of {@link Property}s by search term, token, token prefix or
+ * regex. Terms, tokens and prefixes are answered by the {@link OpcTextIndex}
+ * of the graph, only a regex (or a search term with regex characters when the
+ * n-grams are disabled) falls back to a scan of all the properties.
+ * Demonstrates a {@link Service.Type#Start} service.
  */
 public class OpcTextSearchFactory<I, R> extends OpcServiceRegistry.OpcServiceFactory<I, R>
 		implements Service<I, R> {
@@ -58,10 +66,24 @@ public class OpcTextSearchFactory<I, R> extends OpcServiceRegistry.OpcServiceFac
 		 * Specify the type of Element to search for (optional)
 		 */
 		String TYPE = "type";
+		/**
+		 * Specify a token, case insensitive
+		 */
+		String TERM = "term";
+		/**
+		 * Specify the prefix of a token, case insensitive
+		 */
+		String PREFIX = "prefix";
+		/**
+		 * Return the matching elements, labels included, instead of the properties
+		 */
+		String ELEMENTS = "elements";
 
 		Map DESCRIBE = asMap(SEARCH, "Specify a search term - will be converted to regex via .*(search).*", REGEX,
 				"Directly specify the regex", TYPE,
-				"Specify the type of Element to search for, one of Vertex/Edge/VertexProperty (optional)");
+				"Specify the type of Element to search for, one of Vertex/Edge/VertexProperty (optional)", TERM,
+				"Specify a token, case insensitive", PREFIX, "Specify the prefix of a token, case insensitive",
+				ELEMENTS, "Return the matching elements, labels included, instead of the properties (optional)");
 
 		static Class type(final String type) {
 			if (type == null) {
@@ -83,6 +105,8 @@ public class OpcTextSearchFactory<I, R> extends OpcServiceRegistry.OpcServiceFac
 
 	public static final String NAME = "tinker.search";
 
+	private static final Pattern REGEX_CHARACTERS = Pattern.compile("[\\\\.\\[\\]{}()<>*+\\-=!?^$|]");
+
 	public OpcTextSearchFactory(final AbstractOpcGraph graph) {
 		super(graph, NAME);
 	}
@@ -106,17 +130,33 @@ public class OpcTextSearchFactory<I, R> extends OpcServiceRegistry.OpcServiceFac
 
 	@Override
 	public CloseableIterator<R> execute(final ServiceCallContext ctx, final Map params) {
-		final String regex;
+		final Class<? extends Element> type = Params.type((String) params.get(Params.TYPE));
+		final boolean elements = Boolean.parseBoolean(String.valueOf(params.get(Params.ELEMENTS)));
+		final OpcTextIndex textIndex = graph.getIndexManager().getTextIndex();
+		Set<OpcTextIndex.Posting> postings = null;
+		Pattern pattern = null;
 		if (params.containsKey(Params.REGEX)) {
-			regex = (String) params.get(Params.REGEX);
+			pattern = Pattern.compile((String) params.get(Params.REGEX));
 		} else if (params.containsKey(Params.SEARCH)) {
-			regex = ".*(" + params.get(Params.SEARCH) + ").*";
+			final String search = String.valueOf(params.get(Params.SEARCH));
+			pattern = Pattern.compile(".*(" + search + ").*");
+			if (!REGEX_CHARACTERS.matcher(search).find()) {
+				postings = textIndex.substring(search);
+			}
+		} else if (params.containsKey(Params.TERM)) {
+			postings = textIndex.term(String.valueOf(params.get(Params.TERM)));
+		} else if (params.containsKey(Params.PREFIX)) {
+			postings = textIndex.prefix(String.valueOf(params.get(Params.PREFIX)));
 		} else {
-			throw new IllegalStateException("Missing search/regex parameter");
+			throw new IllegalStateException("Missing search/regex/term/prefix parameter");
 		}
-		final Class<? extends Element> type = Params.type((String) params.get(Params.TYPE));
-
-		return CloseableIterator.of((Iterator<R>) OpcHelper.search(graph, regex, Optional.ofNullable(type)));
+		if (postings == null) {
+			// regex arbitraria o n-gram disabilitati: scansione delle proprietà
+			final Iterator<Property> properties = OpcHelper.search(graph, pattern.pattern(), Optional.ofNullable(type));
+			return CloseableIterator.of((Iterator<R>) (elements ? IteratorUtils.stream(properties)
+					.map(Property::element).distinct().iterator() : properties));
+		}
+		return CloseableIterator.of((Iterator<R>) resolve(textIndex, postings, pattern, type, elements).iterator());
 	}
 
 	@Override
@@ -129,4 +169,31 @@ public class OpcTextSearchFactory<I, R> extends OpcServiceRegistry.OpcServiceFac
 		return Type.Start;
 	}
 
+	private List<Object> resolve(final OpcTextIndex textIndex, final Set<OpcTextIndex.Posting> postings,
+			final Pattern pattern, final Class<? extends Element> type, final boolean elements) {
+		final Set<Object> result = new LinkedHashSet<>();
+		for (final OpcTextIndex.Posting posting : postings) {
+			final Element element = posting.getElement();
+			if (type != null && !type.isInstance(element)) {
+				continue;
+			}
+			final String value = textIndex.getValue(posting);
+			// il termine di ricerca è verificato come nella scansione
+			if (value == null || pattern != null && !pattern.matcher(value).matches()) {
+				continue;
+			}
+			if (posting.isLabel()) {
+				if (elements) {
+					result.add(element);
+				}
+				continue;
+			}
+			final Property<?> property = element.property(posting.getKey());
+			if (property.isPresent()) {
+				result.add(elements ? element : property);
+			}
+		}
+		return new ArrayList<>(result);
+	}
+
 }
@@ -2,31 +2,141 @@ package net.rossonet.waldot.gremlin.opcgraph.strategies.console;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.jexl3.JexlContext;
+import org.apache.commons.jexl3.JexlException;
+import org.apache.commons.jexl3.JexlScript;
 import org.slf4j.Logger;
 
 import net.rossonet.waldot.api.annotation.WaldotConsoleStrategy;
 import net.rossonet.waldot.api.models.WaldotCommand;
+import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.api.models.WaldotNamespace;
 import net.rossonet.waldot.api.strategies.ConsoleStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcQueryCache;
 import net.rossonet.waldot.jexl.BaseExecutor;
 import net.rossonet.waldot.jexl.JexlExecutor;
 
 @WaldotConsoleStrategy
 public class BaseConsoleStrategy implements ConsoleStrategy {
-	private BaseExecutor baseExecutor;
-	private final List<WaldotCommand> commands = new ArrayList<>();
-	private boolean dirty = false;
+	// esecutore con le espressioni in corso, chiuso quando l'ultima termina
+	private static final class ExecutorLease {
+		private final BaseExecutor executor;
+		private boolean retired = false;
+		private int users = 0;
 
-	private Logger logger;
+		private ExecutorLease(final BaseExecutor executor) {
+			this.executor = executor;
+		}
+
+		private synchronized boolean acquire() {
+			if (retired) {
+				return false;
+			}
+			users++;
+			return true;
+		}
+
+		private void close(final Logger logger) {
+			try {
+				executor.close();
+			} catch (final Exception e) {
+				if (logger != null) {
+					logger.warn("Error closing the previous console executor", e);
+				}
+			}
+		}
+
+		private void release(final Logger logger) {
+			synchronized (this) {
+				users--;
+				if (!retired || users > 0) {
+					return;
+				}
+			}
+			close(logger);
+		}
+
+		private void retire(final Logger logger) {
+			synchronized (this) {
+				retired = true;
+				if (users > 0) {
+					return;
+				}
+			}
+			close(logger);
+		}
+	}
+
+	private final List<WaldotCommand> commands = new CopyOnWriteArrayList<>();
+	private final AtomicReference<ExecutorLease> current = new AtomicReference<>();
+	private volatile boolean dirty = false;
+
+	private volatile Logger logger;
 	private WaldotNamespace waldotNamespace;
 
+	/**
+	 * @return the lease of the current executor, released by the caller after
+	 *         the expression
+	 */
+	private ExecutorLease acquire() {
+		while (true) {
+			ExecutorLease lease = current.get();
+			if (dirty || lease == null) {
+				lease = reset();
+			}
+			if (lease.acquire()) {
+				return lease;
+			}
+		}
+	}
+
 	@Override
 	public void close() throws Exception {
-		// nothing to do
+		final ExecutorLease lease = current.getAndSet(null);
+		if (lease != null) {
+			lease.retire(logger);
+		}
+	}
 
+	/**
+	 * @return the values of the variables read by the expression, the key of the
+	 *         query cache with the expression, or null if the expression can not
+	 *         be cached: it calls the commands or the logger, does not compile or
+	 *         runs in an open transaction
+	 */
+	private Map<String, Object> getCacheBindings(final BaseExecutor baseExecutor, final String expression,
+			final JexlContext jexlContext) {
+		final WaldotGraph graph = waldotNamespace.getGremlinGraph();
+		if (jexlContext == null || !(baseExecutor instanceof JexlExecutor) || !(graph instanceof AbstractOpcGraph)
+				|| graph.getTransactionBuffer() != null) {
+			return null;
+		}
+		final JexlScript script;
+		try {
+			script = ((JexlExecutor) baseExecutor).compile(expression);
+		} catch (final JexlException e) {
+			// l'errore viene riportato dall'esecuzione
+			return null;
+		}
+		final Map<String, Object> bindings = new HashMap<>();
+		for (final List<String> variable : script.getVariables()) {
+			if (variable.isEmpty()) {
+				continue;
+			}
+			final String name = variable.get(0);
+			if (COMMANDS_LABEL.equals(name) || LOG_LABEL.equals(name) || isCommand(name)) {
+				return null;
+			}
+			bindings.put(name, jexlContext.has(name) ? jexlContext.get(name) : null);
+		}
+		return bindings;
 	}
 
 	@Override
@@ -57,6 +167,15 @@ public class BaseConsoleStrategy implements ConsoleStrategy {
 		return result;
 	}
 
+	private boolean isCommand(final String name) {
+		for (final WaldotCommand command : commands) {
+			if (name.equals(command.getConsoleCommand())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public void registerCommand(WaldotCommand command) {
 		commands.add(command);
@@ -69,9 +188,16 @@ public class BaseConsoleStrategy implements ConsoleStrategy {
 		dirty = true;
 	}
 
-	private void reset() {
+	private synchronized ExecutorLease reset() {
+		final ExecutorLease previous = current.get();
+		if (!dirty && previous != null) {
+			// already replaced by another thread
+			return previous;
+		}
+		// a command registered while the executor is built marks it dirty again
+		dirty = false;
 		logger = waldotNamespace.getConsoleLogger();
-		baseExecutor = new JexlExecutor("console");
+		final BaseExecutor baseExecutor = new JexlExecutor("console");
 		baseExecutor.setFunctionObject(ConsoleStrategy.LOG_LABEL, waldotNamespace.getConsoleLogger());
 		baseExecutor.setFunctionObject(ConsoleStrategy.TRAVERSE_LABEL, waldotNamespace.getGremlinGraph().traversal());
 		baseExecutor.setFunctionObject(ConsoleStrategy.GRAPH_LABEL, waldotNamespace.getGremlinGraph());
@@ -80,24 +206,64 @@ public class BaseConsoleStrategy implements ConsoleStrategy {
 			logger.info("Registering console command: {}", command.getConsoleCommand());
 			baseExecutor.setFunctionObject(command.getConsoleCommand(), command);
 		}
+		final ExecutorLease lease = new ExecutorLease(baseExecutor);
+		current.set(lease);
+		if (previous != null) {
+			// the expressions still running keep the previous executor until they end
+			previous.retire(logger);
+		}
 		logger.info("Console Strategy V0 initialized");
-		dirty = false;
+		return lease;
+	}
+
+	/**
+	 * runs the expression through the query cache of the graph, the result is
+	 * kept only if the traversals it compiles are verified read-only and it does
+	 * not write the graph.
+	 */
+	private Object runCached(final BaseExecutor baseExecutor, final String expression,
+			final JexlContext jexlContext) {
+		final Map<String, Object> bindings = getCacheBindings(baseExecutor, expression, jexlContext);
+		if (bindings == null) {
+			return baseExecutor.execute(expression, jexlContext);
+		}
+		final AbstractOpcGraph graph = (AbstractOpcGraph) waldotNamespace.getGremlinGraph();
+		return graph.getIndexManager().getQueryCache().execute(expression, bindings, () -> {
+			final Object result = baseExecutor.execute(expression, jexlContext);
+			final OpcQueryCache.Dependencies dependencies = OpcQueryCache.getRecordingDependencies();
+			if (dependencies != null && graph.getTransactionBuffer() != null) {
+				// l'espressione ha aperto una transazione, il risultato non si ripete dalla cache
+				dependencies.setNotCacheable();
+			}
+			return result;
+		});
 	}
 
 	@Override
 	public Object runExpression(final String expression) {
-		if (dirty || baseExecutor == null) {
-			reset();
+		final ExecutorLease lease = acquire();
+		try {
+			final BaseExecutor baseExecutor = lease.executor;
+			final JexlContext jexlContext = baseExecutor instanceof JexlExecutor
+					? ((JexlExecutor) baseExecutor).getBaseContext()
+					: null;
+			if (jexlContext == null) {
+				return baseExecutor.execute(expression);
+			}
+			return runCached(baseExecutor, expression, jexlContext);
+		} finally {
+			lease.release(logger);
 		}
-		return baseExecutor.execute(expression);
 	}
 
 	@Override
 	public Object runExpression(final String expression, final JexlContext jexlContext) {
-		if (dirty || baseExecutor == null) {
-			reset();
+		final ExecutorLease lease = acquire();
+		try {
+			return runCached(lease.executor, expression, jexlContext);
+		} finally {
+			lease.release(logger);
 		}
-		return baseExecutor.execute(expression, jexlContext);
 	}
 
 }
@@ -0,0 +1,417 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.ToIntFunction;
+
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+import net.rossonet.waldot.api.models.WaldotEdge;
+import net.rossonet.waldot.api.models.WaldotElement;
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.api.models.base.GremlinElement;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcGraphStatistics;
+
+/**
+ * In/out adjacency index of the graph, keyed by the dense handle of the
+ * vertices (see {@link MiloSingleServerBaseElementIds}) and by edge label.
+ * The handle is kept on the element, so the adjacency of a live vertex is an
+ * array read instead of a NodeId lookup. The lookups by NodeId read the handle
+ * from a map before the array and cost a bit more than a map keyed by NodeId,
+ * they are used on the write paths only (see ElementHandleBenchmark in
+ * waldot-benchmarks). Mutations are serialized on the index so
+ * that both endpoints of an edge are always updated together, reads are
+ * lock-free and cost O(degree) instead of a scan of all the edges. The changes
+ * of degree are reported to the {@link OpcGraphStatistics} of the graph.
+ */
+public class MiloSingleServerBaseAdjacencyIndex {
+
+	public static final class IndexedEdge {
+		private final WaldotEdge edge;
+		private final int edgeHandle;
+		private final int inHandle;
+		private final WaldotVertex inVertex;
+		private final String label;
+		private final int outHandle;
+		private final WaldotVertex outVertex;
+
+		private IndexedEdge(final WaldotEdge edge, final int edgeHandle, final String label,
+				final WaldotVertex outVertex, final int outHandle, final WaldotVertex inVertex, final int inHandle) {
+			this.edge = edge;
+			this.edgeHandle = edgeHandle;
+			this.label = label;
+			this.outVertex = outVertex;
+			this.outHandle = outHandle;
+			this.inVertex = inVertex;
+			this.inHandle = inHandle;
+		}
+
+		public WaldotEdge getEdge() {
+			return edge;
+		}
+
+		public WaldotVertex getInVertex() {
+			return inVertex;
+		}
+
+		public String getLabel() {
+			return label;
+		}
+
+		public WaldotVertex getOutVertex() {
+			return outVertex;
+		}
+
+	}
+
+	private static final class VertexAdjacency {
+		// gli IndexedEdge non ridefiniscono equals, i set usano l'identità
+		private final Map<String, Set<IndexedEdge>> in = new ConcurrentHashMap<>();
+		// i cappi sono sia in in che in out, il grado BOTH li conta una volta
+		private final Map<String, Integer> loops = new ConcurrentHashMap<>();
+		private final Map<String, Set<IndexedEdge>> out = new ConcurrentHashMap<>();
+		private final WaldotVertex vertex;
+
+		private VertexAdjacency(final WaldotVertex vertex) {
+			this.vertex = vertex;
+		}
+
+		private Map<String, Set<IndexedEdge>> get(final Direction direction) {
+			return direction == Direction.IN ? in : out;
+		}
+
+		private boolean isEmpty() {
+			return in.isEmpty() && out.isEmpty();
+		}
+	}
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private static <T> AtomicReferenceArray<T> ensureCapacity(final AtomicReferenceArray<T> array, final int handle) {
+		if (handle < array.length()) {
+			return array;
+		}
+		int length = array.length();
+		while (length <= handle) {
+			length <<= 1;
+		}
+		final AtomicReferenceArray<T> grown = new AtomicReferenceArray<>(length);
+		for (int i = 0; i < array.length(); i++) {
+			grown.set(i, array.get(i));
+		}
+		return grown;
+	}
+
+	private static <T> T get(final AtomicReferenceArray<T> array, final int handle) {
+		return handle < 0 || handle >= array.length() ? null : array.get(handle);
+	}
+
+	private volatile AtomicReferenceArray<VertexAdjacency> adjacency = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+	private volatile int edgeCount = 0;
+
+	private final MiloSingleServerBaseElementIds elementIds = new MiloSingleServerBaseElementIds();
+
+	private volatile AtomicReferenceArray<IndexedEdge> edges = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+	private volatile OpcGraphStatistics statistics;
+
+	public synchronized void addEdge(final WaldotEdge edge, final String label, final WaldotVertex outVertex,
+			final WaldotVertex inVertex) {
+		final IndexedEdge previous = getEdge(edge.getNodeId());
+		if (previous != null) {
+			unlink(previous);
+			edges.set(previous.edgeHandle, null);
+			edgeCount--;
+		}
+		final IndexedEdge indexedEdge = new IndexedEdge(edge, intern(edge), label, outVertex, intern(outVertex),
+				inVertex, intern(inVertex));
+		edges = ensureCapacity(edges, indexedEdge.edgeHandle);
+		edges.set(indexedEdge.edgeHandle, indexedEdge);
+		edgeCount++;
+		link(indexedEdge.outHandle, outVertex, Direction.OUT, indexedEdge);
+		link(indexedEdge.inHandle, inVertex, Direction.IN, indexedEdge);
+		if (indexedEdge.outHandle == indexedEdge.inHandle) {
+			adjacency.get(indexedEdge.outHandle).loops.merge(label, 1, Integer::sum);
+		}
+	}
+
+	public synchronized void clear() {
+		adjacency = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+		edges = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+		edgeCount = 0;
+		elementIds.clear();
+	}
+
+	private void collect(final VertexAdjacency vertexAdjacency, final Direction direction, final String[] edgeLabels,
+			final Collection<IndexedEdge> result) {
+		final Map<String, Set<IndexedEdge>> byLabel = vertexAdjacency.get(direction);
+		if (edgeLabels == null || edgeLabels.length == 0) {
+			for (final Set<IndexedEdge> labelEdges : byLabel.values()) {
+				result.addAll(labelEdges);
+			}
+		} else {
+			for (final String label : edgeLabels) {
+				final Set<IndexedEdge> labelEdges = byLabel.get(label);
+				if (labelEdges != null) {
+					result.addAll(labelEdges);
+				}
+			}
+		}
+	}
+
+	private List<IndexedEdge> collect(final VertexAdjacency vertexAdjacency, final Direction direction,
+			final String... edgeLabels) {
+		if (vertexAdjacency == null) {
+			return Collections.emptyList();
+		}
+		final List<IndexedEdge> result = new ArrayList<>();
+		if (direction == Direction.OUT || direction == Direction.BOTH) {
+			collect(vertexAdjacency, Direction.OUT, edgeLabels, result);
+		}
+		if (direction == Direction.IN || direction == Direction.BOTH) {
+			collect(vertexAdjacency, Direction.IN, edgeLabels, result);
+		}
+		return result;
+	}
+
+	private <T> int count(final Map<String, T> byLabel, final String[] edgeLabels, final ToIntFunction<T> size) {
+		int count = 0;
+		if (edgeLabels == null || edgeLabels.length == 0) {
+			for (final T labelEdges : byLabel.values()) {
+				count += size.applyAsInt(labelEdges);
+			}
+		} else {
+			for (final String label : edgeLabels) {
+				final T labelEdges = byLabel.get(label);
+				if (labelEdges != null) {
+					count += size.applyAsInt(labelEdges);
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the number of edges of the vertex, the same returned by
+	 *         {@link #getEdges(WaldotVertex, Direction, String[])}, counted in
+	 *         O(labels)
+	 */
+	public int getDegree(final WaldotVertex vertex, final Direction direction, final String[] edgeLabels) {
+		final VertexAdjacency vertexAdjacency = getVertexAdjacency(vertex);
+		if (vertexAdjacency == null) {
+			return 0;
+		}
+		int degree = 0;
+		if (direction == Direction.OUT || direction == Direction.BOTH) {
+			degree += count(vertexAdjacency.out, edgeLabels, Set::size);
+		}
+		if (direction == Direction.IN || direction == Direction.BOTH) {
+			degree += count(vertexAdjacency.in, edgeLabels, Set::size);
+		}
+		if (direction == Direction.BOTH) {
+			degree -= count(vertexAdjacency.loops, edgeLabels, Integer::intValue);
+		}
+		return Math.max(0, degree);
+	}
+
+	/**
+	 * @return the indexed edge, null if the edge is not indexed. The lookup reads
+	 *         the handle of the NodeId and then the array.
+	 */
+	public IndexedEdge getEdge(final NodeId edgeId) {
+		final IndexedEdge indexedEdge = get(edges, elementIds.getHandle(edgeId));
+		// l'handle può essere stato riassegnato da una rimozione concorrente
+		return indexedEdge != null && indexedEdge.edge.getNodeId().equals(edgeId) ? indexedEdge : null;
+	}
+
+	public Map<NodeId, WaldotEdge> getEdges(final WaldotVertex vertex, final Direction direction,
+			final String[] edgeLabels) {
+		final Map<NodeId, WaldotEdge> result = new HashMap<>();
+		for (final IndexedEdge indexedEdge : collect(getVertexAdjacency(vertex), direction, edgeLabels)) {
+			result.put(indexedEdge.getEdge().getNodeId(), indexedEdge.getEdge());
+		}
+		return result;
+	}
+
+	private int getHandle(final WaldotElement element) {
+		if (element instanceof GremlinElement) {
+			final int handle = ((GremlinElement) element).getHandle();
+			if (handle >= 0) {
+				return handle;
+			}
+		}
+		return elementIds.getHandle(element.getNodeId());
+	}
+
+	public List<IndexedEdge> getIndexedEdges(final NodeId vertexId, final Direction direction,
+			final String... edgeLabels) {
+		return collect(getVertexAdjacency(vertexId), direction, edgeLabels);
+	}
+
+	private VertexAdjacency getVertexAdjacency(final NodeId vertexId) {
+		final VertexAdjacency vertexAdjacency = get(adjacency, elementIds.getHandle(vertexId));
+		return vertexAdjacency != null && vertexAdjacency.vertex.getNodeId().equals(vertexId) ? vertexAdjacency
+				: null;
+	}
+
+	private VertexAdjacency getVertexAdjacency(final WaldotVertex vertex) {
+		final VertexAdjacency vertexAdjacency = get(adjacency, getHandle(vertex));
+		if (vertexAdjacency == null) {
+			return null;
+		}
+		// l'handle di un vertice rimosso può appartenere ad un altro vertice
+		return vertexAdjacency.vertex == vertex || vertexAdjacency.vertex.getNodeId().equals(vertex.getNodeId())
+				? vertexAdjacency
+				: null;
+	}
+
+	public Map<NodeId, WaldotVertex> getVertices(final WaldotVertex vertex, final Direction direction,
+			final String[] edgeLabels) {
+		final Map<NodeId, WaldotVertex> result = new HashMap<>();
+		final VertexAdjacency vertexAdjacency = getVertexAdjacency(vertex);
+		if (vertexAdjacency == null) {
+			return result;
+		}
+		final List<IndexedEdge> neighbours = new ArrayList<>();
+		if (direction == Direction.OUT || direction == Direction.BOTH) {
+			collect(vertexAdjacency, Direction.OUT, edgeLabels, neighbours);
+			for (final IndexedEdge indexedEdge : neighbours) {
+				result.put(indexedEdge.getInVertex().getNodeId(), indexedEdge.getInVertex());
+			}
+			neighbours.clear();
+		}
+		if (direction == Direction.IN || direction == Direction.BOTH) {
+			collect(vertexAdjacency, Direction.IN, edgeLabels, neighbours);
+			for (final IndexedEdge indexedEdge : neighbours) {
+				result.put(indexedEdge.getOutVertex().getNodeId(), indexedEdge.getOutVertex());
+			}
+		}
+		return result;
+	}
+
+	private int intern(final WaldotElement element) {
+		final int handle = elementIds.intern(element.getNodeId());
+		if (element instanceof GremlinElement) {
+			((GremlinElement) element).setHandle(handle);
+		}
+		return handle;
+	}
+
+	private void link(final int vertexHandle, final WaldotVertex vertex, final Direction direction,
+			final IndexedEdge indexedEdge) {
+		VertexAdjacency vertexAdjacency = get(adjacency, vertexHandle);
+		if (vertexAdjacency == null) {
+			vertexAdjacency = new VertexAdjacency(vertex);
+			adjacency = ensureCapacity(adjacency, vertexHandle);
+			adjacency.set(vertexHandle, vertexAdjacency);
+		}
+		final Set<IndexedEdge> labelEdges = vertexAdjacency.get(direction).computeIfAbsent(indexedEdge.getLabel(),
+				k -> ConcurrentHashMap.newKeySet());
+		if (labelEdges.add(indexedEdge)) {
+			reportDegree(indexedEdge.getLabel(), direction, labelEdges.size() - 1, labelEdges.size());
+		}
+	}
+
+	private void release(final WaldotElement element) {
+		elementIds.release(element.getNodeId());
+		if (element instanceof GremlinElement) {
+			((GremlinElement) element).setHandle(-1);
+		}
+	}
+
+	public synchronized boolean removeEdge(final NodeId edgeId) {
+		final IndexedEdge indexedEdge = getEdge(edgeId);
+		if (indexedEdge == null) {
+			return false;
+		}
+		unlink(indexedEdge);
+		edges.set(indexedEdge.edgeHandle, null);
+		edgeCount--;
+		release(indexedEdge.edge);
+		return true;
+	}
+
+	/**
+	 * removes the vertex from the index together with all its incident edges.
+	 *
+	 * @return the incident edges that were indexed, so that the caller can drop
+	 *         them from the graph
+	 */
+	public synchronized List<IndexedEdge> removeVertex(final NodeId vertexId) {
+		final List<IndexedEdge> incidentEdges = new ArrayList<>();
+		final VertexAdjacency vertexAdjacency = getVertexAdjacency(vertexId);
+		for (final IndexedEdge indexedEdge : collect(vertexAdjacency, Direction.BOTH)) {
+			// un cappio compare sia in uscita che in ingresso
+			if (get(edges, indexedEdge.edgeHandle) == indexedEdge) {
+				unlink(indexedEdge);
+				edges.set(indexedEdge.edgeHandle, null);
+				edgeCount--;
+				release(indexedEdge.edge);
+				incidentEdges.add(indexedEdge);
+			}
+		}
+		if (vertexAdjacency != null) {
+			adjacency.set(elementIds.getHandle(vertexId), null);
+			release(vertexAdjacency.vertex);
+		} else {
+			elementIds.release(vertexId);
+		}
+		return incidentEdges;
+	}
+
+	private void reportDegree(final String label, final Direction direction, final int oldDegree,
+			final int newDegree) {
+		final OpcGraphStatistics current = statistics;
+		if (current != null) {
+			current.degreeChanged(label, direction, oldDegree, newDegree);
+		}
+	}
+
+	public void setStatistics(final OpcGraphStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	public int size() {
+		return edgeCount;
+	}
+
+	private void unlink(final IndexedEdge indexedEdge) {
+		if (indexedEdge.outHandle == indexedEdge.inHandle) {
+			final VertexAdjacency vertexAdjacency = get(adjacency, indexedEdge.outHandle);
+			if (vertexAdjacency != null) {
+				vertexAdjacency.loops.computeIfPresent(indexedEdge.getLabel(), (k, v) -> v == 1 ? null : v - 1);
+			}
+		}
+		unlink(indexedEdge.outHandle, Direction.OUT, indexedEdge);
+		unlink(indexedEdge.inHandle, Direction.IN, indexedEdge);
+	}
+
+	private void unlink(final int vertexHandle, final Direction direction, final IndexedEdge indexedEdge) {
+		final VertexAdjacency vertexAdjacency = get(adjacency, vertexHandle);
+		if (vertexAdjacency == null) {
+			return;
+		}
+		final Map<String, Set<IndexedEdge>> byLabel = vertexAdjacency.get(direction);
+		final Set<IndexedEdge> labelEdges = byLabel.get(indexedEdge.getLabel());
+		if (labelEdges != null && labelEdges.remove(indexedEdge)) {
+			reportDegree(indexedEdge.getLabel(), direction, labelEdges.size() + 1, labelEdges.size());
+			if (labelEdges.isEmpty()) {
+				byLabel.remove(indexedEdge.getLabel());
+			}
+		}
+		// il vertice conserva l'handle fino alla sua rimozione
+		if (vertexAdjacency.isEmpty()) {
+			adjacency.set(vertexHandle, null);
+		}
+	}
+
+}
@@ -0,0 +1,191 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rossonet.waldot.api.NamespaceListener;
+import net.rossonet.waldot.api.PluginListener;
+import net.rossonet.waldot.api.models.WaldotBulkLoader;
+import net.rossonet.waldot.api.models.WaldotEdge;
+import net.rossonet.waldot.api.models.WaldotGraph;
+import net.rossonet.waldot.api.models.WaldotNamespace;
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.api.strategies.MiloStrategy;
+
+/**
+ * Bulk loader of {@link MiloSingleServerBaseStrategy}. The nodes are built one
+ * by one and published once per batch: the node manager, the caches, the
+ * adjacency index, the secondary indexes, the plugins and the namespace
+ * listeners are updated together at the flush. A batch left open when the
+ * strategy is closed is published by the close.
+ */
+public class MiloSingleServerBaseBulkLoader implements WaldotBulkLoader {
+
+	private final int batchSize;
+	private boolean closed = false;
+	private long edgeCount = 0;
+	private final Map<String, List<WaldotEdge>> edgesByType = new LinkedHashMap<>();
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final MiloSingleServerBaseStrategy miloStrategy;
+	private final List<WaldotEdge> pendingEdges = new ArrayList<>();
+	private final Map<NodeId, WaldotVertex> pendingVertices = new HashMap<>();
+	private long vertexCount = 0;
+
+	public MiloSingleServerBaseBulkLoader(final MiloSingleServerBaseStrategy miloStrategy, final int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batch size must be positive");
+		}
+		this.miloStrategy = miloStrategy;
+		this.batchSize = batchSize;
+		miloStrategy.bulkLoaderOpened(this);
+	}
+
+	@Override
+	public synchronized WaldotEdge addEdge(final Object sourceId, final Object targetId, final String label,
+			final Object... keyValues) {
+		return addEdge(getVertex(sourceId), getVertex(targetId), label, keyValues);
+	}
+
+	@Override
+	public synchronized WaldotEdge addEdge(final WaldotVertex sourceVertex, final WaldotVertex targetVertex,
+			final String label, final Object... keyValues) {
+		checkOpen();
+		final WaldotEdge edge = miloStrategy.addEdge(sourceVertex, targetVertex, label, keyValues, true);
+		pendingEdges.add(edge);
+		edgesByType.computeIfAbsent(miloStrategy.getEdgeType(label, keyValues), type -> new ArrayList<>()).add(edge);
+		edgeCount++;
+		checkBatchSize();
+		return edge;
+	}
+
+	@Override
+	public synchronized WaldotVertex addVertex(final Object... keyValues) {
+		checkOpen();
+		ElementHelper.legalPropertyKeyValueArray(keyValues);
+		final WaldotGraph graph = getNamespace().getGremlinGraph();
+		final Object readId = MiloStrategy.getIdValue(keyValues).orElse(null);
+		NodeId nodeId = MiloStrategy.getNodeIdManager().convert(graph, readId);
+		if (nodeId != null) {
+			if (pendingVertices.containsKey(nodeId) || getNamespace().hasNodeId(nodeId)) {
+				throw Graph.Exceptions.vertexWithIdAlreadyExists(nodeId);
+			}
+		} else {
+			nodeId = MiloStrategy.getNodeIdManager().getNextId(graph);
+		}
+		final WaldotVertex vertex = miloStrategy.addVertex(nodeId, keyValues, true);
+		pendingVertices.put(vertex.getNodeId(), vertex);
+		vertexCount++;
+		checkBatchSize();
+		return vertex;
+	}
+
+	private void checkBatchSize() {
+		if (pendingVertices.size() + pendingEdges.size() >= batchSize) {
+			flush();
+		}
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("bulk loader closed");
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			flush();
+		} finally {
+			miloStrategy.bulkLoaderClosed(this);
+		}
+	}
+
+	@Override
+	public synchronized void flush() {
+		if (pendingVertices.isEmpty() && pendingEdges.isEmpty()) {
+			return;
+		}
+		final List<WaldotVertex> vertices = new ArrayList<>(pendingVertices.values());
+		final List<WaldotEdge> edges = new ArrayList<>(pendingEdges);
+		pendingVertices.clear();
+		pendingEdges.clear();
+		final List<WaldotEdge> publishedEdges = miloStrategy.publishBulk(vertices, edges);
+		for (final Map.Entry<String, List<WaldotEdge>> typeEdges : edgesByType.entrySet()) {
+			// gli archi scartati alla pubblicazione non sono notificati
+			typeEdges.getValue().removeIf(WaldotEdge::isRemoved);
+			if (typeEdges.getValue().isEmpty()) {
+				continue;
+			}
+			final List<WaldotEdge> typedEdges = Collections.unmodifiableList(typeEdges.getValue());
+			for (final PluginListener p : getNamespace().getPlugins()) {
+				if (p.containsEdgeType(typeEdges.getKey())) {
+					p.notifyAddEdges(typeEdges.getKey(), typedEdges);
+				}
+			}
+		}
+		edgesByType.clear();
+		final List<WaldotVertex> batchVertices = Collections.unmodifiableList(vertices);
+		final List<WaldotEdge> batchEdges = Collections.unmodifiableList(publishedEdges);
+		for (final NamespaceListener listener : getNamespace().getListeners()) {
+			listener.onBulkLoad(batchVertices, batchEdges);
+		}
+		logger.debug("bulk batch completed: {} vertices, {} edges", vertices.size(), publishedEdges.size());
+	}
+
+	@Override
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	@Override
+	public long getEdgeCount() {
+		return edgeCount;
+	}
+
+	private WaldotNamespace getNamespace() {
+		return miloStrategy.getWaldotNamespace();
+	}
+
+	private WaldotVertex getVertex(final Object id) {
+		final NodeId nodeId = MiloStrategy.getNodeIdManager().convert(getNamespace().getGremlinGraph(), id);
+		if (nodeId == null) {
+			throw new IllegalArgumentException("vertex id cannot be null");
+		}
+		final WaldotVertex pending = pendingVertices.get(nodeId);
+		if (pending != null) {
+			return pending;
+		}
+		final UaNode node = getNamespace().getStorageManager().get(nodeId);
+		if (!(node instanceof WaldotVertex)) {
+			throw new IllegalArgumentException("vertex " + id + " not found");
+		}
+		return (WaldotVertex) node;
+	}
+
+	@Override
+	public long getVertexCount() {
+		return vertexCount;
+	}
+
+	@Override
+	public String toString() {
+		return "MiloSingleServerBaseBulkLoader [batchSize=" + batchSize + ", vertexCount=" + vertexCount
+				+ ", edgeCount=" + edgeCount + "]";
+	}
+
+}
@@ -0,0 +1,183 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua;
+
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.core.ValueRanks;
+import org.eclipse.milo.opcua.sdk.server.methods.AbstractMethodInvocationHandler.InvocationContext;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectTypeNode;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rossonet.waldot.api.models.WaldotEdge;
+import net.rossonet.waldot.api.models.WaldotNamespace;
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.api.models.base.GremlinElement;
+import net.rossonet.waldot.opc.AbstractOpcCommand;
+import net.rossonet.waldot.opc.AbstractOpcCommand.VariableNodeTypes;
+import net.rossonet.waldot.opc.MiloSingleServerBaseReferenceNodeBuilder;
+
+/**
+ * "delete" and "property" methods of vertices and edges. The method nodes are
+ * created once as components of the vertex and edge ObjectTypes, every element
+ * only references them and the invocation is dispatched by the NodeId of the
+ * calling object.
+ */
+public class MiloSingleServerBaseElementCommands {
+
+	public static final String DELETE_COMMAND = "delete";
+	public static final String PROPERTY_COMMAND = "property";
+
+	private AbstractOpcCommand edgeDeleteCommand;
+	private AbstractOpcCommand edgePropertyCommand;
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final MiloSingleServerBaseStrategy miloStrategy;
+	private AbstractOpcCommand vertexDeleteCommand;
+	private AbstractOpcCommand vertexPropertyCommand;
+
+	public MiloSingleServerBaseElementCommands(final MiloSingleServerBaseStrategy miloStrategy) {
+		this.miloStrategy = miloStrategy;
+	}
+
+	private AbstractOpcCommand createDeleteCommand(final UaObjectTypeNode typeNode, final String elementName) {
+		final WaldotNamespace waldotNamespace = miloStrategy.getWaldotNamespace();
+		final AbstractOpcCommand deleteCommand = new AbstractOpcCommand(waldotNamespace.getGremlinGraph(),
+				waldotNamespace, typeNode.getNodeId().getIdentifier().toString() + "." + DELETE_COMMAND,
+				DELETE_COMMAND, "Delete the " + elementName, null,
+				waldotNamespace.getConfiguration().getWaldotCommandWriteMask(),
+				waldotNamespace.getConfiguration().getWaldotCommandUserWriteMask(),
+				waldotNamespace.getConfiguration().getWaldotCommandExecutable(),
+				waldotNamespace.getConfiguration().getWaldotCommandUserExecutable()) {
+
+			@Override
+			public Object[] runCommand(final InvocationContext invocationContext, final String[] inputValues) {
+				String output = "";
+				String error = "";
+				try {
+					final GremlinElement element = getCallingElement(invocationContext);
+					if (element instanceof WaldotEdge) {
+						output = waldotNamespace.getGremlinGraph().traversal().E(element.getNodeId().getIdentifier())
+								.drop().iterate() + " element deleted";
+					} else {
+						output = waldotNamespace.getGremlinGraph().traversal().V(element.getNodeId().getIdentifier())
+								.drop().iterate() + " element deleted";
+					}
+				} catch (final Exception e) {
+					logger.error("Error deleting element: {}", e.getMessage());
+					error = e.getMessage();
+				}
+				return new String[] { output, error };
+			}
+		};
+		deleteCommand.addOutputArgument("output", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
+				LocalizedText.english("command output"));
+		deleteCommand.addOutputArgument("error", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
+				LocalizedText.english("command error"));
+		waldotNamespace.getStorageManager().addNode(deleteCommand);
+		typeNode.addReference(new Reference(typeNode.getNodeId(), NodeIds.HasComponent,
+				deleteCommand.getNodeId().expanded(), true));
+		return deleteCommand;
+	}
+
+	private AbstractOpcCommand createPropertyCommand(final UaObjectTypeNode typeNode, final String elementName) {
+		final WaldotNamespace waldotNamespace = miloStrategy.getWaldotNamespace();
+		final AbstractOpcCommand propertyCommand = new AbstractOpcCommand(waldotNamespace.getGremlinGraph(),
+				waldotNamespace, typeNode.getNodeId().getIdentifier().toString() + "." + PROPERTY_COMMAND,
+				PROPERTY_COMMAND, "Add or update a property of the " + elementName, null,
+				waldotNamespace.getConfiguration().getWaldotCommandWriteMask(),
+				waldotNamespace.getConfiguration().getWaldotCommandUserWriteMask(),
+				waldotNamespace.getConfiguration().getWaldotCommandExecutable(),
+				waldotNamespace.getConfiguration().getWaldotCommandUserExecutable()) {
+
+			@Override
+			public Object[] runCommand(final InvocationContext invocationContext, final String[] inputValues) {
+				String output = "";
+				String error = "";
+				final String label = inputValues[0];
+				final String value = inputValues[1];
+				try {
+					final GremlinElement element = getCallingElement(invocationContext);
+					if (element instanceof WaldotEdge) {
+						output = waldotNamespace.getGremlinGraph().traversal().E(element.getNodeId().getIdentifier())
+								.property(label, value).iterate() + " property '" + label + "' updated with value '"
+								+ value + "'";
+					} else {
+						output = waldotNamespace.getGremlinGraph().traversal().V(element.getNodeId().getIdentifier())
+								.property(label, value).iterate() + " property '" + label + "' updated with value '"
+								+ value + "'";
+					}
+				} catch (final Exception e) {
+					logger.error("Error updating property '{}': {}", label, e.getMessage());
+					error = e.getMessage();
+				}
+				return new String[] { output, error };
+			}
+		};
+		propertyCommand.addOutputArgument("output", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
+				LocalizedText.english("command output"));
+		propertyCommand.addOutputArgument("error", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
+				LocalizedText.english("command error"));
+		propertyCommand.addInputArgument("propertyLabel", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar,
+				null, LocalizedText.english("property to add or update"));
+		propertyCommand.addInputArgument("propertyValue", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar,
+				null, LocalizedText.english("value of the property"));
+		waldotNamespace.getStorageManager().addNode(propertyCommand);
+		typeNode.addReference(new Reference(typeNode.getNodeId(), NodeIds.HasComponent,
+				propertyCommand.getNodeId().expanded(), true));
+		return propertyCommand;
+	}
+
+	private GremlinElement getCallingElement(final InvocationContext invocationContext) {
+		if (invocationContext == null || invocationContext.getObjectId() == null) {
+			throw new IllegalArgumentException("the command must be called on a vertex or an edge");
+		}
+		final NodeId objectId = invocationContext.getObjectId();
+		final UaNode node = miloStrategy.getWaldotNamespace().getStorageManager().get(objectId);
+		if (!(node instanceof WaldotVertex) && !(node instanceof WaldotEdge)) {
+			throw new IllegalArgumentException("NodeId " + objectId + " is not a vertex or an edge");
+		}
+		return (GremlinElement) node;
+	}
+
+	private Reference[] getReferences(final GremlinElement element) {
+		final boolean edge = element instanceof WaldotEdge;
+		final AbstractOpcCommand deleteCommand = edge ? edgeDeleteCommand : vertexDeleteCommand;
+		final AbstractOpcCommand propertyCommand = edge ? edgePropertyCommand : vertexPropertyCommand;
+		return new Reference[] {
+				new Reference(element.getNodeId(), NodeIds.HasComponent, deleteCommand.getNodeId().expanded(), true),
+				new Reference(element.getNodeId(), NodeIds.HasComponent, propertyCommand.getNodeId().expanded(),
+						true) };
+	}
+
+	public void initialize() {
+		vertexDeleteCommand = createDeleteCommand(MiloSingleServerBaseReferenceNodeBuilder.vertexTypeNode, "vertex");
+		vertexPropertyCommand = createPropertyCommand(MiloSingleServerBaseReferenceNodeBuilder.vertexTypeNode,
+				"vertex");
+		edgeDeleteCommand = createDeleteCommand(MiloSingleServerBaseReferenceNodeBuilder.edgeTypeNode, "edge");
+		edgePropertyCommand = createPropertyCommand(MiloSingleServerBaseReferenceNodeBuilder.edgeTypeNode, "edge");
+	}
+
+	/**
+	 * Links the shared methods to the element, only the two forward references of
+	 * the element are added: the method nodes are shared by all the elements and
+	 * keep no inverse reference to them.
+	 */
+	public void link(final GremlinElement element) {
+		for (final Reference reference : getReferences(element)) {
+			// UaNode.addReference aggiungerebbe anche l'inverso sul nodo del metodo
+			miloStrategy.getWaldotNamespace().getStorageManager().addReference(reference);
+		}
+	}
+
+	/**
+	 * Removes the forward references of the element to the shared methods.
+	 */
+	public void unlink(final GremlinElement element) {
+		for (final Reference reference : getReferences(element)) {
+			miloStrategy.getWaldotNamespace().getStorageManager().removeReference(reference);
+		}
+	}
+
+}
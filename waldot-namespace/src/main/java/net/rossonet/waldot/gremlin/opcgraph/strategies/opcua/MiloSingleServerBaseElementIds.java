@@ -0,0 +1,106 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+/**
+ * Intern table of the elements of the graph, every NodeId gets a dense int
+ * handle and the handles of the removed elements are reused, so the structures
+ * keyed by handle are plain arrays sized on the live elements.
+ *
+ * Mutations are serialized on the table, lookups are lock-free. A handle read
+ * concurrently with the removal of its element can already belong to another
+ * element, the readers check the NodeId of what they find.
+ */
+public class MiloSingleServerBaseElementIds {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private int[] freeHandles = new int[64];
+	private int freeHandlesCount = 0;
+	private final Map<NodeId, Integer> handles = new ConcurrentHashMap<>();
+	private volatile int nextHandle = 0;
+	private volatile AtomicReferenceArray<NodeId> nodeIds = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+
+	/**
+	 * @return the number of handles in use or free, the bound of the arrays keyed
+	 *         by handle
+	 */
+	public int capacity() {
+		return nextHandle;
+	}
+
+	public synchronized void clear() {
+		handles.clear();
+		nodeIds = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+		nextHandle = 0;
+		freeHandlesCount = 0;
+	}
+
+	/**
+	 * @return the handle of the NodeId, -1 if the NodeId is not interned. This is
+	 *         a map lookup, the hot paths use the handle cached on the element.
+	 */
+	public int getHandle(final NodeId nodeId) {
+		final Integer handle = handles.get(nodeId);
+		return handle == null ? -1 : handle;
+	}
+
+	/**
+	 * @return the NodeId of the handle, null if the handle is free
+	 */
+	public NodeId getNodeId(final int handle) {
+		final AtomicReferenceArray<NodeId> current = nodeIds;
+		return handle < 0 || handle >= current.length() ? null : current.get(handle);
+	}
+
+	/**
+	 * @return the handle of the NodeId, a new one if the NodeId is not interned
+	 */
+	public synchronized int intern(final NodeId nodeId) {
+		final Integer existing = handles.get(nodeId);
+		if (existing != null) {
+			return existing;
+		}
+		final int handle = freeHandlesCount > 0 ? freeHandles[--freeHandlesCount] : nextHandle++;
+		AtomicReferenceArray<NodeId> current = nodeIds;
+		if (handle >= current.length()) {
+			final AtomicReferenceArray<NodeId> grown = new AtomicReferenceArray<>(current.length() * 2);
+			for (int i = 0; i < current.length(); i++) {
+				grown.set(i, current.get(i));
+			}
+			nodeIds = grown;
+			current = grown;
+		}
+		current.set(handle, nodeId);
+		handles.put(nodeId, handle);
+		return handle;
+	}
+
+	/**
+	 * frees the handle of the NodeId, the next interned NodeId can get it.
+	 *
+	 * @return the freed handle, -1 if the NodeId was not interned
+	 */
+	public synchronized int release(final NodeId nodeId) {
+		final Integer handle = handles.remove(nodeId);
+		if (handle == null) {
+			return -1;
+		}
+		nodeIds.set(handle, null);
+		if (freeHandlesCount == freeHandles.length) {
+			freeHandles = Arrays.copyOf(freeHandles, freeHandles.length * 2);
+		}
+		freeHandles[freeHandlesCount++] = handle;
+		return handle;
+	}
+
+	public int size() {
+		return handles.size();
+	}
+
+}
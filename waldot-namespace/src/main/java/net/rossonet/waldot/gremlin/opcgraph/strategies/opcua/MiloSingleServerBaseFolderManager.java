@@ -2,9 +2,9 @@ package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
 import org.eclipse.milo.opcua.sdk.core.ValueRanks;
@@ -24,12 +24,12 @@ import net.rossonet.waldot.opc.AbstractOpcCommand.VariableNodeTypes;
 public class MiloSingleServerBaseFolderManager {
 	private AbstractOpcCommand addEdgeCommand;
 	private AbstractOpcCommand addVertexCommand;
-	private final Map<String, UaFolderNode> commandDirectoriesAndObjects = new HashMap<>();
+	private final Map<String, UaFolderNode> commandDirectoriesAndObjects = new ConcurrentHashMap<>();
 	private UaFolderNode edgesFolderNode;
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 	private final MiloSingleServerBaseStrategy miloSingleServerBaseV0Strategy;
 	private UaFolderNode variablesFolderNode;
-	private final Map<String, UaFolderNode> vertexDirectories = new HashMap<>();
+	private final Map<String, UaFolderNode> vertexDirectories = new ConcurrentHashMap<>();
 	private UaFolderNode verticesFolderNode;
 
 	public MiloSingleServerBaseFolderManager(MiloSingleServerBaseStrategy miloSingleServerBaseV0Strategy) {
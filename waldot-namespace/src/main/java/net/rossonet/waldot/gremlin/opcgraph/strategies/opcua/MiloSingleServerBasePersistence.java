@@ -0,0 +1,305 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rossonet.waldot.api.PropertyObserver;
+import net.rossonet.waldot.api.models.WaldotBulkLoader;
+import net.rossonet.waldot.api.models.WaldotEdge;
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence.GraphMutationHandler;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence.GraphSnapshot;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence.PersistenceCodec;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence.WriteAheadLog;
+
+/**
+ * Durable copy of the graph of {@link MiloSingleServerBaseStrategy}: a binary
+ * snapshot written at every interval plus the write ahead log of the changes
+ * after it.
+ *
+ * <p>The changes are logged only after {@link #restore()}, the replay of the
+ * log is idempotent so the snapshot can be written while the graph is
+ * changing.</p>
+ */
+public class MiloSingleServerBasePersistence implements PropertyObserver, GraphMutationHandler {
+
+	private static final long FORCE_INTERVAL_MS = 1_000;
+
+	private volatile boolean active = false;
+	private final Path directory;
+	private MiloSingleServerBaseBulkLoader loader;
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final MiloSingleServerBaseStrategy miloStrategy;
+	private final PersistenceCodec.Output record = new PersistenceCodec.Output(1024);
+	private boolean restoreDone = false;
+	private final ScheduledExecutorService scheduler;
+	private long snapshotSequence;
+	private final WriteAheadLog writeAheadLog;
+
+	public MiloSingleServerBasePersistence(final MiloSingleServerBaseStrategy miloStrategy, final Path directory,
+			final long snapshotIntervalMs) throws IOException {
+		this.miloStrategy = miloStrategy;
+		this.directory = directory;
+		Files.createDirectories(directory);
+		final Path snapshot = GraphSnapshot.latest(directory);
+		snapshotSequence = snapshot == null ? 0 : GraphSnapshot.getSequence(snapshot);
+		writeAheadLog = new WriteAheadLog(directory, snapshotSequence);
+		scheduler = Executors.newSingleThreadScheduledExecutor(
+				new BasicThreadFactory.Builder().namingPattern("waldot-persistence").daemon(true).build());
+		scheduler.scheduleWithFixedDelay(this::force, FORCE_INTERVAL_MS, FORCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		if (snapshotIntervalMs > 0) {
+			scheduler.scheduleWithFixedDelay(this::scheduledSnapshot, snapshotIntervalMs, snapshotIntervalMs,
+					TimeUnit.MILLISECONDS);
+		}
+		logger.info("graph persistence in {}, last snapshot at sequence {}", directory, snapshotSequence);
+	}
+
+	@Override
+	public void addEdge(final NodeId nodeId, final NodeId sourceId, final NodeId targetId, final String label,
+			final Map<String, Object> properties) {
+		final UaNode existing = miloStrategy.getWaldotNamespace().getStorageManager().get(nodeId);
+		if (existing instanceof WaldotEdge) {
+			properties.forEach((key, value) -> ((WaldotEdge) existing).property(key, value));
+			return;
+		}
+		final UaNode source = miloStrategy.getWaldotNamespace().getStorageManager().get(sourceId);
+		final UaNode target = miloStrategy.getWaldotNamespace().getStorageManager().get(targetId);
+		if (!(source instanceof WaldotVertex) || !(target instanceof WaldotVertex)) {
+			logger.warn("edge {} not restored, vertex {} or {} not found", nodeId, sourceId, targetId);
+			return;
+		}
+		final Object[] keyValues = MiloSingleServerBaseStrategy.toKeyValues(nodeId, label, properties);
+		if (loader != null) {
+			loader.addEdge((WaldotVertex) source, (WaldotVertex) target, label, keyValues);
+		} else {
+			miloStrategy.addEdge((WaldotVertex) source, (WaldotVertex) target, label, keyValues);
+		}
+	}
+
+	@Override
+	public void addVertex(final NodeId nodeId, final String label, final Map<String, Object> properties) {
+		final UaNode existing = miloStrategy.getWaldotNamespace().getStorageManager().get(nodeId);
+		if (existing instanceof WaldotVertex) {
+			properties.forEach((key, value) -> ((WaldotVertex) existing).property(key, value));
+			return;
+		}
+		final Object[] keyValues = MiloSingleServerBaseStrategy.toKeyValues(nodeId, label, properties);
+		if (loader != null) {
+			loader.addVertex(keyValues);
+		} else {
+			miloStrategy.addVertex(nodeId, keyValues);
+		}
+	}
+
+	private void append() {
+		try {
+			writeAheadLog.append(record);
+		} catch (final IOException e) {
+			logger.error("error writing the write ahead log: {}", e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * stops the logging and writes the final snapshot, so the next start does
+	 * not replay the log.
+	 */
+	public void close() {
+		final boolean wasActive = active;
+		active = false;
+		scheduler.shutdown();
+		try {
+			scheduler.awaitTermination(FORCE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			if (wasActive && writeAheadLog.getSequence() > snapshotSequence) {
+				writeSnapshot();
+			}
+			writeAheadLog.close();
+		} catch (final IOException e) {
+			logger.error("error closing the graph persistence: {}", e.getMessage(), e);
+		}
+	}
+
+	public void edgeAdded(final WaldotEdge edge, final WaldotVertex sourceVertex, final WaldotVertex targetVertex) {
+		edge.addPropertyObserver(this);
+		if (active) {
+			synchronized (record) {
+				record.reset();
+				PersistenceCodec.writeAddEdge(record, edge.getNodeId(), sourceVertex.getNodeId(),
+						targetVertex.getNodeId(), edge.label(), MiloSingleServerBaseStrategy.getElementProperties(edge));
+				append();
+			}
+		}
+	}
+
+	public void edgeRemoved(final NodeId nodeId) {
+		logRemove(PersistenceCodec.OP_REMOVE_EDGE, nodeId);
+	}
+
+	private void force() {
+		try {
+			writeAheadLog.force();
+		} catch (final IOException e) {
+			logger.error("error forcing the write ahead log: {}", e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public boolean isDeferredInTransaction() {
+		return false;
+	}
+
+	private void logRemove(final byte operation, final NodeId nodeId) {
+		if (active) {
+			synchronized (record) {
+				record.reset();
+				PersistenceCodec.writeRemove(record, operation, nodeId);
+				append();
+			}
+		}
+	}
+
+	@Override
+	public void propertyChanged(final UaNode sourceNode, final String propertyLabel, final DataValue value) {
+		if (active && (sourceNode instanceof WaldotVertex || sourceNode instanceof WaldotEdge)) {
+			synchronized (record) {
+				record.reset();
+				PersistenceCodec.writeSetProperty(record, sourceNode.getNodeId(), propertyLabel,
+						value == null || value.getValue() == null ? null : value.getValue().getValue());
+				append();
+			}
+		}
+	}
+
+	@Override
+	public void removeEdge(final NodeId nodeId) {
+		if (miloStrategy.getWaldotNamespace().getStorageManager().get(nodeId) instanceof WaldotEdge) {
+			miloStrategy.removeEdge(nodeId);
+		}
+	}
+
+	@Override
+	public void removeVertex(final NodeId nodeId) {
+		if (miloStrategy.getWaldotNamespace().getStorageManager().get(nodeId) instanceof WaldotVertex) {
+			miloStrategy.removeVertex(nodeId);
+		}
+	}
+
+	@Override
+	public void removeVertexProperty(final NodeId propertyNodeId) {
+		if (miloStrategy.getPropertyNode(propertyNodeId) != null) {
+			miloStrategy.removeVertexProperty(propertyNodeId);
+		}
+	}
+
+	/**
+	 * loads the last snapshot and replays the write ahead log, then starts the
+	 * logging of the changes. Only the first call restores the graph.
+	 *
+	 * @return true if a snapshot or a logged change was found
+	 */
+	public synchronized boolean restore() {
+		if (restoreDone) {
+			return false;
+		}
+		restoreDone = true;
+		boolean restored = false;
+		try {
+			final Path snapshot = GraphSnapshot.latest(directory);
+			if (snapshot != null) {
+				try (MiloSingleServerBaseBulkLoader bulkLoader = new MiloSingleServerBaseBulkLoader(miloStrategy,
+						WaldotBulkLoader.DEFAULT_BATCH_SIZE)) {
+					loader = bulkLoader;
+					GraphSnapshot.read(snapshot, this);
+				} finally {
+					loader = null;
+				}
+				restored = true;
+			}
+			final long replayed = writeAheadLog.replay(snapshotSequence, this);
+			restored = restored || replayed > 0;
+			logger.info("graph restored from {}: {} vertices, {} edges, {} logged changes replayed", directory,
+					miloStrategy.getVertices().size(), miloStrategy.getEdges().size(), replayed);
+			active = true;
+		} catch (final IOException | RuntimeException e) {
+			// i file restano intatti, le modifiche non vengono registrate
+			logger.error("error restoring the graph from {}, persistence disabled: {}", directory, e.getMessage(), e);
+		}
+		return restored;
+	}
+
+	private void scheduledSnapshot() {
+		try {
+			if (active && writeAheadLog.getSequence() > snapshotSequence) {
+				writeSnapshot();
+			}
+		} catch (final Exception e) {
+			logger.error("error writing the graph snapshot: {}", e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void setProperty(final NodeId elementId, final String key, final Object value) {
+		final UaNode node = miloStrategy.getWaldotNamespace().getStorageManager().get(elementId);
+		if (node instanceof Element) {
+			((Element) node).property(key, value);
+		}
+	}
+
+	public void vertexAdded(final WaldotVertex vertex) {
+		vertex.addPropertyObserver(this);
+		if (active) {
+			synchronized (record) {
+				record.reset();
+				PersistenceCodec.writeAddVertex(record, vertex.getNodeId(), vertex.label(), MiloSingleServerBaseStrategy.getElementProperties(vertex));
+				append();
+			}
+		}
+	}
+
+	public void vertexPropertyRemoved(final NodeId propertyNodeId) {
+		logRemove(PersistenceCodec.OP_REMOVE_VERTEX_PROPERTY, propertyNodeId);
+	}
+
+	public void vertexRemoved(final NodeId nodeId) {
+		logRemove(PersistenceCodec.OP_REMOVE_VERTEX, nodeId);
+	}
+
+	/**
+	 * writes a snapshot of the graph and deletes the older snapshots and the log
+	 * segments it covers.
+	 */
+	public synchronized void writeSnapshot() throws IOException {
+		final long sequence = writeAheadLog.rotate();
+		try (GraphSnapshot.Writer writer = new GraphSnapshot.Writer(directory, sequence)) {
+			for (final WaldotVertex vertex : miloStrategy.getVertices().values()) {
+				writer.addVertex(vertex.getNodeId(), vertex.label(), MiloSingleServerBaseStrategy.getElementProperties(vertex));
+			}
+			for (final WaldotEdge edge : miloStrategy.getEdges().values()) {
+				writer.addEdge(edge.getNodeId(), ((WaldotVertex) edge.outVertex()).getNodeId(),
+						((WaldotVertex) edge.inVertex()).getNodeId(), edge.label(), MiloSingleServerBaseStrategy.getElementProperties(edge));
+			}
+			writer.commit();
+		}
+		snapshotSequence = sequence;
+		GraphSnapshot.deleteOlder(directory, sequence);
+		writeAheadLog.deleteUpTo(sequence);
+		logger.info("graph snapshot written at sequence {}", sequence);
+	}
+
+}
@@ -2,9 +2,13 @@ package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua;
 
 import static org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.Unsigned.ushort;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -16,14 +20,16 @@ import org.apache.tinkerpop.gremlin.process.computer.GraphFilter;
 import org.apache.tinkerpop.gremlin.process.computer.VertexComputeKey;
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Graph;
 import org.apache.tinkerpop.gremlin.structure.Graph.Variables;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
 import org.eclipse.milo.opcua.sdk.core.QualifiedProperty;
 import org.eclipse.milo.opcua.sdk.core.Reference;
 import org.eclipse.milo.opcua.sdk.core.ValueRanks;
 import org.eclipse.milo.opcua.sdk.core.nodes.Node;
-import org.eclipse.milo.opcua.sdk.server.methods.AbstractMethodInvocationHandler.InvocationContext;
 import org.eclipse.milo.opcua.sdk.server.model.objects.BaseEventTypeNode;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaFolderNode;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
@@ -40,6 +46,7 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UByte;
 import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UInteger;
+import org.eclipse.milo.opcua.stack.core.types.builtin.unsigned.UShort;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,6 +54,7 @@ import com.google.common.primitives.Longs;
 
 import net.rossonet.waldot.api.PluginListener;
 import net.rossonet.waldot.api.annotation.WaldotMiloStrategy;
+import net.rossonet.waldot.api.models.WaldotBulkLoader;
 import net.rossonet.waldot.api.models.WaldotCommand;
 import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotGraph;
@@ -57,17 +65,24 @@ import net.rossonet.waldot.api.models.WaldotVertexProperty;
 import net.rossonet.waldot.api.models.base.GremlinElement;
 import net.rossonet.waldot.api.strategies.MiloStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.process.computer.OpcGraphComputerView;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.MiloSingleServerBaseAdjacencyIndex.IndexedEdge;
+import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
+import net.rossonet.waldot.gremlin.opcgraph.structure.OpcElementLocks;
+import net.rossonet.waldot.gremlin.opcgraph.structure.OpcGraph;
 import net.rossonet.waldot.gremlin.opcgraph.structure.OpcGraphVariables;
+import net.rossonet.waldot.gremlin.opcgraph.structure.OpcTransactionContext;
 import net.rossonet.waldot.gremlin.opcgraph.structure.edge.FireMonitoredEdge;
 import net.rossonet.waldot.gremlin.opcgraph.structure.edge.LinkMonitoredEdge;
 import net.rossonet.waldot.gremlin.opcgraph.structure.edge.LinkMonitoredEdge.LinkDirection;
 import net.rossonet.waldot.gremlin.opcgraph.structure.edge.OpcEdge;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcIndexManager;
 import net.rossonet.waldot.gremlin.opcgraph.structure.vertex.OpcProperty;
 import net.rossonet.waldot.gremlin.opcgraph.structure.vertex.OpcVertex;
 import net.rossonet.waldot.gremlin.opcgraph.structure.vertex.OpcVertexProperty;
 import net.rossonet.waldot.opc.AbstractOpcCommand;
-import net.rossonet.waldot.opc.AbstractOpcCommand.VariableNodeTypes;
+import net.rossonet.waldot.opc.AbstractOpcProperty;
 import net.rossonet.waldot.opc.AbstractOpcVertex;
+import net.rossonet.waldot.opc.AbstractOpcVertexProperty;
 import net.rossonet.waldot.opc.MiloSingleServerBaseReferenceNodeBuilder;
 
 @WaldotMiloStrategy
@@ -75,68 +90,45 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 
 	private static final String EDGE_DIRECTORY_NODEID_PREFIX = "e";
 	private static final String VERTEX_DIRECTORY_NODEID_PREFIX = "v";
+	private final MiloSingleServerBaseAdjacencyIndex adjacencyIndex = new MiloSingleServerBaseAdjacencyIndex();
 	private UaFolderNode assetRootNode;
+	// loader con un batch non ancora pubblicato
+	private final Set<MiloSingleServerBaseBulkLoader> bulkLoaders = ConcurrentHashMap.newKeySet();
 	private transient final ConcurrentHashMap<NodeId, WaldotEdge> cachedEdges = new ConcurrentHashMap<>();
 	private transient final ConcurrentHashMap<NodeId, WaldotVertex> cachedVertices = new ConcurrentHashMap<>();
 	private transient final ConcurrentHashMap<String, UaFolderNode> edgeDirectories = new ConcurrentHashMap<>();
+	private final MiloSingleServerBaseElementCommands elementCommands = new MiloSingleServerBaseElementCommands(this);
 	private final MiloSingleServerBaseFolderManager folderManager = new MiloSingleServerBaseFolderManager(this);
 	private UaFolderNode interfaceRootNode;
 	private final AtomicLong lastEventId = new AtomicLong(0);
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 	private Graph.Variables opcGraphVariables;
+	private MiloSingleServerBasePersistence persistence;
 	private transient ConcurrentHashMap<String, NodeId> referenceCache = new ConcurrentHashMap<>();
 	private UaFolderNode rootNode;
 	private WaldotNamespace waldotNamespace;
 
-	private void addDeletedCommand(GremlinElement vertex) {
-		final AbstractOpcCommand deleteCommand = new AbstractOpcCommand(waldotNamespace.getGremlinGraph(),
-				waldotNamespace, vertex.id().getIdentifier().toString() + ".delete", "delete",
-				"Delete " + vertex.getBrowseName().getName(), null,
-				waldotNamespace.getConfiguration().getWaldotCommandWriteMask(),
-				waldotNamespace.getConfiguration().getWaldotCommandUserWriteMask(),
-				waldotNamespace.getConfiguration().getWaldotCommandExecutable(),
-				waldotNamespace.getConfiguration().getWaldotCommandUserExecutable()) {
-
-			@Override
-			public Object[] runCommand(InvocationContext invocationContext, String[] inputValues) {
-				String output = "";
-				String error = "";
-				try {
-					output = waldotNamespace.getGremlinGraph().traversal().V(vertex.getNodeId().getIdentifier()).drop()
-							.iterate() + " element deleted";
-				} catch (final Exception e) {
-					logger.error("Error deleting element {}: {}", vertex.getNodeId().getIdentifier(), e.getMessage());
-					error = e.getMessage();
-				}
-				return new String[] { output, error };
-			}
-		};
-		deleteCommand.addOutputArgument("output", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
-				LocalizedText.english("command output"));
-		deleteCommand.addOutputArgument("error", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
-				LocalizedText.english("command error"));
-		waldotNamespace.getStorageManager().addNode(deleteCommand);
-		vertex.addComponent((UaNode) deleteCommand);
-	}
-
 	@Override
 	public Edge addEdge(final WaldotVertex sourceVertex, final WaldotVertex targetVertex, final String label,
 			final Object[] propertyKeyValues) {
+		return addEdge(sourceVertex, targetVertex, label, propertyKeyValues, false);
+	}
+
+	/**
+	 * with bulk the edge is only built: the node, the caches, the indexes and the
+	 * plugin notification are left to the flush of the
+	 * {@link MiloSingleServerBaseBulkLoader}
+	 */
+	OpcEdge addEdge(final WaldotVertex sourceVertex, final WaldotVertex targetVertex, final String label,
+			final Object[] propertyKeyValues, final boolean bulk) {
 		ElementHelper.legalPropertyKeyValueArray(propertyKeyValues);
-		String type = MiloStrategy.getKeyValuesProperty(propertyKeyValues, TYPE_FIELD.toLowerCase());
+		final String type = getEdgeType(label, propertyKeyValues);
 		String elaboratedLabel = label;
-		if (type == null || type.isEmpty()) {
-			if (elaboratedLabel != null && !elaboratedLabel.isEmpty()) {
-				type = elaboratedLabel;
-			} else {
-				type = DEFAULT_EDGE_TYPE;
-			}
-		}
 		if (elaboratedLabel == null || elaboratedLabel.isEmpty()) {
 			elaboratedLabel = type;
 			logger.debug("Edge label not found in propertyKeyValues, using default label '{}'", elaboratedLabel);
 		}
-		NodeId nodeId = null;
+		final NodeId nodeId;
 		final Object readId = MiloStrategy.getIdValue(propertyKeyValues).orElse(null);
 		if (readId != null) {
 			nodeId = MiloStrategy.getNodeIdManager().convert(waldotNamespace.getGremlinGraph(), readId);
@@ -144,6 +136,147 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 			nodeId = waldotNamespace.generateNodeId(sourceVertex.getNodeId().getIdentifier() + ":" + elaboratedLabel
 					+ ":" + targetVertex.getNodeId().getIdentifier());
 		}
+		final OpcElementLocks locks = getElementLocks();
+		final int[] stripes = locks.lock(sourceVertex.getNodeId(), targetVertex.getNodeId(), nodeId);
+		try {
+			// un estremo può essere stato rimosso prima di prendere il lock
+			checkLiveVertex(sourceVertex, bulk);
+			checkLiveVertex(targetVertex, bulk);
+			return createEdge(nodeId, sourceVertex, targetVertex, label, elaboratedLabel, type, propertyKeyValues,
+					bulk);
+		} finally {
+			locks.unlock(stripes);
+		}
+	}
+
+	/**
+	 * the forward references from an element to the node of one of its
+	 * properties
+	 */
+	private static void addPropertyReferences(final List<Reference> references, final NodeId elementId,
+			final NodeId propertyId) {
+		references.add(new Reference(elementId, NodeIds.HasComponent, propertyId.expanded(), true));
+		references.add(new Reference(elementId, MiloSingleServerBaseReferenceNodeBuilder.hasGremlinPropertyReferenceType,
+				propertyId.expanded(), true));
+	}
+
+	@Override
+	public AbstractOpcVertex addVertex(final NodeId nodeId, final Object[] propertyKeyValues) {
+		return addVertex(nodeId, propertyKeyValues, false);
+	}
+
+	AbstractOpcVertex addVertex(final NodeId nodeId, final Object[] propertyKeyValues, final boolean bulk) {
+		ElementHelper.legalPropertyKeyValueArray(propertyKeyValues);
+		final OpcElementLocks locks = getElementLocks();
+		final int[] stripes = locks.lock(nodeId);
+		try {
+			return createVertex(nodeId, propertyKeyValues, bulk);
+		} finally {
+			locks.unlock(stripes);
+		}
+	}
+
+	void bulkLoaderClosed(final MiloSingleServerBaseBulkLoader bulkLoader) {
+		bulkLoaders.remove(bulkLoader);
+	}
+
+	void bulkLoaderOpened(final MiloSingleServerBaseBulkLoader bulkLoader) {
+		bulkLoaders.add(bulkLoader);
+	}
+
+	private void checkDirectoryParameterAndLinkNode(final Object[] propertyKeyValues, final GremlinElement vertex,
+			final UaFolderNode folderNode, final Map<String, UaFolderNode> directories, String suffix) {
+		final String directory = MiloStrategy.getKeyValuesProperty(propertyKeyValues,
+				DIRECTORY_PARAMETER.toLowerCase());
+		if (directory == null || directory.isEmpty()) {
+			folderNode.addOrganizes(vertex);
+			return;
+		}
+		// cartella già creata: niente split del percorso
+		final UaFolderNode existing = directories.get(directory);
+		if (existing != null) {
+			existing.addOrganizes(vertex);
+			return;
+		}
+		// creazione delle cartelle serializzata, la lettura sopra resta senza lock
+		synchronized (directories) {
+			final String[] components = directory.split(DIRECTORY_SPLIT_SIMBOL);
+			String actual = null;
+			String last = actual;
+			for (int counter = 0; counter < components.length; counter++) {
+				actual = (actual == null ? "" : (actual + DIRECTORY_SPLIT_SIMBOL)) + components[counter].trim();
+				if (!directories.containsKey(actual)) {
+					final UaFolderNode uaFolderNode = new UaFolderNode(waldotNamespace.getOpcUaNodeContext(),
+							waldotNamespace.generateNodeId(suffix + ":" + actual),
+							waldotNamespace.generateQualifiedName(components[counter].trim()),
+							LocalizedText.english(components[counter].trim()));
+					waldotNamespace.getStorageManager().addNode(uaFolderNode);
+					if (counter == 0) {
+						folderNode.addOrganizes(uaFolderNode);
+					} else {
+						directories.get(last).addOrganizes(uaFolderNode);
+					}
+					// pubblicata per la lettura senza lock solo quando è collegata
+					directories.put(actual, uaFolderNode);
+				}
+
+				if (counter == components.length - 1) {
+					directories.get(actual).addOrganizes(vertex);
+				}
+				last = actual;
+			}
+		}
+	}
+
+	/**
+	 * checked with the stripe of the vertex held, the removal marks the vertex
+	 * and takes it out of the cache under the same stripe. With bulk a vertex of
+	 * the batch not yet published is accepted.
+	 */
+	private void checkLiveVertex(final WaldotVertex vertex, final boolean bulk) {
+		final WaldotVertex cached = cachedVertices.get(vertex.getNodeId());
+		if (vertex.isRemoved() || cached != vertex && !(bulk && cached == null)) {
+			throw Element.Exceptions.elementAlreadyRemoved(Vertex.class, vertex.getNodeId());
+		}
+	}
+
+	@Override
+	public void close() throws Exception {
+		// i batch aperti sono pubblicati prima della chiusura della persistenza
+		closeBulkLoaders();
+		if (persistence != null) {
+			persistence.close();
+			persistence = null;
+		}
+		resetNameSpace();
+		referenceCache.clear();
+		adjacencyIndex.clear();
+		getIndexManager().clear();
+		cachedVertices.clear();
+		cachedEdges.clear();
+		// quando rivedi il codice, ricorda di chiudere le risorse aperte!
+
+	}
+
+	@Override
+	public void closeBulkLoaders() {
+		for (final MiloSingleServerBaseBulkLoader bulkLoader : bulkLoaders) {
+			try {
+				bulkLoader.close();
+			} catch (final RuntimeException e) {
+				logger.error("error completing the pending batch of {}: {}", bulkLoader, e.getMessage(), e);
+			}
+		}
+	}
+
+	@Override
+	public WaldotBulkLoader createBulkLoader(final int batchSize) {
+		return new MiloSingleServerBaseBulkLoader(this, batchSize);
+	}
+
+	private OpcEdge createEdge(final NodeId nodeId, final WaldotVertex sourceVertex, final WaldotVertex targetVertex,
+			final String label, final String elaboratedLabel, final String type, final Object[] propertyKeyValues,
+			final boolean bulk) {
 		String name = MiloStrategy.getKeyValuesProperty(propertyKeyValues, NAME_FIELD.toLowerCase());
 		if (name == null) {
 			name = elaboratedLabel;
@@ -161,7 +294,10 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 				MiloSingleServerBaseReferenceNodeBuilder.getUserWriteMask(propertyKeyValues),
 				MiloSingleServerBaseReferenceNodeBuilder.getEventNotifier(propertyKeyValues),
 				MiloSingleServerBaseReferenceNodeBuilder.getVersion(propertyKeyValues));
-		waldotNamespace.getStorageManager().addNode(edge);
+		if (!bulk) {
+			waldotNamespace.getStorageManager().addNode(edge);
+			edge.addPropertyObserver(getIndexManager());
+		}
 		checkDirectoryParameterAndLinkNode(propertyKeyValues, edge, folderManager.getEdgesFolderNode(), edgeDirectories,
 				EDGE_DIRECTORY_NODEID_PREFIX);
 		edge.addReference(new Reference(edge.getNodeId(), NodeIds.HasTypeDefinition,
@@ -226,59 +362,161 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 		if (type.equals(FIRE_EDGE_TYPE)) {
 			edge.setMonitor(new FireMonitoredEdge(waldotNamespace, edge, sourceVertex, targetVertex));
 		}
-		for (final PluginListener p : waldotNamespace.getPlugins()) {
-			if (p.containsEdgeType(type)) {
-				p.notifyAddEdge(edge, sourceVertex, targetVertex, elaboratedLabel, type, propertyKeyValues);
+		if (!bulk) {
+			final String edgeLabel = elaboratedLabel;
+			for (final PluginListener p : waldotNamespace.getPlugins()) {
+				if (p.containsEdgeType(type)) {
+					notifyPlugin(
+							() -> p.notifyAddEdge(edge, sourceVertex, targetVertex, edgeLabel, type, propertyKeyValues));
+				}
 			}
 		}
-		addDeletedCommand(edge);
-		addPropertyCommand(edge);
-		cachedEdges.put(edge.getNodeId(), edge);
+		elementCommands.link(edge);
+		if (!bulk) {
+			getIndexManager().addElement(edge);
+			publishEdge(edge, sourceVertex, targetVertex);
+		}
 		return edge;
 	}
 
-	private void addPropertyCommand(GremlinElement vertex) {
-		final AbstractOpcCommand propertyCommand = new AbstractOpcCommand(waldotNamespace.getGremlinGraph(),
-				waldotNamespace, vertex.id().getIdentifier().toString() + ".property", "property",
-				"Add or update vertex property" + vertex.getBrowseName().getName(), null,
-				waldotNamespace.getConfiguration().getWaldotCommandWriteMask(),
-				waldotNamespace.getConfiguration().getWaldotCommandUserWriteMask(),
-				waldotNamespace.getConfiguration().getWaldotCommandExecutable(),
-				waldotNamespace.getConfiguration().getWaldotCommandUserExecutable()) {
-
-			@Override
-			public Object[] runCommand(InvocationContext invocationContext, String[] inputValues) {
-				String output = "";
-				String error = "";
-				final String label = inputValues[0];
-				final String value = inputValues[1];
-				try {
-					output = waldotNamespace.getGremlinGraph().traversal().V(vertex.getNodeId().getIdentifier())
-							.property(label, value).iterate() + " property '" + label + "' updated with value '" + value
-							+ "'";
-				} catch (final Exception e) {
-					logger.error("Error updating property '{}' of element {}: {}", label,
-							vertex.getNodeId().getIdentifier(), e.getMessage());
-					error = e.getMessage();
+	@Override
+	public OpcGraphComputerView createGraphComputerView(final WaldotGraph graph, final GraphFilter graphFilter,
+			final Set<VertexComputeKey> VertexComputeKey) {
+		logger.info("createGraphComputerView: graph={}, graphFilter={}, VertexComputeKey={}", graph, graphFilter,
+				VertexComputeKey);
+		// snapshot of the topology, the namespace is never switched in computer mode
+		return new OpcGraphComputerView(graph, graphFilter, VertexComputeKey);
+	}
+
+	@Override
+	public <DATA_TYPE> OpcProperty<DATA_TYPE> createOrUpdateWaldotEdgeProperty(final WaldotEdge opcEdge,
+			final String key, final DATA_TYPE value) {
+		final OpcElementLocks locks = getElementLocks();
+		final int[] stripes = locks.lock(opcEdge.getNodeId());
+		try {
+			if (opcEdge.isRemoved()) {
+				throw Element.Exceptions.elementAlreadyRemoved(Edge.class, opcEdge.getNodeId());
+			}
+			final NodeId nodeId = waldotNamespace
+					.generateNodeId(opcEdge.getNodeId().getIdentifier().toString() + PROPERTY_SPLIT_SIMBOL_IN_NODEID + key);
+			// una sola ricerca nella tabella delle proprietà dell'arco
+			@SuppressWarnings("unchecked")
+			final OpcProperty<DATA_TYPE> opcProperty = (OpcProperty<DATA_TYPE>) opcEdge.getRelatedProperty(key);
+			if (opcProperty != null) {
+				final OpcTransactionContext transaction = getTransactionContext();
+				if (transaction != null) {
+					final Object previous = opcProperty.value();
+					transaction.addUndo(() -> {
+						final UaNode edge = waldotNamespace.getStorageManager().get(opcEdge.getNodeId());
+						if (edge instanceof WaldotEdge) {
+							createOrUpdateWaldotEdgeProperty((WaldotEdge) edge, key, previous);
+						}
+					});
 				}
-				return new String[] { output, error };
+				final Variant variant = new Variant(value);
+				final DataValue dataValue = DataValue.newValue().setStatus(StatusCode.GOOD).setSourceTime(DateTime.now())
+						.setValue(variant).build();
+				opcProperty.setValue(dataValue);
+				return opcProperty;
+			} else {
+				final UaNodeContext context = opcEdge.getNodeContext();
+				final LocalizedText description = LocalizedText
+						.english(key + " of edge property " + opcEdge.getBrowseName().getName());
+				final UInteger writeMask = MiloSingleServerBaseReferenceNodeBuilder.edgeVariableWriteMask;
+				final UInteger userWriteMask = MiloSingleServerBaseReferenceNodeBuilder.edgeVariableUserWriteMask;
+				final NodeId dataType = NodeIds.BaseDataType;
+				final int valueRank = ValueRanks.Scalar;
+				final UInteger[] arrayDimensions = null;
+				final UByte accessLevel = MiloSingleServerBaseReferenceNodeBuilder.edgeVariableAccessLevel;
+				final UByte userAccessLevel = MiloSingleServerBaseReferenceNodeBuilder.edgeVariableUserAccessLevel;
+				final Double minimumSamplingInterval = -1.0;
+				final boolean historizing = false;
+				@SuppressWarnings({ "rawtypes", "unchecked" })
+				final OpcProperty<DATA_TYPE> property = new OpcProperty(waldotNamespace.getGremlinGraph(), opcEdge, key,
+						value, context, nodeId, description, writeMask, userWriteMask, dataType, valueRank, arrayDimensions,
+						accessLevel, userAccessLevel, minimumSamplingInterval, historizing);
+				// il nodo non va nel node manager, lo risolve il fragment delle proprietà
+				opcEdge.addRelatedProperty(property);
+				opcEdge.notifyPropertyValueChanging(key, property.getValue());
+				opcEdge.notifyPropertyValueChanged(key);
+				final OpcTransactionContext transaction = getTransactionContext();
+				if (transaction != null) {
+					final NodeId edgeId = opcEdge.getNodeId();
+					transaction.addUndo(() -> removeEdgeProperty(edgeId, key));
+				}
+				return property;
 			}
-		};
-		propertyCommand.addOutputArgument("output", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
-				LocalizedText.english("command output"));
-		propertyCommand.addOutputArgument("error", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
-				LocalizedText.english("command error"));
-		propertyCommand.addInputArgument("propertyLabel", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
-				LocalizedText.english("property to add or update"));
-		propertyCommand.addInputArgument("propertyValue", VariableNodeTypes.String.getNodeId(), ValueRanks.Scalar, null,
-				LocalizedText.english("value of the property"));
-		waldotNamespace.getStorageManager().addNode(propertyCommand);
-		vertex.addComponent((UaNode) propertyCommand);
+		} finally {
+			locks.unlock(stripes);
+		}
 	}
 
 	@Override
-	public AbstractOpcVertex addVertex(final NodeId nodeId, final Object[] propertyKeyValues) {
-		ElementHelper.legalPropertyKeyValueArray(propertyKeyValues);
+	public <DATA_TYPE> OpcVertexProperty<DATA_TYPE> createOrUpdateWaldotVertexProperty(final WaldotVertex opcVertex,
+			final String key, final DATA_TYPE value) {
+		final OpcElementLocks locks = getElementLocks();
+		final int[] stripes = locks.lock(opcVertex.getNodeId());
+		try {
+			// il vertice in creazione non è ancora in cache, basta il segno della rimozione
+			if (opcVertex.isRemoved()) {
+				throw Element.Exceptions.elementAlreadyRemoved(Vertex.class, opcVertex.getNodeId());
+			}
+			final NodeId nodeId = waldotNamespace.generateNodeId(
+					opcVertex.getNodeId().getIdentifier().toString() + PROPERTY_SPLIT_SIMBOL_IN_NODEID + key);
+			// una sola ricerca nella tabella delle proprietà del vertice
+			@SuppressWarnings("unchecked")
+			final OpcVertexProperty<DATA_TYPE> vp = (OpcVertexProperty<DATA_TYPE>) opcVertex.getRelatedProperty(key);
+			final OpcTransactionContext transaction = getTransactionContext();
+			if (vp != null) {
+				if (transaction != null) {
+					final Object previous = vp.value();
+					transaction.addUndo(() -> {
+						final UaNode vertex = waldotNamespace.getStorageManager().get(opcVertex.getNodeId());
+						if (vertex instanceof WaldotVertex) {
+							createOrUpdateWaldotVertexProperty((WaldotVertex) vertex, key, previous);
+						}
+					});
+				}
+				final Variant variant = new Variant(value);
+				final DataValue dataValue = DataValue.newValue().setStatus(StatusCode.GOOD).setSourceTime(DateTime.now())
+						.setValue(variant).build();
+				vp.setValue(dataValue);
+				return vp;
+			} else {
+				final UaNodeContext context = opcVertex.getNodeContext();
+				final LocalizedText description = LocalizedText
+						.english(key + " of vertex property " + opcVertex.getBrowseName().getName());
+				final UInteger writeMask = MiloSingleServerBaseReferenceNodeBuilder.variableWriteMask;
+				final UInteger userWriteMask = MiloSingleServerBaseReferenceNodeBuilder.variableUserWriteMask;
+				final NodeId dataType = NodeIds.BaseDataType;
+				final int valueRank = ValueRanks.Scalar;
+				final UInteger[] arrayDimensions = null;
+				final UByte accessLevel = MiloSingleServerBaseReferenceNodeBuilder.variableAccessLevel;
+				final UByte userAccessLevel = MiloSingleServerBaseReferenceNodeBuilder.variableUserAccessLevel;
+				final Double minimumSamplingInterval = -1.0;
+				final boolean historizing = false;
+				@SuppressWarnings({ "rawtypes", "unchecked" })
+				final OpcVertexProperty<DATA_TYPE> property = new OpcVertexProperty(waldotNamespace.getGremlinGraph(),
+						opcVertex, key, value, context, nodeId, description, writeMask, userWriteMask, dataType, valueRank,
+						arrayDimensions, accessLevel, userAccessLevel, minimumSamplingInterval, historizing, false);
+				// il nodo non va nel node manager, lo risolve il fragment delle proprietà
+				opcVertex.addRelatedProperty(property);
+				opcVertex.notifyPropertyValueChanging(key, property.getValue());
+				if (transaction != null) {
+					transaction.addUndo(() -> {
+						if (getPropertyNode(nodeId) != null) {
+							removeVertexProperty(nodeId);
+						}
+					});
+				}
+				return property;
+			}
+		} finally {
+			locks.unlock(stripes);
+		}
+	}
+
+	private AbstractOpcVertex createVertex(final NodeId nodeId, final Object[] propertyKeyValues, final boolean bulk) {
 		String label = MiloStrategy.getKeyValuesProperty(propertyKeyValues, LABEL_FIELD.toLowerCase());
 		if (label == null) {
 			label = DEFAULT_VERTEX_LABEL;
@@ -308,159 +546,26 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 				MiloSingleServerBaseReferenceNodeBuilder.getWriteMask(propertyKeyValues),
 				MiloSingleServerBaseReferenceNodeBuilder.getUserWriteMask(propertyKeyValues),
 				MiloSingleServerBaseReferenceNodeBuilder.getEventNotifier(propertyKeyValues),
-				MiloSingleServerBaseReferenceNodeBuilder.getVersion(propertyKeyValues));
-		addDeletedCommand(vertex);
-		addPropertyCommand(vertex);
-		cachedVertices.put(vertex.getNodeId(), vertex);
-		return vertex;
-	}
-
-	private void checkDirectoryParameterAndLinkNode(final Object[] propertyKeyValues, final GremlinElement vertex,
-			final UaFolderNode folderNode, final Map<String, UaFolderNode> directories, String suffix) {
-		final String directory = MiloStrategy.getKeyValuesProperty(propertyKeyValues,
-				DIRECTORY_PARAMETER.toLowerCase());
-		if (directory == null || directory.isEmpty()) {
-			folderNode.addOrganizes(vertex);
-			return;
-		}
-		final String[] components = directory.split(DIRECTORY_SPLIT_SIMBOL);
-		String actual = null;
-		String last = actual;
-		for (int counter = 0; counter < components.length; counter++) {
-			actual = (actual == null ? "" : (actual + DIRECTORY_SPLIT_SIMBOL)) + components[counter].trim();
-			if (!directories.containsKey(actual)) {
-				directories.put(actual,
-						new UaFolderNode(waldotNamespace.getOpcUaNodeContext(),
-								waldotNamespace.generateNodeId(suffix + ":" + actual),
-								waldotNamespace.generateQualifiedName(components[counter].trim()),
-								LocalizedText.english(components[counter].trim())));
-				waldotNamespace.getStorageManager().addNode(directories.get(actual));
-				final UaFolderNode uaFolderNode = directories.get(actual);
-				if (counter == 0) {
-					folderNode.addOrganizes(uaFolderNode);
-				} else {
-					directories.get(last).addOrganizes(uaFolderNode);
-				}
-			}
-
-			if (counter == components.length - 1) {
-				directories.get(actual).addOrganizes(vertex);
-			}
-			last = actual;
-		}
-	}
-
-	@Override
-	public void close() throws Exception {
-		resetNameSpace();
-		referenceCache.clear();
-		cachedVertices.clear();
-		cachedEdges.clear();
-		// quando rivedi il codice, ricorda di chiudere le risorse aperte!
-
-	}
-
-	@Override
-	public OpcGraphComputerView createGraphComputerView(final WaldotGraph graph, final GraphFilter graphFilter,
-			final Set<VertexComputeKey> VertexComputeKey) {
-		logger.info("createGraphComputerView: graph={}, graphFilter={}, VertexComputeKey={}", graph, graphFilter,
-				VertexComputeKey);
-		// TODO valutare come implementare GraphComputerView (per ora non si presuppone
-		// l'uso di computazioni sul grafo)
-		throw new UnsupportedOperationException("Not implemented yet");
-	}
-
-	@Override
-	public <DATA_TYPE> OpcProperty<DATA_TYPE> createOrUpdateWaldotEdgeProperty(final WaldotEdge opcEdge,
-			final String key, final DATA_TYPE value) {
-		final NodeId nodeId = waldotNamespace
-				.generateNodeId(opcEdge.getNodeId().getIdentifier().toString() + PROPERTY_SPLIT_SIMBOL_IN_NODEID + key);
-		if (waldotNamespace.hasNodeId(nodeId)) {
-			@SuppressWarnings("unchecked")
-			final OpcProperty<DATA_TYPE> opcProperty = (OpcProperty<DATA_TYPE>) waldotNamespace.getStorageManager()
-					.getNode(nodeId).get();
-			final Variant variant = new Variant(value);
-			final DataValue dataValue = DataValue.newValue().setStatus(StatusCode.GOOD).setSourceTime(DateTime.now())
-					.setValue(variant).build();
-			opcProperty.setValue(dataValue);
-			return opcProperty;
-		} else {
-			final UaNodeContext context = opcEdge.getNodeContext();
-			final LocalizedText description = LocalizedText
-					.english(key + " of edge property " + opcEdge.getBrowseName().getName());
-			final UInteger writeMask = MiloSingleServerBaseReferenceNodeBuilder.edgeVariableWriteMask;
-			final UInteger userWriteMask = MiloSingleServerBaseReferenceNodeBuilder.edgeVariableUserWriteMask;
-			final NodeId dataType = NodeIds.BaseDataType;
-			final int valueRank = ValueRanks.Scalar;
-			final UInteger[] arrayDimensions = null;
-			final UByte accessLevel = MiloSingleServerBaseReferenceNodeBuilder.edgeVariableAccessLevel;
-			final UByte userAccessLevel = MiloSingleServerBaseReferenceNodeBuilder.edgeVariableUserAccessLevel;
-			final Double minimumSamplingInterval = -1.0;
-			final boolean historizing = false;
-			@SuppressWarnings({ "rawtypes", "unchecked" })
-			final OpcProperty<DATA_TYPE> property = new OpcProperty(waldotNamespace.getGremlinGraph(), opcEdge, key,
-					value, context, nodeId, description, writeMask, userWriteMask, dataType, valueRank, arrayDimensions,
-					accessLevel, userAccessLevel, minimumSamplingInterval, historizing);
-			waldotNamespace.getStorageManager().addNode(property);
-			opcEdge.addRelatedProperty(property);
-			opcEdge.addReference(new Reference(opcEdge.getNodeId(),
-					MiloSingleServerBaseReferenceNodeBuilder.hasGremlinPropertyReferenceType,
-					property.getNodeId().expanded(), true));
-			opcEdge.notifyPropertyValueChanging(key, property.getValue());
-			return property;
-		}
-
-	}
-
-	@Override
-	public <DATA_TYPE> OpcVertexProperty<DATA_TYPE> createOrUpdateWaldotVertexProperty(final WaldotVertex opcVertex,
-			final String key, final DATA_TYPE value) {
-		final NodeId nodeId = waldotNamespace.generateNodeId(
-				opcVertex.getNodeId().getIdentifier().toString() + PROPERTY_SPLIT_SIMBOL_IN_NODEID + key);
-		if (waldotNamespace.hasNodeId(nodeId)) {
-			@SuppressWarnings("unchecked")
-			final OpcVertexProperty<DATA_TYPE> vp = (OpcVertexProperty<DATA_TYPE>) waldotNamespace.getStorageManager()
-					.get(nodeId);
-			final Variant variant = new Variant(value);
-			final DataValue dataValue = DataValue.newValue().setStatus(StatusCode.GOOD).setSourceTime(DateTime.now())
-					.setValue(variant).build();
-			vp.setValue(dataValue);
-			return vp;
-		} else {
-			final UaNodeContext context = opcVertex.getNodeContext();
-			final LocalizedText description = LocalizedText
-					.english(key + " of vertex property " + opcVertex.getBrowseName().getName());
-			final UInteger writeMask = MiloSingleServerBaseReferenceNodeBuilder.variableWriteMask;
-			final UInteger userWriteMask = MiloSingleServerBaseReferenceNodeBuilder.variableUserWriteMask;
-			final NodeId dataType = NodeIds.BaseDataType;
-			final int valueRank = ValueRanks.Scalar;
-			final UInteger[] arrayDimensions = null;
-			final UByte accessLevel = MiloSingleServerBaseReferenceNodeBuilder.variableAccessLevel;
-			final UByte userAccessLevel = MiloSingleServerBaseReferenceNodeBuilder.variableUserAccessLevel;
-			final Double minimumSamplingInterval = -1.0;
-			final boolean historizing = false;
-			@SuppressWarnings({ "rawtypes", "unchecked" })
-			final OpcVertexProperty<DATA_TYPE> property = new OpcVertexProperty(waldotNamespace.getGremlinGraph(),
-					opcVertex, key, value, context, nodeId, description, writeMask, userWriteMask, dataType, valueRank,
-					arrayDimensions, accessLevel, userAccessLevel, minimumSamplingInterval, historizing, false);
-			waldotNamespace.getStorageManager().addNode(property);
-			opcVertex.addReference(new Reference(opcVertex.getNodeId(),
-					MiloSingleServerBaseReferenceNodeBuilder.hasGremlinPropertyReferenceType,
-					property.getNodeId().expanded(), true));
-			opcVertex.addRelatedProperty(property);
-			opcVertex.notifyPropertyValueChanging(key, property.getValue());
-			return property;
+				MiloSingleServerBaseReferenceNodeBuilder.getVersion(propertyKeyValues), bulk);
+		elementCommands.link(vertex);
+		if (!bulk) {
+			getIndexManager().addElement(vertex);
+			publishVertex(vertex);
 		}
+		return vertex;
 	}
 
 	private AbstractOpcVertex createVertex(final NodeId nodeId, final NodeId typeDefinition, final String label,
 			final String description, final QualifiedName browseName, final LocalizedText displayName,
 			final Object[] propertyKeyValues, final UInteger writeMask, final UInteger userWriteMask,
-			final UByte eventNotifierActive, final long version) {
+			final UByte eventNotifierActive, final long version, final boolean bulk) {
 		final AbstractOpcVertex vertex = createVertexObject(propertyKeyValues, typeDefinition,
 				waldotNamespace.getGremlinGraph(), waldotNamespace.getOpcUaNodeContext(), nodeId, browseName,
 				displayName, new LocalizedText(description), writeMask, userWriteMask, eventNotifierActive, version);
-		waldotNamespace.getStorageManager().addNode(vertex);
+		if (!bulk) {
+			waldotNamespace.getStorageManager().addNode(vertex);
+			vertex.addPropertyObserver(getIndexManager());
+		}
 		vertex.addReference(
 				new Reference(vertex.getNodeId(), NodeIds.HasTypeDefinition, typeDefinition.expanded(), true));
 		checkDirectoryParameterAndLinkNode(propertyKeyValues, vertex, folderManager.getVerticesFolderNode(),
@@ -502,9 +607,28 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 	@Override
 	public String deleteOpcNodeId(String nodeId) {
 		final NodeId nodeTargetId = MiloStrategy.getNodeIdManager().convert(waldotNamespace.getGremlinGraph(), nodeId);
-		cachedVertices.remove(nodeTargetId);
-		cachedEdges.remove(nodeTargetId);
-		return waldotNamespace.getStorageManager().removeNode(nodeTargetId).get().getNodeId().toParseableString();
+		final UaNode node = waldotNamespace.getStorageManager().get(nodeTargetId);
+		// vertici e archi sono rimossi come dal grafo, il vertice con i suoi archi
+		if (node instanceof WaldotVertex) {
+			removeVertex(nodeTargetId);
+			return nodeTargetId.toParseableString();
+		}
+		if (node instanceof WaldotEdge) {
+			removeEdge(nodeTargetId);
+			return nodeTargetId.toParseableString();
+		}
+		// le proprietà non sono nel node manager
+		if (node == null && getPropertyNode(nodeTargetId) != null) {
+			removeVertexProperty(nodeTargetId);
+			return nodeTargetId.toParseableString();
+		}
+		final OpcElementLocks locks = getElementLocks();
+		final int[] stripes = locks.lock(nodeTargetId);
+		try {
+			return waldotNamespace.getStorageManager().removeNode(nodeTargetId).get().getNodeId().toParseableString();
+		} finally {
+			locks.unlock(stripes);
+		}
 	}
 
 	@Override
@@ -512,46 +636,31 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 		logger.info("dropGraphComputerView");
 	}
 
-	private boolean edgeLabelsIsValid(String[] edgeLabels, WaldotEdge edge) {
-		if (edgeLabels == null || edgeLabels.length == 0) {
-			return true;
-		}
-		try {
-			if (edge.label() != null && !edge.label().isEmpty()) {
-				for (final String label : edgeLabels) {
-					if (edge.label().equals(label)) {
-						return true;
-					}
-				}
-			}
-			return false;
-		} catch (final Exception e) {
-			logger.error("Error checking edge labels", e);
-			return false;
-		}
-	}
-
 	@Override
 	public UaFolderNode getAssetRootFolderNode() {
 		return assetRootNode;
 	}
 
+	private UaNode getCachedElement(final NodeId nodeId) {
+		final WaldotVertex vertex = cachedVertices.get(nodeId);
+		return vertex != null ? (UaNode) vertex : (UaNode) cachedEdges.get(nodeId);
+	}
+
+	@Override
+	public int getDegree(final WaldotVertex opcVertex, final Direction direction, final String[] edgeLabels) {
+		return adjacencyIndex.getDegree(opcVertex, direction, edgeLabels);
+	}
+
 	@Override
 	public WaldotVertex getEdgeInVertex(final WaldotEdge edge) {
-		final QualifiedProperty<NodeId> target = new QualifiedProperty<NodeId>(waldotNamespace.getNamespaceUri(),
-				TARGET_NODE, MiloSingleServerBaseReferenceNodeBuilder.targetNodeTypeNode.getNodeId().expanded(),
-				ValueRanks.Scalar, NodeId.class);
-		final NodeId nodeId = edge.getProperty(target).get();
-		return (AbstractOpcVertex) waldotNamespace.getStorageManager().getNode(nodeId).get();
+		// l'arco tiene il riferimento al vertice, la proprietà TARGET_NODE resta per i client OPC UA
+		return edge.inVertex();
 	}
 
 	@Override
 	public WaldotVertex getEdgeOutVertex(final WaldotEdge edge) {
-		final QualifiedProperty<NodeId> source = new QualifiedProperty<NodeId>(waldotNamespace.getNamespaceUri(),
-				SOURCE_NODE, MiloSingleServerBaseReferenceNodeBuilder.sourceNodeTypeNode.getNodeId().expanded(),
-				ValueRanks.Scalar, NodeId.class);
-		final NodeId nodeId = edge.getProperty(source).get();
-		return (AbstractOpcVertex) waldotNamespace.getStorageManager().getNode(nodeId).get();
+		// l'arco tiene il riferimento al vertice, la proprietà SOURCE_NODE resta per i client OPC UA
+		return edge.outVertex();
 	}
 
 	@Override
@@ -570,28 +679,54 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 	@Override
 	public Map<NodeId, WaldotEdge> getEdges(final WaldotVertex opcVertex, final Direction direction,
 			final String[] edgeLabels) {
-		final Map<NodeId, WaldotEdge> result = new HashMap<>();
-		for (final WaldotEdge e : getEdges().values()) {
-			if (edgeLabelsIsValid(edgeLabels, e)) {
-				final WaldotVertex inVertex = getEdgeInVertex(e);
-				final WaldotVertex outVertex = getEdgeOutVertex(e);
-				if ((direction == Direction.OUT || direction == Direction.BOTH)
-						&& outVertex.getNodeId().equals(opcVertex.getNodeId())) {
-					result.put(e.getNodeId(), e);
-				}
-				if ((direction == Direction.IN || direction == Direction.BOTH)
-						&& inVertex.getNodeId().equals(opcVertex.getNodeId())) {
-					result.put(e.getNodeId(), e);
-				}
-			}
+		return adjacencyIndex.getEdges(opcVertex, direction, edgeLabels);
+	}
+
+	String getEdgeType(final String label, final Object[] propertyKeyValues) {
+		final String type = MiloStrategy.getKeyValuesProperty(propertyKeyValues, TYPE_FIELD.toLowerCase());
+		if (type != null && !type.isEmpty()) {
+			return type;
 		}
-		return result;
+		if (label != null && !label.isEmpty()) {
+			return label;
+		}
+		return DEFAULT_EDGE_TYPE;
+	}
+
+	private OpcElementLocks getElementLocks() {
+		return ((AbstractOpcGraph) waldotNamespace.getGremlinGraph()).getElementLocks();
+	}
+
+	/**
+	 * the gremlin properties of the element, in a map that can be persisted or
+	 * passed back to {@link #toKeyValues(NodeId, String, Map)}
+	 */
+	static Map<String, Object> getElementProperties(final Element element) {
+		final Map<String, Object> properties = new LinkedHashMap<>();
+		element.properties().forEachRemaining(property -> properties.put(property.key(), property.value()));
+		return properties;
+	}
+
+	OpcIndexManager getIndexManager() {
+		return ((AbstractOpcGraph) waldotNamespace.getGremlinGraph()).getIndexManager();
 	}
 
 	public int getLastEventId() {
 		return lastEventId.intValue();
 	}
 
+	private List<NodeId> getNeighbourhood(final NodeId vertexId) {
+		final List<IndexedEdge> incidentEdges = adjacencyIndex.getIndexedEdges(vertexId, Direction.BOTH);
+		final List<NodeId> nodeIds = new ArrayList<>(1 + incidentEdges.size() * 3);
+		nodeIds.add(vertexId);
+		for (final IndexedEdge incidentEdge : incidentEdges) {
+			nodeIds.add(incidentEdge.getEdge().getNodeId());
+			nodeIds.add(incidentEdge.getOutVertex().getNodeId());
+			nodeIds.add(incidentEdge.getInVertex().getNodeId());
+		}
+		return nodeIds;
+	}
+
 	private NodeId getOrCreateReferenceType(final String type) {
 		/*
 		 * for (final Tree<org.eclipse.milo.opcua.sdk.core.typetree.ReferenceType> r :
@@ -600,15 +735,10 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 		 * r.getValue().getBrowseName().getName().equals(type)) { return
 		 * r.getValue().getNodeId(); } }
 		 */
-		if (referenceCache.containsKey(type)) {
-			return referenceCache.get(type);
-		} else {
-			final NodeId referenceTypeNode = MiloSingleServerBaseReferenceNodeBuilder.generateReferenceTypeNode(type,
-					"is a " + type + " of ", type + " reference type", NodeIds.NonHierarchicalReferences, false, false,
-					waldotNamespace);
-			referenceCache.put(type, referenceTypeNode);
-			return referenceTypeNode;
-		}
+		// un solo nodo per tipo anche con scritture concorrenti
+		return referenceCache.computeIfAbsent(type,
+				key -> MiloSingleServerBaseReferenceNodeBuilder.generateReferenceTypeNode(key, "is a " + key + " of ",
+						key + " reference type", NodeIds.NonHierarchicalReferences, false, false, waldotNamespace));
 	}
 
 	private NodeId getParameterNodeId(final String key) {
@@ -616,63 +746,119 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 				+ PROPERTY_SPLIT_SIMBOL_IN_NODEID + key);
 	}
 
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	public <DATA_TYPE> List<WaldotProperty<DATA_TYPE>> getProperties(final WaldotEdge opcEdge) {
-		final List<WaldotProperty<DATA_TYPE>> result = new ArrayList<>();
-		for (final Reference p : opcEdge.getReferences()) {
-			if (p.isForward() && p.getReferenceTypeId()
-					.equals(MiloSingleServerBaseReferenceNodeBuilder.hasGremlinPropertyReferenceType)) {
-				result.add((WaldotProperty<DATA_TYPE>) waldotNamespace.getStorageManager()
-						.getNode(p.getTargetNodeId().toNodeId(waldotNamespace.getNamespaceTable()).get()).get());
-			}
+		return new ArrayList<>((List) opcEdge.getProperties());
+	}
+
+	@Override
+	public UaNode getPropertyNode(final NodeId nodeId) {
+		if (!(nodeId.getIdentifier() instanceof String)) {
+			return null;
+		}
+		final String identifier = (String) nodeId.getIdentifier();
+		final int split = identifier.lastIndexOf(PROPERTY_SPLIT_SIMBOL_IN_NODEID);
+		if (split < 1 || split == identifier.length() - 1) {
+			return null;
+		}
+		final UaNode element = getPropertyOwner(nodeId.getNamespaceIndex(), identifier.substring(0, split));
+		final String key = identifier.substring(split + 1);
+		final UaNode property;
+		if (element instanceof WaldotVertex) {
+			property = (UaNode) ((WaldotVertex) element).getRelatedProperty(key);
+		} else if (element instanceof WaldotEdge) {
+			property = (UaNode) ((WaldotEdge) element).getRelatedProperty(key);
+		} else {
+			return null;
 		}
-		return result;
+		return property != null && property.getNodeId().equals(nodeId) ? property : null;
 	}
 
 	@Override
-	public <DATA_TYPE> WaldotEdge getPropertyReference(final WaldotProperty<DATA_TYPE> property) {
-		for (final Reference r : property.getReferences()) {
-			if (r.getReferenceTypeId().equals(NodeIds.HasComponent) && r.isInverse()) {
-				final NodeId nodeId = r.getSourceNodeId();
-				return (OpcEdge) waldotNamespace.getStorageManager().get(nodeId);
+	public List<Reference> getPropertyNodeReferences(final NodeId nodeId) {
+		final UaNode property = getPropertyNode(nodeId);
+		if (property instanceof AbstractOpcVertexProperty) {
+			return inversePropertyReferences(nodeId,
+					((AbstractOpcVertexProperty<?>) property).getReferenceVertex().getNodeId());
+		}
+		if (property instanceof AbstractOpcProperty) {
+			return inversePropertyReferences(nodeId, ((AbstractOpcProperty<?>) property).getReferenceEdge().getNodeId());
+		}
+		final List<Reference> references = new ArrayList<>();
+		final WaldotVertex vertex = cachedVertices.get(nodeId);
+		if (vertex != null) {
+			for (final WaldotVertexProperty<Object> vertexProperty : vertex.getVertexProperties().values()) {
+				addPropertyReferences(references, nodeId, ((UaNode) vertexProperty).getNodeId());
+			}
+			return references;
+		}
+		final WaldotEdge edge = cachedEdges.get(nodeId);
+		if (edge != null) {
+			for (final WaldotProperty<Object> edgeProperty : edge.getProperties()) {
+				addPropertyReferences(references, nodeId, ((UaNode) edgeProperty).getNodeId());
+			}
+		}
+		return references;
+	}
+
+	/**
+	 * the vertex or edge of a property node. The identifier of the element is
+	 * written as text in the NodeId of the property, so a numeric or UUID NodeId
+	 * of the element is tried after the string one.
+	 */
+	private UaNode getPropertyOwner(final UShort namespaceIndex, final String identifier) {
+		final UaNode element = getCachedElement(new NodeId(namespaceIndex, identifier));
+		if (element != null) {
+			return element;
+		}
+		final Long number = Longs.tryParse(identifier);
+		if (number != null && number >= 0 && number <= UInteger.MAX_VALUE) {
+			final UaNode numeric = getCachedElement(new NodeId(namespaceIndex, UInteger.valueOf(number)));
+			if (numeric != null) {
+				return numeric;
+			}
+		}
+		if (identifier.length() == 36) {
+			try {
+				return getCachedElement(new NodeId(namespaceIndex, UUID.fromString(identifier)));
+			} catch (final IllegalArgumentException e) {
+				return null;
 			}
 		}
 		return null;
 	}
 
+	@Override
+	public <DATA_TYPE> WaldotEdge getPropertyReference(final WaldotProperty<DATA_TYPE> property) {
+		// l'arco è tenuto dalla proprietà, il nodo non ha riferimenti nel node manager
+		return property instanceof AbstractOpcProperty ? ((AbstractOpcProperty<DATA_TYPE>) property).getReferenceEdge()
+				: null;
+	}
+
 	@Override
 	public UaFolderNode getRootFolderNode() {
 		return rootNode;
 	}
 
-	@SuppressWarnings("unchecked")
+	private OpcTransactionContext getTransactionContext() {
+		final WaldotGraph graph = waldotNamespace.getGremlinGraph();
+		return graph instanceof OpcGraph ? ((OpcGraph) graph).getTransactionContext() : null;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	public <DATA_TYPE> Map<String, WaldotVertexProperty<DATA_TYPE>> getVertexProperties(final WaldotVertex opcVertex) {
-		final Map<String, WaldotVertexProperty<DATA_TYPE>> result = new HashMap<>();
-		for (final Reference p : opcVertex.getReferences()) {
-			if (p.isForward() && p.getReferenceTypeId()
-					.equals(MiloSingleServerBaseReferenceNodeBuilder.hasGremlinPropertyReferenceType)) {
-				final UaNode node = waldotNamespace.getStorageManager()
-						.getNode(p.getTargetNodeId().toNodeId(waldotNamespace.getNamespaceTable()).get()).get();
-				if (node instanceof WaldotVertexProperty) {
-					result.put(node.getBrowseName().getName(), (WaldotVertexProperty<DATA_TYPE>) node);
-				}
-			}
-		}
-		return result;
+		return new HashMap<>((Map) opcVertex.getVertexProperties());
 	}
 
 	@Override
 	public <DATA_TYPE> WaldotVertex getVertexPropertyReference(
 			final WaldotVertexProperty<DATA_TYPE> opcVertexProperty) {
-		for (final Reference r : opcVertexProperty.getReferences()) {
-			if (r.getReferenceTypeId().equals(NodeIds.HasComponent) && r.isInverse()) {
-				final NodeId nodeId = r.getSourceNodeId();
-				return (AbstractOpcVertex) waldotNamespace.getStorageManager().get(nodeId);
-			}
-		}
-		return null;
+		// il vertice è tenuto dalla proprietà, il nodo non ha riferimenti nel node manager
+		return opcVertexProperty instanceof AbstractOpcVertexProperty
+				? ((AbstractOpcVertexProperty<DATA_TYPE>) opcVertexProperty).getReferenceVertex()
+				: null;
 	}
 
 	private NodeId getVertexTypeNode(final Object[] propertyKeyValues) {
@@ -710,22 +896,7 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 	@Override
 	public Map<NodeId, WaldotVertex> getVertices(final WaldotVertex opcVertex, final Direction direction,
 			final String[] edgeLabels) {
-		final Map<NodeId, WaldotVertex> result = new HashMap<>();
-		for (final WaldotEdge e : getEdges().values()) {
-			if (edgeLabelsIsValid(edgeLabels, e)) {
-				final WaldotVertex inVertex = getEdgeInVertex(e);
-				final WaldotVertex outVertex = getEdgeOutVertex(e);
-				if ((direction == Direction.OUT || direction == Direction.BOTH)
-						&& outVertex.getNodeId().equals(opcVertex.getNodeId())) {
-					result.put(inVertex.getNodeId(), inVertex);
-				}
-				if ((direction == Direction.IN || direction == Direction.BOTH)
-						&& inVertex.getNodeId().equals(opcVertex.getNodeId())) {
-					result.put(outVertex.getNodeId(), outVertex);
-				}
-			}
-		}
-		return result;
+		return adjacencyIndex.getVertices(opcVertex, direction, edgeLabels);
 	}
 
 	@Override
@@ -736,6 +907,8 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 	@Override
 	public WaldotNamespace initialize(final WaldotNamespace waldotNamespace) {
 		this.waldotNamespace = waldotNamespace;
+		// i gradi dei vertici alimentano le statistiche del grafo
+		adjacencyIndex.setStatistics(getIndexManager().getStatistics());
 		MiloSingleServerBaseReferenceNodeBuilder.generateRefereceNodes(this);
 		waldotNamespace.getOpcuaServer().updateReferenceTypeTree();
 		rootNode = new UaFolderNode(waldotNamespace.getOpcUaNodeContext(),
@@ -764,10 +937,31 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 		interfaceRootNode.addReference(new Reference(interfaceRootNode.getNodeId(), NodeIds.Organizes,
 				NodeIds.ObjectsFolder.expanded(), false));
 		folderManager.initialize();
+		elementCommands.initialize();
+		final String persistenceDirectory = waldotNamespace.getConfiguration().getPersistenceDirectory();
+		if (persistenceDirectory != null && !persistenceDirectory.isEmpty()) {
+			try {
+				persistence = new MiloSingleServerBasePersistence(this, Path.of(persistenceDirectory),
+						waldotNamespace.getConfiguration().getPersistenceSnapshotIntervalMs());
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
 		return waldotNamespace;
 	}
 
-	private void linkCommandDirectoryStructure(AbstractOpcCommand command) {
+	/**
+	 * the inverse references from the node of a property to its element
+	 */
+	private static List<Reference> inversePropertyReferences(final NodeId propertyId, final NodeId elementId) {
+		final List<Reference> references = new ArrayList<>(2);
+		references.add(new Reference(propertyId, NodeIds.HasComponent, elementId.expanded(), false));
+		references.add(new Reference(propertyId, MiloSingleServerBaseReferenceNodeBuilder.hasGremlinPropertyReferenceType,
+				elementId.expanded(), false));
+		return references;
+	}
+
+	private synchronized void linkCommandDirectoryStructure(AbstractOpcCommand command) {
 		final Map<String, UaFolderNode> commandDirectories = folderManager.getCommandDirectories();
 		if (!commandDirectories.containsKey(command.getDirectory())) {
 			final String[] components = command.getDirectory().split(DIRECTORY_SPLIT_SIMBOL);
@@ -800,6 +994,20 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 
 	}
 
+	/**
+	 * locks the vertex with its incident edges and neighbours, retrying if an
+	 * edge is added to the vertex while the stripes are taken
+	 */
+	private int[] lockNeighbourhood(final OpcElementLocks locks, final NodeId vertexId) {
+		while (true) {
+			final int[] stripes = locks.lock(getNeighbourhood(vertexId));
+			if (locks.isLocked(getNeighbourhood(vertexId))) {
+				return stripes;
+			}
+			locks.unlock(stripes);
+		}
+	}
+
 	@Override
 	public Object namespaceParametersGet(final String key) {
 		if (waldotNamespace.hasNodeId(getParameterNodeId(key))) {
@@ -857,6 +1065,16 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 		return opcGraphVariables;
 	}
 
+	/**
+	 * delivers the plugin notification at the commit of the open transaction or
+	 * immediately
+	 */
+	private void notifyPlugin(final Runnable notification) {
+		if (!waldotNamespace.getGremlinGraph().deferNotification(null, notification)) {
+			notification.run();
+		}
+	}
+
 	private void popolateEdgePropertiesFromPropertyKeyValues(final Object[] propertyKeyValues, final OpcEdge edge) {
 		for (int i = 0; i < propertyKeyValues.length; i = i + 2) {
 			if (propertyKeyValues[i] instanceof String && propertyKeyValues[i] != null) {
@@ -874,6 +1092,97 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 		}
 	}
 
+	/**
+	 * publishes a batch of the {@link MiloSingleServerBaseBulkLoader}: the nodes,
+	 * the caches, the adjacency index and the secondary indexes are updated at the
+	 * flush, before it the elements of the batch are not visible. An edge whose
+	 * vertex was removed while the batch was open is discarded.
+	 *
+	 * @return the published edges
+	 */
+	List<WaldotEdge> publishBulk(final List<WaldotVertex> vertices, final List<WaldotEdge> edges) {
+		final OpcElementLocks locks = getElementLocks();
+		for (final WaldotVertex vertex : vertices) {
+			final int[] stripes = locks.lock(vertex.getNodeId());
+			try {
+				waldotNamespace.getStorageManager().addNode((UaNode) vertex);
+				publishVertex(vertex);
+			} finally {
+				locks.unlock(stripes);
+			}
+		}
+		final List<WaldotEdge> publishedEdges = new ArrayList<>(edges.size());
+		for (final WaldotEdge edge : edges) {
+			final WaldotVertex sourceVertex = (WaldotVertex) edge.outVertex();
+			final WaldotVertex targetVertex = (WaldotVertex) edge.inVertex();
+			final int[] stripes = locks.lock(sourceVertex.getNodeId(), targetVertex.getNodeId(), edge.getNodeId());
+			try {
+				if (sourceVertex.isRemoved() || cachedVertices.get(sourceVertex.getNodeId()) != sourceVertex
+						|| targetVertex.isRemoved() || cachedVertices.get(targetVertex.getNodeId()) != targetVertex) {
+					logger.warn("edge {} discarded, one of its vertices has been removed", edge.getNodeId());
+					edge.removeRelatedOpcUaNodes();
+					elementCommands.unlink((GremlinElement) edge);
+					((GremlinElement) edge).setRemoved();
+					((UaNode) edge).delete();
+					continue;
+				}
+				waldotNamespace.getStorageManager().addNode((UaNode) edge);
+				publishEdge(edge, sourceVertex, targetVertex);
+				publishedEdges.add(edge);
+			} finally {
+				locks.unlock(stripes);
+			}
+		}
+		final OpcIndexManager indexManager = getIndexManager();
+		indexManager.addElements(Vertex.class, vertices);
+		indexManager.addElements(Edge.class, publishedEdges);
+		// l'observer è registrato dopo la popolazione degli indici
+		vertices.forEach(vertex -> vertex.addPropertyObserver(indexManager));
+		publishedEdges.forEach(edge -> edge.addPropertyObserver(indexManager));
+		return publishedEdges;
+	}
+
+	/**
+	 * makes a new edge visible to the traversals, the node is already in the
+	 * node manager
+	 */
+	private void publishEdge(final WaldotEdge edge, final WaldotVertex sourceVertex, final WaldotVertex targetVertex) {
+		final NodeId nodeId = edge.getNodeId();
+		adjacencyIndex.addEdge(edge, edge.label(), sourceVertex, targetVertex);
+		cachedEdges.put(nodeId, edge);
+		if (persistence != null) {
+			persistence.edgeAdded(edge, sourceVertex, targetVertex);
+		}
+		final OpcTransactionContext transaction = getTransactionContext();
+		if (transaction != null) {
+			transaction.addUndo(() -> {
+				if (cachedEdges.containsKey(nodeId)) {
+					removeEdge(nodeId);
+				}
+			});
+		}
+	}
+
+	/**
+	 * makes a new vertex visible to the traversals, the node is already in the
+	 * node manager
+	 */
+	private void publishVertex(final WaldotVertex vertex) {
+		final NodeId nodeId = vertex.getNodeId();
+		cachedVertices.put(nodeId, vertex);
+		if (persistence != null) {
+			persistence.vertexAdded(vertex);
+		}
+		final OpcTransactionContext transaction = getTransactionContext();
+		if (transaction != null) {
+			transaction.addUndo(() -> {
+				if (cachedVertices.containsKey(nodeId)) {
+					removeVertex(nodeId);
+				}
+			});
+		}
+	}
+
 	@Override
 	public void registerCommand(final WaldotCommand command) {
 		linkCommandDirectoryStructure((AbstractOpcCommand) command);
@@ -886,27 +1195,83 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 
 	@Override
 	public void removeEdge(final NodeId nodeId) {
-		final UaNode node = waldotNamespace.getStorageManager().getNode(nodeId).get();
-		if (!(node instanceof WaldotEdge)) {
-			logger.warn("NodeId {} is not an edge", nodeId);
-			return;
-		} else {
-			final QualifiedProperty<String> typeProperty = new QualifiedProperty<String>(
-					waldotNamespace.getNamespaceUri(), TYPE_FIELD,
-					MiloSingleServerBaseReferenceNodeBuilder.labelEdgeTypeNode.getNodeId().expanded(),
-					ValueRanks.Scalar, String.class);
-			final WaldotEdge edge = (WaldotEdge) node;
-			final String type = edge.getProperty(typeProperty).get();
-			edge.removeRelatedOpcUaNodes();
-			for (final PluginListener p : waldotNamespace.getPlugins()) {
-				if (p.containsEdgeType(type)) {
-					p.notifyRemoveEdge(edge);
+		// gli estremi si leggono dall'indice, dopo la rimozione del vertice restano già bloccati
+		final IndexedEdge indexedEdge = adjacencyIndex.getEdge(nodeId);
+		final OpcElementLocks locks = getElementLocks();
+		final int[] stripes = indexedEdge == null ? locks.lock(nodeId)
+				: locks.lock(nodeId, indexedEdge.getOutVertex().getNodeId(), indexedEdge.getInVertex().getNodeId());
+		try {
+			final UaNode node = waldotNamespace.getStorageManager().get(nodeId);
+			if (!(node instanceof WaldotEdge)) {
+				logger.warn("NodeId {} is not an edge", nodeId);
+				return;
+			} else {
+				final QualifiedProperty<String> typeProperty = new QualifiedProperty<String>(
+						waldotNamespace.getNamespaceUri(), TYPE_FIELD,
+						MiloSingleServerBaseReferenceNodeBuilder.labelEdgeTypeNode.getNodeId().expanded(),
+						ValueRanks.Scalar, String.class);
+				final WaldotEdge edge = (WaldotEdge) node;
+				final String type = edge.getProperty(typeProperty).get();
+				final OpcTransactionContext transaction = getTransactionContext();
+				if (transaction != null) {
+					final NodeId sourceId = edge.outVertex().getNodeId();
+					final NodeId targetId = edge.inVertex().getNodeId();
+					final String label = edge.label();
+					final Object[] keyValues = toKeyValues(nodeId, label, getElementProperties(edge));
+					transaction.addUndo(() -> {
+						final UaNode source = waldotNamespace.getStorageManager().get(sourceId);
+						final UaNode target = waldotNamespace.getStorageManager().get(targetId);
+						if (source instanceof WaldotVertex && target instanceof WaldotVertex) {
+							addEdge((WaldotVertex) source, (WaldotVertex) target, label, keyValues);
+						}
+					});
 				}
+				edge.removeRelatedOpcUaNodes();
+				elementCommands.unlink((GremlinElement) edge);
+				for (final PluginListener p : waldotNamespace.getPlugins()) {
+					if (p.containsEdgeType(type)) {
+						notifyPlugin(() -> p.notifyRemoveEdge(edge));
+					}
+				}
+				((GremlinElement) edge).setRemoved();
+			}
+			waldotNamespace.getStorageManager().removeNode(nodeId);
+			adjacencyIndex.removeEdge(nodeId);
+			getIndexManager().removeElement((WaldotEdge) node);
+			cachedEdges.remove(nodeId);
+			node.delete();
+			if (persistence != null) {
+				persistence.edgeRemoved(nodeId);
+			}
+		} finally {
+			locks.unlock(stripes);
+		}
+	}
+
+	/**
+	 * removes the property of an edge, also the undo of its creation. The
+	 * properties of a removed edge have gone with its property table.
+	 */
+	private void removeEdgeProperty(final NodeId edgeId, final String key) {
+		final NodeId nodeId = waldotNamespace
+				.generateNodeId(edgeId.getIdentifier().toString() + PROPERTY_SPLIT_SIMBOL_IN_NODEID + key);
+		final OpcElementLocks locks = getElementLocks();
+		final int[] stripes = locks.lock(edgeId);
+		try {
+			final WaldotEdge edge = cachedEdges.get(edgeId);
+			final WaldotProperty<Object> property = edge == null ? null : edge.getRelatedProperty(key);
+			if (property == null) {
+				return;
+			}
+			getIndexManager().removeProperty(edge, key);
+			edge.removeRelatedProperty(property);
+			((UaNode) property).delete();
+			if (persistence != null) {
+				persistence.vertexPropertyRemoved(nodeId);
 			}
+		} finally {
+			locks.unlock(stripes);
 		}
-		waldotNamespace.getStorageManager().removeNode(nodeId);
-		cachedEdges.remove(nodeId);
-		node.delete();
 	}
 
 	@Override
@@ -916,25 +1281,96 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 
 	@Override
 	public void removeVertex(final NodeId nodeId) {
-		final UaNode node = waldotNamespace.getStorageManager().getNode(nodeId).get();
-		if (!(node instanceof WaldotVertex)) {
-			logger.warn("NodeId {} is not a vertex", nodeId);
-			return;
-		} else {
-			((WaldotVertex) node).notifyRemoveVertex();
-			((WaldotVertex) node).removeRelatedOpcUaNodes();
+		final OpcElementLocks locks = getElementLocks();
+		final int[] stripes = lockNeighbourhood(locks, nodeId);
+		try {
+			final UaNode node = waldotNamespace.getStorageManager().get(nodeId);
+			final OpcTransactionContext transaction = getTransactionContext();
+			Object[] restoreKeyValues = null;
+			if (!(node instanceof WaldotVertex)) {
+				logger.warn("NodeId {} is not a vertex", nodeId);
+				return;
+			} else {
+				if (transaction != null) {
+					restoreKeyValues = toKeyValues(nodeId, ((WaldotVertex) node).label(),
+							getElementProperties((WaldotVertex) node));
+				}
+				((WaldotVertex) node).notifyRemoveVertex();
+				((WaldotVertex) node).removeRelatedOpcUaNodes();
+				elementCommands.unlink((GremlinElement) node);
+				((GremlinElement) node).setRemoved();
+			}
+			for (final IndexedEdge incidentEdge : adjacencyIndex.removeVertex(nodeId)) {
+				try {
+					incidentEdge.getEdge().remove();
+				} catch (final Exception e) {
+					logger.error("Error removing edge {} of vertex {}: {}", incidentEdge.getEdge().getNodeId(), nodeId,
+							e.getMessage());
+				}
+			}
+			waldotNamespace.getStorageManager().removeNode(nodeId);
+			getIndexManager().removeElement((WaldotVertex) node);
+			cachedVertices.remove(nodeId);
+			node.delete();
+			if (persistence != null) {
+				persistence.vertexRemoved(nodeId);
+			}
+			waldotNamespace.getHistoryStrategy().onVertexRemoved(nodeId);
+			if (transaction != null) {
+				// registrato dopo gli archi: al rollback il vertice torna per primo
+				final Object[] keyValues = restoreKeyValues;
+				transaction.addUndo(() -> addVertex(nodeId, keyValues));
+			}
+			logger.info("Vertex with NodeId {} removed", nodeId);
+		} finally {
+			locks.unlock(stripes);
 		}
-		waldotNamespace.getStorageManager().removeNode(nodeId);
-		cachedVertices.remove(nodeId);
-		node.delete();
-		logger.info("Vertex with NodeId {} removed", nodeId);
 	}
 
 	@Override
 	public void removeVertexProperty(final NodeId nodeId) {
-		final UaNode node = waldotNamespace.getStorageManager().getNode(nodeId).get();
-		waldotNamespace.getStorageManager().removeNode(nodeId);
-		node.delete();
+		final UaNode node = getPropertyNode(nodeId);
+		if (node instanceof OpcProperty) {
+			// proprietà di un arco, anche dal ripristino del log
+			final OpcProperty<?> property = (OpcProperty<?>) node;
+			removeEdgeProperty(property.getReferenceEdge().getNodeId(), property.key());
+			return;
+		}
+		if (!(node instanceof AbstractOpcVertexProperty)) {
+			logger.warn("NodeId {} is not a property", nodeId);
+			return;
+		}
+		final AbstractOpcVertexProperty<?> property = (AbstractOpcVertexProperty<?>) node;
+		final WaldotVertex vertex = property.getReferenceVertex();
+		// la proprietà si modifica con il lock del vertice
+		final OpcElementLocks locks = getElementLocks();
+		final int[] stripes = locks.lock(vertex.getNodeId());
+		try {
+			if (vertex.getRelatedProperty(property.key()) != property) {
+				// già rimossa o sostituita da un'altra scrittura
+				return;
+			}
+			final OpcTransactionContext transaction = getTransactionContext();
+			if (transaction != null) {
+				final NodeId vertexId = vertex.getNodeId();
+				final String key = property.key();
+				final Object value = property.value();
+				transaction.addUndo(() -> {
+					final UaNode restored = waldotNamespace.getStorageManager().get(vertexId);
+					if (restored instanceof WaldotVertex) {
+						createOrUpdateWaldotVertexProperty((WaldotVertex) restored, key, value);
+					}
+				});
+			}
+			getIndexManager().removeProperty(vertex, property.key());
+			vertex.removeRelatedProperty(property);
+			node.delete();
+			if (persistence != null) {
+				persistence.vertexPropertyRemoved(nodeId);
+			}
+		} finally {
+			locks.unlock(stripes);
+		}
 	}
 
 	@Override
@@ -944,6 +1380,29 @@ public class MiloSingleServerBaseStrategy implements MiloStrategy {
 
 	}
 
+	@Override
+	public boolean restorePersistedGraph() {
+		return persistence != null && persistence.restore();
+	}
+
+	/**
+	 * the key-values that recreate an element with the same NodeId, label and
+	 * properties
+	 */
+	static Object[] toKeyValues(final NodeId nodeId, final String label, final Map<String, Object> properties) {
+		final Object[] keyValues = new Object[4 + properties.size() * 2];
+		keyValues[0] = T.id;
+		keyValues[1] = nodeId;
+		keyValues[2] = T.label;
+		keyValues[3] = label;
+		int i = 4;
+		for (final Map.Entry<String, Object> property : properties.entrySet()) {
+			keyValues[i++] = property.getKey();
+			keyValues[i++] = property.getValue();
+		}
+		return keyValues;
+	}
+
 	@Override
 	public void updateEventGenerator(final Node sourceNode, String eventName, String eventDisplayName, String message,
 			int severity) {
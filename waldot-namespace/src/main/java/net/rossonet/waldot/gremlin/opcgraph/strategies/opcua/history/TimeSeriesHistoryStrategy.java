@@ -0,0 +1,370 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.milo.opcua.sdk.server.AddressSpace.HistoryReadContext;
+import org.eclipse.milo.opcua.sdk.server.AddressSpace.HistoryUpdateContext;
+import org.eclipse.milo.opcua.sdk.server.items.DataItem;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.ExtensionObject;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.PerformUpdateType;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryData;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryUpdateDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryUpdateResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadAtTimeDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadProcessedDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.ReadRawModifiedDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.UpdateDataDetails;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rossonet.waldot.api.annotation.WaldotHistoryStrategy;
+import net.rossonet.waldot.api.models.WaldotNamespace;
+import net.rossonet.waldot.api.strategies.HistoryStrategy;
+import net.rossonet.waldot.api.strategies.MiloStrategy;
+import net.rossonet.waldot.configuration.DefaultHomunculusConfiguration;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries.Sample;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries.TimeSeriesAggregate;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries.TimeSeriesPolicy;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries.TimeSeriesStore;
+import net.rossonet.waldot.opc.AbstractOpcVertex;
+
+/**
+ * History strategy that keeps the values of the historized properties in an
+ * embedded {@link TimeSeriesStore}, one series for every property node.
+ *
+ * The samples are registered by the vertices when a property with history
+ * enabled changes, the data context is not used; the monitored items sample
+ * the same values, so they do not add samples. The OPC UA HistoryRead service
+ * is answered for raw, processed (average, minimum, maximum, count, start,
+ * end, total) and at time reads. HistoryUpdate supports only the insert of
+ * new values, the stored samples can not be replaced or removed. The inserts
+ * are written synchronously, after the samples still queued, so a duplicate
+ * time is always detected.
+ */
+@WaldotHistoryStrategy
+public class TimeSeriesHistoryStrategy implements HistoryStrategy {
+
+	private static final Map<NodeId, TimeSeriesAggregate> AGGREGATES = Map.of(NodeIds.AggregateFunction_Average,
+			TimeSeriesAggregate.AVERAGE, NodeIds.AggregateFunction_Count, TimeSeriesAggregate.COUNT,
+			NodeIds.AggregateFunction_End, TimeSeriesAggregate.END, NodeIds.AggregateFunction_Maximum,
+			TimeSeriesAggregate.MAXIMUM, NodeIds.AggregateFunction_Minimum, TimeSeriesAggregate.MINIMUM,
+			NodeIds.AggregateFunction_Start, TimeSeriesAggregate.START, NodeIds.AggregateFunction_Total,
+			TimeSeriesAggregate.TOTAL);
+
+	private static HistoryReadResult badResult(final long statusCode) {
+		return new HistoryReadResult(new StatusCode(statusCode), null, null);
+	}
+
+	private static int continuationOffset(final HistoryReadValueId readValueId) {
+		final ByteString continuationPoint = readValueId.getContinuationPoint();
+		if (continuationPoint == null || continuationPoint.isNull() || continuationPoint.length() != Integer.BYTES) {
+			return 0;
+		}
+		return ByteBuffer.wrap(continuationPoint.bytesOrEmpty()).getInt();
+	}
+
+	private static ByteString continuationPoint(final int offset) {
+		return ByteString.of(ByteBuffer.allocate(Integer.BYTES).putInt(offset).array());
+	}
+
+	private static boolean isUnspecified(final DateTime time) {
+		return time == null || time.getUtcTime() <= 0;
+	}
+
+	private static long toMillis(final DataValue dataValue) {
+		if (dataValue.getSourceTime() != null && !isUnspecified(dataValue.getSourceTime())) {
+			return dataValue.getSourceTime().getJavaTime();
+		}
+		if (dataValue.getServerTime() != null && !isUnspecified(dataValue.getServerTime())) {
+			return dataValue.getServerTime().getJavaTime();
+		}
+		return System.currentTimeMillis();
+	}
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private WaldotNamespace namespace;
+
+	private final Map<NodeId, Map<String, String>> seriesKeys = new ConcurrentHashMap<>();
+
+	private final TimeSeriesStore store;
+
+	public TimeSeriesHistoryStrategy() {
+		try {
+			store = new TimeSeriesStore(Path.of(DefaultHomunculusConfiguration.DEFAULT_HISTORY_DIRECTORY),
+					TimeSeriesPolicy.defaultPolicy());
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public TimeSeriesHistoryStrategy(final Path directory, final TimeSeriesPolicy policy) throws IOException {
+		store = new TimeSeriesStore(directory, policy);
+	}
+
+	@Override
+	public void close() throws Exception {
+		logger.info("Closing TimeSeriesHistoryStrategy");
+		store.close();
+	}
+
+	private DataValue dataValue(final Sample sample, final long time, final TimestampsToReturn timestamps) {
+		final DateTime dateTime = new DateTime(Instant.ofEpochMilli(time));
+		final DateTime source = timestamps == TimestampsToReturn.Server || timestamps == TimestampsToReturn.Neither
+				? null
+				: dateTime;
+		final DateTime server = timestamps == TimestampsToReturn.Server || timestamps == TimestampsToReturn.Both
+				? dateTime
+				: null;
+		return new DataValue(new Variant(sample.getValue()), new StatusCode(sample.getStatus() & 0xFFFFFFFFL), source,
+				server);
+	}
+
+	private HistoryReadResult dataResult(final List<DataValue> values, final ByteString continuationPoint) {
+		final HistoryData historyData = new HistoryData(values.toArray(new DataValue[0]));
+		return new HistoryReadResult(values.isEmpty() ? new StatusCode(StatusCodes.Good_NoData) : StatusCode.GOOD,
+				continuationPoint,
+				ExtensionObject.encode(namespace.getOpcuaServer().getServer().getStaticEncodingContext(), historyData));
+	}
+
+	public TimeSeriesStore getStore() {
+		return store;
+	}
+
+	@Override
+	public List<HistoryReadResult> historyRead(final HistoryReadContext context, final HistoryReadDetails readDetails,
+			final TimestampsToReturn timestamps, final List<HistoryReadValueId> readValueIds) {
+		final List<HistoryReadResult> results = new ArrayList<>(readValueIds.size());
+		for (final HistoryReadValueId readValueId : readValueIds) {
+			try {
+				results.add(historyRead(readDetails, timestamps, readValueId));
+			} catch (final Exception e) {
+				logger.warn("HistoryRead of {} failed", readValueId.getNodeId(), e);
+				results.add(badResult(StatusCodes.Bad_InternalError));
+			}
+		}
+		return results;
+	}
+
+	private HistoryReadResult historyRead(final HistoryReadDetails readDetails, final TimestampsToReturn timestamps,
+			final HistoryReadValueId readValueId) {
+		// the nodes without samples answer with Good_NoData
+		final String key = readValueId.getNodeId().toParseableString();
+		if (readDetails instanceof ReadRawModifiedDetails) {
+			return readRaw(key, (ReadRawModifiedDetails) readDetails, timestamps, readValueId);
+		} else if (readDetails instanceof ReadProcessedDetails) {
+			return readProcessed(key, (ReadProcessedDetails) readDetails, timestamps);
+		} else if (readDetails instanceof ReadAtTimeDetails) {
+			return readAtTime(key, (ReadAtTimeDetails) readDetails, timestamps);
+		} else {
+			return badResult(StatusCodes.Bad_HistoryOperationUnsupported);
+		}
+	}
+
+	@Override
+	public List<HistoryUpdateResult> historyUpdate(final HistoryUpdateContext context,
+			final List<HistoryUpdateDetails> updateDetails) {
+		final List<HistoryUpdateResult> results = new ArrayList<>(updateDetails.size());
+		for (final HistoryUpdateDetails details : updateDetails) {
+			if (details instanceof UpdateDataDetails
+					&& ((UpdateDataDetails) details).getPerformInsertReplace() == PerformUpdateType.Insert) {
+				results.add(insert((UpdateDataDetails) details));
+			} else {
+				logger.debug("HistoryUpdate {} of {} not supported", details.getClass().getSimpleName(),
+						details.getNodeId());
+				results.add(new HistoryUpdateResult(new StatusCode(StatusCodes.Bad_HistoryOperationUnsupported),
+						null, null));
+			}
+		}
+		return results;
+	}
+
+	private HistoryUpdateResult insert(final UpdateDataDetails details) {
+		final DataValue[] updateValues = details.getUpdateValues();
+		if (updateValues == null || updateValues.length == 0) {
+			return new HistoryUpdateResult(new StatusCode(StatusCodes.Bad_InvalidArgument), null, null);
+		}
+		final String key = details.getNodeId().toParseableString();
+		final StatusCode[] operationResults = new StatusCode[updateValues.length];
+		for (int i = 0; i < updateValues.length; i++) {
+			final DataValue dataValue = updateValues[i];
+			if (dataValue == null || dataValue.getValue() == null || dataValue.getValue().isNull()) {
+				operationResults[i] = new StatusCode(StatusCodes.Bad_InvalidArgument);
+				continue;
+			}
+			final long time = toMillis(dataValue);
+			final int status = dataValue.getStatusCode() == null ? 0 : (int) dataValue.getStatusCode().getValue();
+			// scritto dal thread del writer dopo i campioni in coda, il controllo dei duplicati li vede tutti
+			try {
+				operationResults[i] = new StatusCode(
+						store.insert(key, time, dataValue.getValue().getValue(), status) ? StatusCodes.Good_EntryInserted
+								: StatusCodes.Bad_EntryExists);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				operationResults[i] = new StatusCode(StatusCodes.Bad_ResourceUnavailable);
+			} catch (final Exception e) {
+				logger.warn("HistoryUpdate insert in {} failed", key, e);
+				operationResults[i] = new StatusCode(StatusCodes.Bad_ResourceUnavailable);
+			}
+		}
+		return new HistoryUpdateResult(StatusCode.GOOD, operationResults, null);
+	}
+
+	@Override
+	public void onDataItemsCreated(final List<DataItem> dataItems) {
+		logger.debug("onDataItemsCreated called with {} dataItems", dataItems.size());
+	}
+
+	@Override
+	public void onDataItemsDeleted(final List<DataItem> dataItems) {
+		logger.debug("onDataItemsDeleted called with {} dataItems", dataItems.size());
+	}
+
+	@Override
+	public void onDataItemsModified(final List<DataItem> dataItems) {
+		logger.debug("onDataItemsModified called with {} dataItems", dataItems.size());
+	}
+
+	@Override
+	public void onVertexRemoved(final NodeId vertexId) {
+		// le serie restano nello store fino alla retention
+		seriesKeys.remove(vertexId);
+	}
+
+	@Override
+	public void opcuaUpdateEvent(final UaNode sourceNode) {
+		logger.debug("opcuaUpdateEvent called for node {}", sourceNode.getBrowseName().getName());
+	}
+
+	private HistoryReadResult readAtTime(final String key, final ReadAtTimeDetails details,
+			final TimestampsToReturn timestamps) {
+		final DateTime[] requestedTimes = details.getReqTimes();
+		if (requestedTimes == null || requestedTimes.length == 0) {
+			return badResult(StatusCodes.Bad_InvalidArgument);
+		}
+		final List<DataValue> values = new ArrayList<>(requestedTimes.length);
+		for (final DateTime requestedTime : requestedTimes) {
+			final long time = requestedTime.getJavaTime();
+			final Sample sample = store.valueAt(key, time);
+			if (sample == null) {
+				values.add(new DataValue(Variant.NULL_VALUE, new StatusCode(StatusCodes.Bad_NoData), null,
+						new DateTime(Instant.ofEpochMilli(time))));
+			} else {
+				// stepped interpolation, the value is returned at the requested time
+				values.add(dataValue(sample, time, timestamps));
+			}
+		}
+		return dataResult(values, null);
+	}
+
+	private HistoryReadResult readProcessed(final String key, final ReadProcessedDetails details,
+			final TimestampsToReturn timestamps) {
+		final NodeId[] aggregateTypes = details.getAggregateType();
+		if (aggregateTypes == null || aggregateTypes.length != 1 || !AGGREGATES.containsKey(aggregateTypes[0])) {
+			return badResult(StatusCodes.Bad_AggregateNotSupported);
+		}
+		if (isUnspecified(details.getStartTime()) || isUnspecified(details.getEndTime())) {
+			return badResult(StatusCodes.Bad_InvalidArgument);
+		}
+		final TimeSeriesAggregate aggregate = AGGREGATES.get(aggregateTypes[0]);
+		final long start = Math.min(details.getStartTime().getJavaTime(), details.getEndTime().getJavaTime());
+		final long end = Math.max(details.getStartTime().getJavaTime(), details.getEndTime().getJavaTime());
+		final long interval = details.getProcessingInterval() == null || details.getProcessingInterval() < 1
+				? Math.max(1, end - start)
+				: details.getProcessingInterval().longValue();
+		final List<Sample> samples = store.read(key, start, end);
+		final List<DataValue> values = new ArrayList<>();
+		int index = 0;
+		long intervalStart = start;
+		do {
+			final long intervalEnd = Math.min(end, intervalStart + interval);
+			final List<Sample> intervalSamples = new ArrayList<>();
+			// the last interval includes the end time
+			while (index < samples.size() && (samples.get(index).getTime() < intervalEnd
+					|| (intervalEnd == end && samples.get(index).getTime() == end))) {
+				intervalSamples.add(samples.get(index++));
+			}
+			final Object value = aggregate.compute(intervalSamples);
+			if (value == null) {
+				values.add(new DataValue(Variant.NULL_VALUE, new StatusCode(StatusCodes.Bad_NoData),
+						new DateTime(Instant.ofEpochMilli(intervalStart)), null));
+			} else {
+				values.add(dataValue(new Sample(intervalStart, value, (int) StatusCodes.Good), intervalStart,
+						timestamps));
+			}
+			intervalStart = intervalEnd;
+		} while (intervalStart < end);
+		return dataResult(values, null);
+	}
+
+	private HistoryReadResult readRaw(final String key, final ReadRawModifiedDetails details,
+			final TimestampsToReturn timestamps, final HistoryReadValueId readValueId) {
+		if (details.getIsReadModified()) {
+			return badResult(StatusCodes.Bad_HistoryOperationUnsupported);
+		}
+		final boolean noStart = isUnspecified(details.getStartTime());
+		final boolean noEnd = isUnspecified(details.getEndTime());
+		if (noStart && noEnd) {
+			return badResult(StatusCodes.Bad_InvalidArgument);
+		}
+		final long startTime = noStart ? Long.MIN_VALUE : details.getStartTime().getJavaTime();
+		final long endTime = noEnd ? Long.MAX_VALUE : details.getEndTime().getJavaTime();
+		// end before start means the values are returned in reverse order
+		final boolean reverse = !noStart && !noEnd && endTime < startTime;
+		final List<Sample> samples = new ArrayList<>(
+				store.read(key, Math.min(startTime, endTime), Math.max(startTime, endTime)));
+		if (reverse) {
+			Collections.reverse(samples);
+		}
+		final long limit = details.getNumValuesPerNode() == null ? 0 : details.getNumValuesPerNode().longValue();
+		final int offset = Math.min(continuationOffset(readValueId), samples.size());
+		final int last = limit > 0 ? (int) Math.min(samples.size(), offset + limit) : samples.size();
+		final List<DataValue> values = new ArrayList<>(last - offset);
+		for (final Sample sample : samples.subList(offset, last)) {
+			values.add(dataValue(sample, sample.getTime(), timestamps));
+		}
+		return dataResult(values, last < samples.size() ? continuationPoint(last) : null);
+	}
+
+	@Override
+	public void registerHistoryRecord(final String dataContext, final AbstractOpcVertex vertex,
+			final String propertyLabel, final DataValue propertyValue) {
+		if (propertyValue == null || propertyValue.getValue() == null || propertyValue.getValue().isNull()) {
+			return;
+		}
+		final String key = seriesKeys.computeIfAbsent(vertex.getNodeId(), k -> new ConcurrentHashMap<>())
+				.computeIfAbsent(propertyLabel,
+						label -> namespace.generateNodeId(vertex.getNodeId().getIdentifier().toString()
+								+ MiloStrategy.PROPERTY_SPLIT_SIMBOL_IN_NODEID + label).toParseableString());
+		final int status = propertyValue.getStatusCode() == null ? 0 : (int) propertyValue.getStatusCode().getValue();
+		store.append(key, toMillis(propertyValue), propertyValue.getValue().getValue(), status);
+	}
+
+	@Override
+	public void setNamespace(final WaldotNamespace namespace) {
+		this.namespace = namespace;
+	}
+
+}
@@ -0,0 +1,42 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reader of a stream written by {@link BitOutput}, the buffer can be a slice
+ * of a memory-mapped segment.
+ */
+public final class BitInput {
+
+	private int bitPosition = 0;
+	private final ByteBuffer buffer;
+	private final int offset;
+
+	public BitInput(final ByteBuffer buffer, final int offset) {
+		this.buffer = buffer;
+		this.offset = offset;
+	}
+
+	public boolean readBit() {
+		final int value = buffer.get(offset + (bitPosition >>> 3)) & (0x80 >>> (bitPosition & 7));
+		bitPosition++;
+		return value != 0;
+	}
+
+	public long readBits(final int bits) {
+		long value = 0;
+		for (int i = 0; i < bits; i++) {
+			value = (value << 1) | (readBit() ? 1L : 0L);
+		}
+		return value;
+	}
+
+	/**
+	 * reads a two's complement value of the given width.
+	 */
+	public long readSignedBits(final int bits) {
+		final long value = readBits(bits);
+		return bits == Long.SIZE ? value : (value << (Long.SIZE - bits)) >> (Long.SIZE - bits);
+	}
+
+}
@@ -0,0 +1,53 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Growable bit stream, most significant bit first.
+ */
+public final class BitOutput {
+
+	private int bitPosition = 0;
+	private byte[] buffer;
+
+	public BitOutput(final int initialBytes) {
+		buffer = new byte[Math.max(16, initialBytes)];
+	}
+
+	public int bitLength() {
+		return bitPosition;
+	}
+
+	private void ensureCapacity(final int bits) {
+		final int requiredBytes = (bitPosition + bits + 7) >>> 3;
+		if (requiredBytes > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(requiredBytes, buffer.length * 2));
+		}
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, (bitPosition + 7) >>> 3);
+	}
+
+	public void writeBit(final boolean bit) {
+		ensureCapacity(1);
+		if (bit) {
+			buffer[bitPosition >>> 3] |= (byte) (0x80 >>> (bitPosition & 7));
+		}
+		bitPosition++;
+	}
+
+	/**
+	 * writes the lowest bits of the value.
+	 */
+	public void writeBits(final long value, final int bits) {
+		ensureCapacity(bits);
+		for (int i = bits - 1; i >= 0; i--) {
+			if (((value >>> i) & 1L) != 0) {
+				buffer[bitPosition >>> 3] |= (byte) (0x80 >>> (bitPosition & 7));
+			}
+			bitPosition++;
+		}
+	}
+
+}
@@ -0,0 +1,35 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+/**
+ * Value of a series at a point in time.
+ */
+public final class Sample {
+
+	private final int status;
+	private final long time;
+	private final Object value;
+
+	public Sample(final long time, final Object value, final int status) {
+		this.time = time;
+		this.value = value;
+		this.status = status;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public long getTime() {
+		return time;
+	}
+
+	public Object getValue() {
+		return value;
+	}
+
+	@Override
+	public String toString() {
+		return "Sample [time=" + time + ", value=" + value + ", status=" + status + "]";
+	}
+
+}
@@ -0,0 +1,120 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Columns of samples of a single value type, ordered by insertion. Used as
+ * active (not yet sealed) block of a series and as decoded form of a segment.
+ */
+public final class SampleBlock {
+
+	private long[] bits;
+	private int size = 0;
+	private int[] statuses;
+	private String[] strings;
+	private long[] times;
+	private final ValueType type;
+
+	public SampleBlock(final ValueType type, final int capacity) {
+		this.type = type;
+		this.times = new long[capacity];
+		this.statuses = new int[capacity];
+		if (type == ValueType.STRING) {
+			this.strings = new String[capacity];
+		} else {
+			this.bits = new long[capacity];
+		}
+	}
+
+	public void add(final long time, final Object value, final int status) {
+		if (size == times.length) {
+			final int capacity = Math.max(16, size * 2);
+			times = Arrays.copyOf(times, capacity);
+			statuses = Arrays.copyOf(statuses, capacity);
+			if (strings != null) {
+				strings = Arrays.copyOf(strings, capacity);
+			} else {
+				bits = Arrays.copyOf(bits, capacity);
+			}
+		}
+		times[size] = time;
+		statuses[size] = status;
+		if (strings != null) {
+			strings[size] = String.valueOf(value);
+		} else {
+			bits[size] = type.toBits(value);
+		}
+		size++;
+	}
+
+	public void addBits(final long time, final long valueBits, final int status) {
+		if (size == times.length) {
+			final int capacity = Math.max(16, size * 2);
+			times = Arrays.copyOf(times, capacity);
+			statuses = Arrays.copyOf(statuses, capacity);
+			bits = Arrays.copyOf(bits, capacity);
+		}
+		times[size] = time;
+		statuses[size] = status;
+		bits[size] = valueBits;
+		size++;
+	}
+
+	public SampleBlock copy() {
+		final SampleBlock copy = new SampleBlock(type, Math.max(1, size));
+		System.arraycopy(times, 0, copy.times, 0, size);
+		System.arraycopy(statuses, 0, copy.statuses, 0, size);
+		if (strings != null) {
+			System.arraycopy(strings, 0, copy.strings, 0, size);
+		} else {
+			System.arraycopy(bits, 0, copy.bits, 0, size);
+		}
+		copy.size = size;
+		return copy;
+	}
+
+	public long firstTime() {
+		return times[0];
+	}
+
+	public long getBits(final int index) {
+		return bits[index];
+	}
+
+	public double getDouble(final int index) {
+		return type.toDouble(bits[index]);
+	}
+
+	public int getStatus(final int index) {
+		return statuses[index];
+	}
+
+	public String getString(final int index) {
+		return strings[index];
+	}
+
+	public long getTime(final int index) {
+		return times[index];
+	}
+
+	public ValueType getType() {
+		return type;
+	}
+
+	public Object getValue(final int index) {
+		return strings != null ? strings[index] : type.toObject(bits[index]);
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public long lastTime() {
+		return times[size - 1];
+	}
+
+	public int size() {
+		return size;
+	}
+
+}
@@ -0,0 +1,92 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sealed, immutable block of samples of a series, stored in its own file and
+ * read through a memory mapping.
+ */
+public final class Segment {
+
+	public static final String EXTENSION = ".seg";
+
+	public static Segment open(final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new Segment(file, buffer, SegmentCodec.readHeader(buffer));
+		}
+	}
+
+	public static Segment write(final Path directory, final SampleBlock block, final int flags) throws IOException {
+		final byte[] encoded = SegmentCodec.encode(block, flags);
+		long minTime = Long.MAX_VALUE;
+		for (int i = 0; i < block.size(); i++) {
+			minTime = Math.min(minTime, block.getTime(i));
+		}
+		final Path temporary = Files.createTempFile(directory, "segment", ".tmp");
+		Files.write(temporary, encoded);
+		Path file = directory.resolve(String.format("%020d-%d%s", minTime, System.nanoTime(), EXTENSION));
+		file = Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+		return open(file);
+	}
+
+	private final MappedByteBuffer buffer;
+	private final Path file;
+	private final SegmentCodec.Header header;
+
+	private Segment(final Path file, final MappedByteBuffer buffer, final SegmentCodec.Header header) {
+		this.file = file;
+		this.buffer = buffer;
+		this.header = header;
+	}
+
+	public void delete() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	public int getCount() {
+		return header.count;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public long getMaxTime() {
+		return header.maxTime;
+	}
+
+	public long getMinTime() {
+		return header.minTime;
+	}
+
+	public ValueType getType() {
+		return header.type;
+	}
+
+	public boolean isDownsampled() {
+		return header.isDownsampled();
+	}
+
+	public boolean overlaps(final long from, final long to) {
+		return header.maxTime >= from && header.minTime <= to;
+	}
+
+	public SampleBlock read() {
+		// every reader decodes on its own view of the mapping
+		return SegmentCodec.decode(buffer.duplicate());
+	}
+
+	@Override
+	public String toString() {
+		return "segment " + file.getFileName() + " [" + header.count + " " + header.type.name().toLowerCase()
+				+ " samples]";
+	}
+
+}
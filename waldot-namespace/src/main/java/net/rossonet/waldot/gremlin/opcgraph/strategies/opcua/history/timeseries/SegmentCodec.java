@@ -0,0 +1,280 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Columnar encoding of a segment: header, timestamps with delta-of-delta
+ * compression, values with XOR compression (strings are length prefixed) and
+ * status codes stored only when they change.
+ *
+ * <pre>
+ * int magic, byte version, byte type, byte flags, int count, long minTime, long maxTime,
+ * int timesLength, byte[] times, int valuesLength, byte[] values, int statusLength, byte[] status
+ * </pre>
+ */
+public final class SegmentCodec {
+
+	public static final class Header {
+		public final int count;
+		public final int flags;
+		public final long maxTime;
+		public final long minTime;
+		public final ValueType type;
+
+		private Header(final ValueType type, final int flags, final int count, final long minTime,
+				final long maxTime) {
+			this.type = type;
+			this.flags = flags;
+			this.count = count;
+			this.minTime = minTime;
+			this.maxTime = maxTime;
+		}
+
+		public boolean isDownsampled() {
+			return (flags & FLAG_DOWNSAMPLED) != 0;
+		}
+	}
+
+	public static final int FLAG_DOWNSAMPLED = 1;
+	private static final int HEADER_LENGTH = 4 + 1 + 1 + 1 + 4 + 8 + 8;
+	private static final int MAGIC = 0x57545331; // WTS1
+	private static final byte VERSION = 1;
+
+	public static SampleBlock decode(final ByteBuffer buffer) {
+		final Header header = readHeader(buffer);
+		final SampleBlock block = new SampleBlock(header.type, Math.max(1, header.count));
+		int position = HEADER_LENGTH;
+		final int timesLength = buffer.getInt(position);
+		final int timesOffset = position + 4;
+		position = timesOffset + timesLength;
+		final int valuesLength = buffer.getInt(position);
+		final int valuesOffset = position + 4;
+		position = valuesOffset + valuesLength;
+		final int statusOffset = position + 4;
+		final long[] times = decodeTimes(new BitInput(buffer, timesOffset), header.count);
+		final int[] statuses = decodeStatuses(new BitInput(buffer, statusOffset), header.count);
+		if (header.type == ValueType.STRING) {
+			int stringPosition = valuesOffset;
+			for (int i = 0; i < header.count; i++) {
+				final int length = buffer.getInt(stringPosition);
+				final byte[] bytes = new byte[length];
+				buffer.get(stringPosition + 4, bytes);
+				stringPosition += 4 + length;
+				block.add(times[i], new String(bytes, StandardCharsets.UTF_8), statuses[i]);
+			}
+		} else {
+			final BitInput values = new BitInput(buffer, valuesOffset);
+			long previous = 0;
+			int previousLeading = -1;
+			int previousTrailing = 0;
+			for (int i = 0; i < header.count; i++) {
+				long value;
+				if (i == 0) {
+					value = values.readBits(Long.SIZE);
+				} else if (!values.readBit()) {
+					value = previous;
+				} else {
+					if (values.readBit()) {
+						previousLeading = (int) values.readBits(5);
+						final int significant = (int) values.readBits(6) + 1;
+						previousTrailing = Long.SIZE - previousLeading - significant;
+					}
+					final int significant = Long.SIZE - previousLeading - previousTrailing;
+					value = previous ^ (values.readBits(significant) << previousTrailing);
+				}
+				block.addBits(times[i], value, statuses[i]);
+				previous = value;
+			}
+		}
+		return block;
+	}
+
+	private static int[] decodeStatuses(final BitInput input, final int count) {
+		final int[] statuses = new int[count];
+		int previous = 0;
+		for (int i = 0; i < count; i++) {
+			if (input.readBit()) {
+				previous = (int) input.readBits(Integer.SIZE);
+			}
+			statuses[i] = previous;
+		}
+		return statuses;
+	}
+
+	private static long[] decodeTimes(final BitInput input, final int count) {
+		final long[] times = new long[count];
+		long previousDelta = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0) {
+				times[0] = input.readBits(Long.SIZE);
+				continue;
+			}
+			long deltaOfDelta;
+			if (!input.readBit()) {
+				deltaOfDelta = 0;
+			} else if (!input.readBit()) {
+				deltaOfDelta = input.readSignedBits(7);
+			} else if (!input.readBit()) {
+				deltaOfDelta = input.readSignedBits(9);
+			} else if (!input.readBit()) {
+				deltaOfDelta = input.readSignedBits(12);
+			} else {
+				deltaOfDelta = input.readSignedBits(Long.SIZE);
+			}
+			previousDelta += deltaOfDelta;
+			times[i] = times[i - 1] + previousDelta;
+		}
+		return times;
+	}
+
+	public static byte[] encode(final SampleBlock block, final int flags) {
+		long minTime = Long.MAX_VALUE;
+		long maxTime = Long.MIN_VALUE;
+		for (int i = 0; i < block.size(); i++) {
+			minTime = Math.min(minTime, block.getTime(i));
+			maxTime = Math.max(maxTime, block.getTime(i));
+		}
+		try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_LENGTH + block.size() * 4);
+				DataOutputStream output = new DataOutputStream(bytes)) {
+			output.writeInt(MAGIC);
+			output.writeByte(VERSION);
+			output.writeByte(block.getType().ordinal());
+			output.writeByte(flags);
+			output.writeInt(block.size());
+			output.writeLong(minTime);
+			output.writeLong(maxTime);
+			writeColumn(output, encodeTimes(block));
+			writeColumn(output, block.getType() == ValueType.STRING ? encodeStrings(block) : encodeValues(block));
+			writeColumn(output, encodeStatuses(block));
+			output.flush();
+			return bytes.toByteArray();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static byte[] encodeStatuses(final SampleBlock block) {
+		final BitOutput output = new BitOutput(block.size() / 8 + 1);
+		int previous = 0;
+		for (int i = 0; i < block.size(); i++) {
+			final int status = block.getStatus(i);
+			if (status == previous) {
+				output.writeBit(false);
+			} else {
+				output.writeBit(true);
+				output.writeBits(status, Integer.SIZE);
+				previous = status;
+			}
+		}
+		return output.toByteArray();
+	}
+
+	private static byte[] encodeStrings(final SampleBlock block) {
+		try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(block.size() * 8);
+				DataOutputStream output = new DataOutputStream(bytes)) {
+			for (int i = 0; i < block.size(); i++) {
+				final byte[] value = block.getString(i).getBytes(StandardCharsets.UTF_8);
+				output.writeInt(value.length);
+				output.write(value);
+			}
+			output.flush();
+			return bytes.toByteArray();
+		} catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static byte[] encodeTimes(final SampleBlock block) {
+		final BitOutput output = new BitOutput(block.size() + 8);
+		long previousDelta = 0;
+		for (int i = 0; i < block.size(); i++) {
+			if (i == 0) {
+				output.writeBits(block.getTime(0), Long.SIZE);
+				continue;
+			}
+			final long delta = block.getTime(i) - block.getTime(i - 1);
+			final long deltaOfDelta = delta - previousDelta;
+			previousDelta = delta;
+			if (deltaOfDelta == 0) {
+				output.writeBit(false);
+			} else if (deltaOfDelta >= -64 && deltaOfDelta <= 63) {
+				output.writeBits(0b10, 2);
+				output.writeBits(deltaOfDelta, 7);
+			} else if (deltaOfDelta >= -256 && deltaOfDelta <= 255) {
+				output.writeBits(0b110, 3);
+				output.writeBits(deltaOfDelta, 9);
+			} else if (deltaOfDelta >= -2048 && deltaOfDelta <= 2047) {
+				output.writeBits(0b1110, 4);
+				output.writeBits(deltaOfDelta, 12);
+			} else {
+				output.writeBits(0b1111, 4);
+				output.writeBits(deltaOfDelta, Long.SIZE);
+			}
+		}
+		return output.toByteArray();
+	}
+
+	private static byte[] encodeValues(final SampleBlock block) {
+		final BitOutput output = new BitOutput(block.size() * 2 + 8);
+		long previous = 0;
+		int previousLeading = -1;
+		int previousTrailing = 0;
+		for (int i = 0; i < block.size(); i++) {
+			final long value = block.getBits(i);
+			if (i == 0) {
+				output.writeBits(value, Long.SIZE);
+				previous = value;
+				continue;
+			}
+			final long xor = value ^ previous;
+			previous = value;
+			if (xor == 0) {
+				output.writeBit(false);
+				continue;
+			}
+			output.writeBit(true);
+			// the leading zeros are stored in 5 bits
+			final int leading = Math.min(31, Long.numberOfLeadingZeros(xor));
+			final int trailing = Long.numberOfTrailingZeros(xor);
+			if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+				// the meaningful bits fit in the previous window
+				output.writeBit(false);
+				output.writeBits(xor >>> previousTrailing, Long.SIZE - previousLeading - previousTrailing);
+			} else {
+				final int significant = Long.SIZE - leading - trailing;
+				output.writeBit(true);
+				output.writeBits(leading, 5);
+				output.writeBits(significant - 1, 6);
+				output.writeBits(xor >>> trailing, significant);
+				previousLeading = leading;
+				previousTrailing = trailing;
+			}
+		}
+		return output.toByteArray();
+	}
+
+	public static Header readHeader(final ByteBuffer buffer) {
+		if (buffer.capacity() < HEADER_LENGTH || buffer.getInt(0) != MAGIC) {
+			throw new IllegalArgumentException("not a time series segment");
+		}
+		if (buffer.get(4) != VERSION) {
+			throw new IllegalArgumentException("unsupported segment version " + buffer.get(4));
+		}
+		return new Header(ValueType.values()[buffer.get(5)], buffer.get(6), buffer.getInt(7), buffer.getLong(11),
+				buffer.getLong(19));
+	}
+
+	private static void writeColumn(final DataOutputStream output, final byte[] column) throws IOException {
+		output.writeInt(column.length);
+		output.write(column);
+	}
+
+	private SegmentCodec() {
+	}
+
+}
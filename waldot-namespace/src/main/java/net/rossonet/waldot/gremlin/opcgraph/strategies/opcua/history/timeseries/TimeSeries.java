@@ -0,0 +1,249 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Samples of a single node: the sealed segments on disk and the active block
+ * in memory. Samples are appended only by the writer thread of the store,
+ * readers see the sealed segments and a copy of the active block.
+ */
+public final class TimeSeries {
+
+	private static final class Bucket {
+		private int count = 0;
+		private long lastBits;
+		private int lastStatus;
+		private String lastString;
+		private long lastTime = Long.MIN_VALUE;
+		private double sum = 0;
+	}
+
+	private static final Logger logger = LoggerFactory.getLogger(TimeSeries.class);
+
+	private SampleBlock active;
+	private long activeSince;
+	private final Path directory;
+	private final String key;
+	// file names start with the zero padded min time, so the map is ordered by time
+	private final ConcurrentSkipListMap<String, Segment> segments = new ConcurrentSkipListMap<>();
+
+	TimeSeries(final String key, final Path directory) throws IOException {
+		this.key = key;
+		this.directory = directory;
+		Files.createDirectories(directory);
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(file -> file.getFileName().toString().endsWith(Segment.EXTENSION)).forEach(file -> {
+				try {
+					segments.put(file.getFileName().toString(), Segment.open(file));
+				} catch (final Exception e) {
+					logger.error("unable to open {} of series {}", file, key, e);
+				}
+			});
+		}
+	}
+
+	synchronized void append(final long time, final Object value, final int status, final int blockSize) {
+		final ValueType type = ValueType.of(value);
+		if (active != null && (active.getType() != type || active.size() >= blockSize)) {
+			seal();
+		}
+		if (active == null) {
+			active = new SampleBlock(type, Math.min(blockSize, 256));
+			activeSince = System.currentTimeMillis();
+		}
+		active.add(time, value, status);
+	}
+
+	private void collect(final SampleBlock block, final long from, final long to, final List<Sample> result) {
+		for (int i = 0; i < block.size(); i++) {
+			final long time = block.getTime(i);
+			if (time >= from && time <= to) {
+				result.add(new Sample(time, block.getValue(i), block.getStatus(i)));
+			}
+		}
+	}
+
+	private synchronized SampleBlock copyActive() {
+		return active == null || active.isEmpty() ? null : active.copy();
+	}
+
+	synchronized void downsample(final long olderThan, final long interval) {
+		final List<Segment> sources = new ArrayList<>();
+		for (final Segment segment : segments.values()) {
+			if (!segment.isDownsampled() && segment.getMaxTime() < olderThan) {
+				sources.add(segment);
+			}
+		}
+		if (sources.isEmpty()) {
+			return;
+		}
+		final Map<ValueType, TreeMap<Long, Bucket>> buckets = new HashMap<>();
+		for (final Segment segment : sources) {
+			final SampleBlock block = segment.read();
+			final ValueType type = block.getType().isNumeric() ? ValueType.DOUBLE : block.getType();
+			final TreeMap<Long, Bucket> typeBuckets = buckets.computeIfAbsent(type, t -> new TreeMap<>());
+			for (int i = 0; i < block.size(); i++) {
+				final long time = block.getTime(i);
+				final Bucket bucket = typeBuckets.computeIfAbsent(Math.floorDiv(time, interval) * interval,
+						t -> new Bucket());
+				bucket.count++;
+				if (block.getType().isNumeric()) {
+					bucket.sum += block.getDouble(i);
+				}
+				if (time >= bucket.lastTime) {
+					bucket.lastTime = time;
+					bucket.lastStatus = block.getStatus(i);
+					if (block.getType() == ValueType.STRING) {
+						bucket.lastString = block.getString(i);
+					} else {
+						bucket.lastBits = block.getBits(i);
+					}
+				}
+			}
+		}
+		try {
+			for (final Map.Entry<ValueType, TreeMap<Long, Bucket>> typeBuckets : buckets.entrySet()) {
+				final ValueType type = typeBuckets.getKey();
+				final SampleBlock block = new SampleBlock(type, typeBuckets.getValue().size());
+				for (final Map.Entry<Long, Bucket> entry : typeBuckets.getValue().entrySet()) {
+					final Bucket bucket = entry.getValue();
+					if (type == ValueType.DOUBLE) {
+						block.add(entry.getKey(), bucket.sum / bucket.count, bucket.lastStatus);
+					} else if (type == ValueType.STRING) {
+						block.add(entry.getKey(), bucket.lastString, bucket.lastStatus);
+					} else {
+						block.addBits(entry.getKey(), bucket.lastBits, bucket.lastStatus);
+					}
+				}
+				final Segment segment = Segment.write(directory, block, SegmentCodec.FLAG_DOWNSAMPLED);
+				segments.put(segment.getFile().getFileName().toString(), segment);
+			}
+			for (final Segment source : sources) {
+				segments.remove(source.getFile().getFileName().toString());
+				source.delete();
+			}
+			logger.debug("downsampled {} segments of series {}", sources.size(), key);
+		} catch (final IOException e) {
+			logger.error("unable to downsample series {}", key, e);
+		}
+	}
+
+	synchronized void expire(final long olderThan) {
+		for (final Segment segment : new ArrayList<>(segments.values())) {
+			if (segment.getMaxTime() < olderThan) {
+				segments.remove(segment.getFile().getFileName().toString());
+				try {
+					segment.delete();
+				} catch (final IOException e) {
+					logger.error("unable to delete {} of series {}", segment, key, e);
+				}
+			}
+		}
+	}
+
+	synchronized void flushIfOlder(final long now, final long maxAgeMs) {
+		if (active != null && !active.isEmpty() && now - activeSince >= maxAgeMs) {
+			seal();
+		}
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	private Sample latest(final SampleBlock block, final long time, final Sample best) {
+		Sample result = best;
+		for (int i = 0; i < block.size(); i++) {
+			final long sampleTime = block.getTime(i);
+			if (sampleTime <= time && (result == null || sampleTime >= result.getTime())) {
+				result = new Sample(sampleTime, block.getValue(i), block.getStatus(i));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the samples in the closed range ordered by time
+	 */
+	public List<Sample> read(final long from, final long to) {
+		final List<Segment> candidates = new ArrayList<>();
+		final SampleBlock activeCopy;
+		// consistent view, a block sealed during the read is seen only once
+		synchronized (this) {
+			for (final Segment segment : segments.values()) {
+				if (segment.overlaps(from, to)) {
+					candidates.add(segment);
+				}
+			}
+			activeCopy = copyActive();
+		}
+		final List<Sample> result = new ArrayList<>();
+		for (final Segment segment : candidates) {
+			collect(segment.read(), from, to, result);
+		}
+		if (activeCopy != null) {
+			collect(activeCopy, from, to, result);
+		}
+		result.sort(Comparator.comparingLong(Sample::getTime));
+		return result;
+	}
+
+	synchronized void seal() {
+		if (active == null || active.isEmpty()) {
+			return;
+		}
+		try {
+			final Segment segment = Segment.write(directory, active, 0);
+			segments.put(segment.getFile().getFileName().toString(), segment);
+		} catch (final IOException e) {
+			logger.error("unable to write a segment of series {}, {} samples lost", key, active.size(), e);
+		}
+		active = null;
+	}
+
+	@Override
+	public String toString() {
+		return "TimeSeries [key=" + key + ", segments=" + segments.size() + "]";
+	}
+
+	/**
+	 * @return the last sample at or before the time, null if there is none
+	 */
+	public Sample valueAt(final long time) {
+		final List<Segment> candidates = new ArrayList<>();
+		final SampleBlock activeCopy;
+		synchronized (this) {
+			for (final Segment segment : segments.descendingMap().values()) {
+				if (segment.getMinTime() <= time) {
+					candidates.add(segment);
+				}
+			}
+			activeCopy = copyActive();
+		}
+		Sample best = activeCopy == null ? null : latest(activeCopy, time, null);
+		for (final Segment segment : candidates) {
+			if (best == null || segment.getMaxTime() > best.getTime()) {
+				best = latest(segment.read(), time, best);
+			}
+		}
+		return best;
+	}
+
+}
@@ -0,0 +1,68 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+import java.util.List;
+
+/**
+ * Aggregates computed on the samples of a processing interval, the numeric
+ * aggregates ignore the samples that are not numbers.
+ */
+public enum TimeSeriesAggregate {
+	AVERAGE, COUNT, END, MAXIMUM, MINIMUM, START, TOTAL;
+
+	private static Double toDouble(final Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		if (value instanceof Boolean) {
+			return ((Boolean) value) ? 1.0 : 0.0;
+		}
+		return null;
+	}
+
+	/**
+	 * @param samples the samples of the interval ordered by time
+	 * @return the value of the aggregate, null if the interval has no data
+	 */
+	public Object compute(final List<Sample> samples) {
+		if (samples.isEmpty()) {
+			return this == COUNT ? 0L : null;
+		}
+		switch (this) {
+		case COUNT:
+			return (long) samples.size();
+		case START:
+			return samples.get(0).getValue();
+		case END:
+			return samples.get(samples.size() - 1).getValue();
+		default:
+			break;
+		}
+		double sum = 0;
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+		int count = 0;
+		for (final Sample sample : samples) {
+			final Double value = toDouble(sample.getValue());
+			if (value != null) {
+				sum += value;
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+				count++;
+			}
+		}
+		if (count == 0) {
+			return null;
+		}
+		switch (this) {
+		case AVERAGE:
+			return sum / count;
+		case MAXIMUM:
+			return max;
+		case MINIMUM:
+			return min;
+		default:
+			return sum;
+		}
+	}
+
+}
@@ -0,0 +1,80 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+import java.time.Duration;
+
+/**
+ * Retention and downsampling of the time series store.
+ *
+ * Samples older than the retention are deleted, segments older than the
+ * downsampling age are rewritten with a sample for every downsampling interval
+ * (average for numbers, last value for the other types).
+ */
+public final class TimeSeriesPolicy {
+
+	public static TimeSeriesPolicy defaultPolicy() {
+		return new TimeSeriesPolicy(Duration.ofDays(30), Duration.ofDays(1), Duration.ofMinutes(1), 4096,
+				Duration.ofSeconds(30), 1 << 20);
+	}
+
+	private final int blockSize;
+	private final Duration downsampleAfter;
+	private final Duration downsampleInterval;
+	private final Duration flushInterval;
+	private final int queueCapacity;
+	private final Duration retention;
+
+	/**
+	 * @param retention          age of the samples to delete, null to keep them
+	 *                           forever
+	 * @param downsampleAfter    age of the segments to downsample, null to
+	 *                           disable the downsampling
+	 * @param downsampleInterval width of the downsampled buckets
+	 * @param blockSize          samples of a series kept in memory before writing
+	 *                           a segment
+	 * @param flushInterval      max time a sample stays in memory before being
+	 *                           written in a segment
+	 * @param queueCapacity      samples waiting for the writer thread, when the
+	 *                           queue is full new samples are discarded
+	 */
+	public TimeSeriesPolicy(final Duration retention, final Duration downsampleAfter,
+			final Duration downsampleInterval, final int blockSize, final Duration flushInterval,
+			final int queueCapacity) {
+		if (blockSize < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("block size and queue capacity must be positive");
+		}
+		if (downsampleAfter != null && (downsampleInterval == null || downsampleInterval.toMillis() < 1)) {
+			throw new IllegalArgumentException("downsampling requires a positive interval");
+		}
+		this.retention = retention;
+		this.downsampleAfter = downsampleAfter;
+		this.downsampleInterval = downsampleInterval;
+		this.blockSize = blockSize;
+		this.flushInterval = flushInterval;
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public Duration getDownsampleAfter() {
+		return downsampleAfter;
+	}
+
+	public Duration getDownsampleInterval() {
+		return downsampleInterval;
+	}
+
+	public Duration getFlushInterval() {
+		return flushInterval;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public Duration getRetention() {
+		return retention;
+	}
+
+}
@@ -0,0 +1,249 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Embedded time series store, a directory for every series with the sealed
+ * segments.
+ *
+ * The producers only put the samples in a bounded queue, a single writer
+ * thread moves them in the series, writes the segments and applies the
+ * {@link TimeSeriesPolicy}. When the queue is full the samples are discarded
+ * and counted, the producers are never blocked.
+ */
+public final class TimeSeriesStore implements AutoCloseable {
+
+	private static final class PendingSample {
+		private final String key;
+		private final int status;
+		private final long time;
+		private final Object value;
+
+		private PendingSample(final String key, final long time, final Object value, final int status) {
+			this.key = key;
+			this.time = time;
+			this.value = value;
+			this.status = status;
+		}
+	}
+
+	private static final int DRAIN_BATCH = 4096;
+	private static final long DRAIN_INTERVAL_MS = 10;
+	private static final long MAINTENANCE_INTERVAL_MS = 60_000;
+
+	private static String decodeKey(final String directoryName) {
+		return new String(Base64.getUrlDecoder().decode(directoryName), StandardCharsets.UTF_8);
+	}
+
+	private static String encodeKey(final String key) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private final AtomicLong discarded = new AtomicLong();
+	private final Path directory;
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+	private final TimeSeriesPolicy policy;
+	private final BlockingQueue<PendingSample> queue;
+	private final Map<String, TimeSeries> series = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService writer;
+
+	public TimeSeriesStore(final Path directory, final TimeSeriesPolicy policy) throws IOException {
+		this.directory = directory;
+		this.policy = policy;
+		this.queue = new ArrayBlockingQueue<>(policy.getQueueCapacity());
+		Files.createDirectories(directory);
+		try (Stream<Path> directories = Files.list(directory)) {
+			for (final Path seriesDirectory : directories.filter(Files::isDirectory).toList()) {
+				try {
+					final String key = decodeKey(seriesDirectory.getFileName().toString());
+					series.put(key, new TimeSeries(key, seriesDirectory));
+				} catch (final IllegalArgumentException e) {
+					logger.warn("{} is not a time series directory", seriesDirectory);
+				}
+			}
+		}
+		writer = Executors.newSingleThreadScheduledExecutor(
+				new BasicThreadFactory.Builder().namingPattern("waldot-history-writer").daemon(true).build());
+		writer.scheduleWithFixedDelay(this::drain, DRAIN_INTERVAL_MS, DRAIN_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		if (policy.getFlushInterval() != null) {
+			final long flushMs = Math.max(DRAIN_INTERVAL_MS, policy.getFlushInterval().toMillis() / 2);
+			writer.scheduleWithFixedDelay(this::sealOldBlocks, flushMs, flushMs, TimeUnit.MILLISECONDS);
+		}
+		writer.scheduleWithFixedDelay(this::maintenance, MAINTENANCE_INTERVAL_MS, MAINTENANCE_INTERVAL_MS,
+				TimeUnit.MILLISECONDS);
+		logger.info("time series store in {} with {} series", directory, series.size());
+	}
+
+	/**
+	 * queues a sample, never blocks.
+	 *
+	 * @return false if the sample has been discarded because the queue is full
+	 */
+	public boolean append(final String key, final long time, final Object value, final int status) {
+		if (queue.offer(new PendingSample(key, time, value, status))) {
+			return true;
+		}
+		if (discarded.getAndIncrement() % 10_000 == 0) {
+			logger.warn("history queue full, {} samples discarded", discarded.get());
+		}
+		return false;
+	}
+
+	@Override
+	public void close() throws Exception {
+		try {
+			flush();
+		} finally {
+			writer.shutdown();
+			writer.awaitTermination(10, TimeUnit.SECONDS);
+		}
+	}
+
+	private void drain() {
+		try {
+			final List<PendingSample> batch = new ArrayList<>(DRAIN_BATCH);
+			while (queue.drainTo(batch, DRAIN_BATCH) > 0) {
+				for (final PendingSample sample : batch) {
+					getOrCreateSeries(sample.key).append(sample.time, sample.value, sample.status,
+							policy.getBlockSize());
+				}
+				batch.clear();
+			}
+		} catch (final Exception e) {
+			logger.error("error writing the history samples", e);
+		}
+	}
+
+	/**
+	 * writes all the queued and in memory samples in segments.
+	 */
+	public void flush() throws InterruptedException, ExecutionException {
+		if (writer.isShutdown()) {
+			return;
+		}
+		writer.submit(() -> {
+			drain();
+			series.values().forEach(TimeSeries::seal);
+		}).get();
+	}
+
+	public long getDiscardedSamples() {
+		return discarded.get();
+	}
+
+	public Set<String> getKeys() {
+		return Collections.unmodifiableSet(series.keySet());
+	}
+
+	private TimeSeries getOrCreateSeries(final String key) {
+		return series.computeIfAbsent(key, k -> {
+			try {
+				return new TimeSeries(k, directory.resolve(encodeKey(k)));
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	public TimeSeriesPolicy getPolicy() {
+		return policy;
+	}
+
+	public TimeSeries getSeries(final String key) {
+		return series.get(key);
+	}
+
+	/**
+	 * writes a sample in the series on the writer thread, after the samples
+	 * already queued, unless the series has a sample with the same time. Waits
+	 * until the sample is in the series.
+	 *
+	 * @return false if the series already has a sample with the same time
+	 */
+	public boolean insert(final String key, final long time, final Object value, final int status)
+			throws InterruptedException, ExecutionException {
+		if (writer.isShutdown()) {
+			throw new IllegalStateException("time series store closed");
+		}
+		return writer.submit(() -> {
+			drain();
+			final TimeSeries timeSeries = getOrCreateSeries(key);
+			if (!timeSeries.read(time, time).isEmpty()) {
+				return false;
+			}
+			timeSeries.append(time, value, status, policy.getBlockSize());
+			return true;
+		}).get();
+	}
+
+	/**
+	 * applies retention and downsampling, runs on the writer thread.
+	 */
+	public void maintenance() {
+		try {
+			final long now = System.currentTimeMillis();
+			for (final TimeSeries timeSeries : series.values()) {
+				if (policy.getRetention() != null) {
+					timeSeries.expire(now - policy.getRetention().toMillis());
+				}
+				if (policy.getDownsampleAfter() != null) {
+					timeSeries.downsample(now - policy.getDownsampleAfter().toMillis(),
+							policy.getDownsampleInterval().toMillis());
+				}
+			}
+		} catch (final Exception e) {
+			logger.error("error in the maintenance of the history", e);
+		}
+	}
+
+	/**
+	 * @return the samples of the series in the closed range ordered by time, an
+	 *         empty list if the series does not exist
+	 */
+	public List<Sample> read(final String key, final long from, final long to) {
+		final TimeSeries timeSeries = series.get(key);
+		return timeSeries == null ? Collections.emptyList() : timeSeries.read(from, to);
+	}
+
+	private void sealOldBlocks() {
+		try {
+			final long now = System.currentTimeMillis();
+			final long maxAge = policy.getFlushInterval().toMillis();
+			series.values().forEach(timeSeries -> timeSeries.flushIfOlder(now, maxAge));
+		} catch (final Exception e) {
+			logger.error("error sealing the history blocks", e);
+		}
+	}
+
+	/**
+	 * @return the last sample at or before the time, null if there is none
+	 */
+	public Sample valueAt(final String key, final long time) {
+		final TimeSeries timeSeries = series.get(key);
+		return timeSeries == null ? null : timeSeries.valueAt(time);
+	}
+
+}
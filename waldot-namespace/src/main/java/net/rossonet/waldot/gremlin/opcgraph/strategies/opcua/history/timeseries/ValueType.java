@@ -0,0 +1,62 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries;
+
+/**
+ * Type of the values of a segment, numbers and booleans are stored as 64 bit
+ * patterns in the compressed column, every other value as string.
+ */
+public enum ValueType {
+	BOOLEAN, DOUBLE, LONG, STRING;
+
+	public static ValueType of(final Object value) {
+		if (value instanceof Boolean) {
+			return BOOLEAN;
+		}
+		if (value instanceof Double || value instanceof Float) {
+			return DOUBLE;
+		}
+		if (value instanceof Number) {
+			return LONG;
+		}
+		return STRING;
+	}
+
+	public long toBits(final Object value) {
+		switch (this) {
+		case BOOLEAN:
+			return ((Boolean) value) ? 1L : 0L;
+		case DOUBLE:
+			return Double.doubleToRawLongBits(((Number) value).doubleValue());
+		case LONG:
+			return ((Number) value).longValue();
+		default:
+			return 0L;
+		}
+	}
+
+	public double toDouble(final long bits) {
+		switch (this) {
+		case DOUBLE:
+			return Double.longBitsToDouble(bits);
+		default:
+			return bits;
+		}
+	}
+
+	public Object toObject(final long bits) {
+		switch (this) {
+		case BOOLEAN:
+			return bits != 0;
+		case DOUBLE:
+			return Double.longBitsToDouble(bits);
+		case LONG:
+			return bits;
+		default:
+			return null;
+		}
+	}
+
+	public boolean isNumeric() {
+		return this == DOUBLE || this == LONG;
+	}
+
+}
@@ -0,0 +1,25 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence;
+
+import java.util.Map;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+/**
+ * Receives the records read from a {@link GraphSnapshot} or replayed from the
+ * {@link WriteAheadLog}, in the order they were written.
+ */
+public interface GraphMutationHandler {
+
+	void addEdge(NodeId nodeId, NodeId sourceId, NodeId targetId, String label, Map<String, Object> properties);
+
+	void addVertex(NodeId nodeId, String label, Map<String, Object> properties);
+
+	void removeEdge(NodeId nodeId);
+
+	void removeVertex(NodeId nodeId);
+
+	void removeVertexProperty(NodeId propertyNodeId);
+
+	void setProperty(NodeId elementId, String key, Object value);
+
+}
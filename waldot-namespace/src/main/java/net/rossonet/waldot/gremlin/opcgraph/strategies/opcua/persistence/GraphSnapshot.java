@@ -0,0 +1,238 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+/**
+ * Binary image of the graph at a sequence of the {@link WriteAheadLog}.
+ *
+ * <p>The file starts with {@code [int magic][int version][long sequence]} and
+ * continues with blocks {@code [int length][int crc32][records]} of about
+ * {@link #BLOCK_SIZE} bytes, the vertices before the edges. A block of length
+ * zero closes the file. The snapshot is written to a temporary file and moved
+ * in place only when complete, the blocks are read by mapping the file.</p>
+ */
+public final class GraphSnapshot {
+
+	/**
+	 * Writes a snapshot, the file is visible only after {@link #commit()}.
+	 */
+	public static final class Writer implements AutoCloseable {
+		private final PersistenceCodec.Output block = new PersistenceCodec.Output(BLOCK_SIZE + 4096);
+		private final FileChannel channel;
+		private boolean committed = false;
+		private final CRC32 crc = new CRC32();
+		private final Path file;
+		private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		private final Path temporaryFile;
+
+		public Writer(final Path directory, final long sequence) throws IOException {
+			file = snapshotPath(directory, sequence);
+			temporaryFile = directory.resolve(file.getFileName().toString() + TEMPORARY_SUFFIX);
+			channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			header.putInt(MAGIC).putInt(VERSION).putLong(sequence).flip();
+			write(header);
+		}
+
+		public void addEdge(final NodeId nodeId, final NodeId sourceId, final NodeId targetId, final String label,
+				final Map<String, Object> properties) throws IOException {
+			PersistenceCodec.writeAddEdge(block, nodeId, sourceId, targetId, label, properties);
+			checkBlock();
+		}
+
+		public void addVertex(final NodeId nodeId, final String label, final Map<String, Object> properties)
+				throws IOException {
+			PersistenceCodec.writeAddVertex(block, nodeId, label, properties);
+			checkBlock();
+		}
+
+		private void checkBlock() throws IOException {
+			if (block.size() >= BLOCK_SIZE) {
+				writeBlock();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (channel.isOpen()) {
+				channel.close();
+			}
+			if (!committed) {
+				Files.deleteIfExists(temporaryFile);
+			}
+		}
+
+		/**
+		 * writes the last block and moves the snapshot in place.
+		 */
+		public void commit() throws IOException {
+			writeBlock();
+			writeBlockHeader(0, 0);
+			channel.force(true);
+			channel.close();
+			Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			committed = true;
+		}
+
+		private void write(final ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+
+		private void writeBlock() throws IOException {
+			if (block.size() == 0) {
+				return;
+			}
+			crc.reset();
+			crc.update(block.array(), 0, block.size());
+			writeBlockHeader(block.size(), (int) crc.getValue());
+			write(ByteBuffer.wrap(block.array(), 0, block.size()));
+			block.reset();
+		}
+
+		private void writeBlockHeader(final int length, final int blockCrc) throws IOException {
+			header.clear();
+			header.putInt(length).putInt(blockCrc).flip();
+			write(header);
+		}
+	}
+
+	public static final int BLOCK_SIZE = 1024 * 1024;
+	private static final int HEADER_SIZE = 16;
+	private static final int MAGIC = 0x5744534E;
+	private static final String SNAPSHOT_PREFIX = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX = ".wds";
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+	private static final int VERSION = 1;
+
+	/**
+	 * deletes the snapshots older than the sequence and the temporary files left
+	 * by interrupted writes.
+	 */
+	public static void deleteOlder(final Path directory, final long sequence) throws IOException {
+		for (final Path snapshot : listSnapshots(directory)) {
+			if (getSequence(snapshot) < sequence) {
+				Files.deleteIfExists(snapshot);
+			}
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			for (final Path file : (Iterable<Path>) files::iterator) {
+				final String name = file.getFileName().toString();
+				if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX + TEMPORARY_SUFFIX)) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the sequence of the write ahead log covered by the snapshot
+	 */
+	public static long getSequence(final Path snapshot) {
+		final String name = snapshot.getFileName().toString();
+		return Long.parseLong(name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length()));
+	}
+
+	/**
+	 * @return the most recent snapshot in the directory or null
+	 */
+	public static Path latest(final Path directory) throws IOException {
+		final List<Path> snapshots = listSnapshots(directory);
+		return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+	}
+
+	private static List<Path> listSnapshots(final Path directory) throws IOException {
+		final List<Path> snapshots = new ArrayList<>();
+		if (!Files.isDirectory(directory)) {
+			return snapshots;
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(file -> {
+				final String name = file.getFileName().toString();
+				return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+			}).sorted().forEach(snapshots::add);
+		}
+		return snapshots;
+	}
+
+	/**
+	 * reads all the records of the snapshot.
+	 *
+	 * @return the sequence of the write ahead log covered by the snapshot
+	 */
+	public static long read(final Path snapshot, final GraphMutationHandler handler) throws IOException {
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			final long size = channel.size();
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			readFully(channel, header, 0);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException(snapshot + " is not a graph snapshot");
+			}
+			final long sequence = header.getLong(8);
+			final ByteBuffer blockHeader = ByteBuffer.allocate(8);
+			final CRC32 crc = new CRC32();
+			long position = HEADER_SIZE;
+			while (true) {
+				if (position + 8 > size) {
+					throw new IOException(snapshot + " is truncated");
+				}
+				blockHeader.clear();
+				readFully(channel, blockHeader, position);
+				final int length = blockHeader.getInt(0);
+				position += 8;
+				if (length == 0) {
+					return sequence;
+				}
+				if (length < 0 || position + length > size) {
+					throw new IOException(snapshot + " is truncated");
+				}
+				final MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				crc.reset();
+				crc.update(block);
+				if ((int) crc.getValue() != blockHeader.getInt(4)) {
+					throw new IOException(snapshot + " has a damaged block at offset " + position);
+				}
+				block.rewind();
+				while (block.hasRemaining()) {
+					PersistenceCodec.readRecord(block, handler);
+				}
+				position += length;
+			}
+		}
+	}
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+			throws IOException {
+		long current = position;
+		while (buffer.hasRemaining()) {
+			final int read = channel.read(buffer, current);
+			if (read < 0) {
+				throw new IOException("unexpected end of file");
+			}
+			current += read;
+		}
+	}
+
+	private static Path snapshotPath(final Path directory, final long sequence) {
+		return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, sequence, SNAPSHOT_SUFFIX));
+	}
+
+	private GraphSnapshot() {
+	}
+
+}
@@ -0,0 +1,326 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+/**
+ * Binary encoding of the graph records shared by the snapshots and the write
+ * ahead log.
+ *
+ * <p>A record is the operation byte followed by its fields. NodeIds are
+ * written in their parseable form, strings with a varint length, numbers as
+ * zigzag varints or IEEE 754 bits. Property values of other types are written
+ * as strings.</p>
+ */
+public final class PersistenceCodec {
+
+	/**
+	 * Growable byte buffer of the encoder.
+	 */
+	public static final class Output {
+		private byte[] buffer;
+		private int size = 0;
+
+		public Output(final int capacity) {
+			buffer = new byte[capacity];
+		}
+
+		public byte[] array() {
+			return buffer;
+		}
+
+		private void ensure(final int length) {
+			if (size + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+			}
+		}
+
+		public void reset() {
+			size = 0;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public void write(final byte value) {
+			ensure(1);
+			buffer[size++] = value;
+		}
+
+		public void write(final byte[] value) {
+			writeVarint(value.length);
+			writeRaw(value, 0, value.length);
+		}
+
+		public void writeFixed(final long value, final int bytes) {
+			ensure(bytes);
+			for (int i = bytes - 1; i >= 0; i--) {
+				buffer[size++] = (byte) (value >>> (i * 8));
+			}
+		}
+
+		public void writeRaw(final byte[] value, final int offset, final int length) {
+			ensure(length);
+			System.arraycopy(value, offset, buffer, size, length);
+			size += length;
+		}
+
+		public void writeString(final String value) {
+			write(value.getBytes(StandardCharsets.UTF_8));
+		}
+
+		public void writeVarint(final long value) {
+			ensure(10);
+			long remaining = value;
+			while ((remaining & ~0x7FL) != 0) {
+				buffer[size++] = (byte) ((remaining & 0x7F) | 0x80);
+				remaining >>>= 7;
+			}
+			buffer[size++] = (byte) remaining;
+		}
+
+		public void writeZigZag(final long value) {
+			writeVarint((value << 1) ^ (value >> 63));
+		}
+	}
+
+	public static final byte OP_ADD_EDGE = 2;
+	public static final byte OP_ADD_VERTEX = 1;
+	public static final byte OP_REMOVE_EDGE = 5;
+	public static final byte OP_REMOVE_VERTEX = 4;
+	public static final byte OP_REMOVE_VERTEX_PROPERTY = 6;
+	public static final byte OP_SET_PROPERTY = 3;
+
+	private static final byte TAG_BOOLEAN_FALSE = 1;
+	private static final byte TAG_BOOLEAN_TRUE = 2;
+	private static final byte TAG_BYTE = 3;
+	private static final byte TAG_BYTES = 4;
+	private static final byte TAG_CHARACTER = 5;
+	private static final byte TAG_DOUBLE = 6;
+	private static final byte TAG_FLOAT = 7;
+	private static final byte TAG_INTEGER = 8;
+	private static final byte TAG_LONG = 9;
+	private static final byte TAG_NODE_ID = 12;
+	private static final byte TAG_NULL = 0;
+	private static final byte TAG_SHORT = 10;
+	private static final byte TAG_STRING = 11;
+
+	private static byte[] readBytes(final ByteBuffer input) throws IOException {
+		final byte[] bytes = new byte[readLength(input)];
+		input.get(bytes);
+		return bytes;
+	}
+
+	private static long readFixed(final ByteBuffer input, final int bytes) {
+		long value = 0;
+		for (int i = 0; i < bytes; i++) {
+			value = (value << 8) | (input.get() & 0xFF);
+		}
+		return value;
+	}
+
+	private static int readLength(final ByteBuffer input) throws IOException {
+		final long length = readVarint(input);
+		if (length > input.remaining()) {
+			throw new IOException("length " + length + " exceeds the record");
+		}
+		return (int) length;
+	}
+
+	private static NodeId readNodeId(final ByteBuffer input) throws IOException {
+		return NodeId.parse(readString(input));
+	}
+
+	private static Map<String, Object> readProperties(final ByteBuffer input) throws IOException {
+		final int count = (int) readVarint(input);
+		final Map<String, Object> properties = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			final String key = readString(input);
+			properties.put(key, readValue(input));
+		}
+		return properties;
+	}
+
+	/**
+	 * decodes one record and passes it to the handler.
+	 */
+	public static void readRecord(final ByteBuffer input, final GraphMutationHandler handler) throws IOException {
+		try {
+			final byte operation = input.get();
+			switch (operation) {
+			case OP_ADD_VERTEX:
+				handler.addVertex(readNodeId(input), readString(input), readProperties(input));
+				break;
+			case OP_ADD_EDGE:
+				handler.addEdge(readNodeId(input), readNodeId(input), readNodeId(input), readString(input),
+						readProperties(input));
+				break;
+			case OP_SET_PROPERTY:
+				handler.setProperty(readNodeId(input), readString(input), readValue(input));
+				break;
+			case OP_REMOVE_VERTEX:
+				handler.removeVertex(readNodeId(input));
+				break;
+			case OP_REMOVE_EDGE:
+				handler.removeEdge(readNodeId(input));
+				break;
+			case OP_REMOVE_VERTEX_PROPERTY:
+				handler.removeVertexProperty(readNodeId(input));
+				break;
+			default:
+				throw new IOException("unknown record operation " + operation);
+			}
+		} catch (final BufferUnderflowException e) {
+			throw new IOException("truncated record", e);
+		}
+	}
+
+	private static String readString(final ByteBuffer input) throws IOException {
+		return new String(readBytes(input), StandardCharsets.UTF_8);
+	}
+
+	private static Object readValue(final ByteBuffer input) throws IOException {
+		final byte tag = input.get();
+		switch (tag) {
+		case TAG_NULL:
+			return null;
+		case TAG_BOOLEAN_FALSE:
+			return Boolean.FALSE;
+		case TAG_BOOLEAN_TRUE:
+			return Boolean.TRUE;
+		case TAG_BYTE:
+			return input.get();
+		case TAG_BYTES:
+			return readBytes(input);
+		case TAG_CHARACTER:
+			return (char) readVarint(input);
+		case TAG_DOUBLE:
+			return Double.longBitsToDouble(readFixed(input, 8));
+		case TAG_FLOAT:
+			return Float.intBitsToFloat((int) readFixed(input, 4));
+		case TAG_INTEGER:
+			return (int) readZigZag(input);
+		case TAG_LONG:
+			return readZigZag(input);
+		case TAG_SHORT:
+			return (short) readZigZag(input);
+		case TAG_STRING:
+			return readString(input);
+		case TAG_NODE_ID:
+			return readNodeId(input);
+		default:
+			throw new IOException("unknown value tag " + tag);
+		}
+	}
+
+	private static long readVarint(final ByteBuffer input) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte current = input.get();
+			value |= (long) (current & 0x7F) << shift;
+			if ((current & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("malformed varint");
+	}
+
+	private static long readZigZag(final ByteBuffer input) throws IOException {
+		final long value = readVarint(input);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public static void writeAddEdge(final Output output, final NodeId nodeId, final NodeId sourceId,
+			final NodeId targetId, final String label, final Map<String, Object> properties) {
+		output.write(OP_ADD_EDGE);
+		writeNodeId(output, nodeId);
+		writeNodeId(output, sourceId);
+		writeNodeId(output, targetId);
+		output.writeString(label);
+		writeProperties(output, properties);
+	}
+
+	public static void writeAddVertex(final Output output, final NodeId nodeId, final String label,
+			final Map<String, Object> properties) {
+		output.write(OP_ADD_VERTEX);
+		writeNodeId(output, nodeId);
+		output.writeString(label);
+		writeProperties(output, properties);
+	}
+
+	private static void writeNodeId(final Output output, final NodeId nodeId) {
+		output.writeString(nodeId.toParseableString());
+	}
+
+	private static void writeProperties(final Output output, final Map<String, Object> properties) {
+		output.writeVarint(properties.size());
+		for (final Map.Entry<String, Object> property : properties.entrySet()) {
+			output.writeString(property.getKey());
+			writeValue(output, property.getValue());
+		}
+	}
+
+	public static void writeRemove(final Output output, final byte operation, final NodeId nodeId) {
+		output.write(operation);
+		writeNodeId(output, nodeId);
+	}
+
+	public static void writeSetProperty(final Output output, final NodeId elementId, final String key,
+			final Object value) {
+		output.write(OP_SET_PROPERTY);
+		writeNodeId(output, elementId);
+		output.writeString(key);
+		writeValue(output, value);
+	}
+
+	private static void writeValue(final Output output, final Object value) {
+		if (value == null) {
+			output.write(TAG_NULL);
+		} else if (value instanceof Boolean) {
+			output.write((Boolean) value ? TAG_BOOLEAN_TRUE : TAG_BOOLEAN_FALSE);
+		} else if (value instanceof Double) {
+			output.write(TAG_DOUBLE);
+			output.writeFixed(Double.doubleToRawLongBits((Double) value), 8);
+		} else if (value instanceof Float) {
+			output.write(TAG_FLOAT);
+			output.writeFixed(Float.floatToRawIntBits((Float) value), 4);
+		} else if (value instanceof Long) {
+			output.write(TAG_LONG);
+			output.writeZigZag((Long) value);
+		} else if (value instanceof Integer) {
+			output.write(TAG_INTEGER);
+			output.writeZigZag((Integer) value);
+		} else if (value instanceof Short) {
+			output.write(TAG_SHORT);
+			output.writeZigZag((Short) value);
+		} else if (value instanceof Byte) {
+			output.write(TAG_BYTE);
+			output.write((Byte) value);
+		} else if (value instanceof Character) {
+			output.write(TAG_CHARACTER);
+			output.writeVarint((Character) value);
+		} else if (value instanceof byte[]) {
+			output.write(TAG_BYTES);
+			output.write((byte[]) value);
+		} else if (value instanceof NodeId) {
+			output.write(TAG_NODE_ID);
+			writeNodeId(output, (NodeId) value);
+		} else {
+			// stringhe e tipi senza codifica dedicata
+			output.write(TAG_STRING);
+			output.writeString(value.toString());
+		}
+	}
+
+	private PersistenceCodec() {
+	}
+
+}
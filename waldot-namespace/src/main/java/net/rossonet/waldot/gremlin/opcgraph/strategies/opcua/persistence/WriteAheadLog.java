@@ -0,0 +1,237 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append only log of the graph changes, split in segment files named after the
+ * sequence of their first record.
+ *
+ * <p>A frame is {@code [int length][int crc32][long sequence][record]}, the crc
+ * covers the sequence and the record. The records are written to the file
+ * channel as soon as they are appended, so they survive the crash of the
+ * process, {@link #force()} makes them durable against the crash of the
+ * machine. A torn frame at the end of the last segment is truncated when the
+ * log is opened.</p>
+ */
+public final class WriteAheadLog implements AutoCloseable {
+
+	private static final int FRAME_HEADER_SIZE = 16;
+	private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+	public static final long MAX_SEGMENT_SIZE = 256L * 1024 * 1024;
+	private static final String SEGMENT_PREFIX = "wal-";
+	private static final String SEGMENT_SUFFIX = ".log";
+
+	private static long firstSequence(final Path segment) {
+		final String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	private static List<Path> listSegments(final Path directory) throws IOException {
+		final List<Path> segments = new ArrayList<>();
+		try (Stream<Path> files = Files.list(directory)) {
+			files.filter(file -> {
+				final String name = file.getFileName().toString();
+				return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+			}).sorted().forEach(segments::add);
+		}
+		return segments;
+	}
+
+	private static long mapSize(final FileChannel channel) throws IOException {
+		final long size = channel.size();
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("segment too large: " + size);
+		}
+		return size;
+	}
+
+	private static Path segmentPath(final Path directory, final long firstSequence) {
+		return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+	}
+
+	private FileChannel channel;
+	private final CRC32 crc = new CRC32();
+	private final Path directory;
+	private final PersistenceCodec.Output frame = new PersistenceCodec.Output(4096);
+	private long sequence;
+
+	/**
+	 * opens the log, the sequence continues from the last record found or from
+	 * minimumSequence when the log is empty.
+	 */
+	public WriteAheadLog(final Path directory, final long minimumSequence) throws IOException {
+		this.directory = directory;
+		Files.createDirectories(directory);
+		sequence = minimumSequence;
+		final List<Path> segments = listSegments(directory);
+		if (segments.isEmpty()) {
+			openSegment();
+		} else {
+			final Path last = segments.get(segments.size() - 1);
+			sequence = Math.max(sequence, firstSequence(last) - 1);
+			channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			final long validSize = scan(channel, null, Long.MAX_VALUE, new long[] { 0 });
+			if (validSize < channel.size()) {
+				logger.warn("truncating torn tail of {} from {} to {} bytes", last, channel.size(), validSize);
+				channel.truncate(validSize);
+			}
+			channel.position(validSize);
+		}
+	}
+
+	/**
+	 * appends a record encoded with {@link PersistenceCodec}.
+	 *
+	 * @return the sequence of the record
+	 */
+	public synchronized long append(final PersistenceCodec.Output record) throws IOException {
+		if (channel.position() >= MAX_SEGMENT_SIZE) {
+			rotate();
+		}
+		final long recordSequence = ++sequence;
+		frame.reset();
+		frame.writeFixed(8 + record.size(), 4);
+		frame.writeFixed(0, 4);
+		frame.writeFixed(recordSequence, 8);
+		frame.writeRaw(record.array(), 0, record.size());
+		crc.reset();
+		crc.update(frame.array(), 8, frame.size() - 8);
+		final ByteBuffer buffer = ByteBuffer.wrap(frame.array(), 0, frame.size());
+		buffer.putInt(4, (int) crc.getValue());
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		return recordSequence;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null && channel.isOpen()) {
+			channel.force(false);
+			channel.close();
+		}
+	}
+
+	/**
+	 * deletes the segments that contain only records up to the sequence.
+	 */
+	public synchronized void deleteUpTo(final long lastSequence) throws IOException {
+		final List<Path> segments = listSegments(directory);
+		// l'ultimo segmento è quello in scrittura
+		for (int i = 0; i < segments.size() - 1; i++) {
+			if (firstSequence(segments.get(i + 1)) - 1 <= lastSequence) {
+				Files.deleteIfExists(segments.get(i));
+			}
+		}
+	}
+
+	public synchronized void force() throws IOException {
+		if (channel.isOpen()) {
+			channel.force(false);
+		}
+	}
+
+	public synchronized long getSequence() {
+		return sequence;
+	}
+
+	private void openSegment() throws IOException {
+		channel = FileChannel.open(segmentPath(directory, sequence + 1), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		channel.position(channel.size());
+	}
+
+	/**
+	 * replays the records with a sequence greater than afterSequence, the replay
+	 * stops at the first damaged frame.
+	 *
+	 * @return the number of records replayed
+	 */
+	public long replay(final long afterSequence, final GraphMutationHandler handler) throws IOException {
+		final long[] replayed = new long[] { 0 };
+		final List<Path> segments;
+		synchronized (this) {
+			force();
+			segments = listSegments(directory);
+		}
+		for (final Path segment : segments) {
+			try (FileChannel segmentChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+				final long validSize = scan(segmentChannel, handler, afterSequence, replayed);
+				if (validSize < segmentChannel.size()) {
+					logger.warn("damaged record in {} at offset {}, replay stopped", segment, validSize);
+					break;
+				}
+			}
+		}
+		return replayed[0];
+	}
+
+	/**
+	 * closes the current segment and starts a new one.
+	 *
+	 * @return the sequence of the last record before the new segment
+	 */
+	public synchronized long rotate() throws IOException {
+		channel.force(false);
+		channel.close();
+		openSegment();
+		return sequence;
+	}
+
+	/**
+	 * reads the frames of a segment, passing the records to the handler when
+	 * not null, and updates the sequence with the last valid frame.
+	 *
+	 * @return the size of the valid part of the segment
+	 */
+	private long scan(final FileChannel segmentChannel, final GraphMutationHandler handler,
+			final long afterSequence, final long[] replayed) throws IOException {
+		final long size = mapSize(segmentChannel);
+		if (size == 0) {
+			return 0;
+		}
+		final MappedByteBuffer buffer = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		final CRC32 frameCrc = new CRC32();
+		int position = 0;
+		while (position + FRAME_HEADER_SIZE <= size) {
+			final int length = buffer.getInt(position);
+			if (length < 8 || position + 8L + length > size) {
+				break;
+			}
+			final int storedCrc = buffer.getInt(position + 4);
+			frameCrc.reset();
+			frameCrc.update(buffer.slice(position + 8, length));
+			if ((int) frameCrc.getValue() != storedCrc) {
+				break;
+			}
+			final long frameSequence = buffer.getLong(position + 8);
+			if (handler == null) {
+				sequence = Math.max(sequence, frameSequence);
+			} else if (frameSequence > afterSequence) {
+				try {
+					PersistenceCodec.readRecord(buffer.slice(position + FRAME_HEADER_SIZE, length - 8), handler);
+				} catch (final RuntimeException e) {
+					// un record non applicabile non deve bloccare il ripristino
+					logger.warn("record {} not applied: {}", frameSequence, e.getMessage());
+				}
+				replayed[0]++;
+			}
+			position += 8 + length;
+		}
+		return position;
+	}
+
+}
@@ -3,11 +3,13 @@ package net.rossonet.waldot.gremlin.opcgraph.structure;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.Iterator;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.configuration2.Configuration;
 import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
 import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
 import org.apache.tinkerpop.gremlin.structure.Transaction;
 import org.apache.tinkerpop.gremlin.structure.Vertex;
 import org.apache.tinkerpop.gremlin.structure.VertexProperty;
@@ -21,10 +23,14 @@ import net.rossonet.waldot.api.models.IdManager;
 import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.api.models.WaldotNamespace;
+import net.rossonet.waldot.api.models.WaldotTransactionBuffer;
 import net.rossonet.waldot.api.models.WaldotVertex;
 import net.rossonet.waldot.api.strategies.MiloStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.process.computer.OpcGraphComputer;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.sideEffect.OpcParallelScanIterator;
 import net.rossonet.waldot.gremlin.opcgraph.services.OpcServiceRegistry;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcIndexManager;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcIndexType;
 
 /**
  * based on original work of Valentyn Kahamlyk
@@ -117,7 +123,11 @@ public abstract class AbstractOpcGraph implements WaldotGraph {
 	public static final String GREMLIN_OPCGRAPH_ALLOW_NULL_PROPERTY_VALUES = "gremlin.opcgraph.allowNullPropertyValues";
 	// TODO verificare implementabilità con OPC
 	public static final String GREMLIN_OPCGRAPH_DEFAULT_VERTEX_PROPERTY_CARDINALITY = "gremlin.opcgraph.defaultVertexPropertyCardinality";
+	public static final String GREMLIN_OPCGRAPH_PARALLEL_SCAN_PARTITION_SIZE = "gremlin.opcgraph.parallelScanPartitionSize";
+	public static final String GREMLIN_OPCGRAPH_PARALLEL_SCAN_THRESHOLD = "gremlin.opcgraph.parallelScanThreshold";
 	public static final String GREMLIN_OPCGRAPH_SERVICE = "gremlin.opcgraph.service";
+	public static final String GREMLIN_OPCGRAPH_TEXT_INDEX_NGRAM_SIZE = "gremlin.opcgraph.textIndexNgramSize";
+	public static final String GREMLIN_OPCGRAPH_TRANSACTION_COMMIT_TIMEOUT = "gremlin.opcgraph.transactionCommitTimeout";
 
 	protected boolean allowNullPropertyValues;
 
@@ -125,8 +135,18 @@ public abstract class AbstractOpcGraph implements WaldotGraph {
 	protected VertexProperty.Cardinality defaultVertexPropertyCardinality;
 	protected IdManager<NodeId> edgeIdManager = MiloStrategy.getNodeIdManager();
 
+	protected final OpcElementLocks elementLocks = new OpcElementLocks(OpcElementLocks.DEFAULT_STRIPES);
+
 	protected transient AtomicLong generatedId = new AtomicLong(120000L);
 
+	protected final OpcIndexManager indexManager = new OpcIndexManager();
+
+	// elementi minimi di ogni partizione della scansione parallela
+	protected volatile int parallelScanPartitionSize = OpcParallelScanIterator.DEFAULT_MINIMUM_PARTITION_SIZE;
+
+	// elementi oltre i quali le scansioni senza indice sono filtrate in parallelo, 0 le disabilita
+	protected volatile int parallelScanThreshold = OpcParallelScanIterator.DEFAULT_THRESHOLD;
+
 	protected OpcServiceRegistry serviceRegistry;
 
 	protected IdManager<NodeId> vertexIdManager = MiloStrategy.getNodeIdManager();
@@ -164,14 +184,56 @@ public abstract class AbstractOpcGraph implements WaldotGraph {
 		return configuration;
 	}
 
+	@Override
+	public void createEdgeIndex(final String edgeLabel, final String key) {
+		indexManager.createEdgeIndex(edgeLabel, key, edges());
+	}
+
+	@Override
+	public void createIndex(final String key, final Class<? extends Element> elementClass) {
+		indexManager.createIndex(key, elementClass, OpcIndexType.HASH, indexableElements(elementClass));
+	}
+
+	@Override
+	public void createIndex(final String key, final String elementType) {
+		createIndex(key, OpcIndexManager.getElementClass(elementType));
+	}
+
+	@Override
+	public void createRangeIndex(final String key, final Class<? extends Element> elementClass) {
+		indexManager.createIndex(key, elementClass, OpcIndexType.RANGE, indexableElements(elementClass));
+	}
+
+	@Override
+	public void createRangeIndex(final String key, final String elementType) {
+		createRangeIndex(key, OpcIndexManager.getElementClass(elementType));
+	}
+
+	@Override
+	public void dropEdgeIndex(final String edgeLabel, final String key) {
+		indexManager.dropEdgeIndex(edgeLabel, key);
+	}
+
+	@Override
+	public void dropIndex(final String key, final Class<? extends Element> elementClass) {
+		indexManager.dropIndex(key, elementClass);
+	}
+
+	@Override
+	public void dropIndex(final String key, final String elementType) {
+		dropIndex(key, OpcIndexManager.getElementClass(elementType));
+	}
+
 	@Override
 	public Iterator<Edge> edges(final Object... edgeIds) {
 		final NodeId[] nodeIds = new NodeId[edgeIds.length];
 		for (int i = 0; i < edgeIds.length; i++) {
 			nodeIds[i] = vertexIdManager.convert(this, edgeIds[i]);
 		}
-		return createElementIterator(Edge.class, WaldotEdge.class, getWaldotNamespace().getEdges(), edgeIdManager,
-				nodeIds);
+		final Iterator<Edge> edges = createElementIterator(Edge.class, WaldotEdge.class,
+				getWaldotNamespace().getEdges(), edgeIdManager, nodeIds);
+		final OpcTransactionContext transaction = getTransactionReads();
+		return transaction == null ? edges : transaction.edges(edges, nodeIds);
 	}
 
 	@Override
@@ -184,6 +246,48 @@ public abstract class AbstractOpcGraph implements WaldotGraph {
 		return generatedId.incrementAndGet();
 	}
 
+	/**
+	 * @return the striped locks taken by the writes of the graph elements
+	 */
+	public OpcElementLocks getElementLocks() {
+		return elementLocks;
+	}
+
+	@Override
+	public Set<String> getIndexedKeys(final Class<? extends Element> elementClass) {
+		return indexManager.getIndexedKeys(elementClass);
+	}
+
+	public OpcIndexManager getIndexManager() {
+		return indexManager;
+	}
+
+	/**
+	 * @return the minimum number of elements of a partition of the parallel scan
+	 */
+	public int getParallelScanPartitionSize() {
+		return parallelScanPartitionSize;
+	}
+
+	/**
+	 * @return the number of elements above which the unindexed scans are filtered
+	 *         in parallel, 0 if the parallel scan is disabled
+	 */
+	public int getParallelScanThreshold() {
+		return parallelScanThreshold;
+	}
+
+	/**
+	 * @return the transaction of the current thread when its reads have to see
+	 *         its writes, null otherwise
+	 */
+	public OpcTransactionContext getTransactionReads() {
+		final WaldotTransactionBuffer buffer = getTransactionBuffer();
+		return buffer instanceof OpcTransactionContext && ((OpcTransactionContext) buffer).hasChanges()
+				? (OpcTransactionContext) buffer
+				: null;
+	}
+
 	@Override
 	public int getVerticesCount() {
 		return getWaldotNamespace().getVerticesCount();
@@ -194,6 +298,17 @@ public abstract class AbstractOpcGraph implements WaldotGraph {
 
 	///////////// GRAPH SPECIFIC INDEXING METHODS ///////////////
 
+	private Iterator<? extends Element> indexableElements(final Class<? extends Element> elementClass) {
+		// gli indici leggono gli elementi del grafo, non le viste della transazione
+		if (Vertex.class.isAssignableFrom(elementClass)) {
+			return getWaldotNamespace().getVertices().values().iterator();
+		}
+		if (Edge.class.isAssignableFrom(elementClass)) {
+			return getWaldotNamespace().getEdges().values().iterator();
+		}
+		throw new IllegalArgumentException("Class is not indexable: " + elementClass);
+	}
+
 	@SuppressWarnings({ "rawtypes" })
 	protected OpcServiceRegistry.OpcServiceFactory instantiate(final String className) {
 		try {
@@ -226,6 +341,29 @@ public abstract class AbstractOpcGraph implements WaldotGraph {
 	@Override
 	public abstract void setNamespace(WaldotNamespace waldotNamespace);
 
+	/**
+	 * @param parallelScanPartitionSize the minimum number of elements of a
+	 *                                  partition of the parallel scan
+	 */
+	public void setParallelScanPartitionSize(final int parallelScanPartitionSize) {
+		if (parallelScanPartitionSize < 1) {
+			throw new IllegalArgumentException("Parallel scan partition size must be positive");
+		}
+		this.parallelScanPartitionSize = parallelScanPartitionSize;
+	}
+
+	/**
+	 * @param parallelScanThreshold the number of elements above which the
+	 *                              unindexed scans are filtered in parallel, 0
+	 *                              disables the parallel scan
+	 */
+	public void setParallelScanThreshold(final int parallelScanThreshold) {
+		if (parallelScanThreshold < 0) {
+			throw new IllegalArgumentException("Parallel scan threshold must not be negative");
+		}
+		this.parallelScanThreshold = parallelScanThreshold;
+	}
+
 	@Override
 	public String toString() {
 		return StringFactory.graphString(this, "vertices:" + this.getWaldotNamespace().getVerticesCount() + " edges:"
@@ -251,7 +389,9 @@ public abstract class AbstractOpcGraph implements WaldotGraph {
 		for (int i = 0; i < vertexIds.length; i++) {
 			nodeIds[i] = vertexIdManager.convert(this, vertexIds[i]);
 		}
-		return createElementIterator(Vertex.class, WaldotVertex.class, getWaldotNamespace().getVertices(),
-				vertexIdManager, nodeIds);
+		final Iterator<Vertex> vertices = createElementIterator(Vertex.class, WaldotVertex.class,
+				getWaldotNamespace().getVertices(), vertexIdManager, nodeIds);
+		final OpcTransactionContext transaction = getTransactionReads();
+		return transaction == null ? vertices : transaction.vertices(vertices, nodeIds);
 	}
 }
@@ -0,0 +1,148 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Striped write locks on the elements of {@link OpcGraph}, keyed by NodeId.
+ *
+ * <p>A write locks the stripes of all the elements it changes (a vertex, an
+ * edge with its endpoints, a vertex with its incident edges and neighbours)
+ * in ascending order, so two writers never wait on each other in a cycle.
+ * Reads take no lock: the caches and the indexes of the graph are concurrent
+ * maps.</p>
+ *
+ * <p>The notifications raised while a thread holds a stripe run when the
+ * thread releases its last stripe, so an observer or a plugin that writes the
+ * graph never takes a stripe out of order.</p>
+ */
+public class OpcElementLocks {
+
+	public static final int DEFAULT_STRIPES = 1024;
+
+	private static final Logger logger = LoggerFactory.getLogger(OpcElementLocks.class);
+
+	private final ThreadLocal<List<Runnable>> deferredNotifications = ThreadLocal.withInitial(ArrayList::new);
+	private final ThreadLocal<int[]> holdCount = ThreadLocal.withInitial(() -> new int[1]);
+	private final int mask;
+	private final ReentrantLock[] stripes;
+
+	public OpcElementLocks(final int stripes) {
+		if (stripes < 1) {
+			throw new IllegalArgumentException("stripes must be positive");
+		}
+		int size = 1;
+		while (size < stripes) {
+			size <<= 1;
+		}
+		this.stripes = new ReentrantLock[size];
+		for (int i = 0; i < size; i++) {
+			this.stripes[i] = new ReentrantLock();
+		}
+		mask = size - 1;
+	}
+
+	/**
+	 * runs the notification when the current thread releases its last stripe.
+	 *
+	 * @return false if the thread holds no stripe and the notification must run
+	 *         now
+	 */
+	public boolean defer(final Runnable notification) {
+		if (holdCount.get()[0] == 0) {
+			return false;
+		}
+		deferredNotifications.get().add(notification);
+		return true;
+	}
+
+	/**
+	 * @return true if the current thread holds the stripes of all the elements
+	 */
+	public boolean isLocked(final Collection<NodeId> nodeIds) {
+		for (final NodeId nodeId : nodeIds) {
+			if (!stripes[stripe(nodeId)].isHeldByCurrentThread()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * locks the stripes of the elements in ascending order.
+	 *
+	 * @return the stripes to pass to {@link #unlock(int[])}
+	 */
+	public int[] lock(final Collection<NodeId> nodeIds) {
+		final int[] selected = new int[nodeIds.size()];
+		int i = 0;
+		for (final NodeId nodeId : nodeIds) {
+			selected[i++] = stripe(nodeId);
+		}
+		return lockStripes(selected);
+	}
+
+	public int[] lock(final NodeId... nodeIds) {
+		final int[] selected = new int[nodeIds.length];
+		for (int i = 0; i < nodeIds.length; i++) {
+			selected[i] = stripe(nodeIds[i]);
+		}
+		return lockStripes(selected);
+	}
+
+	private int[] lockStripes(final int[] selected) {
+		Arrays.sort(selected);
+		int size = 0;
+		for (int i = 0; i < selected.length; i++) {
+			if (size == 0 || selected[size - 1] != selected[i]) {
+				selected[size++] = selected[i];
+			}
+		}
+		final int[] locked = Arrays.copyOf(selected, size);
+		for (final int stripe : locked) {
+			stripes[stripe].lock();
+		}
+		holdCount.get()[0]++;
+		return locked;
+	}
+
+	private int stripe(final NodeId nodeId) {
+		final int hash = nodeId.hashCode();
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	/**
+	 * unlocks the stripes and, when the thread holds no more stripes, runs the
+	 * notifications deferred meanwhile.
+	 */
+	public void unlock(final int[] locked) {
+		for (int i = locked.length - 1; i >= 0; i--) {
+			stripes[locked[i]].unlock();
+		}
+		final int[] count = holdCount.get();
+		if (--count[0] > 0) {
+			return;
+		}
+		final List<Runnable> pending = deferredNotifications.get();
+		// le notifiche possono scrivere il grafo e accodarne altre
+		while (!pending.isEmpty()) {
+			final List<Runnable> notifications = new ArrayList<>(pending);
+			pending.clear();
+			for (final Runnable notification : notifications) {
+				try {
+					notification.run();
+				} catch (final RuntimeException e) {
+					logger.error("error delivering a deferred notification: {}", e.getMessage(), e);
+				}
+			}
+		}
+	}
+
+}
@@ -261,7 +261,11 @@ public final class OpcFactory {
 
 	public static WaldotGraph getOpcGraph(String bootStrapUrl, HistoryStrategy historyStrategy)
 			throws InterruptedException, ExecutionException {
-		final WaldotConfiguration configuration = DefaultHomunculusConfiguration.getDefault();
+		return getOpcGraph(bootStrapUrl, historyStrategy, DefaultHomunculusConfiguration.getDefault());
+	}
+
+	public static WaldotGraph getOpcGraph(String bootStrapUrl, HistoryStrategy historyStrategy,
+			WaldotConfiguration configuration) throws InterruptedException, ExecutionException {
 		final OpcConfiguration serverConfiguration = DefaultOpcUaConfiguration.getDefault();
 		final WaldotOpcUaServer waldot = new WaldotOpcUaServer(configuration, serverConfiguration,
 				new DefaultAnonymousValidator(configuration), new DefaultIdentityValidator(configuration),
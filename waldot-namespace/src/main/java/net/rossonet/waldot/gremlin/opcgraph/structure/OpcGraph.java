@@ -17,11 +17,18 @@ import org.slf4j.LoggerFactory;
 
 import net.rossonet.waldot.api.models.WaldotGraphComputerView;
 import net.rossonet.waldot.api.models.WaldotNamespace;
+import net.rossonet.waldot.api.models.WaldotTransactionBuffer;
 import net.rossonet.waldot.api.models.WaldotVertex;
 import net.rossonet.waldot.api.strategies.MiloStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.sideEffect.OpcParallelScanIterator;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.finalization.OpcQueryDependencyStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.optimization.OpcAggregationStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.optimization.OpcGraphCostStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.optimization.OpcGraphCountStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.optimization.OpcGraphStepStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.strategy.optimization.OpcVertexCentricIndexStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.services.OpcServiceRegistry;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcTextIndex;
 
 /**
  * @author Andrea Ambrosini ( - andrea DOT ambrosini AT rossonet DOT org - )
@@ -77,6 +84,7 @@ public class OpcGraph extends AbstractOpcGraph {
 
 		@Override
 		public boolean supportsConcurrentAccess() {
+			// thread safe, ma una sola istanza per namespace: vedi OpcElementLocks
 			return false;
 		}
 
@@ -92,7 +100,7 @@ public class OpcGraph extends AbstractOpcGraph {
 
 		@Override
 		public boolean supportsTransactions() {
-			return false;
+			return true;
 		}
 
 	}
@@ -106,7 +114,9 @@ public class OpcGraph extends AbstractOpcGraph {
 	static {
 		TraversalStrategies.GlobalCache.registerStrategies(OpcGraph.class,
 				TraversalStrategies.GlobalCache.getStrategies(Graph.class).clone()
-						.addStrategies(OpcGraphStepStrategy.instance(), OpcGraphCountStrategy.instance()));
+						.addStrategies(OpcGraphStepStrategy.instance(), OpcGraphCountStrategy.instance(),
+								OpcGraphCostStrategy.instance(), OpcAggregationStrategy.instance(),
+								OpcVertexCentricIndexStrategy.instance(), OpcQueryDependencyStrategy.instance()));
 	}
 
 	public static OpcGraph open() {
@@ -123,11 +133,21 @@ public class OpcGraph extends AbstractOpcGraph {
 
 	private WaldotNamespace opcNamespace;
 
+	private final OpcTransaction transaction = new OpcTransaction(this);
+
 	OpcGraph(final Configuration configuration) {
 		this.configuration = configuration;
 		defaultVertexPropertyCardinality = VertexProperty.Cardinality.valueOf(configuration.getString(
 				GREMLIN_OPCGRAPH_DEFAULT_VERTEX_PROPERTY_CARDINALITY, VertexProperty.Cardinality.single.name()));
 		allowNullPropertyValues = configuration.getBoolean(GREMLIN_OPCGRAPH_ALLOW_NULL_PROPERTY_VALUES, false);
+		indexManager.getTextIndex().setNgramSize(
+				configuration.getInt(GREMLIN_OPCGRAPH_TEXT_INDEX_NGRAM_SIZE, OpcTextIndex.DEFAULT_NGRAM_SIZE));
+		setParallelScanThreshold(configuration.getInt(GREMLIN_OPCGRAPH_PARALLEL_SCAN_THRESHOLD,
+				OpcParallelScanIterator.DEFAULT_THRESHOLD));
+		setParallelScanPartitionSize(configuration.getInt(GREMLIN_OPCGRAPH_PARALLEL_SCAN_PARTITION_SIZE,
+				OpcParallelScanIterator.DEFAULT_MINIMUM_PARTITION_SIZE));
+		transaction.setCommitTimeoutMs(
+				configuration.getLong(GREMLIN_OPCGRAPH_TRANSACTION_COMMIT_TIMEOUT, OpcTransaction.DEFAULT_COMMIT_TIMEOUT_MS));
 		serviceRegistry = new OpcServiceRegistry(this);
 		configuration.getList(String.class, GREMLIN_OPCGRAPH_SERVICE, Collections.emptyList())
 				.forEach(serviceClass -> serviceRegistry.registerService(instantiate(serviceClass)));
@@ -139,6 +159,11 @@ public class OpcGraph extends AbstractOpcGraph {
 			throw new IllegalArgumentException("Namespace not set");
 		}
 		ElementHelper.legalPropertyKeyValueArray(keyValues);
+		final WaldotTransactionBuffer buffer = getTransactionBuffer();
+		if (buffer != null) {
+			// il buffer assegna l'id e controlla i duplicati anche tra i vertici della transazione
+			return buffer.addVertex(keyValues);
+		}
 		/*
 		 * for (int i = 0; i < keyValues.length; i = i + 2) {
 		 * logger.debug("Key: {}, Value: {}", keyValues[i], keyValues[i + 1]); }
@@ -161,9 +186,22 @@ public class OpcGraph extends AbstractOpcGraph {
 
 	@Override
 	public void closeProcedure() {
+		// i batch dei bulk loader ancora aperti non vanno persi
+		if (opcNamespace != null) {
+			opcNamespace.closeBulkLoaders();
+		}
 		logger.info("opc graph closed");
 	}
 
+	@Override
+	public boolean deferNotification(final Object key, final Runnable notification) {
+		final OpcTransactionContext context = transaction.getContext();
+		if (context != null) {
+			return context.defer(key, notification);
+		}
+		return elementLocks.defer(notification);
+	}
+
 	@Override
 	public Features features() {
 		return features;
@@ -182,6 +220,20 @@ public class OpcGraph extends AbstractOpcGraph {
 		return serviceRegistry;
 	}
 
+	@Override
+	public WaldotTransactionBuffer getTransactionBuffer() {
+		final OpcTransactionContext context = transaction.getContext();
+		// durante il commit le scritture vanno al namespace
+		return context == null || context.isApplying() ? null : context;
+	}
+
+	/**
+	 * @return the transaction open in the current thread, or null
+	 */
+	public OpcTransactionContext getTransactionContext() {
+		return transaction.getContext();
+	}
+
 	@Override
 	public WaldotNamespace getWaldotNamespace() {
 		return opcNamespace;
@@ -198,7 +250,7 @@ public class OpcGraph extends AbstractOpcGraph {
 
 	@Override
 	public Transaction tx() {
-		throw Exceptions.transactionsNotSupported();
+		return transaction;
 	}
 
 }
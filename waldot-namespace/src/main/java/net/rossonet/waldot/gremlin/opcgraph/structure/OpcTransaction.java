@@ -0,0 +1,182 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.tinkerpop.gremlin.structure.util.AbstractThreadLocalTransaction;
+import org.apache.tinkerpop.gremlin.structure.util.AbstractTransaction.TransactionException;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transaction of {@link OpcGraph}.
+ *
+ * <p>The writes made through the vertices, the edges and the graph are
+ * buffered in the {@link OpcTransactionContext} and applied to the address
+ * space at commit, so the other threads do not see them before. The
+ * traversals of the transaction thread read its own writes: the elements they
+ * return are views with the buffered properties, the removed elements are
+ * skipped and the created elements are included. Rollback discards the
+ * buffer.</p>
+ *
+ * <p>The commits of different threads are serialized by a lock taken only
+ * while the buffer is applied, waiting at most the commit timeout. The buffer
+ * is applied holding the element locks of all the elements it touches, so the
+ * writers outside the transaction never interleave with a commit on the same
+ * elements. A write that fails rolls back the writes already applied with
+ * their undo actions. The notifications of the changes (property observers,
+ * history, plugins) are coalesced by element and property and delivered after
+ * the apply. The reads do not take the element locks, a reader running during
+ * the apply can see some elements of the commit before the others.</p>
+ */
+public class OpcTransaction extends AbstractThreadLocalTransaction {
+
+	public static final long DEFAULT_COMMIT_TIMEOUT_MS = 30_000L;
+
+	private static final Logger logger = LoggerFactory.getLogger(OpcTransaction.class);
+
+	private final ReentrantLock commitLock = new ReentrantLock();
+	private long commitTimeoutMs = DEFAULT_COMMIT_TIMEOUT_MS;
+	private final ThreadLocal<OpcTransactionContext> context = new ThreadLocal<>();
+	private final OpcGraph graph;
+
+	public OpcTransaction(final OpcGraph graph) {
+		super(graph);
+		this.graph = graph;
+	}
+
+	private void apply(final OpcTransactionContext current) throws TransactionException {
+		final int writes = current.getBufferedCount();
+		try {
+			if (!commitLock.tryLock(commitTimeoutMs, TimeUnit.MILLISECONDS)) {
+				current.undo();
+				throw new TransactionException(
+						"commit lock not acquired in " + commitTimeoutMs + " ms, " + writes + " writes discarded");
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			current.undo();
+			throw new TransactionException("commit interrupted, " + writes + " writes discarded", e);
+		}
+		try {
+			final OpcElementLocks locks = graph.getElementLocks();
+			final int[] stripes = lockElements(current);
+			try {
+				current.apply();
+			} catch (final RuntimeException e) {
+				final List<RuntimeException> errors = current.undo();
+				final TransactionException exception = new TransactionException(
+						"commit failed, " + writes + " writes rolled back", e);
+				errors.forEach(exception::addSuppressed);
+				throw exception;
+			} finally {
+				locks.unlock(stripes);
+			}
+		} finally {
+			commitLock.unlock();
+		}
+	}
+
+	@Override
+	protected void doCommit() throws TransactionException {
+		final OpcTransactionContext current = context.get();
+		if (current == null) {
+			return;
+		}
+		try {
+			if (current.getBufferedCount() > 0) {
+				apply(current);
+			}
+			final List<Runnable> notifications = current.drainNotifications();
+			for (final Runnable notification : notifications) {
+				try {
+					notification.run();
+				} catch (final RuntimeException e) {
+					logger.error("error delivering a transaction notification: {}", e.getMessage(), e);
+				}
+			}
+			logger.debug("transaction committed, {} notifications delivered", notifications.size());
+		} finally {
+			context.remove();
+		}
+	}
+
+	@Override
+	protected void doOpen() {
+		context.set(new OpcTransactionContext(graph));
+	}
+
+	@Override
+	protected void doRollback() throws TransactionException {
+		final OpcTransactionContext current = context.get();
+		if (current == null) {
+			return;
+		}
+		try {
+			final int writes = current.getBufferedCount();
+			// le scritture fatte fuori dal buffer hanno le loro azioni di annullamento
+			final int changes = current.getChangeCount();
+			final List<RuntimeException> errors = current.undo();
+			if (!errors.isEmpty()) {
+				final TransactionException exception = new TransactionException(
+						errors.size() + " of " + changes + " changes not reverted", errors.get(0));
+				errors.stream().skip(1).forEach(exception::addSuppressed);
+				throw exception;
+			}
+			logger.debug("transaction rolled back, {} writes discarded, {} changes reverted", writes, changes);
+		} finally {
+			context.remove();
+		}
+	}
+
+	/**
+	 * @return the maximum time a commit waits for the commits of the other
+	 *         threads
+	 */
+	public long getCommitTimeoutMs() {
+		return commitTimeoutMs;
+	}
+
+	/**
+	 * @return the transaction of the current thread, or null
+	 */
+	public OpcTransactionContext getContext() {
+		return context.get();
+	}
+
+	@Override
+	public boolean isOpen() {
+		return context.get() != null;
+	}
+
+	/**
+	 * locks all the elements touched by the commit, the writers of the other
+	 * threads on the same elements wait for the whole commit. The incident edges
+	 * of the removed vertices can change until they are locked, so the set is
+	 * read again after the lock.
+	 */
+	private int[] lockElements(final OpcTransactionContext current) {
+		final OpcElementLocks locks = graph.getElementLocks();
+		Set<NodeId> nodeIds = current.getLockedElements();
+		while (true) {
+			final int[] stripes = locks.lock(nodeIds);
+			final Set<NodeId> locked = current.getLockedElements();
+			if (locks.isLocked(locked)) {
+				return stripes;
+			}
+			locks.unlock(stripes);
+			nodeIds = locked;
+		}
+	}
+
+	public void setCommitTimeoutMs(final long commitTimeoutMs) {
+		if (commitTimeoutMs < 0) {
+			throw new IllegalArgumentException("commit timeout must not be negative");
+		}
+		this.commitTimeoutMs = commitTimeoutMs;
+	}
+
+}
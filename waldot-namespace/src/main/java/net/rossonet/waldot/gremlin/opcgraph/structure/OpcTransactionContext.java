@@ -0,0 +1,465 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Transaction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+import net.rossonet.waldot.api.models.WaldotEdge;
+import net.rossonet.waldot.api.models.WaldotTransactionBuffer;
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.api.strategies.MiloStrategy;
+
+/**
+ * State of the transaction open in a thread: the writes buffered until the
+ * commit, the undo actions of the changes applied to the graph and the
+ * notifications deferred to the commit.
+ *
+ * <p>The buffered writes are kept in order and find their elements by NodeId
+ * when they are applied, so a write on an element removed by another thread in
+ * the meantime fails the commit.</p>
+ *
+ * <p>The reads of the transaction thread go through the views of the context:
+ * an existing element read or written in the transaction is replaced by a
+ * view with its properties and the buffered writes, the removed elements are
+ * skipped and the elements created in the transaction are added.</p>
+ */
+public class OpcTransactionContext implements WaldotTransactionBuffer {
+
+	private boolean applying = false;
+	private boolean closed = false;
+	private final OpcGraph graph;
+	private final Map<Object, Runnable> notifications = new LinkedHashMap<>();
+	private final List<Runnable> operations = new ArrayList<>();
+	private final Map<NodeId, OpcTransactionEdge> pendingEdges = new LinkedHashMap<>();
+	private final Map<NodeId, OpcTransactionVertex> pendingVertices = new LinkedHashMap<>();
+	private final Set<NodeId> removedIds = new HashSet<>();
+	private boolean rollingBack = false;
+	// elementi scritti dalla transazione, bloccati durante il commit
+	private final Set<NodeId> touchedIds = new HashSet<>();
+	private final Deque<Runnable> undoActions = new ArrayDeque<>();
+	// una vista per elemento, le letture successive restituiscono la stessa istanza
+	private final Map<NodeId, OpcTransactionElement> views = new HashMap<>();
+
+	OpcTransactionContext(final OpcGraph graph) {
+		this.graph = graph;
+	}
+
+	@Override
+	public Edge addEdge(final Vertex outVertex, final String label, final Vertex inVertex,
+			final Object... keyValues) {
+		checkOpen();
+		if (null == inVertex) {
+			throw Graph.Exceptions.argumentCanNotBeNull("vertex");
+		}
+		ElementHelper.legalPropertyKeyValueArray(keyValues);
+		final NodeId outId = (NodeId) outVertex.id();
+		final NodeId inId = (NodeId) inVertex.id();
+		if (removedIds.contains(outId)) {
+			throw Element.Exceptions.elementAlreadyRemoved(Vertex.class, outId);
+		}
+		if (removedIds.contains(inId)) {
+			throw Element.Exceptions.elementAlreadyRemoved(Vertex.class, inId);
+		}
+		// stesse regole della strategia per l'etichetta e l'id dell'arco
+		String elaboratedLabel = label;
+		if (elaboratedLabel == null || elaboratedLabel.isEmpty()) {
+			final String type = MiloStrategy.getKeyValuesProperty(keyValues, MiloStrategy.TYPE_FIELD.toLowerCase());
+			elaboratedLabel = type != null && !type.isEmpty() ? type : MiloStrategy.DEFAULT_EDGE_TYPE;
+		}
+		final Object readId = MiloStrategy.getIdValue(keyValues).orElse(null);
+		final NodeId edgeId = readId != null ? MiloStrategy.getNodeIdManager().convert(graph, readId)
+				: graph.getWaldotNamespace().generateNodeId(
+						outId.getIdentifier() + ":" + elaboratedLabel + ":" + inId.getIdentifier());
+		if (pendingEdges.containsKey(edgeId) && !pendingEdges.get(edgeId).isRemoved()) {
+			throw Graph.Exceptions.edgeWithIdAlreadyExists(edgeId);
+		}
+		final Object[] edgeKeyValues = ElementHelper.upsert(keyValues, T.id, edgeId);
+		operations.add(() -> getVertex(outId).addEdge(label, getVertex(inId), edgeKeyValues));
+		touchedIds.add(outId);
+		touchedIds.add(inId);
+		touchedIds.add(edgeId);
+		final OpcTransactionEdge edge = new OpcTransactionEdge(this, edgeId, elaboratedLabel, view(outVertex),
+				view(inVertex), keyValues);
+		pendingEdges.put(edgeId, edge);
+		return edge;
+	}
+
+	/**
+	 * @return the vertices adjacent to a vertex read in the transaction
+	 */
+	Iterator<Vertex> adjacentVertices(final OpcTransactionVertex vertex, final Direction direction,
+			final String... edgeLabels) {
+		return IteratorUtils.map(incidentEdges(vertex, direction, edgeLabels), edge -> {
+			switch (direction) {
+			case OUT:
+				return edge.inVertex();
+			case IN:
+				return edge.outVertex();
+			default:
+				return edge.outVertex().id().equals(vertex.id()) ? edge.inVertex() : edge.outVertex();
+			}
+		});
+	}
+
+	/**
+	 * records the action that reverts a change, the actions run in reverse order
+	 * on rollback.
+	 */
+	public void addUndo(final Runnable undoAction) {
+		if (!rollingBack) {
+			undoActions.push(undoAction);
+		}
+	}
+
+	@Override
+	public Vertex addVertex(final Object... keyValues) {
+		checkOpen();
+		ElementHelper.legalPropertyKeyValueArray(keyValues);
+		NodeId nodeId = MiloStrategy.getNodeIdManager().convert(graph,
+				MiloStrategy.getIdValue(keyValues).orElse(null));
+		if (nodeId == null) {
+			// l'id è assegnato subito, la transazione legge il vertice con l'id che avrà dopo il commit
+			nodeId = MiloStrategy.getNodeIdManager().getNextId(graph);
+		} else if ((pendingVertices.containsKey(nodeId) && !pendingVertices.get(nodeId).isRemoved())
+				|| graph.getWaldotNamespace().hasNodeId(nodeId)) {
+			throw Graph.Exceptions.vertexWithIdAlreadyExists(nodeId);
+		}
+		String label = MiloStrategy.getKeyValuesProperty(keyValues, MiloStrategy.LABEL_FIELD.toLowerCase());
+		if (label == null) {
+			label = MiloStrategy.DEFAULT_VERTEX_LABEL;
+		}
+		final Object[] vertexKeyValues = ElementHelper.upsert(keyValues, T.id, nodeId);
+		operations.add(() -> graph.addVertex(vertexKeyValues));
+		touchedIds.add(nodeId);
+		final OpcTransactionVertex vertex = new OpcTransactionVertex(this, nodeId, label, keyValues, null);
+		pendingVertices.put(nodeId, vertex);
+		return vertex;
+	}
+
+	/**
+	 * applies the buffered writes to the graph, in the order they were made. The
+	 * writes register their undo actions and notifications in this context.
+	 */
+	void apply() {
+		applying = true;
+		try {
+			for (final Runnable operation : operations) {
+				operation.run();
+			}
+		} finally {
+			applying = false;
+			operations.clear();
+		}
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw Transaction.Exceptions.transactionMustBeOpenToReadWrite();
+		}
+	}
+
+	boolean defer(final Object key, final Runnable notification) {
+		notifications.put(key == null ? new Object() : key, notification);
+		return true;
+	}
+
+	/**
+	 * @return the edges read by the transaction: the views of the existing edges
+	 *         not removed and the edges created in the transaction
+	 */
+	Iterator<Edge> edges(final Iterator<Edge> stored, final NodeId[] ids) {
+		final Iterator<Edge> committed = IteratorUtils.<Edge, Edge>map(IteratorUtils.filter(stored, this::isLive),
+				this::view);
+		final List<Edge> created = new ArrayList<>();
+		final List<NodeId> idList = Arrays.asList(ids);
+		for (final OpcTransactionEdge edge : pendingEdges.values()) {
+			if (!edge.isRemoved() && isLive(edge) && (idList.isEmpty() || idList.contains(edge.id()))) {
+				created.add(edge);
+			}
+		}
+		return IteratorUtils.concat(committed, created.iterator());
+	}
+
+	List<Runnable> drainNotifications() {
+		final List<Runnable> result = new ArrayList<>(notifications.values());
+		notifications.clear();
+		undoActions.clear();
+		closed = true;
+		return result;
+	}
+
+	int getBufferedCount() {
+		return operations.size();
+	}
+
+	int getChangeCount() {
+		return undoActions.size();
+	}
+
+	OpcGraph getGraph() {
+		return graph;
+	}
+
+	/**
+	 * the elements locked while the buffered writes are applied: the written
+	 * elements, the vertices of the written edges and the incident edges and the
+	 * neighbours of the removed vertices, read now from the graph.
+	 */
+	Set<NodeId> getLockedElements() {
+		final Set<NodeId> nodeIds = new HashSet<>(touchedIds);
+		for (final NodeId removedId : removedIds) {
+			final WaldotVertex vertex = graph.getWaldotNamespace().getVertices().get(removedId);
+			if (vertex != null) {
+				vertex.edges(Direction.BOTH).forEachRemaining(edge -> {
+					nodeIds.add((NodeId) edge.id());
+					nodeIds.add((NodeId) edge.outVertex().id());
+					nodeIds.add((NodeId) edge.inVertex().id());
+				});
+			}
+		}
+		return nodeIds;
+	}
+
+	private WaldotEdge getEdge(final NodeId nodeId) {
+		final WaldotEdge edge = graph.getWaldotNamespace().getEdges().get(nodeId);
+		if (edge == null || edge.isRemoved()) {
+			throw Element.Exceptions.elementAlreadyRemoved(Edge.class, nodeId);
+		}
+		return edge;
+	}
+
+	private WaldotVertex getVertex(final NodeId nodeId) {
+		final WaldotVertex vertex = graph.getWaldotNamespace().getVertices().get(nodeId);
+		if (vertex == null || vertex.isRemoved()) {
+			throw Element.Exceptions.elementAlreadyRemoved(Vertex.class, nodeId);
+		}
+		return vertex;
+	}
+
+	/**
+	 * @return true if the transaction has written the graph, the reads go
+	 *         through its views
+	 */
+	public boolean hasChanges() {
+		return !touchedIds.isEmpty();
+	}
+
+	/**
+	 * @return the edges of a vertex read in the transaction
+	 */
+	Iterator<Edge> incidentEdges(final OpcTransactionVertex vertex, final Direction direction,
+			final String... edgeLabels) {
+		final List<Edge> result = new ArrayList<>();
+		if (vertex.isRemoved()) {
+			return result.iterator();
+		}
+		if (vertex.getStored() != null) {
+			vertex.getStored().edges(direction, edgeLabels).forEachRemaining(edge -> {
+				if (isLive(edge)) {
+					result.add(view(edge));
+				}
+			});
+		}
+		for (final OpcTransactionEdge edge : pendingEdges.values()) {
+			if (!edge.isRemoved() && isLive(edge) && ElementHelper.keyExists(edge.label(), edgeLabels)
+					&& isIncident(edge, vertex.id(), direction)) {
+				result.add(edge);
+			}
+		}
+		return result.iterator();
+	}
+
+	/**
+	 * @return true while the buffered writes are applied to the graph
+	 */
+	boolean isApplying() {
+		return applying;
+	}
+
+	private boolean isIncident(final Edge edge, final Object vertexId, final Direction direction) {
+		switch (direction) {
+		case OUT:
+			return edge.outVertex().id().equals(vertexId);
+		case IN:
+			return edge.inVertex().id().equals(vertexId);
+		default:
+			return edge.outVertex().id().equals(vertexId) || edge.inVertex().id().equals(vertexId);
+		}
+	}
+
+	// un arco è rimosso anche con uno dei suoi vertici
+	private boolean isLive(final Edge edge) {
+		return !removedIds.contains(edge.id()) && !removedIds.contains(edge.outVertex().id())
+				&& !removedIds.contains(edge.inVertex().id());
+	}
+
+	public boolean isRollingBack() {
+		return rollingBack;
+	}
+
+	@Override
+	public <V> Property<V> property(final Edge edge, final String key, final V value) {
+		checkOpen();
+		final NodeId edgeId = (NodeId) edge.id();
+		operations.add(() -> getEdge(edgeId).property(key, value));
+		final OpcTransactionEdge view = view(edge);
+		touchedIds.add(edgeId);
+		touchedIds.add((NodeId) view.outVertex().id());
+		touchedIds.add((NodeId) view.inVertex().id());
+		view.setValue(key, value);
+		return new OpcTransactionProperty<>(view, key, value);
+	}
+
+	@Override
+	public <V> VertexProperty<V> property(final Vertex vertex, final String key, final V value) {
+		checkOpen();
+		final NodeId vertexId = (NodeId) vertex.id();
+		operations.add(() -> getVertex(vertexId).property(key, value));
+		final OpcTransactionVertex view = view(vertex);
+		touchedIds.add(vertexId);
+		view.setValue(key, value);
+		return new OpcTransactionVertexProperty<>(this, view, key, value);
+	}
+
+	@Override
+	public void remove(final Element element) {
+		checkOpen();
+		if (element instanceof VertexProperty) {
+			final Vertex vertex = ((VertexProperty<?>) element).element();
+			final NodeId vertexId = (NodeId) vertex.id();
+			final String key = ((VertexProperty<?>) element).key();
+			operations.add(() -> getVertex(vertexId).properties(key).forEachRemaining(Property::remove));
+			touchedIds.add(vertexId);
+			view(vertex).removeValue(key);
+			return;
+		}
+		final NodeId nodeId = (NodeId) element.id();
+		// già rimosso da un altro thread: niente da fare
+		if (element instanceof Vertex) {
+			operations.add(() -> {
+				final WaldotVertex vertex = graph.getWaldotNamespace().getVertices().get(nodeId);
+				if (vertex != null) {
+					vertex.remove();
+				}
+			});
+			view((Vertex) element).setRemoved();
+		} else {
+			operations.add(() -> {
+				final WaldotEdge edge = graph.getWaldotNamespace().getEdges().get(nodeId);
+				if (edge != null) {
+					edge.remove();
+				}
+			});
+			final OpcTransactionEdge view = view((Edge) element);
+			touchedIds.add((NodeId) view.outVertex().id());
+			touchedIds.add((NodeId) view.inVertex().id());
+			view.setRemoved();
+		}
+		touchedIds.add(nodeId);
+		removedIds.add(nodeId);
+	}
+
+	private static Object[] storedKeyValues(final Element element) {
+		final List<Object> keyValues = new ArrayList<>();
+		element.properties().forEachRemaining(property -> {
+			keyValues.add(property.key());
+			keyValues.add(property.value());
+		});
+		return keyValues.toArray();
+	}
+
+	/**
+	 * runs the undo actions and discards the deferred notifications and the
+	 * buffered writes.
+	 *
+	 * @return the errors of the undo actions
+	 */
+	List<RuntimeException> undo() {
+		final List<RuntimeException> errors = new ArrayList<>();
+		rollingBack = true;
+		try {
+			while (!undoActions.isEmpty()) {
+				try {
+					undoActions.pop().run();
+				} catch (final RuntimeException e) {
+					errors.add(e);
+				}
+			}
+		} finally {
+			rollingBack = false;
+			closed = true;
+			notifications.clear();
+			operations.clear();
+		}
+		return errors;
+	}
+
+	/**
+	 * @return the vertices read by the transaction: the views of the existing
+	 *         vertices not removed and the vertices created in the transaction
+	 */
+	Iterator<Vertex> vertices(final Iterator<Vertex> stored, final NodeId[] ids) {
+		final Iterator<Vertex> committed = IteratorUtils.<Vertex, Vertex>map(
+				IteratorUtils.filter(stored, vertex -> !removedIds.contains(vertex.id())), this::view);
+		final List<Vertex> created = new ArrayList<>();
+		final List<NodeId> idList = Arrays.asList(ids);
+		for (final OpcTransactionVertex vertex : pendingVertices.values()) {
+			if (!vertex.isRemoved() && (idList.isEmpty() || idList.contains(vertex.id()))) {
+				created.add(vertex);
+			}
+		}
+		return IteratorUtils.concat(committed, created.iterator());
+	}
+
+	private OpcTransactionEdge view(final Edge edge) {
+		if (edge instanceof OpcTransactionEdge) {
+			return (OpcTransactionEdge) edge;
+		}
+		final NodeId nodeId = (NodeId) edge.id();
+		final OpcTransactionElement view = views.get(nodeId);
+		if (view instanceof OpcTransactionEdge) {
+			return (OpcTransactionEdge) view;
+		}
+		final OpcTransactionEdge created = new OpcTransactionEdge(this, nodeId, edge.label(), view(edge.outVertex()),
+				view(edge.inVertex()), storedKeyValues(edge));
+		views.put(nodeId, created);
+		return created;
+	}
+
+	private OpcTransactionVertex view(final Vertex vertex) {
+		if (vertex instanceof OpcTransactionVertex) {
+			return (OpcTransactionVertex) vertex;
+		}
+		final NodeId nodeId = (NodeId) vertex.id();
+		final OpcTransactionElement view = views.get(nodeId);
+		if (view instanceof OpcTransactionVertex) {
+			return (OpcTransactionVertex) view;
+		}
+		final OpcTransactionVertex created = new OpcTransactionVertex(this, nodeId, vertex.label(),
+				storedKeyValues(vertex), vertex);
+		views.put(nodeId, created);
+		return created;
+	}
+
+}
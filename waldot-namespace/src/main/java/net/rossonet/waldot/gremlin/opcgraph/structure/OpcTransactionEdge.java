@@ -0,0 +1,64 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+/**
+ * edge created or read in a transaction, its vertices are the views of the
+ * transaction.
+ */
+class OpcTransactionEdge extends OpcTransactionElement implements Edge {
+
+	private final Vertex inVertex;
+	private final Vertex outVertex;
+
+	OpcTransactionEdge(final OpcTransactionContext context, final NodeId nodeId, final String label,
+			final Vertex outVertex, final Vertex inVertex, final Object[] keyValues) {
+		super(context, nodeId, label, keyValues);
+		this.outVertex = outVertex;
+		this.inVertex = inVertex;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <V> Iterator<Property<V>> properties(final String... propertyKeys) {
+		return IteratorUtils.<Map.Entry<String, Object>, Property<V>>map(
+				IteratorUtils.filter(getValues().entrySet().iterator(),
+						entry -> ElementHelper.keyExists(entry.getKey(), propertyKeys)),
+				entry -> new OpcTransactionProperty<>(this, entry.getKey(), (V) entry.getValue()));
+	}
+
+	@Override
+	public <V> Property<V> property(final String key, final V value) {
+		checkNotRemoved(Edge.class);
+		ElementHelper.validateProperty(key, value);
+		return context.property(this, key, value);
+	}
+
+	@Override
+	public String toString() {
+		return StringFactory.edgeString(this);
+	}
+
+	@Override
+	public Iterator<Vertex> vertices(final Direction direction) {
+		switch (direction) {
+		case OUT:
+			return IteratorUtils.of(outVertex);
+		case IN:
+			return IteratorUtils.of(inVertex);
+		default:
+			return IteratorUtils.of(outVertex, inVertex);
+		}
+	}
+
+}
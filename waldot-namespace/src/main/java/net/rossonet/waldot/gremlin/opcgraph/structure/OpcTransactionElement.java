@@ -0,0 +1,99 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+/**
+ * element read or created in a transaction: it has the id the element has, or
+ * will get at commit, and the properties of the graph with the writes of the
+ * transaction.
+ */
+abstract class OpcTransactionElement implements Element {
+
+	protected final OpcTransactionContext context;
+	private final String label;
+	private final NodeId nodeId;
+	private boolean removed = false;
+	private final Map<String, Object> values = new LinkedHashMap<>();
+
+	OpcTransactionElement(final OpcTransactionContext context, final NodeId nodeId, final String label,
+			final Object[] keyValues) {
+		this.context = context;
+		this.nodeId = nodeId;
+		this.label = label;
+		for (int i = 0; i < keyValues.length; i = i + 2) {
+			if (keyValues[i] instanceof String) {
+				values.put((String) keyValues[i], keyValues[i + 1]);
+			}
+		}
+	}
+
+	protected void checkNotRemoved(final Class<? extends Element> clazz) {
+		if (removed) {
+			throw Element.Exceptions.elementAlreadyRemoved(clazz, nodeId);
+		}
+	}
+
+	@Override
+	public boolean equals(final Object object) {
+		return ElementHelper.areEqual(this, object);
+	}
+
+	protected Map<String, Object> getValues() {
+		return values;
+	}
+
+	@Override
+	public Graph graph() {
+		return context.getGraph();
+	}
+
+	@Override
+	public int hashCode() {
+		return ElementHelper.hashCode(this);
+	}
+
+	@Override
+	public Object id() {
+		return nodeId;
+	}
+
+	protected boolean isRemoved() {
+		return removed;
+	}
+
+	@Override
+	public Set<String> keys() {
+		return Collections.unmodifiableSet(values.keySet());
+	}
+
+	@Override
+	public String label() {
+		return label;
+	}
+
+	@Override
+	public void remove() {
+		context.remove(this);
+	}
+
+	void removeValue(final String key) {
+		values.remove(key);
+	}
+
+	void setRemoved() {
+		removed = true;
+	}
+
+	void setValue(final String key, final Object value) {
+		values.put(key, value);
+	}
+
+}
@@ -0,0 +1,64 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+
+/**
+ * value written in a transaction on an edge, as the edge properties of the
+ * graph it can not be removed.
+ */
+class OpcTransactionProperty<V> implements Property<V> {
+
+	private final Element element;
+	private final String key;
+	private final V value;
+
+	OpcTransactionProperty(final Element element, final String key, final V value) {
+		this.element = element;
+		this.key = key;
+		this.value = value;
+	}
+
+	@Override
+	public Element element() {
+		return element;
+	}
+
+	@Override
+	public boolean equals(final Object object) {
+		return ElementHelper.areEqual(this, object);
+	}
+
+	@Override
+	public int hashCode() {
+		return ElementHelper.hashCode(this);
+	}
+
+	@Override
+	public boolean isPresent() {
+		return true;
+	}
+
+	@Override
+	public String key() {
+		return key;
+	}
+
+	@Override
+	public void remove() {
+
+	}
+
+	@Override
+	public String toString() {
+		return StringFactory.propertyString(this);
+	}
+
+	@Override
+	public V value() {
+		return value;
+	}
+
+}
@@ -0,0 +1,80 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+/**
+ * vertex created or read in a transaction, its edges are read through the
+ * transaction.
+ */
+class OpcTransactionVertex extends OpcTransactionElement implements Vertex {
+
+	// null per i vertici creati nella transazione
+	private final Vertex stored;
+
+	OpcTransactionVertex(final OpcTransactionContext context, final NodeId nodeId, final String label,
+			final Object[] keyValues, final Vertex stored) {
+		super(context, nodeId, label, keyValues);
+		this.stored = stored;
+	}
+
+	@Override
+	public Edge addEdge(final String label, final Vertex inVertex, final Object... keyValues) {
+		checkNotRemoved(Vertex.class);
+		return context.addEdge(this, label, inVertex, keyValues);
+	}
+
+	@Override
+	public Iterator<Edge> edges(final Direction direction, final String... edgeLabels) {
+		return context.incidentEdges(this, direction, edgeLabels);
+	}
+
+	/**
+	 * @return the vertex of the graph, null if the vertex is created in the
+	 *         transaction
+	 */
+	Vertex getStored() {
+		return stored;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <V> Iterator<VertexProperty<V>> properties(final String... propertyKeys) {
+		if (isRemoved()) {
+			return Collections.emptyIterator();
+		}
+		return IteratorUtils.<Map.Entry<String, Object>, VertexProperty<V>>map(
+				IteratorUtils.filter(getValues().entrySet().iterator(),
+						entry -> ElementHelper.keyExists(entry.getKey(), propertyKeys)),
+				entry -> new OpcTransactionVertexProperty<>(context, this, entry.getKey(), (V) entry.getValue()));
+	}
+
+	@Override
+	public <V> VertexProperty<V> property(final VertexProperty.Cardinality cardinality, final String key,
+			final V value, final Object... keyValues) {
+		checkNotRemoved(Vertex.class);
+		ElementHelper.validateProperty(key, value);
+		return context.property(this, key, value);
+	}
+
+	@Override
+	public String toString() {
+		return StringFactory.vertexString(this);
+	}
+
+	@Override
+	public Iterator<Vertex> vertices(final Direction direction, final String... edgeLabels) {
+		return context.adjacentVertices(this, direction, edgeLabels);
+	}
+
+}
@@ -0,0 +1,91 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.VertexProperty;
+import org.apache.tinkerpop.gremlin.structure.util.ElementHelper;
+import org.apache.tinkerpop.gremlin.structure.util.StringFactory;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+
+import net.rossonet.waldot.api.strategies.MiloStrategy;
+
+/**
+ * value written in a transaction on a vertex, the id is the NodeId the
+ * property node gets at commit.
+ */
+class OpcTransactionVertexProperty<V> implements VertexProperty<V> {
+
+	private final OpcTransactionContext context;
+	private final String key;
+	private final V value;
+	private final Vertex vertex;
+
+	OpcTransactionVertexProperty(final OpcTransactionContext context, final Vertex vertex, final String key,
+			final V value) {
+		this.context = context;
+		this.vertex = vertex;
+		this.key = key;
+		this.value = value;
+	}
+
+	@Override
+	public Vertex element() {
+		return vertex;
+	}
+
+	@Override
+	public boolean equals(final Object object) {
+		return ElementHelper.areEqual(this, object);
+	}
+
+	@Override
+	public int hashCode() {
+		return ElementHelper.hashCode((Element) this);
+	}
+
+	@Override
+	public Object id() {
+		return context.getGraph().getWaldotNamespace().generateNodeId(
+				((NodeId) vertex.id()).getIdentifier() + MiloStrategy.PROPERTY_SPLIT_SIMBOL_IN_NODEID + key);
+	}
+
+	@Override
+	public boolean isPresent() {
+		return true;
+	}
+
+	@Override
+	public String key() {
+		return key;
+	}
+
+	@Override
+	public <U> Iterator<Property<U>> properties(final String... propertyKeys) {
+		return Collections.emptyIterator();
+	}
+
+	@Override
+	public <U> Property<U> property(final String key, final U value) {
+		return Property.empty();
+	}
+
+	@Override
+	public void remove() {
+		context.remove(this);
+	}
+
+	@Override
+	public String toString() {
+		return StringFactory.propertyString(this);
+	}
+
+	@Override
+	public V value() {
+		return value;
+	}
+
+}
@@ -1,5 +1,8 @@
 package net.rossonet.waldot.gremlin.opcgraph.structure.edge;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.eclipse.milo.opcua.sdk.server.model.objects.BaseEventType;
 import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
@@ -11,6 +14,9 @@ import net.rossonet.waldot.api.models.WaldotVertex;
 
 public class FireMonitoredEdge extends MonitoredEdge {
 
+	// ultimo valore inoltrato per ogni proprietà, riferimento del deadband
+	private final Map<String, Object> lastValues = new ConcurrentHashMap<>();
+
 	public FireMonitoredEdge(final WaldotNamespace engine, final WaldotEdge edge, final WaldotVertex sourceVertex,
 			final WaldotVertex targetVertex) {
 		super(engine, edge, sourceVertex, targetVertex);
@@ -38,14 +44,14 @@ public class FireMonitoredEdge extends MonitoredEdge {
 
 	@Override
 	protected Object getLastValue(final String propertyLabel) {
-		// TODO: implementare una cache per gli ultimi valori per propertyLabel
-		return null;
+		return lastValues.get(propertyLabel);
 	}
 
 	@Override
 	public void propertyChanged(final UaNode node, final String label, final DataValue value) {
 		if (isActive() && isPropertyNotificationActive() && isMonitoredProperty(label)) {
 			if (isDeadBandExceeded(label, value)) {
+				updateLastValue(label, value);
 				final int calcolatedPriority = getPriority();
 				if (isDelayProperty()) {
 					sendFireWithDelay(getTargetVertex(), node, label, value, calcolatedPriority);
@@ -63,4 +69,18 @@ public class FireMonitoredEdge extends MonitoredEdge {
 
 	}
 
+	@Override
+	public void remove() {
+		lastValues.clear();
+		super.remove();
+	}
+
+	private void updateLastValue(final String label, final DataValue value) {
+		if (value != null && value.getValue() != null && value.getValue().getValue() != null) {
+			lastValues.put(label, value.getValue().getValue());
+		} else {
+			lastValues.remove(label);
+		}
+	}
+
 }
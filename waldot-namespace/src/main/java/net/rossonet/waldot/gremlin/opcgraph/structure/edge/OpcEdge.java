@@ -1,12 +1,14 @@
 
 package net.rossonet.waldot.gremlin.opcgraph.structure.edge;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.tinkerpop.gremlin.structure.Direction;
 import org.apache.tinkerpop.gremlin.structure.Edge;
@@ -35,45 +37,61 @@ import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotGraph;
 import net.rossonet.waldot.api.models.WaldotNamespace;
 import net.rossonet.waldot.api.models.WaldotProperty;
+import net.rossonet.waldot.api.models.WaldotTransactionBuffer;
 import net.rossonet.waldot.api.models.WaldotVertex;
 import net.rossonet.waldot.api.models.base.GremlinElement;
 import net.rossonet.waldot.api.strategies.MiloStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
 import net.rossonet.waldot.opc.MiloSingleServerBaseReferenceNodeBuilder;
 
+/**
+ * edge of the graph, the endpoints are held as references so
+ * {@link #inVertex()} and {@link #outVertex()} do not read the address space.
+ * The removal of a vertex removes its incident edges first, under the locks of
+ * the vertex and of its neighbours, and an edge is created only after checking
+ * under the locks of its endpoints that both are still in the graph, so a live
+ * edge never refers to a removed vertex.
+ */
 public class OpcEdge extends GremlinElement implements WaldotEdge {
 
 	private final boolean allowNullPropertyValues;
 
+	// proprietà dell'arco per chiave, i nodi OPC UA delle proprietà si risolvono da qui
+	private final Map<String, WaldotProperty<Object>> edgeProperties = new ConcurrentHashMap<>();
+
 	private final WaldotGraph graph;
 
+	private final WaldotVertex inVertex;
+
 	private final QualifiedProperty<String> labelProperty;
 
 	protected final Logger logger = LoggerFactory.getLogger(getClass());
 
 	private MonitoredEdge monitoredEdge;
 
-	private final Set<WaldotProperty<?>> propertiesToDelete = new HashSet<>();
+	private final WaldotVertex outVertex;
 
-	protected final List<PropertyObserver> propertyObservers = new ArrayList<>();
+	protected final List<PropertyObserver> propertyObservers = new CopyOnWriteArrayList<>();
 
-	private final Set<Reference> referencesToDelete = new HashSet<>();
+	private final Set<Reference> referencesToDelete = ConcurrentHashMap.newKeySet();
 
 	private final QualifiedProperty<String> typeProperty;
 
 	public OpcEdge(final WaldotGraph graph, final NodeId nodeId, final WaldotVertex outVertex, final WaldotVertex inVertex,
 			final String label, final String name, final String description, final UInteger writeMask, final UInteger userWriteMask,
 			final UByte eventNotifier, final long currentVersion) {
-		this(graph, outVertex.getNodeContext(), nodeId, inVertex.getNodeId(), outVertex.getNodeId(), label, name,
-				description, writeMask, userWriteMask, eventNotifier, currentVersion);
+		this(graph, outVertex.getNodeContext(), nodeId, inVertex, outVertex, label, name, description, writeMask,
+				userWriteMask, eventNotifier, currentVersion);
 	}
 
-	private OpcEdge(final WaldotGraph graph, final UaNodeContext context, final NodeId nodeId, final NodeId inVertexId,
-			final NodeId outVertexId, final String label, final String name, final String description, final UInteger writeMask,
+	private OpcEdge(final WaldotGraph graph, final UaNodeContext context, final NodeId nodeId, final WaldotVertex inVertex,
+			final WaldotVertex outVertex, final String label, final String name, final String description, final UInteger writeMask,
 			final UInteger userWriteMask, final UByte eventNotifier, final long currentVersion) {
 		super(context, nodeId, graph.getWaldotNamespace().generateQualifiedName(name), LocalizedText.english(name),
 				LocalizedText.english(description), userWriteMask, userWriteMask, eventNotifier, currentVersion);
 		this.graph = graph;
+		this.inVertex = inVertex;
+		this.outVertex = outVertex;
 		this.allowNullPropertyValues = graph.features().edge().supportsNullPropertyValues();
 		labelProperty = new QualifiedProperty<String>(graph.getWaldotNamespace().getNamespaceUri(),
 				MiloStrategy.LABEL_FIELD,
@@ -89,9 +107,10 @@ public class OpcEdge extends GremlinElement implements WaldotEdge {
 		propertyObservers.add(propertyObserver);
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public void addRelatedProperty(final WaldotProperty<?> property) {
-		propertiesToDelete.add(property);
+		edgeProperties.put(property.key(), (WaldotProperty<Object>) property);
 
 	}
 
@@ -116,7 +135,7 @@ public class OpcEdge extends GremlinElement implements WaldotEdge {
 
 	@Override
 	public ImmutableList<WaldotProperty<Object>> getProperties() {
-		return ImmutableList.copyOf(getNamespace().getEdgeProperties(this));
+		return ImmutableList.copyOf(edgeProperties.values());
 	}
 
 	@Override
@@ -124,6 +143,11 @@ public class OpcEdge extends GremlinElement implements WaldotEdge {
 		return propertyObservers;
 	}
 
+	@Override
+	public WaldotProperty<Object> getRelatedProperty(final String key) {
+		return edgeProperties.get(key);
+	}
+
 	@Override
 	public WaldotGraph graph() {
 		return this.graph;
@@ -131,7 +155,7 @@ public class OpcEdge extends GremlinElement implements WaldotEdge {
 
 	@Override
 	public WaldotVertex inVertex() {
-		return getNamespace().getEdgeInVertex(this);
+		return inVertex;
 	}
 
 	@Override
@@ -154,6 +178,13 @@ public class OpcEdge extends GremlinElement implements WaldotEdge {
 		return getProperty(labelProperty).get();
 	}
 
+	@Override
+	public void notifyPropertyValueChanged(final String label) {
+		if (monitoredEdge != null) {
+			monitoredEdge.edgePropertyChanged(label);
+		}
+	}
+
 	@Override
 	public void notifyPropertyValueChanging(final String label, final DataValue value) {
 		if (label.equals(MiloStrategy.LABEL_FIELD.toLowerCase())) {
@@ -183,13 +214,20 @@ public class OpcEdge extends GremlinElement implements WaldotEdge {
 			final LocalizedText description = new LocalizedText((String) value.getValue().getValue());
 			setDescription(description);
 		}
-		propertyObservers.forEach(observer -> observer.propertyChanged(this, label, value));
+		final Map.Entry<NodeId, String> changeKey = Map.entry(getNodeId(), label);
+		for (final PropertyObserver observer : propertyObservers) {
+			// in transazione le notifiche sono raggruppate al commit
+			if (!observer.isDeferredInTransaction() || !graph.deferNotification(Map.entry(observer, changeKey),
+					() -> observer.propertyChanged(this, label, value))) {
+				observer.propertyChanged(this, label, value);
+			}
+		}
 
 	}
 
 	@Override
 	public WaldotVertex outVertex() {
-		return getNamespace().getEdgeOutVertex(this);
+		return outVertex;
 	}
 
 	@SuppressWarnings({ "unchecked", "rawtypes" })
@@ -238,11 +276,20 @@ public class OpcEdge extends GremlinElement implements WaldotEdge {
 			properties(key).forEachRemaining(Property::remove);
 			return Property.empty();
 		}
+		final WaldotTransactionBuffer buffer = graph.getTransactionBuffer();
+		if (buffer != null) {
+			return buffer.property(this, key, value);
+		}
 		return getNamespace().createOrUpdateWaldotEdgeProperty(this, key, value);
 	}
 
 	@Override
 	public void remove() {
+		final WaldotTransactionBuffer buffer = graph.getTransactionBuffer();
+		if (buffer != null) {
+			buffer.remove(this);
+			return;
+		}
 		getNamespace().removeEdge(this.id());
 		super.remove();
 	}
@@ -258,7 +305,7 @@ public class OpcEdge extends GremlinElement implements WaldotEdge {
 			monitoredEdge.remove();
 			monitoredEdge = null;
 		}
-		for (final WaldotProperty<?> property : propertiesToDelete) {
+		for (final WaldotProperty<?> property : edgeProperties.values()) {
 			property.remove();
 		}
 		for (final Reference reference : referencesToDelete) {
@@ -267,6 +314,11 @@ public class OpcEdge extends GremlinElement implements WaldotEdge {
 
 	}
 
+	@Override
+	public void removeRelatedProperty(final WaldotProperty<?> property) {
+		edgeProperties.remove(property.key(), property);
+	}
+
 	@Override
 	public void setMonitor(final MonitoredEdge monitoredEdge) {
 		if (this.monitoredEdge != null) {
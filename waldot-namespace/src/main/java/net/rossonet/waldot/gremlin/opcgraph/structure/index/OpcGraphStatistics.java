@@ -0,0 +1,425 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.index;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.Contains;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+/**
+ * Statistics of the graph maintained on every write, used by the cost based
+ * optimization of the traversals: elements per label, elements per property
+ * key, approximate number of distinct values per key and degree histograms per
+ * edge label.
+ *
+ * The catalog keeps the label and the keys of every element, so that an update
+ * or a removal does not need the previous state of the element. The distinct
+ * value sketches do not forget the removed values, their estimate is capped by
+ * the number of elements with the key.
+ */
+public class OpcGraphStatistics {
+
+	/**
+	 * number of vertices by degree, in power of two buckets: bucket i counts the
+	 * vertices with degree in [2^i, 2^(i+1)).
+	 */
+	public static final class DegreeHistogram {
+
+		private static int bucket(final int degree) {
+			return 31 - Integer.numberOfLeadingZeros(degree);
+		}
+
+		private final AtomicLongArray buckets = new AtomicLongArray(32);
+		private final LongAdder edges = new LongAdder();
+		private final LongAdder vertices = new LongAdder();
+
+		private void changed(final int oldDegree, final int newDegree) {
+			if (oldDegree > 0) {
+				buckets.decrementAndGet(bucket(oldDegree));
+				vertices.decrement();
+			}
+			if (newDegree > 0) {
+				buckets.incrementAndGet(bucket(newDegree));
+				vertices.increment();
+			}
+			edges.add(newDegree - oldDegree);
+		}
+
+		/**
+		 * @return the average degree of the vertices with at least one edge
+		 */
+		public double getAverageDegree() {
+			final long count = vertices.sum();
+			return count == 0 ? 0 : (double) edges.sum() / count;
+		}
+
+		public long getBucket(final int bucket) {
+			return buckets.get(bucket);
+		}
+
+		public int getBuckets() {
+			return buckets.length();
+		}
+
+		public long getEdges() {
+			return edges.sum();
+		}
+
+		/**
+		 * @return the upper bound of the highest degree, 0 if there are no edges
+		 */
+		public long getMaxDegreeBound() {
+			for (int i = buckets.length() - 1; i >= 0; i--) {
+				if (buckets.get(i) > 0) {
+					return (1L << i + 1) - 1;
+				}
+			}
+			return 0;
+		}
+
+		public long getVertices() {
+			return vertices.sum();
+		}
+
+		@Override
+		public String toString() {
+			final StringBuilder builder = new StringBuilder("degree histogram [");
+			builder.append(getVertices()).append(" vertices, ").append(getEdges()).append(" edges");
+			for (int i = 0; i < buckets.length(); i++) {
+				final long count = buckets.get(i);
+				if (count > 0) {
+					builder.append(", ").append(1L << i).append("+: ").append(count);
+				}
+			}
+			return builder.append("]").toString();
+		}
+	}
+
+	/**
+	 * HyperLogLog sketch of the values of a property key.
+	 */
+	private static final class DistinctSketch {
+
+		private static final int PRECISION = 10;
+
+		private static final int REGISTERS = 1 << PRECISION;
+
+		private static long hash(final Object value) {
+			// finalizzatore di murmur3, distribuisce i bit dell'hashCode
+			long hash = value.hashCode() * 0x9E3779B97F4A7C15L;
+			hash ^= hash >>> 33;
+			hash *= 0xFF51AFD7ED558CCDL;
+			hash ^= hash >>> 33;
+			hash *= 0xC4CEB9FE1A85EC53L;
+			hash ^= hash >>> 33;
+			return hash;
+		}
+
+		private final byte[] registers = new byte[REGISTERS];
+
+		private synchronized void add(final Object value) {
+			final long hash = hash(OpcIndex.normalize(value));
+			final int register = (int) (hash >>> Long.SIZE - PRECISION);
+			final int rank = Math.min(Long.numberOfLeadingZeros(hash << PRECISION), Long.SIZE - PRECISION) + 1;
+			if (rank > registers[register]) {
+				registers[register] = (byte) rank;
+			}
+		}
+
+		private synchronized long estimate() {
+			double sum = 0;
+			int zeros = 0;
+			for (final byte register : registers) {
+				sum += 1.0 / (1L << register);
+				if (register == 0) {
+					zeros++;
+				}
+			}
+			final double alpha = 0.7213 / (1 + 1.079 / REGISTERS);
+			final double estimate = alpha * REGISTERS * REGISTERS / sum;
+			if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+				// linear counting per le cardinalità piccole
+				return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+			}
+			return Math.round(estimate);
+		}
+	}
+
+	private static final class ElementEntry {
+		private final Set<String> keys = new HashSet<>(4);
+		private String label;
+	}
+
+	private static final class ElementStatistics {
+		private final LongAdder count = new LongAdder();
+		private final Map<Element, ElementEntry> entries = new ConcurrentHashMap<>();
+		private final Map<String, KeyStatistics> keys = new ConcurrentHashMap<>();
+		private final Map<String, LongAdder> labels = new ConcurrentHashMap<>();
+
+		private void clear() {
+			entries.clear();
+			keys.clear();
+			labels.clear();
+			count.reset();
+		}
+	}
+
+	private static final class KeyStatistics {
+		private final LongAdder count = new LongAdder();
+		private final DistinctSketch sketch = new DistinctSketch();
+	}
+
+	/**
+	 * selectivity of the predicates without a better estimate, as ranges.
+	 */
+	public static final double DEFAULT_SELECTIVITY = 1.0 / 3;
+
+	private static final String ID_KEY = T.id.getAccessor();
+
+	private final ElementStatistics edges = new ElementStatistics();
+
+	private final Map<String, DegreeHistogram> inDegrees = new ConcurrentHashMap<>();
+
+	private final Map<String, DegreeHistogram> outDegrees = new ConcurrentHashMap<>();
+
+	private final ElementStatistics vertices = new ElementStatistics();
+
+	private double clamp(final double selectivity) {
+		return Math.max(0, Math.min(1, selectivity));
+	}
+
+	public void clear() {
+		vertices.clear();
+		edges.clear();
+		inDegrees.clear();
+		outDegrees.clear();
+	}
+
+	private void decrement(final Map<String, LongAdder> counters, final String key) {
+		final LongAdder counter = counters.get(key);
+		if (counter != null) {
+			counter.decrement();
+		}
+	}
+
+	/**
+	 * called by the adjacency index when the number of edges with the label of
+	 * a vertex changes.
+	 */
+	public void degreeChanged(final String edgeLabel, final Direction direction, final int oldDegree,
+			final int newDegree) {
+		(direction == Direction.IN ? inDegrees : outDegrees).computeIfAbsent(edgeLabel, k -> new DegreeHistogram())
+				.changed(oldDegree, newDegree);
+	}
+
+	public void elementAdded(final Element element) {
+		final ElementStatistics statistics = getStatistics(element.getClass());
+		final ElementEntry entry = statistics.entries.computeIfAbsent(element, k -> new ElementEntry());
+		synchronized (entry) {
+			if (entry.label == null) {
+				entry.label = element.label();
+				statistics.count.increment();
+				statistics.labels.computeIfAbsent(entry.label, k -> new LongAdder()).increment();
+			}
+		}
+	}
+
+	public void elementRemoved(final Element element) {
+		final ElementStatistics statistics = getStatistics(element.getClass());
+		final ElementEntry entry = statistics.entries.remove(element);
+		if (entry == null) {
+			return;
+		}
+		synchronized (entry) {
+			if (entry.label != null) {
+				statistics.count.decrement();
+				decrement(statistics.labels, entry.label);
+			}
+			for (final String key : entry.keys) {
+				final KeyStatistics keyStatistics = statistics.keys.get(key);
+				if (keyStatistics != null) {
+					keyStatistics.count.decrement();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the estimated number of elements of the class matching the
+	 *         container
+	 */
+	public long estimateCount(final Class<? extends Element> elementClass, final HasContainer hasContainer) {
+		return Math.round(estimateSelectivity(elementClass, hasContainer) * getCount(elementClass));
+	}
+
+	/**
+	 * @return the estimated fraction of the elements of the class matching the
+	 *         container, between 0 and 1
+	 */
+	public double estimateSelectivity(final Class<? extends Element> elementClass, final HasContainer hasContainer) {
+		final long total = getCount(elementClass);
+		if (total == 0) {
+			return 0;
+		}
+		final String key = hasContainer.getKey();
+		final double equality;
+		final double present;
+		if (OpcIndexManager.LABEL_KEY.equals(key)) {
+			present = 1;
+			if (hasContainer.getBiPredicate() == Compare.eq || hasContainer.getBiPredicate() == Compare.neq) {
+				equality = (double) getLabelCount(elementClass, String.valueOf(hasContainer.getValue())) / total;
+			} else if (hasContainer.getValue() instanceof Collection) {
+				long count = 0;
+				for (final Object label : (Collection<?>) hasContainer.getValue()) {
+					count += getLabelCount(elementClass, String.valueOf(label));
+				}
+				return clamp(hasContainer.getBiPredicate() == Contains.without ? 1 - (double) count / total
+						: (double) count / total);
+			} else {
+				return DEFAULT_SELECTIVITY;
+			}
+		} else if (ID_KEY.equals(key)) {
+			present = 1;
+			equality = 1.0 / total;
+		} else {
+			present = clamp((double) getKeyCount(elementClass, key) / total);
+			equality = present / Math.max(1, getDistinctValues(elementClass, key));
+		}
+		if (hasContainer.getBiPredicate() == Compare.eq) {
+			return clamp(equality);
+		}
+		if (hasContainer.getBiPredicate() == Compare.neq) {
+			return clamp(present - equality);
+		}
+		if (hasContainer.getBiPredicate() == Contains.within || hasContainer.getBiPredicate() == Contains.without) {
+			final int values = hasContainer.getValue() instanceof Collection
+					? ((Collection<?>) hasContainer.getValue()).size()
+					: 1;
+			final double within = Math.min(present, values * equality);
+			return clamp(hasContainer.getBiPredicate() == Contains.within ? within : present - within);
+		}
+		return clamp(present * DEFAULT_SELECTIVITY);
+	}
+
+	public long getCount(final Class<? extends Element> elementClass) {
+		return Math.max(0, getStatistics(elementClass).count.sum());
+	}
+
+	/**
+	 * @return the histogram of the degree of the vertices on the edges with the
+	 *         label, OUT for the sources and IN for the targets
+	 */
+	public DegreeHistogram getDegreeHistogram(final String edgeLabel, final Direction direction) {
+		final DegreeHistogram histogram = (direction == Direction.IN ? inDegrees : outDegrees).get(edgeLabel);
+		return histogram == null ? new DegreeHistogram() : histogram;
+	}
+
+	/**
+	 * @return the estimated number of distinct values of the key, never more
+	 *         than the elements with the key
+	 */
+	public long getDistinctValues(final Class<? extends Element> elementClass, final String key) {
+		final KeyStatistics keyStatistics = getStatistics(elementClass).keys.get(key);
+		if (keyStatistics == null) {
+			return 0;
+		}
+		return Math.min(keyStatistics.sketch.estimate(), Math.max(0, keyStatistics.count.sum()));
+	}
+
+	public long getKeyCount(final Class<? extends Element> elementClass, final String key) {
+		final KeyStatistics keyStatistics = getStatistics(elementClass).keys.get(key);
+		return keyStatistics == null ? 0 : Math.max(0, keyStatistics.count.sum());
+	}
+
+	/**
+	 * @return the number of elements of the class for every property key
+	 */
+	public Map<String, Long> getKeyCounts(final Class<? extends Element> elementClass) {
+		final Map<String, Long> result = new TreeMap<>();
+		getStatistics(elementClass).keys.forEach((key, keyStatistics) -> {
+			final long count = keyStatistics.count.sum();
+			if (count > 0) {
+				result.put(key, count);
+			}
+		});
+		return result;
+	}
+
+	public long getLabelCount(final Class<? extends Element> elementClass, final String label) {
+		final LongAdder counter = getStatistics(elementClass).labels.get(label);
+		return counter == null ? 0 : Math.max(0, counter.sum());
+	}
+
+	/**
+	 * @return the number of elements of the class for every label
+	 */
+	public Map<String, Long> getLabelCounts(final Class<? extends Element> elementClass) {
+		final Map<String, Long> result = new TreeMap<>();
+		getStatistics(elementClass).labels.forEach((label, counter) -> {
+			final long count = counter.sum();
+			if (count > 0) {
+				result.put(label, count);
+			}
+		});
+		return result;
+	}
+
+	private ElementStatistics getStatistics(final Class<?> elementClass) {
+		if (Vertex.class.isAssignableFrom(elementClass)) {
+			return vertices;
+		}
+		if (Edge.class.isAssignableFrom(elementClass)) {
+			return edges;
+		}
+		throw new IllegalArgumentException("Class has no statistics: " + elementClass);
+	}
+
+	/**
+	 * records a write of the property, a null value records the removal of the
+	 * property.
+	 */
+	public void propertyChanged(final Element element, final String key, final Object value) {
+		if (OpcIndexManager.LABEL_KEY.equals(key)) {
+			return;
+		}
+		final ElementStatistics statistics = getStatistics(element.getClass());
+		final ElementEntry entry = value == null ? statistics.entries.get(element)
+				: statistics.entries.computeIfAbsent(element, k -> new ElementEntry());
+		if (entry == null) {
+			return;
+		}
+		synchronized (entry) {
+			final boolean changed = value == null ? entry.keys.remove(key) : entry.keys.add(key);
+			final KeyStatistics keyStatistics = statistics.keys.computeIfAbsent(key, k -> new KeyStatistics());
+			if (changed) {
+				if (value == null) {
+					keyStatistics.count.decrement();
+				} else {
+					keyStatistics.count.increment();
+				}
+			}
+			if (value != null) {
+				keyStatistics.sketch.add(value);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "graph statistics [" + getCount(Vertex.class) + " vertices, " + getCount(Edge.class) + " edges, "
+				+ vertices.keys.size() + " vertex keys, " + edges.keys.size() + " edge keys]";
+	}
+
+}
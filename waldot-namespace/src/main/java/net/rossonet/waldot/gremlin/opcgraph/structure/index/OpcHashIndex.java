@@ -0,0 +1,44 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.index;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.structure.Element;
+
+public class OpcHashIndex<T extends Element> extends OpcIndex<T> {
+
+	private final Map<Object, Set<T>> index = new ConcurrentHashMap<>();
+
+	public OpcHashIndex(final String key) {
+		super(key);
+	}
+
+	@Override
+	protected void addValue(final Object value, final T element) {
+		index.computeIfAbsent(value, k -> ConcurrentHashMap.newKeySet()).add(element);
+	}
+
+	@Override
+	protected void clearValues() {
+		index.clear();
+	}
+
+	@Override
+	protected Collection<Set<T>> getBuckets(final HasContainer hasContainer) {
+		return matchEquality(hasContainer, value -> index);
+	}
+
+	@Override
+	public OpcIndexType getType() {
+		return OpcIndexType.HASH;
+	}
+
+	@Override
+	protected void removeValue(final Object value, final T element) {
+		removeFromBucket(index, value, element);
+	}
+
+}
@@ -0,0 +1,187 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.index;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.Contains;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.structure.Element;
+
+/**
+ * Secondary index of the elements on the value of a property key.
+ *
+ * The index keeps the value indexed for every element, so that an update does
+ * not need the previous value of the property. Mutations are serialized on the
+ * index, lookups are lock-free and return a copy of the matching elements.
+ */
+public abstract class OpcIndex<T extends Element> {
+
+	/**
+	 * normalizes numbers so that values equal for Gremlin (29, 29L, 29.0) share
+	 * the same index entry.
+	 */
+	public static Object normalize(final Object value) {
+		if (value instanceof Double || value instanceof Float) {
+			final double number = ((Number) value).doubleValue();
+			if (number == Math.rint(number) && Math.abs(number) < Long.MAX_VALUE) {
+				return (long) number;
+			}
+			return number;
+		}
+		if (value instanceof BigDecimal) {
+			try {
+				return ((BigDecimal) value).longValueExact();
+			} catch (final ArithmeticException e) {
+				return ((BigDecimal) value).doubleValue();
+			}
+		}
+		if (value instanceof BigInteger) {
+			return ((BigInteger) value).bitLength() < Long.SIZE ? ((BigInteger) value).longValue()
+					: ((BigInteger) value).doubleValue();
+		}
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		return value;
+	}
+
+	private final Map<T, Object> indexedValues = new ConcurrentHashMap<>();
+
+	private final String key;
+
+	protected OpcIndex(final String key) {
+		this.key = key;
+	}
+
+	protected abstract void addValue(Object value, T element);
+
+	public synchronized void clear() {
+		indexedValues.clear();
+		clearValues();
+	}
+
+	protected abstract void clearValues();
+
+	/**
+	 * @return the number of elements matching the container, -1 if the predicate
+	 *         is not supported by the index
+	 */
+	public long estimate(final HasContainer hasContainer) {
+		final Collection<Set<T>> buckets = getBuckets(hasContainer);
+		if (buckets == null) {
+			return -1;
+		}
+		long count = 0;
+		for (final Set<T> bucket : buckets) {
+			count += bucket.size();
+		}
+		return count;
+	}
+
+	/**
+	 * @return the sets of elements matching the container, null if the predicate
+	 *         is not supported by the index
+	 */
+	protected abstract Collection<Set<T>> getBuckets(HasContainer hasContainer);
+
+	public String getKey() {
+		return key;
+	}
+
+	public abstract OpcIndexType getType();
+
+	/**
+	 * @return the elements matching the container, null if the predicate is not
+	 *         supported by the index
+	 */
+	public Collection<T> lookup(final HasContainer hasContainer) {
+		final Collection<Set<T>> buckets = getBuckets(hasContainer);
+		if (buckets == null) {
+			return null;
+		}
+		final List<T> result = new ArrayList<>();
+		for (final Set<T> bucket : buckets) {
+			result.addAll(bucket);
+		}
+		return result;
+	}
+
+	protected Collection<Set<T>> matchEquality(final HasContainer hasContainer,
+			final Function<Object, Map<Object, Set<T>>> indexSelector) {
+		final Collection<Object> values;
+		if (hasContainer.getBiPredicate() == Compare.eq) {
+			if (hasContainer.getValue() == null) {
+				return null;
+			}
+			values = List.of(normalize(hasContainer.getValue()));
+		} else if (hasContainer.getBiPredicate() == Contains.within
+				&& hasContainer.getValue() instanceof Collection) {
+			values = new LinkedHashSet<>();
+			for (final Object value : (Collection<?>) hasContainer.getValue()) {
+				if (value != null) {
+					values.add(normalize(value));
+				}
+			}
+		} else {
+			return null;
+		}
+		final List<Set<T>> buckets = new ArrayList<>();
+		for (final Object value : values) {
+			final Set<T> bucket = indexSelector.apply(value).get(value);
+			if (bucket != null) {
+				buckets.add(bucket);
+			}
+		}
+		return buckets;
+	}
+
+	public synchronized void remove(final T element) {
+		final Object oldValue = indexedValues.remove(element);
+		if (oldValue != null) {
+			removeValue(oldValue, element);
+		}
+	}
+
+	protected void removeFromBucket(final Map<Object, Set<T>> index, final Object value, final T element) {
+		final Set<T> bucket = index.get(value);
+		if (bucket != null) {
+			bucket.remove(element);
+			if (bucket.isEmpty()) {
+				index.remove(value);
+			}
+		}
+	}
+
+	protected abstract void removeValue(Object value, T element);
+
+	public int size() {
+		return indexedValues.size();
+	}
+
+	@Override
+	public String toString() {
+		return getType().name().toLowerCase() + " index on '" + key + "' [" + size() + " elements]";
+	}
+
+	public synchronized void update(final T element, final Object value) {
+		final Object newValue = value == null ? null : normalize(value);
+		final Object oldValue = newValue == null ? indexedValues.remove(element)
+				: indexedValues.put(element, newValue);
+		if (oldValue != null) {
+			removeValue(oldValue, element);
+		}
+		if (newValue != null) {
+			addValue(newValue, element);
+		}
+	}
+
+}
@@ -0,0 +1,368 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.index;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Property;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.structure.util.CloseableIterator;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import net.rossonet.waldot.api.PropertyObserver;
+
+/**
+ * Secondary indexes of the graph, vertex and edge labels are always indexed,
+ * property keys on request. The string values and the labels of all the
+ * elements are kept in the {@link OpcTextIndex} for the text search and the
+ * cardinalities in the {@link OpcGraphStatistics} for the cost based
+ * optimization. Edges of a label can also be kept sorted around their vertices
+ * by a {@link OpcVertexCentricIndex}. The manager is registered as property observer on every
+ * element, so that writes from Gremlin and from OPC UA clients keep the indexes
+ * in sync and drop the results of the {@link OpcQueryCache} depending on them.
+ */
+public class OpcIndexManager implements PropertyObserver {
+
+	/**
+	 * an index returning more than this fraction of the elements is slower than
+	 * the lazy scan, that stops early under limit() and hasNext().
+	 */
+	public static final double INDEX_SCAN_RATIO = 0.5;
+
+	public static final String LABEL_KEY = T.label.getAccessor();
+
+	public static Class<? extends Element> getElementClass(final String elementType) {
+		if ("vertex".equalsIgnoreCase(elementType)) {
+			return Vertex.class;
+		}
+		if ("edge".equalsIgnoreCase(elementType)) {
+			return Edge.class;
+		}
+		throw new IllegalArgumentException("Element type must be vertex or edge: " + elementType);
+	}
+
+	private final Map<String, OpcIndex<Element>> edgeIndexes = new ConcurrentHashMap<>();
+
+	private final Logger logger = LoggerFactory.getLogger(getClass());
+
+	private final OpcQueryCache queryCache = new OpcQueryCache();
+
+	private final OpcGraphStatistics statistics = new OpcGraphStatistics();
+
+	private final OpcTextIndex textIndex = new OpcTextIndex(OpcTextIndex.DEFAULT_NGRAM_SIZE);
+
+	// chiave della proprietà -> label dell'arco -> indice
+	private final Map<String, Map<String, OpcVertexCentricIndex>> vertexCentricIndexes = new ConcurrentHashMap<>();
+
+	private final Map<String, OpcIndex<Element>> vertexIndexes = new ConcurrentHashMap<>();
+
+	public OpcIndexManager() {
+		vertexIndexes.put(LABEL_KEY, new OpcHashIndex<>(LABEL_KEY));
+		edgeIndexes.put(LABEL_KEY, new OpcHashIndex<>(LABEL_KEY));
+	}
+
+	public void addElement(final Element element) {
+		getIndexes(element.getClass()).get(LABEL_KEY).update(element, element.label());
+		textIndex.update(element, LABEL_KEY, element.label());
+		statistics.elementAdded(element);
+		if (element instanceof Edge) {
+			updateVertexCentricIndexes((Edge) element);
+		}
+		queryCache.elementChanged(element);
+	}
+
+	/**
+	 * indexes a batch of new elements of the same class, every index is updated
+	 * in one pass over the batch
+	 */
+	public void addElements(final Class<? extends Element> elementClass,
+			final Collection<? extends Element> elements) {
+		for (final OpcIndex<Element> index : getIndexes(elementClass).values()) {
+			final String key = index.getKey();
+			for (final Element element : elements) {
+				if (LABEL_KEY.equals(key)) {
+					index.update(element, element.label());
+				} else {
+					final Property<?> property = element.property(key);
+					if (property.isPresent()) {
+						index.update(element, property.value());
+					}
+				}
+			}
+		}
+		for (final Element element : elements) {
+			textIndex.update(element, LABEL_KEY, element.label());
+			statistics.elementAdded(element);
+			element.properties().forEachRemaining(property -> {
+				textIndex.update(element, property.key(), property.value());
+				statistics.propertyChanged(element, property.key(), property.value());
+			});
+			if (element instanceof Edge) {
+				updateVertexCentricIndexes((Edge) element);
+			}
+			queryCache.elementChanged(element);
+		}
+	}
+
+	public void clear() {
+		vertexIndexes.values().forEach(OpcIndex::clear);
+		edgeIndexes.values().forEach(OpcIndex::clear);
+		textIndex.clear();
+		statistics.clear();
+		vertexCentricIndexes.values().forEach(indexes -> indexes.values().forEach(OpcVertexCentricIndex::clear));
+		queryCache.clear();
+	}
+
+	/**
+	 * creates a vertex-centric index on the edges with the label, sorted on the
+	 * value of the key
+	 */
+	public void createEdgeIndex(final String edgeLabel, final String key, final Iterator<? extends Element> edges) {
+		if (edgeLabel == null || edgeLabel.isEmpty() || key == null || key.isEmpty()) {
+			throw new IllegalArgumentException("Edge label and index key cannot be empty");
+		}
+		if (LABEL_KEY.equals(key)) {
+			throw new IllegalArgumentException("Edges can not be sorted on the label");
+		}
+		final Map<String, OpcVertexCentricIndex> indexes = vertexCentricIndexes.computeIfAbsent(key,
+				k -> new ConcurrentHashMap<>());
+		if (indexes.containsKey(edgeLabel)) {
+			CloseableIterator.closeIterator(edges);
+			return;
+		}
+		final OpcVertexCentricIndex index = new OpcVertexCentricIndex(edgeLabel, key);
+		// registered before the population, so that concurrent writes are not lost
+		indexes.put(edgeLabel, index);
+		try {
+			while (edges.hasNext()) {
+				final Element edge = edges.next();
+				if (edge instanceof Edge && edgeLabel.equals(edge.label())) {
+					final Property<?> property = edge.property(key);
+					if (property.isPresent()) {
+						index.update((Edge) edge, property.value());
+					}
+				}
+			}
+		} finally {
+			CloseableIterator.closeIterator(edges);
+		}
+		logger.info("created {}", index);
+	}
+
+	public void createIndex(final String key, final Class<? extends Element> elementClass, final OpcIndexType type,
+			final Iterator<? extends Element> elements) {
+		if (key == null || key.isEmpty()) {
+			throw new IllegalArgumentException("Index key cannot be empty");
+		}
+		if (LABEL_KEY.equals(key)) {
+			throw new IllegalArgumentException("Labels are always indexed");
+		}
+		final Map<String, OpcIndex<Element>> indexes = getIndexes(elementClass);
+		final OpcIndex<Element> existing = indexes.get(key);
+		if (existing != null && existing.getType() == type) {
+			CloseableIterator.closeIterator(elements);
+			return;
+		}
+		final OpcIndex<Element> index = type == OpcIndexType.RANGE ? new OpcRangeIndex<>(key)
+				: new OpcHashIndex<>(key);
+		// registered before the population, so that concurrent writes are not lost
+		indexes.put(key, index);
+		try {
+			while (elements.hasNext()) {
+				final Element element = elements.next();
+				final Property<?> property = element.property(key);
+				if (property.isPresent()) {
+					index.update(element, property.value());
+				}
+			}
+		} finally {
+			CloseableIterator.closeIterator(elements);
+		}
+		logger.info("created {} on {}", index, elementClass.getSimpleName().toLowerCase());
+	}
+
+	public void dropEdgeIndex(final String edgeLabel, final String key) {
+		final Map<String, OpcVertexCentricIndex> indexes = vertexCentricIndexes.get(key);
+		final OpcVertexCentricIndex index = indexes == null ? null : indexes.remove(edgeLabel);
+		if (index != null) {
+			index.clear();
+		}
+	}
+
+	public void dropIndex(final String key, final Class<? extends Element> elementClass) {
+		if (LABEL_KEY.equals(key)) {
+			throw new IllegalArgumentException("Labels are always indexed");
+		}
+		final OpcIndex<Element> index = getIndexes(elementClass).remove(key);
+		if (index != null) {
+			index.clear();
+		}
+	}
+
+	/**
+	 * @return the number of elements matching the container, exact when an index
+	 *         can answer it and estimated from the statistics otherwise
+	 */
+	public long estimateCount(final Class<? extends Element> elementClass, final HasContainer hasContainer) {
+		final OpcIndex<Element> index = getIndexes(elementClass).get(hasContainer.getKey());
+		final long estimate = index == null ? -1 : index.estimate(hasContainer);
+		return estimate >= 0 ? estimate : statistics.estimateCount(elementClass, hasContainer);
+	}
+
+	/**
+	 * @return the vertex-centric index of the edges with the label on the key,
+	 *         null if there is none
+	 */
+	public OpcVertexCentricIndex getEdgeIndex(final String edgeLabel, final String key) {
+		final Map<String, OpcVertexCentricIndex> indexes = vertexCentricIndexes.get(key);
+		return indexes == null ? null : indexes.get(edgeLabel);
+	}
+
+	public Set<String> getIndexedKeys(final Class<? extends Element> elementClass) {
+		final Set<String> keys = new TreeSet<>(getIndexes(elementClass).keySet());
+		keys.remove(LABEL_KEY);
+		return keys;
+	}
+
+	public OpcQueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	public OpcGraphStatistics getStatistics() {
+		return statistics;
+	}
+
+	public OpcTextIndex getTextIndex() {
+		return textIndex;
+	}
+
+	private Map<String, OpcIndex<Element>> getIndexes(final Class<?> elementClass) {
+		if (Vertex.class.isAssignableFrom(elementClass)) {
+			return vertexIndexes;
+		}
+		if (Edge.class.isAssignableFrom(elementClass)) {
+			return edgeIndexes;
+		}
+		throw new IllegalArgumentException("Class is not indexable: " + elementClass);
+	}
+
+	@Override
+	public boolean isDeferredInTransaction() {
+		// gli indici seguono subito le modifiche della transazione
+		return false;
+	}
+
+	/**
+	 * @return the elements matching the container, null if there is no index able
+	 *         to answer it
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Element> Collection<E> lookup(final Class<E> elementClass, final HasContainer hasContainer) {
+		final OpcIndex<Element> index = getIndexes(elementClass).get(hasContainer.getKey());
+		return index == null ? null : (Collection<E>) index.lookup(hasContainer);
+	}
+
+	@Override
+	public void propertyChanged(final UaNode sourceNode, final String propertyLabel, final DataValue value) {
+		if (!(sourceNode instanceof Element)) {
+			return;
+		}
+		final Object newValue = value == null || value.getValue() == null ? null : value.getValue().getValue();
+		final OpcIndex<Element> index = getIndexes(sourceNode.getClass()).get(propertyLabel);
+		if (index != null) {
+			index.update((Element) sourceNode, newValue);
+		}
+		textIndex.update((Element) sourceNode, propertyLabel, newValue);
+		statistics.propertyChanged((Element) sourceNode, propertyLabel, newValue);
+		if (sourceNode instanceof Edge) {
+			updateVertexCentricIndex((Edge) sourceNode, propertyLabel, newValue);
+		}
+		queryCache.propertyChanged((Element) sourceNode, propertyLabel);
+	}
+
+	public void removeElement(final Element element) {
+		getIndexes(element.getClass()).values().forEach(index -> index.remove(element));
+		textIndex.remove(element);
+		statistics.elementRemoved(element);
+		if (element instanceof Edge) {
+			vertexCentricIndexes.values().forEach(indexes -> {
+				final OpcVertexCentricIndex index = indexes.get(element.label());
+				if (index != null) {
+					index.remove((Edge) element);
+				}
+			});
+		}
+		queryCache.elementChanged(element);
+	}
+
+	public void removeProperty(final Element element, final String key) {
+		final OpcIndex<Element> index = getIndexes(element.getClass()).get(key);
+		if (index != null) {
+			index.remove(element);
+		}
+		textIndex.update(element, key, null);
+		statistics.propertyChanged(element, key, null);
+		if (element instanceof Edge) {
+			updateVertexCentricIndex((Edge) element, key, null);
+		}
+		queryCache.propertyChanged(element, key);
+	}
+
+	/**
+	 * chooses the most selective container that can be answered by an index,
+	 * when the index returns less than {@link #INDEX_SCAN_RATIO} of the elements.
+	 *
+	 * @return the container or null if the scan is cheaper
+	 */
+	public HasContainer selectIndexedContainer(final Class<? extends Element> elementClass,
+			final List<HasContainer> hasContainers) {
+		final Map<String, OpcIndex<Element>> indexes = getIndexes(elementClass);
+		HasContainer selected = null;
+		long selectedEstimate = Long.MAX_VALUE;
+		for (final HasContainer hasContainer : hasContainers) {
+			final OpcIndex<Element> index = indexes.get(hasContainer.getKey());
+			if (index != null) {
+				final long estimate = index.estimate(hasContainer);
+				if (estimate >= 0 && estimate < selectedEstimate) {
+					selected = hasContainer;
+					selectedEstimate = estimate;
+				}
+			}
+		}
+		if (selected != null && selectedEstimate > statistics.getCount(elementClass) * INDEX_SCAN_RATIO) {
+			// l'indice restituisce quasi tutto, la scansione pigra costa meno
+			return null;
+		}
+		return selected;
+	}
+
+	private void updateVertexCentricIndex(final Edge edge, final String key, final Object value) {
+		final Map<String, OpcVertexCentricIndex> indexes = vertexCentricIndexes.get(key);
+		final OpcVertexCentricIndex index = indexes == null ? null : indexes.get(edge.label());
+		if (index != null) {
+			index.update(edge, value);
+		}
+	}
+
+	private void updateVertexCentricIndexes(final Edge edge) {
+		for (final Map<String, OpcVertexCentricIndex> indexes : vertexCentricIndexes.values()) {
+			final OpcVertexCentricIndex index = indexes.get(edge.label());
+			if (index != null) {
+				final Property<?> property = edge.property(index.getKey());
+				index.update(edge, property.isPresent() ? property.value() : null);
+			}
+		}
+	}
+
+}
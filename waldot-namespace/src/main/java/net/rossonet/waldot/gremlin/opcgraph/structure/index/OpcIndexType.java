@@ -0,0 +1,13 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.index;
+
+public enum OpcIndexType {
+	/**
+	 * exact match on eq and within
+	 */
+	HASH,
+	/**
+	 * ordered, adds lt, lte, gt, gte (and so between, inside, outside) on
+	 * numbers and strings
+	 */
+	RANGE
+}
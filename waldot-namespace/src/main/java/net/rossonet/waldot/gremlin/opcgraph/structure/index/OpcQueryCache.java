@@ -0,0 +1,465 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.tinkerpop.gremlin.process.traversal.TraversalSource;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Graph;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+
+/**
+ * Bounded LRU cache of the results of the read-only queries polled by the
+ * dashboards and the agents, keyed by the trimmed query text and the values of
+ * the variables the query reads.
+ *
+ * While a query runs, the traversals it compiles record the labels, the ids
+ * and the property keys of the elements they can read in the
+ * {@link Dependencies} of the query. The writes reported by the
+ * {@link OpcIndexManager} drop only the entries depending on them. A query
+ * that runs a traversal not verified read-only, writes, uses lambdas or
+ * services, returns lazy results or overlaps a write it depends on is not
+ * cached.
+ */
+public class OpcQueryCache {
+
+	/**
+	 * the elements a query can read: the labels or the ids of the visited
+	 * vertices and edges and the property keys read or filtered.
+	 */
+	public static final class Dependencies {
+		private boolean allEdges = false;
+		private boolean allKeys = false;
+		private boolean allVertices = false;
+		private volatile boolean cacheable = true;
+		private final Set<Object> edgeIds = new HashSet<>();
+		private final Set<String> edgeLabels = new HashSet<>();
+		private final Set<String> keys = new HashSet<>();
+		private int traversals = 0;
+		private final Set<Object> vertexIds = new HashSet<>();
+		private final Set<String> vertexLabels = new HashSet<>();
+
+		public void addAllKeys() {
+			allKeys = true;
+		}
+
+		public void addAllLabels(final Class<? extends Element> elementClass) {
+			if (Vertex.class.isAssignableFrom(elementClass)) {
+				allVertices = true;
+			} else {
+				allEdges = true;
+			}
+		}
+
+		public void addId(final Class<? extends Element> elementClass, final Object id) {
+			(Vertex.class.isAssignableFrom(elementClass) ? vertexIds : edgeIds).add(id);
+		}
+
+		public void addKey(final String key) {
+			keys.add(key);
+		}
+
+		public void addLabel(final Class<? extends Element> elementClass, final String label) {
+			(Vertex.class.isAssignableFrom(elementClass) ? vertexLabels : edgeLabels).add(label);
+		}
+
+		public void addTraversal() {
+			traversals++;
+		}
+
+		private boolean dependsOn(final Mutation mutation) {
+			if (mutation.key != null && !allKeys && !keys.contains(mutation.key)) {
+				return false;
+			}
+			if (mutation.vertex) {
+				return allVertices || vertexLabels.contains(mutation.label) || vertexIds.contains(mutation.id);
+			}
+			return allEdges || edgeLabels.contains(mutation.label) || edgeIds.contains(mutation.id);
+		}
+
+		/**
+		 * @return false if the query has not run any traversal or has run one that
+		 *         can not be cached
+		 */
+		public boolean isCacheable() {
+			return cacheable && traversals > 0;
+		}
+
+		public void setNotCacheable() {
+			cacheable = false;
+		}
+
+		@Override
+		public String toString() {
+			return "Dependencies [vertices=" + (allVertices ? "*" : vertexLabels + " " + vertexIds) + ", edges="
+					+ (allEdges ? "*" : edgeLabels + " " + edgeIds) + ", keys=" + (allKeys ? "*" : keys)
+					+ ", cacheable=" + isCacheable() + "]";
+		}
+	}
+
+	private static final class Entry {
+		private final Dependencies dependencies;
+		private final Object result;
+
+		private Entry(final Object result, final Dependencies dependencies) {
+			this.result = result;
+			this.dependencies = dependencies;
+		}
+	}
+
+	private static final class Key {
+		private final Map<String, Object> bindings;
+		private final String query;
+
+		private Key(final String query, final Map<String, Object> bindings) {
+			this.query = query;
+			this.bindings = bindings;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			final Key other = (Key) object;
+			return query.equals(other.query) && bindings.equals(other.bindings);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(query, bindings);
+		}
+	}
+
+	private static final class Mutation {
+		private final Object id;
+		// null per l'aggiunta o la rimozione dell'elemento
+		private final String key;
+		private final String label;
+		private final boolean vertex;
+
+		private Mutation(final Element element, final String key) {
+			this.vertex = element instanceof Vertex;
+			this.label = element.label();
+			this.id = element.id();
+			this.key = key;
+		}
+	}
+
+	private static final class Recording {
+		private final Dependencies dependencies = new Dependencies();
+		private final List<Mutation> mutations = new ArrayList<>();
+		private boolean overflow = false;
+
+		private boolean isClean() {
+			if (overflow || !dependencies.isCacheable()) {
+				return false;
+			}
+			for (final Mutation mutation : mutations) {
+				if (dependencies.dependsOn(mutation)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+	// scritture concorrenti tenute per ogni query in esecuzione, oltre non si salva
+	private static final int MAXIMUM_CONCURRENT_MUTATIONS = 1024;
+
+	private static final Object NOT_CACHEABLE = new Object();
+
+	private static final ThreadLocal<Recording> RECORDING = new ThreadLocal<>();
+
+	/**
+	 * copies the collections of the result so that the cached value can not be
+	 * changed by the callers.
+	 *
+	 * @return the value to cache or NOT_CACHEABLE for lazy or mutable results
+	 *         like traversals, iterators and properties
+	 */
+	private static Object freeze(final Object result) {
+		if (result == null || result instanceof Number || result instanceof String || result instanceof Boolean
+				|| result instanceof Character || result instanceof Enum || result instanceof Element) {
+			return result;
+		}
+		if (result instanceof List) {
+			final List<Object> list = new ArrayList<>(((List<?>) result).size());
+			for (final Object item : (List<?>) result) {
+				final Object frozen = freeze(item);
+				if (frozen == NOT_CACHEABLE) {
+					return NOT_CACHEABLE;
+				}
+				list.add(frozen);
+			}
+			return Collections.unmodifiableList(list);
+		}
+		if (result instanceof Set) {
+			final Set<Object> set = new LinkedHashSet<>();
+			for (final Object item : (Set<?>) result) {
+				final Object frozen = freeze(item);
+				if (frozen == NOT_CACHEABLE) {
+					return NOT_CACHEABLE;
+				}
+				set.add(frozen);
+			}
+			return Collections.unmodifiableSet(set);
+		}
+		if (result instanceof Map) {
+			final Map<Object, Object> map = new LinkedHashMap<>();
+			for (final Map.Entry<?, ?> entry : ((Map<?, ?>) result).entrySet()) {
+				final Object key = freeze(entry.getKey());
+				final Object value = freeze(entry.getValue());
+				if (key == NOT_CACHEABLE || value == NOT_CACHEABLE) {
+					return NOT_CACHEABLE;
+				}
+				map.put(key, value);
+			}
+			return Collections.unmodifiableMap(map);
+		}
+		return NOT_CACHEABLE;
+	}
+
+	/**
+	 * @return the key of the query or null if a binding can not be part of a key
+	 */
+	private static Key getKey(final String query, final Map<String, ?> bindings) {
+		final Map<String, Object> frozen = new HashMap<>();
+		for (final Map.Entry<String, ?> binding : bindings.entrySet()) {
+			final Object value = binding.getValue();
+			// la sorgente delle traversal e il grafo sono confrontati per identità
+			final Object key = value instanceof Graph || value instanceof TraversalSource ? value : freeze(value);
+			if (key == NOT_CACHEABLE) {
+				return null;
+			}
+			frozen.put(binding.getKey(), key);
+		}
+		return new Key(query.trim(), frozen);
+	}
+
+	/**
+	 * @return the dependencies of the query running in the current thread, null
+	 *         if no cached query is running
+	 */
+	public static Dependencies getRecordingDependencies() {
+		final Recording recording = RECORDING.get();
+		return recording == null ? null : recording.dependencies;
+	}
+
+	// vero se ci sono risultati o query in esecuzione da invalidare
+	private volatile boolean active = false;
+
+	private final Map<Key, Entry> entries;
+
+	private final LongAdder evictions = new LongAdder();
+
+	private final LongAdder hits = new LongAdder();
+
+	private final LongAdder invalidations = new LongAdder();
+
+	private final int maximumSize;
+
+	private final LongAdder misses = new LongAdder();
+
+	private final Set<Recording> recordings = new HashSet<>();
+
+	public OpcQueryCache() {
+		this(DEFAULT_MAXIMUM_SIZE);
+	}
+
+	/**
+	 * @param maximumSize the number of results kept, 0 disables the cache
+	 */
+	public OpcQueryCache(final int maximumSize) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("cache size must not be negative");
+		}
+		this.maximumSize = maximumSize;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<Key, Entry> eldest) {
+				if (size() > OpcQueryCache.this.maximumSize) {
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * removes all the results, called when the graph is cleared
+	 */
+	public synchronized void clear() {
+		invalidations.add(entries.size());
+		entries.clear();
+		recordings.forEach(recording -> recording.overflow = true);
+		active = !recordings.isEmpty();
+	}
+
+	/**
+	 * the element has been added or removed
+	 */
+	void elementChanged(final Element element) {
+		mutation(element, null);
+	}
+
+	/**
+	 * Returns the cached result of the query or runs it, recording the elements
+	 * it reads.
+	 *
+	 * @param query     the text of the query, the key of the cache
+	 * @param execution runs the query
+	 * @return the result of the query
+	 */
+	public Object execute(final String query, final Supplier<Object> execution) {
+		return execute(query, Collections.emptyMap(), execution);
+	}
+
+	/**
+	 * Returns the cached result of the query or runs it, recording the elements
+	 * it reads. A query with a binding that is not a value, a collection of
+	 * values, the graph or a traversal source is not cached.
+	 *
+	 * @param query     the text of the query
+	 * @param bindings  the values of the variables read by the query
+	 * @param execution runs the query
+	 * @return the result of the query
+	 */
+	public Object execute(final String query, final Map<String, ?> bindings, final Supplier<Object> execution) {
+		Objects.requireNonNull(query, "query");
+		Objects.requireNonNull(bindings, "bindings");
+		final Key key = maximumSize == 0 || RECORDING.get() != null ? null : getKey(query, bindings);
+		if (key == null) {
+			misses.increment();
+			return execution.get();
+		}
+		final Recording recording = new Recording();
+		synchronized (this) {
+			final Entry entry = entries.get(key);
+			if (entry != null) {
+				hits.increment();
+				return entry.result;
+			}
+			recordings.add(recording);
+			active = true;
+		}
+		misses.increment();
+		RECORDING.set(recording);
+		Object frozen = NOT_CACHEABLE;
+		try {
+			final Object result = execution.get();
+			frozen = freeze(result);
+			return result;
+		} finally {
+			RECORDING.remove();
+			synchronized (this) {
+				recordings.remove(recording);
+				// salvato solo se nessuna scrittura concorrente tocca quello che ha letto
+				if (frozen != NOT_CACHEABLE && recording.isClean()) {
+					entries.put(key, new Entry(frozen, recording.dependencies));
+				}
+				active = !entries.isEmpty() || !recordings.isEmpty();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of queries answered by the cache
+	 */
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	/**
+	 * @return the ratio between hits and queries, 0 without queries
+	 */
+	public double getHitRate() {
+		final long hitCount = hits.sum();
+		final long lookups = hitCount + misses.sum();
+		return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * @return the number of results removed by the writes
+	 */
+	public long getInvalidationCount() {
+		return invalidations.sum();
+	}
+
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * @return the number of queries run against the graph
+	 */
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	private void mutation(final Element element, final String key) {
+		if (!active) {
+			return;
+		}
+		final Recording own = RECORDING.get();
+		if (own != null) {
+			// la query stessa scrive, va rieseguita ad ogni richiesta
+			own.dependencies.setNotCacheable();
+		}
+		final Mutation mutation = new Mutation(element, key);
+		synchronized (this) {
+			entries.values().removeIf(entry -> {
+				if (entry.dependencies.dependsOn(mutation)) {
+					invalidations.increment();
+					return true;
+				}
+				return false;
+			});
+			for (final Recording recording : recordings) {
+				if (recording.mutations.size() < MAXIMUM_CONCURRENT_MUTATIONS) {
+					recording.mutations.add(mutation);
+				} else {
+					recording.overflow = true;
+				}
+			}
+			active = !entries.isEmpty() || !recordings.isEmpty();
+		}
+	}
+
+	/**
+	 * the value of the key of the element has been changed or removed
+	 */
+	void propertyChanged(final Element element, final String key) {
+		mutation(element, key);
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	@Override
+	public String toString() {
+		return "OpcQueryCache [size=" + size() + ", maximumSize=" + maximumSize + ", hits=" + hits.sum()
+				+ ", misses=" + misses.sum() + ", invalidations=" + invalidations.sum() + ", evictions="
+				+ evictions.sum() + "]";
+	}
+
+}
@@ -0,0 +1,104 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.index;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.structure.Element;
+
+/**
+ * Ordered index, numbers and strings are kept in separate sorted maps because
+ * Gremlin does not compare values of different families. Values that are
+ * neither numbers nor strings are indexed for exact match only.
+ */
+public class OpcRangeIndex<T extends Element> extends OpcIndex<T> {
+
+	static final Comparator<Object> NUMBER_COMPARATOR = (a, b) -> {
+		if (a instanceof Long && b instanceof Long) {
+			return Long.compare((Long) a, (Long) b);
+		}
+		return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+	};
+
+	private final ConcurrentSkipListMap<Object, Set<T>> numbers = new ConcurrentSkipListMap<>(NUMBER_COMPARATOR);
+	private final Map<Object, Set<T>> others = new ConcurrentHashMap<>();
+	private final ConcurrentSkipListMap<Object, Set<T>> strings = new ConcurrentSkipListMap<>();
+
+	public OpcRangeIndex(final String key) {
+		super(key);
+	}
+
+	@Override
+	protected void addValue(final Object value, final T element) {
+		getIndex(value).computeIfAbsent(value, k -> ConcurrentHashMap.newKeySet()).add(element);
+	}
+
+	@Override
+	protected void clearValues() {
+		numbers.clear();
+		others.clear();
+		strings.clear();
+	}
+
+	@Override
+	protected Collection<Set<T>> getBuckets(final HasContainer hasContainer) {
+		final Object value = hasContainer.getValue();
+		if (hasContainer.getBiPredicate() instanceof Compare && hasContainer.getBiPredicate() != Compare.eq
+				&& hasContainer.getBiPredicate() != Compare.neq) {
+			if (value == null) {
+				return null;
+			}
+			final Object normalized = normalize(value);
+			final NavigableMap<Object, Set<T>> ordered = getOrderedIndex(normalized);
+			if (ordered == null) {
+				return null;
+			}
+			switch ((Compare) hasContainer.getBiPredicate()) {
+			case lt:
+				return ordered.headMap(normalized, false).values();
+			case lte:
+				return ordered.headMap(normalized, true).values();
+			case gt:
+				return ordered.tailMap(normalized, false).values();
+			case gte:
+				return ordered.tailMap(normalized, true).values();
+			default:
+				return null;
+			}
+		}
+		// eq and within, every value is looked up in the map of its family
+		return matchEquality(hasContainer, this::getIndex);
+	}
+
+	private Map<Object, Set<T>> getIndex(final Object value) {
+		final Map<Object, Set<T>> ordered = getOrderedIndex(value);
+		return ordered != null ? ordered : others;
+	}
+
+	private NavigableMap<Object, Set<T>> getOrderedIndex(final Object value) {
+		if (value instanceof Number) {
+			return numbers;
+		}
+		if (value instanceof String) {
+			return strings;
+		}
+		return null;
+	}
+
+	@Override
+	public OpcIndexType getType() {
+		return OpcIndexType.RANGE;
+	}
+
+	@Override
+	protected void removeValue(final Object value, final T element) {
+		removeFromBucket(getIndex(value), value, element);
+	}
+
+}
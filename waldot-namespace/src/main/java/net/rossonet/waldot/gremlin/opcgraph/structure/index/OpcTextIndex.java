@@ -0,0 +1,322 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.apache.tinkerpop.gremlin.structure.Element;
+
+/**
+ * Inverted index of the property values and of the labels of the elements,
+ * used by the text search service. Values that are not strings are indexed by
+ * their string form, as the scan matches them.
+ *
+ * Values are split in lower case tokens for term and prefix lookups and,
+ * when the n-gram size is positive, in case sensitive n-grams for substring
+ * lookups. Every lookup checks the candidates against the indexed value, so
+ * the result is exact. Mutations are serialized on the index, lookups are
+ * lock-free.
+ */
+public class OpcTextIndex {
+
+	/**
+	 * a property value of an element, the label has key
+	 * {@link OpcIndexManager#LABEL_KEY}.
+	 */
+	public static final class Posting {
+
+		private final Element element;
+		private final String key;
+
+		private Posting(final Element element, final String key) {
+			this.element = element;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(final Object object) {
+			if (this == object) {
+				return true;
+			}
+			if (!(object instanceof Posting)) {
+				return false;
+			}
+			final Posting other = (Posting) object;
+			return element.equals(other.element) && key.equals(other.key);
+		}
+
+		public Element getElement() {
+			return element;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(element, key);
+		}
+
+		public boolean isLabel() {
+			return OpcIndexManager.LABEL_KEY.equals(key);
+		}
+
+		@Override
+		public String toString() {
+			return element + "." + key;
+		}
+	}
+
+	public static final int DEFAULT_NGRAM_SIZE = 3;
+
+	public static Set<String> tokenize(final String value) {
+		final Set<String> tokens = new LinkedHashSet<>();
+		int start = -1;
+		for (int i = 0; i <= value.length(); i++) {
+			final boolean letterOrDigit = i < value.length() && Character.isLetterOrDigit(value.charAt(i));
+			if (letterOrDigit && start < 0) {
+				start = i;
+			} else if (!letterOrDigit && start >= 0) {
+				tokens.add(value.substring(start, i).toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+		return tokens;
+	}
+
+	private final Map<String, Set<Posting>> grams = new ConcurrentHashMap<>();
+
+	private volatile int ngramSize;
+
+	private final ConcurrentSkipListMap<String, Set<Posting>> tokens = new ConcurrentSkipListMap<>();
+
+	private final Map<Element, Map<String, String>> values = new ConcurrentHashMap<>();
+
+	public OpcTextIndex(final int ngramSize) {
+		if (ngramSize < 0) {
+			throw new IllegalArgumentException("N-gram size cannot be negative");
+		}
+		this.ngramSize = ngramSize;
+	}
+
+	private void add(final Posting posting, final String value) {
+		for (final String token : tokenize(value)) {
+			tokens.computeIfAbsent(token, k -> ConcurrentHashMap.newKeySet()).add(posting);
+		}
+		for (final String gram : grams(value, ngramSize)) {
+			grams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(posting);
+		}
+	}
+
+	public synchronized void clear() {
+		values.clear();
+		tokens.clear();
+		grams.clear();
+	}
+
+	public int getNgramSize() {
+		return ngramSize;
+	}
+
+	/**
+	 * @return the value of the posting, null if it is no more indexed
+	 */
+	public String getValue(final Posting posting) {
+		final Map<String, String> elementValues = values.get(posting.element);
+		return elementValues == null ? null : elementValues.get(posting.key);
+	}
+
+	private Set<String> grams(final String value, final int size) {
+		if (size == 0) {
+			return Collections.emptySet();
+		}
+		if (value.length() <= size) {
+			return Collections.singleton(value);
+		}
+		final Set<String> result = new HashSet<>();
+		for (int i = 0; i + size <= value.length(); i++) {
+			result.add(value.substring(i, i + size));
+		}
+		return result;
+	}
+
+	private boolean matchesToken(final Posting posting, final String token) {
+		final String value = getValue(posting);
+		return value != null && tokenize(value).contains(token);
+	}
+
+	/**
+	 * @return the values whose lower case tokens start with the prefix
+	 */
+	public Set<Posting> prefix(final String prefix) {
+		final String normalized = prefix.toLowerCase(Locale.ROOT);
+		final Set<Posting> result = new LinkedHashSet<>();
+		for (final Map.Entry<String, Set<Posting>> entry : tokens.tailMap(normalized).entrySet()) {
+			if (!entry.getKey().startsWith(normalized)) {
+				break;
+			}
+			for (final Posting posting : entry.getValue()) {
+				if (matchesToken(posting, entry.getKey())) {
+					result.add(posting);
+				}
+			}
+		}
+		return result;
+	}
+
+	private void remove(final Posting posting, final String value) {
+		for (final String token : tokenize(value)) {
+			removeFromBucket(tokens, token, posting);
+		}
+		for (final String gram : grams(value, ngramSize)) {
+			removeFromBucket(grams, gram, posting);
+		}
+	}
+
+	public synchronized void remove(final Element element) {
+		final Map<String, String> elementValues = values.remove(element);
+		if (elementValues != null) {
+			elementValues.forEach((key, value) -> remove(new Posting(element, key), value));
+		}
+	}
+
+	private void removeFromBucket(final Map<String, Set<Posting>> index, final String value, final Posting posting) {
+		final Set<Posting> bucket = index.get(value);
+		if (bucket != null) {
+			bucket.remove(posting);
+			if (bucket.isEmpty()) {
+				index.remove(value);
+			}
+		}
+	}
+
+	/**
+	 * changes the n-gram size and rebuilds the n-grams, 0 disables the substring
+	 * lookups.
+	 */
+	public synchronized void setNgramSize(final int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("N-gram size cannot be negative");
+		}
+		if (size == ngramSize) {
+			return;
+		}
+		grams.clear();
+		ngramSize = size;
+		values.forEach((element, elementValues) -> elementValues.forEach((key, value) -> {
+			for (final String gram : grams(value, size)) {
+				grams.computeIfAbsent(gram, k -> ConcurrentHashMap.newKeySet()).add(new Posting(element, key));
+			}
+		}));
+	}
+
+	public int size() {
+		int count = 0;
+		for (final Map<String, String> elementValues : values.values()) {
+			count += elementValues.size();
+		}
+		return count;
+	}
+
+	/**
+	 * @return the values containing the text (case sensitive), null if the
+	 *         n-grams are disabled or the text is empty
+	 */
+	public Set<Posting> substring(final String text) {
+		final int size = ngramSize;
+		if (size == 0 || text.isEmpty()) {
+			return null;
+		}
+		final Collection<Set<Posting>> buckets = new ArrayList<>();
+		if (text.length() >= size) {
+			// i candidati sono quelli dell'n-gram più raro, il valore viene verificato
+			Set<Posting> smallest = null;
+			for (final String gram : grams(text, size)) {
+				final Set<Posting> bucket = grams.get(gram);
+				if (bucket == null) {
+					return Collections.emptySet();
+				}
+				if (smallest == null || bucket.size() < smallest.size()) {
+					smallest = bucket;
+				}
+			}
+			buckets.add(smallest);
+		} else {
+			// ogni sottostringa più corta di un n-gram è contenuta in un n-gram del valore
+			for (final Map.Entry<String, Set<Posting>> entry : grams.entrySet()) {
+				if (entry.getKey().contains(text)) {
+					buckets.add(entry.getValue());
+				}
+			}
+		}
+		final Set<Posting> result = new LinkedHashSet<>();
+		for (final Set<Posting> bucket : buckets) {
+			for (final Posting posting : bucket) {
+				final String value = getValue(posting);
+				if (value != null && value.contains(text)) {
+					result.add(posting);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return the values containing the token, case insensitive
+	 */
+	public Set<Posting> term(final String term) {
+		final String normalized = term.toLowerCase(Locale.ROOT);
+		final Set<Posting> bucket = tokens.get(normalized);
+		if (bucket == null) {
+			return Collections.emptySet();
+		}
+		final Set<Posting> result = new LinkedHashSet<>();
+		for (final Posting posting : bucket) {
+			if (matchesToken(posting, normalized)) {
+				result.add(posting);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "text index [" + size() + " values, " + tokens.size() + " tokens, " + grams.size() + " "
+				+ ngramSize + "-grams]";
+	}
+
+	/**
+	 * indexes the value of the property of the element by its string form, a
+	 * null value removes the property from the index.
+	 */
+	public synchronized void update(final Element element, final String key, final Object value) {
+		final Posting posting = new Posting(element, key);
+		final Map<String, String> elementValues = values.get(element);
+		final String oldValue = elementValues == null ? null : elementValues.get(key);
+		final String newValue = value == null ? null : value.toString();
+		if (Objects.equals(oldValue, newValue)) {
+			return;
+		}
+		if (oldValue != null) {
+			remove(posting, oldValue);
+			elementValues.remove(key);
+			if (elementValues.isEmpty()) {
+				values.remove(element);
+			}
+		}
+		if (newValue != null) {
+			values.computeIfAbsent(element, k -> new ConcurrentHashMap<>()).put(key, newValue);
+			add(posting, newValue);
+		}
+	}
+
+}
@@ -0,0 +1,267 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.index;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+import org.apache.tinkerpop.gremlin.process.traversal.Compare;
+import org.apache.tinkerpop.gremlin.process.traversal.step.util.HasContainer;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+
+/**
+ * Vertex-centric index of the edges with a label on the value of a property
+ * key. The incident edges of every vertex are kept sorted, in and out
+ * separately, so that {@code outE(label).order().by(key).limit(n)} and the
+ * range {@code has(key, ...)} on a hub vertex read a slice of its
+ * neighborhood instead of sorting or filtering all of it.
+ *
+ * As in {@link OpcRangeIndex} numbers and strings are sorted apart, numbers
+ * first as in the Gremlin orderability. Edges with values of other types are
+ * kept aside and the ordered reads of their vertex fall back to the scan.
+ * Mutations are serialized on the index, reads are lock-free.
+ */
+public class OpcVertexCentricIndex {
+
+	private static final class Bounds {
+		private boolean empty = false;
+		private IndexedValue lower;
+		private final Comparator<IndexedValue> order;
+		private IndexedValue upper;
+
+		private Bounds(final Comparator<IndexedValue> order) {
+			this.order = order;
+		}
+
+		private void lower(final IndexedValue bound) {
+			if (lower == null || order.compare(bound, lower) > 0) {
+				lower = bound;
+			}
+		}
+
+		private void upper(final IndexedValue bound) {
+			if (upper == null || order.compare(bound, upper) < 0) {
+				upper = bound;
+			}
+		}
+
+		private NavigableSet<IndexedValue> view(final NavigableSet<IndexedValue> values) {
+			if (empty || (lower != null && upper != null && order.compare(lower, upper) > 0)) {
+				return Collections.emptyNavigableSet();
+			}
+			// i limiti hanno sequenze fuori dominio, non coincidono mai con un arco
+			if (lower != null && upper != null) {
+				return values.subSet(lower, false, upper, false);
+			}
+			if (lower != null) {
+				return values.tailSet(lower, false);
+			}
+			return upper != null ? values.headSet(upper, false) : values;
+		}
+	}
+
+	private static final class IndexedValue {
+		private final Edge edge;
+		private final Vertex inVertex;
+		private final Vertex outVertex;
+		private final long sequence;
+		private final Object value;
+
+		private IndexedValue(final Edge edge, final Vertex outVertex, final Vertex inVertex, final Object value,
+				final long sequence) {
+			this.edge = edge;
+			this.outVertex = outVertex;
+			this.inVertex = inVertex;
+			this.value = value;
+			this.sequence = sequence;
+		}
+	}
+
+	private static final class VertexEdges {
+		private final NavigableSet<IndexedValue> numbers = new ConcurrentSkipListSet<>(NUMBER_ORDER);
+		private final Set<IndexedValue> others = ConcurrentHashMap.newKeySet();
+		private final NavigableSet<IndexedValue> strings = new ConcurrentSkipListSet<>(STRING_ORDER);
+
+		private Set<IndexedValue> get(final Object value) {
+			if (value instanceof Number) {
+				return numbers;
+			}
+			return value instanceof String ? strings : others;
+		}
+
+		private boolean isEmpty() {
+			return numbers.isEmpty() && strings.isEmpty() && others.isEmpty();
+		}
+	}
+
+	private static final Comparator<IndexedValue> NUMBER_ORDER = Comparator
+			.<IndexedValue, Object>comparing(indexedValue -> indexedValue.value, OpcRangeIndex.NUMBER_COMPARATOR)
+			.thenComparingLong(indexedValue -> indexedValue.sequence);
+
+	private static final Comparator<IndexedValue> STRING_ORDER = Comparator
+			.<IndexedValue, String>comparing(indexedValue -> (String) indexedValue.value)
+			.thenComparingLong(indexedValue -> indexedValue.sequence);
+
+	private static IndexedValue bound(final Object value, final long sequence) {
+		return new IndexedValue(null, null, null, value, sequence);
+	}
+
+	private final Map<Vertex, VertexEdges> in = new ConcurrentHashMap<>();
+
+	private final Map<Edge, IndexedValue> indexedValues = new ConcurrentHashMap<>();
+
+	private final String key;
+
+	private final String label;
+
+	private final Map<Vertex, VertexEdges> out = new ConcurrentHashMap<>();
+
+	// le sequenze partono da zero, i limiti usano Long.MIN_VALUE e Long.MAX_VALUE
+	private long sequence = 0;
+
+	public OpcVertexCentricIndex(final String label, final String key) {
+		this.label = label;
+		this.key = key;
+	}
+
+	public synchronized void clear() {
+		indexedValues.clear();
+		in.clear();
+		out.clear();
+	}
+
+	/**
+	 * @param vertex        the vertex
+	 * @param direction     the direction of the edges, OUT or IN
+	 * @param hasContainers predicates on the key, all of them must match
+	 * @param descending    true to read the edges in descending order of the key
+	 * @param limit         the maximum number of edges returned, -1 for all
+	 * @return the edges of the vertex matching the predicates, in the order of
+	 *         the key, null if the index can not answer the query
+	 */
+	public Iterator<Edge> edges(final Vertex vertex, final Direction direction,
+			final List<HasContainer> hasContainers, final boolean descending, final long limit) {
+		if (direction == Direction.BOTH) {
+			return null;
+		}
+		final Bounds numberBounds = new Bounds(NUMBER_ORDER);
+		final Bounds stringBounds = new Bounds(STRING_ORDER);
+		for (final HasContainer hasContainer : hasContainers) {
+			if (!key.equals(hasContainer.getKey()) || !(hasContainer.getBiPredicate() instanceof Compare)
+					|| hasContainer.getValue() == null) {
+				return null;
+			}
+			final Object value = OpcIndex.normalize(hasContainer.getValue());
+			final Bounds bounds;
+			if (value instanceof Number) {
+				bounds = numberBounds;
+				stringBounds.empty = true;
+			} else if (value instanceof String) {
+				bounds = stringBounds;
+				numberBounds.empty = true;
+			} else {
+				return null;
+			}
+			switch ((Compare) hasContainer.getBiPredicate()) {
+			case eq:
+				bounds.lower(bound(value, Long.MIN_VALUE));
+				bounds.upper(bound(value, Long.MAX_VALUE));
+				break;
+			case lt:
+				bounds.upper(bound(value, Long.MIN_VALUE));
+				break;
+			case lte:
+				bounds.upper(bound(value, Long.MAX_VALUE));
+				break;
+			case gt:
+				bounds.lower(bound(value, Long.MAX_VALUE));
+				break;
+			case gte:
+				bounds.lower(bound(value, Long.MIN_VALUE));
+				break;
+			default:
+				return null;
+			}
+		}
+		final VertexEdges vertexEdges = (direction == Direction.OUT ? out : in).get(vertex);
+		if (vertexEdges == null) {
+			return Collections.emptyIterator();
+		}
+		if (hasContainers.isEmpty() && !vertexEdges.others.isEmpty()) {
+			// valori non ordinabili dall'indice, l'ordinamento resta al passo globale
+			return null;
+		}
+		final NavigableSet<IndexedValue> numbers = numberBounds.view(vertexEdges.numbers);
+		final NavigableSet<IndexedValue> strings = stringBounds.view(vertexEdges.strings);
+		final Iterator<IndexedValue> values = descending
+				? IteratorUtils.concat(strings.descendingIterator(), numbers.descendingIterator())
+				: IteratorUtils.concat(numbers.iterator(), strings.iterator());
+		final Iterator<Edge> edges = IteratorUtils.map(values, indexedValue -> indexedValue.edge);
+		return limit < 0 ? edges : IteratorUtils.limit(edges, (int) Math.min(limit, Integer.MAX_VALUE));
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public synchronized void remove(final Edge edge) {
+		final IndexedValue indexedValue = indexedValues.remove(edge);
+		if (indexedValue != null) {
+			remove(out, indexedValue.outVertex, indexedValue);
+			remove(in, indexedValue.inVertex, indexedValue);
+		}
+	}
+
+	private void remove(final Map<Vertex, VertexEdges> adjacency, final Vertex vertex,
+			final IndexedValue indexedValue) {
+		final VertexEdges vertexEdges = adjacency.get(vertex);
+		if (vertexEdges != null) {
+			vertexEdges.get(indexedValue.value).remove(indexedValue);
+			if (vertexEdges.isEmpty()) {
+				adjacency.remove(vertex);
+			}
+		}
+	}
+
+	public int size() {
+		return indexedValues.size();
+	}
+
+	@Override
+	public String toString() {
+		return "vertex-centric index on '" + label + "'.'" + key + "' [" + size() + " edges]";
+	}
+
+	/**
+	 * indexes the value of the key of the edge, a null value removes the edge.
+	 * Edges with a different label are ignored.
+	 */
+	public synchronized void update(final Edge edge, final Object value) {
+		if (!label.equals(edge.label())) {
+			return;
+		}
+		remove(edge);
+		if (value == null) {
+			return;
+		}
+		final Object normalized = OpcIndex.normalize(value);
+		final IndexedValue indexedValue = new IndexedValue(edge, edge.outVertex(), edge.inVertex(), normalized,
+				sequence++);
+		indexedValues.put(edge, indexedValue);
+		out.computeIfAbsent(indexedValue.outVertex, k -> new VertexEdges()).get(normalized).add(indexedValue);
+		in.computeIfAbsent(indexedValue.inVertex, k -> new VertexEdges()).get(normalized).add(indexedValue);
+	}
+
+}
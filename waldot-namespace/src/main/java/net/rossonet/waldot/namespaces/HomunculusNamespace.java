@@ -1,12 +1,12 @@
 package net.rossonet.waldot.namespaces;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ScheduledExecutorService;
 
 import org.apache.tinkerpop.gremlin.process.computer.GraphFilter;
@@ -44,6 +44,7 @@ import net.rossonet.waldot.api.NamespaceListener;
 import net.rossonet.waldot.api.PluginListener;
 import net.rossonet.waldot.api.configuration.WaldotConfiguration;
 import net.rossonet.waldot.api.models.IdManager;
+import net.rossonet.waldot.api.models.WaldotBulkLoader;
 import net.rossonet.waldot.api.models.WaldotCommand;
 import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotGraph;
@@ -61,6 +62,7 @@ import net.rossonet.waldot.client.auth.ClientRegisterAnonymousValidator;
 import net.rossonet.waldot.client.auth.ClientRegisterUsernameIdentityValidator;
 import net.rossonet.waldot.client.auth.ClientRegisterX509IdentityValidator;
 import net.rossonet.waldot.commands.AboutCommand;
+import net.rossonet.waldot.commands.BulkLoadCommand;
 import net.rossonet.waldot.commands.DeleteDirectory;
 import net.rossonet.waldot.commands.HelpCommand;
 import net.rossonet.waldot.commands.QueryCommand;
@@ -88,16 +90,18 @@ public class HomunculusNamespace extends ManagedNamespaceWithLifecycle implement
 
 	private final ConsoleStrategy consoleStrategy;
 	// private final DataTypeManager dictionaryManager;
-	private WaldotGraphComputerView graphComputerView;
+	// vista del grafo impostata mentre un calcolo OLAP è in esecuzione
+	private volatile WaldotGraphComputerView graphComputerView;
 	private final WaldotGraph gremlin;
 	private final HistoryStrategy historyStrategy;
 	private final JexlCmdFunction jexlWaldotCommandHelper;
-	private final List<NamespaceListener> listeners = new ArrayList<>();
+	private final List<NamespaceListener> listeners = new CopyOnWriteArrayList<>();
 
 	private final Logger logger = LoggerFactory.getLogger(getClass());
 	private final Graph.Variables opcGraphVariables;
 	private final MiloStrategy opcMappingStrategy;
-	private final Set<PluginListener> plugins = new HashSet<>();
+	private final Set<PluginListener> plugins = new CopyOnWriteArraySet<>();
+	private final PropertyNodesFragment propertyNodes;
 
 	private final SubscriptionModel subscriptionModel;
 
@@ -125,6 +129,11 @@ public class HomunculusNamespace extends ManagedNamespaceWithLifecycle implement
 		// dictionaryManager = new DefaultDataTypeManager();
 		// getLifecycleManager().addLifecycle(dictionaryManager);
 		getLifecycleManager().addLifecycle(subscriptionModel);
+		// i nodi delle proprietà sono risolti dal loro fragment, registrato prima del
+		// namespace perché i suoi NodeId ricadono anche nel filtro del namespace
+		propertyNodes = new PropertyNodesFragment(this, opcMappingStrategy);
+		getServer().getAddressSpaceManager().register(propertyNodes);
+		getLifecycleManager().addLifecycle(propertyNodes.getSubscriptionModel());
 		getLifecycleManager().addStartupTask(this::runBootstrapProcedure);
 		gremlin = OpcGraph.open();
 		gremlin.setNamespace(this);
@@ -156,6 +165,9 @@ public class HomunculusNamespace extends ManagedNamespaceWithLifecycle implement
 		if (configuration.getDeleteDirectoryLabel() != null) {
 			registerCommand(new DeleteDirectory(this));
 		}
+		if (configuration.getBulkLoadCommandLabel() != null) {
+			registerCommand(new BulkLoadCommand(this));
+		}
 	}
 
 	@Override
@@ -191,14 +203,28 @@ public class HomunculusNamespace extends ManagedNamespaceWithLifecycle implement
 		logger.info("opc mapping strategy closed");
 		historyStrategy.close();
 		logger.info("history strategy closed");
+		getServer().getAddressSpaceManager().unregister(propertyNodes);
 		waldotOpcUaServer.close();
 		logger.info("opcua server closed");
 	}
 
+	@Override
+	public void closeBulkLoaders() {
+		opcMappingStrategy.closeBulkLoaders();
+	}
+
+	@Override
+	public WaldotBulkLoader createBulkLoader(final int batchSize) {
+		return opcMappingStrategy.createBulkLoader(batchSize);
+	}
+
 	@Override
 	public WaldotGraphComputerView createGraphComputerView(final WaldotGraph graph, final GraphFilter graphFilter,
 			final Set<VertexComputeKey> object) {
-		return opcMappingStrategy.createGraphComputerView(graph, graphFilter, object);
+		// la vista è attivata solo dopo aver copiato il grafo, che la costruzione legge senza filtri
+		final WaldotGraphComputerView view = opcMappingStrategy.createGraphComputerView(graph, graphFilter, object);
+		graphComputerView = view;
+		return view;
 	}
 
 	@Override
@@ -220,6 +246,7 @@ public class HomunculusNamespace extends ManagedNamespaceWithLifecycle implement
 
 	@Override
 	public void dropGraphComputerView() {
+		graphComputerView = null;
 		opcMappingStrategy.dropGraphComputerView();
 	}
 
@@ -283,6 +310,11 @@ public class HomunculusNamespace extends ManagedNamespaceWithLifecycle implement
 		return consoleStrategy;
 	}
 
+	@Override
+	public int getDegree(final WaldotVertex vertex, final Direction direction, final String[] edgeLabels) {
+		return opcMappingStrategy.getDegree(vertex, direction, edgeLabels);
+	}
+
 	@Override
 	public WaldotVertex getEdgeInVertex(final WaldotEdge opcWaldotEdge) {
 		return opcMappingStrategy.getEdgeInVertex(opcWaldotEdge);
@@ -440,7 +472,7 @@ public class HomunculusNamespace extends ManagedNamespaceWithLifecycle implement
 
 	@Override
 	public boolean hasNodeId(final NodeId nodeId) {
-		return getNodeManager().containsNode(nodeId);
+		return getNodeManager().containsNode(nodeId) || opcMappingStrategy.getPropertyNode(nodeId) != null;
 	}
 
 	@Override
@@ -627,7 +659,12 @@ public class HomunculusNamespace extends ManagedNamespaceWithLifecycle implement
 
 	private void runBootstrapProcedure() {
 		plugins.forEach(plugin -> plugin.start());
-		bootstrapProcedureStrategy.runBootstrapProcedure();
+		// il grafo salvato sostituisce la procedura di bootstrap
+		if (opcMappingStrategy.restorePersistedGraph()) {
+			logger.info("graph restored from {}, bootstrap procedure skipped", configuration.getPersistenceDirectory());
+		} else {
+			bootstrapProcedureStrategy.runBootstrapProcedure();
+		}
 		listeners.forEach(listener -> listener.onBootstrapProcedureCompleted());
 	}
 
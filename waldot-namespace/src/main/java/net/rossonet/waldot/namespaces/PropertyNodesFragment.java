@@ -0,0 +1,120 @@
+package net.rossonet.waldot.namespaces;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.eclipse.milo.opcua.sdk.core.Reference;
+import org.eclipse.milo.opcua.sdk.server.ManagedAddressSpaceFragment;
+import org.eclipse.milo.opcua.sdk.server.UaNodeManager;
+import org.eclipse.milo.opcua.sdk.server.items.DataItem;
+import org.eclipse.milo.opcua.sdk.server.items.MonitoredItem;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaNode;
+import org.eclipse.milo.opcua.sdk.server.util.AddressSpaceFilter;
+import org.eclipse.milo.opcua.sdk.server.util.SimpleAddressSpaceFilter;
+import org.eclipse.milo.opcua.sdk.server.util.SubscriptionModel;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.TimestampsToReturn;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryReadValueId;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryUpdateDetails;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryUpdateResult;
+
+import net.rossonet.waldot.api.strategies.MiloStrategy;
+
+/**
+ * address space of the property nodes of vertices and edges. The nodes are not
+ * stored in the node manager of the namespace, browse, read, write and
+ * monitored items resolve them from the property tables of the elements.
+ */
+class PropertyNodesFragment extends ManagedAddressSpaceFragment {
+
+	/**
+	 * node manager without storage, the nodes and the references come from the
+	 * mapping strategy.
+	 */
+	private static class PropertyNodeManager extends UaNodeManager {
+
+		private final MiloStrategy opcMappingStrategy;
+
+		PropertyNodeManager(final MiloStrategy opcMappingStrategy) {
+			this.opcMappingStrategy = opcMappingStrategy;
+		}
+
+		@Override
+		public boolean containsNode(final NodeId nodeId) {
+			return opcMappingStrategy.getPropertyNode(nodeId) != null;
+		}
+
+		@Override
+		public Optional<UaNode> getNode(final NodeId nodeId) {
+			return Optional.ofNullable(opcMappingStrategy.getPropertyNode(nodeId));
+		}
+
+		@Override
+		public List<Reference> getReferences(final NodeId nodeId) {
+			return opcMappingStrategy.getPropertyNodeReferences(nodeId);
+		}
+
+	}
+
+	private final AddressSpaceFilter filter;
+	private final HomunculusNamespace namespace;
+	private final SubscriptionModel subscriptionModel;
+
+	PropertyNodesFragment(final HomunculusNamespace namespace, final MiloStrategy opcMappingStrategy) {
+		super(namespace.getServer(), new PropertyNodeManager(opcMappingStrategy));
+		this.namespace = namespace;
+		filter = SimpleAddressSpaceFilter.create(getNodeManager()::containsNode);
+		subscriptionModel = new SubscriptionModel(namespace.getServer(), this);
+	}
+
+	@Override
+	public AddressSpaceFilter getFilter() {
+		return filter;
+	}
+
+	SubscriptionModel getSubscriptionModel() {
+		return subscriptionModel;
+	}
+
+	@Override
+	public List<HistoryReadResult> historyRead(final HistoryReadContext context, final HistoryReadDetails readDetails,
+			final TimestampsToReturn timestamps, final List<HistoryReadValueId> readValueIds) {
+		return namespace.getHistoryStrategy().historyRead(context, readDetails, timestamps, readValueIds);
+	}
+
+	@Override
+	public List<HistoryUpdateResult> historyUpdate(final HistoryUpdateContext context,
+			final List<HistoryUpdateDetails> updateDetails) {
+		return namespace.getHistoryStrategy().historyUpdate(context, updateDetails);
+	}
+
+	@Override
+	public void onDataItemsCreated(final List<DataItem> dataItems) {
+		subscriptionModel.onDataItemsCreated(dataItems);
+		namespace.getListeners().forEach(listener -> listener.onDataItemsCreated(dataItems));
+		namespace.getHistoryStrategy().onDataItemsCreated(dataItems);
+	}
+
+	@Override
+	public void onDataItemsDeleted(final List<DataItem> dataItems) {
+		subscriptionModel.onDataItemsDeleted(dataItems);
+		namespace.getListeners().forEach(listener -> listener.onDataItemsDeleted(dataItems));
+		namespace.getHistoryStrategy().onDataItemsDeleted(dataItems);
+	}
+
+	@Override
+	public void onDataItemsModified(final List<DataItem> dataItems) {
+		subscriptionModel.onDataItemsModified(dataItems);
+		namespace.getListeners().forEach(listener -> listener.onDataItemsModified(dataItems));
+		namespace.getHistoryStrategy().onDataItemsModified(dataItems);
+	}
+
+	@Override
+	public void onMonitoringModeChanged(final List<MonitoredItem> monitoredItems) {
+		subscriptionModel.onMonitoringModeChanged(monitoredItems);
+		namespace.getListeners().forEach(listener -> listener.onMonitoringModeChanged(monitoredItems));
+	}
+
+}
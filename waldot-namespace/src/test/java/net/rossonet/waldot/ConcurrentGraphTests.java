@@ -0,0 +1,278 @@
+package net.rossonet.waldot;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.rossonet.waldot.api.NamespaceListener;
+import net.rossonet.waldot.api.models.WaldotCommand;
+import net.rossonet.waldot.api.models.WaldotEdge;
+import net.rossonet.waldot.api.models.WaldotGraph;
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.api.strategies.ConsoleStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.structure.OpcFactory;
+import net.rossonet.waldot.gremlins.TestNamespaceListener;
+import net.rossonet.waldot.utils.LogHelper;
+import net.rossonet.waldot.utils.NetworkHelper;
+
+/**
+ * stress of the graph written by many threads at once, the checks look for
+ * lost writes and for edges left without an endpoint.
+ */
+public class ConcurrentGraphTests {
+	@FunctionalInterface
+	private interface ThreadTask {
+		void run(int thread) throws Exception;
+	}
+
+	private static final int OPERATIONS_PER_THREAD = 200;
+	private static final int THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	private WaldotGraph g;
+	private final NamespaceListener listener = new TestNamespaceListener();
+
+	@AfterEach
+	public void afterEach() {
+		clean();
+		System.out.println("Test completed");
+
+	}
+
+	@BeforeEach
+	public void beforeEach() {
+		System.out.println("Starting test...");
+		clean();
+	}
+
+	private void checkConsistency() {
+		final Map<NodeId, WaldotVertex> vertices = g.getWaldotNamespace().getVertices();
+		for (final WaldotEdge edge : g.getWaldotNamespace().getEdges().values()) {
+			assert vertices.containsKey(((WaldotVertex) edge.outVertex()).getNodeId());
+			assert vertices.containsKey(((WaldotVertex) edge.inVertex()).getNodeId());
+		}
+		long degrees = 0;
+		for (final WaldotVertex vertex : vertices.values()) {
+			degrees += g.getWaldotNamespace().getEdges(vertex, Direction.OUT, new String[0]).size();
+		}
+		assert degrees == g.getWaldotNamespace().getEdgesCount();
+	}
+
+	private void clean() {
+		try {
+			Files.deleteIfExists(Path.of("/tmp/boot.conf"));
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+		if (g != null && g.getWaldotNamespace() != null) {
+			try {
+				g.getWaldotNamespace().close();
+				System.out.println("Graph namespace closed");
+				g = null;
+			} catch (final Exception e) {
+				e.printStackTrace();
+			}
+		}
+		try {
+			while (!NetworkHelper.checkLocalPortAvailable(12686)) {
+				System.out.println("Waiting for server shutdown");
+				Thread.sleep(5_000);
+			}
+			Thread.sleep(500);
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+		try {
+			Files.deleteIfExists(Path.of("/tmp/waldot-client.ks"));
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Test
+	public void concurrentConsoleResets() throws Exception {
+		LogHelper.changeJulLogLevel("info");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final ConsoleStrategy console = g.getWaldotNamespace().getConsoleStrategy();
+		assert !console.getCommands().isEmpty();
+		final WaldotCommand command = console.getCommands().get(0);
+		// metà dei thread esegue espressioni, l'altra metà cambia i comandi e ricrea l'esecutore
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				if (thread % 2 == 0) {
+					assert ((Number) console.runExpression("g.V().hasLabel('person').count().next()"))
+							.longValue() == 4L;
+					assert ((Number) console.runExpression("graph.traversal().V().count().next()")).longValue() == 6L;
+				} else {
+					console.removeCommand(command);
+					console.registerCommand(command);
+				}
+			}
+		});
+		assert ((Number) console.runExpression("g.V().count().next()")).longValue() == 6L;
+	}
+
+	@Test
+	public void concurrentEndpointRemoval() throws Exception {
+		LogHelper.changeJulLogLevel("info");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final int targets = THREADS / 2 * OPERATIONS_PER_THREAD;
+		final List<Vertex> targetVertices = new ArrayList<>(targets);
+		for (int i = 0; i < targets; i++) {
+			targetVertices.add(g.addVertex("id", "target-" + i, "label", "target", "name", "target-" + i));
+		}
+		final AtomicInteger rejected = new AtomicInteger();
+		// ogni coppia di thread lavora sugli stessi vertici: uno li rimuove, l'altro vi aggiunge archi e proprietà
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				final Vertex target = targetVertices.get(thread / 2 * OPERATIONS_PER_THREAD + i);
+				if (thread % 2 == 0) {
+					target.remove();
+				} else {
+					final Vertex source = g.addVertex("id", "source-" + thread + "-" + i, "label", "source", "name",
+							"source");
+					try {
+						source.addEdge("feeds", target);
+						target.property("hit", i);
+					} catch (final IllegalStateException e) {
+						rejected.incrementAndGet();
+					}
+				}
+			}
+		});
+		System.out.println(rejected.get() + " writes rejected on removed vertices");
+		assert g.traversal().V().hasLabel("target").count().next() == 0;
+		// gli archi aggiunti prima della rimozione sono andati con il vertice, quelli dopo sono stati rifiutati
+		assert g.traversal().V().hasLabel("source").out("feeds").count().next() == 0;
+		assert g.traversal().V().hasLabel("source").count().next() == THREADS / 2 * OPERATIONS_PER_THREAD;
+		checkConsistency();
+	}
+
+	@Test
+	public void concurrentPropertyCreation() throws Exception {
+		LogHelper.changeJulLogLevel("info");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final Vertex marko = g.traversal().V().has("name", "marko").next();
+		// tutti i thread creano la stessa proprietà nello stesso istante
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				marko.property("counter-" + (i % 10), thread * OPERATIONS_PER_THREAD + i);
+			}
+		});
+		for (int i = 0; i < 10; i++) {
+			assert g.traversal().V().has("name", "marko").properties("counter-" + i).toList().size() == 1;
+		}
+		checkConsistency();
+	}
+
+	@Test
+	public void concurrentRemovalsAndInserts() throws Exception {
+		LogHelper.changeJulLogLevel("info");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final Vertex hub = g.addVertex("id", "hub", "label", "hub", "name", "hub");
+		for (int i = 0; i < THREADS * OPERATIONS_PER_THREAD / 2; i++) {
+			g.addVertex("id", "leaf-" + i, "label", "leaf", "name", "leaf-" + i).addEdge("feeds", hub);
+		}
+		// metà dei thread rimuove le foglie, l'altra metà aggiunge archi verso l'hub
+		runConcurrently(thread -> {
+			for (int i = 0; i < OPERATIONS_PER_THREAD / 2; i++) {
+				final int leaf = thread / 2 * OPERATIONS_PER_THREAD + i;
+				if (thread % 2 == 0) {
+					g.traversal().V().has("name", "leaf-" + leaf).drop().iterate();
+				} else {
+					g.addVertex("id", "source-" + thread + "-" + i, "label", "source", "name", "source").addEdge("feeds",
+							hub);
+				}
+			}
+		});
+		checkConsistency();
+		final long removed = (THREADS + 1) / 2 * (OPERATIONS_PER_THREAD / 2);
+		final long added = THREADS / 2 * (OPERATIONS_PER_THREAD / 2);
+		assert g.traversal().V().has("name", "hub").inE("feeds").count().next() == THREADS * OPERATIONS_PER_THREAD / 2
+				- removed + added;
+	}
+
+	@Test
+	public void concurrentVertexAndEdgeWrites() throws Exception {
+		LogHelper.changeJulLogLevel("info");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final int vertices = g.getWaldotNamespace().getVerticesCount();
+		final int edges = g.getWaldotNamespace().getEdgesCount();
+		final Vertex hub = g.addVertex("id", "hub", "label", "hub", "name", "hub", "load", 0);
+		final long start = System.nanoTime();
+		runConcurrently(thread -> {
+			Vertex previous = null;
+			for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+				// cartelle condivise tra i thread
+				final Vertex vertex = g.addVertex("id", "stress-" + thread + "-" + i, "label", "stress", "name",
+						"stress-" + thread + "-" + i, "directory", "stress/" + (i % 4));
+				vertex.addEdge("feeds", hub);
+				if (previous != null) {
+					previous.addEdge("next", vertex);
+				}
+				hub.property("load", i);
+				previous = vertex;
+			}
+		});
+		final long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		System.out.println(THREADS + " threads, " + THREADS * OPERATIONS_PER_THREAD * 4 + " writes in " + elapsedMs
+				+ " ms");
+		assert g.getWaldotNamespace().getVerticesCount() == vertices + 1 + THREADS * OPERATIONS_PER_THREAD;
+		assert g.getWaldotNamespace().getEdgesCount() == edges + THREADS * OPERATIONS_PER_THREAD
+				+ THREADS * (OPERATIONS_PER_THREAD - 1);
+		assert g.traversal().V().has("name", "hub").in("feeds").count().next() == THREADS * OPERATIONS_PER_THREAD;
+		assert g.traversal().V().hasLabel("stress").out("next").count().next() == THREADS
+				* (OPERATIONS_PER_THREAD - 1);
+		checkConsistency();
+	}
+
+	private void runConcurrently(final ThreadTask task) throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch startGate = new CountDownLatch(1);
+		try {
+			final List<Future<Void>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				final int threadIndex = thread;
+				futures.add(executor.submit((Callable<Void>) () -> {
+					startGate.await();
+					task.run(threadIndex);
+					return null;
+				}));
+			}
+			startGate.countDown();
+			for (final Future<Void> future : futures) {
+				// un'eccezione in un thread fa fallire il test
+				future.get(5, TimeUnit.MINUTES);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -3,16 +3,47 @@ package net.rossonet.waldot;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.jexl3.MapContext;
+import org.apache.tinkerpop.gremlin.process.computer.Computer;
+import org.apache.tinkerpop.gremlin.process.computer.ComputerResult;
+import org.apache.tinkerpop.gremlin.process.computer.GraphComputer;
+import org.apache.tinkerpop.gremlin.process.computer.ranking.pagerank.PageRankVertexProgram;
+import org.apache.tinkerpop.gremlin.process.traversal.Order;
+import org.apache.tinkerpop.gremlin.process.traversal.P;
+import org.apache.tinkerpop.gremlin.process.traversal.Traversal;
+import org.apache.tinkerpop.gremlin.process.traversal.dsl.graph.__;
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.T;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import net.rossonet.waldot.api.NamespaceListener;
+import net.rossonet.waldot.api.models.WaldotBulkLoader;
 import net.rossonet.waldot.api.models.WaldotGraph;
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.api.strategies.ConsoleStrategy;
 import net.rossonet.waldot.client.utils.WaldotTestClientHandler;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.map.OpcVertexCentricEdgeStep;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.sideEffect.OpcGraphStep;
+import net.rossonet.waldot.gremlin.opcgraph.process.traversal.step.sideEffect.OpcParallelScanIterator;
+import net.rossonet.waldot.gremlin.opcgraph.services.OpcDegreeCentralityFactory;
+import net.rossonet.waldot.gremlin.opcgraph.services.OpcServiceRegistry;
+import net.rossonet.waldot.gremlin.opcgraph.services.OpcTextSearchFactory;
+import net.rossonet.waldot.gremlin.opcgraph.structure.AbstractOpcGraph;
 import net.rossonet.waldot.gremlin.opcgraph.structure.OpcFactory;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcGraphStatistics;
+import net.rossonet.waldot.gremlin.opcgraph.structure.index.OpcQueryCache;
 import net.rossonet.waldot.gremlins.TestNamespaceListener;
 import net.rossonet.waldot.utils.LogHelper;
 import net.rossonet.waldot.utils.NetworkHelper;
@@ -74,6 +105,141 @@ public class GraphQueryTests {
 		}
 	}
 
+	@Test
+	public void runAggregations() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		// conteggi letti dai contatori del grafo
+		final Map<Object, Long> labels = g.traversal().V().groupCount().by(T.label).next();
+		assert labels.get("person") == 4L;
+		assert labels.get("software") == 2L;
+		assert g.traversal().E().label().groupCount().next().get("created") == 4L;
+		assert g.traversal().V().hasLabel("person").count().next() == 4L;
+		assert g.traversal().V().hasLabel("person", "software").count().next() == 6L;
+		assert g.traversal().V().has("age").count().next() == 4L;
+		assert g.traversal().V().has("name", "josh").outE().count().next() == 2L;
+		assert g.traversal().V().has("name", "josh").bothE().count().next() == 3L;
+		assert g.traversal().V().has("name", "lop").inE("created").count().next() == 3L;
+		final AbstractOpcGraph graph = (AbstractOpcGraph) g;
+		((OpcServiceRegistry) graph.getServiceRegistry()).registerService(new OpcDegreeCentralityFactory(graph));
+		assert g.traversal().V().has("name", "lop").call(OpcDegreeCentralityFactory.NAME).next().equals(3L);
+
+		// i contatori seguono le scritture
+		g.traversal().V().has("name", "josh").outE("created").limit(1).drop().iterate();
+		assert g.traversal().V().has("name", "josh").outE().count().next() == 1L;
+		assert g.traversal().E().hasLabel("created").count().next() == 3L;
+		g.traversal().V().has("name", "vadas").drop().iterate();
+		assert g.traversal().V().hasLabel("person").count().next() == 3L;
+		assert g.traversal().V().has("age").count().next() == 3L;
+	}
+
+	@Test
+	public void runBulkLoad() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		g.createIndex("name", Vertex.class);
+		try (WaldotBulkLoader loader = g.bulkLoader(3)) {
+			final WaldotVertex pump = loader.addVertex("id", 100, "label", "pump", "name", "pump-1", "directory",
+					"plant/line1");
+			loader.addVertex("id", 101, "label", "tank", "name", "tank-1", "directory", "plant/line1");
+			// il batch non ancora completo non è visibile, neanche negli indici
+			assert g.getWaldotNamespace().getVerticesCount() == 6;
+			assert !g.getWaldotNamespace().hasNodeId(pump.getNodeId());
+			assert g.traversal().V().has("name", "pump-1").toList().isEmpty();
+			loader.addVertex("id", 102, "label", "tank", "name", "tank-2", "directory", "plant/line1");
+			assert g.getWaldotNamespace().getVerticesCount() == 9;
+			assert g.getWaldotNamespace().hasNodeId(pump.getNodeId());
+			assert g.traversal().V().has("name", "pump-1").toList().size() == 1;
+			loader.addEdge(100, 101, "feeds", "flow", 12.5d);
+			loader.addEdge(100, 102, "feeds", "flow", 3.5d);
+			assert g.getWaldotNamespace().getEdgesCount() == 6;
+			assert g.traversal().V().has("name", "pump-1").out("feeds").toList().isEmpty();
+			// vertice del grafo caricato prima del loader
+			loader.addEdge(1, 100, "maintains");
+			assert loader.getVertexCount() == 3;
+			assert loader.getEdgeCount() == 3;
+		}
+		assert g.getWaldotNamespace().getVerticesCount() == 9;
+		assert g.getWaldotNamespace().getEdgesCount() == 9;
+		assert g.traversal().V().has("name", "pump-1").out("feeds").toList().size() == 2;
+		assert g.traversal().V().hasLabel("tank").toList().size() == 2;
+		assert g.traversal().V().has("name", "marko").out("maintains").values("name").next().equals("pump-1");
+		// gli indici seguono le modifiche dopo il caricamento
+		g.traversal().V().has("name", "tank-2").property("name", "tank-3").iterate();
+		assert g.traversal().V().has("name", "tank-2").toList().isEmpty();
+		assert g.traversal().V().has("name", "tank-3").toList().size() == 1;		// la chiusura del grafo pubblica il batch di un loader non chiuso
+		final WaldotBulkLoader openLoader = g.bulkLoader(10);
+		openLoader.addVertex("id", 103, "label", "valve", "name", "valve-1");
+		assert g.traversal().V().has("name", "valve-1").toList().isEmpty();
+		g.close();
+		assert g.traversal().V().has("name", "valve-1").toList().size() == 1;
+	}
+
+	@Test
+	public void runEdgeEndpoints() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final Vertex marko = g.traversal().V().has("name", "marko").next();
+		final Vertex josh = g.traversal().V().has("name", "josh").next();
+		final Edge knows = g.traversal().V().has("name", "marko").outE("knows").where(__.inV().has("name", "josh"))
+				.next();
+		// gli estremi sono le stesse istanze dei vertici
+		assert knows.outVertex() == marko;
+		assert knows.inVertex() == josh;
+		final Edge created = josh.addEdge("created", marko);
+		assert created.outVertex() == josh;
+		assert created.inVertex() == marko;
+		// la rimozione del vertice rimuove gli archi che lo riferiscono
+		josh.remove();
+		assert g.getWaldotNamespace().getEdgesCount() == 3;
+		assert g.traversal().E().toList().stream()
+				.noneMatch(edge -> edge.outVertex() == josh || edge.inVertex() == josh);
+		assert g.traversal().V().has("name", "marko").out("knows").values("name").next().equals("vadas");
+	}
+
+	@Test
+	public void runEdgeIndexes() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		g.createEdgeIndex("created", "weight");
+
+		// gli archi di lop letti dall'indice già ordinati
+		assert g.traversal().V().has("name", "lop").inE("created").order().by("weight", Order.desc)
+				.values("weight").toList().equals(List.of(0.4d, 0.4d, 0.2d));
+		assert g.traversal().V().has("name", "lop").inE("created").order().by("weight").limit(1).values("weight")
+				.next().equals(0.2d);
+		assert g.traversal().V().has("name", "josh").outE("created").has("weight", P.gt(0.5)).inV().values("name")
+				.next().equals("ripple");
+		// ordine e limite restano globali con più vertici di partenza
+		assert g.traversal().V().hasLabel("person").outE("created").order().by("weight").limit(2).values("weight")
+				.toList().equals(List.of(0.2d, 0.4d));
+
+		final Traversal.Admin<Vertex, Edge> traversal = g.traversal().V().has("name", "lop").inE("created")
+				.has("weight", P.lt(0.3)).asAdmin();
+		traversal.applyStrategies();
+		assert traversal.getEndStep() instanceof OpcVertexCentricEdgeStep;
+		assert IteratorUtils.count(traversal) == 1;
+
+		// l'indice segue le scritture e le rimozioni
+		g.traversal().V().has("name", "josh").outE("created").where(__.inV().has("name", "lop")).property("weight", 0.1d)
+				.iterate();
+		assert g.traversal().V().has("name", "lop").inE("created").order().by("weight").values("weight").next()
+				.equals(0.1d);
+		g.traversal().V().has("name", "peter").drop().iterate();
+		assert g.traversal().V().has("name", "lop").inE("created").has("weight", P.lt(0.3)).toList().size() == 1;
+
+		g.dropEdgeIndex("created", "weight");
+		assert g.traversal().V().has("name", "lop").inE("created").has("weight", P.lt(0.3)).toList().size() == 1;
+	}
+
 	@Test
 	public void runKitchenSink() throws Exception {
 		LogHelper.changeJulLogLevel("fine");
@@ -209,6 +375,272 @@ public class GraphQueryTests {
 		// Verify person vertices
 		assert g.traversal().V().has("age").values("age").toList().size() == 4;
 		assert g.traversal().V().has("lang").values("lang").toList().size() == 2;
+
+		// lazy iteration, early exit
+		assert g.traversal().V().limit(2).toList().size() == 2;
+		assert g.traversal().V().has("age").limit(1).toList().size() == 1;
+		assert g.traversal().E().hasNext();
+		assert !g.traversal().V().has("name", "nobody").hasNext();
+		// il predicato conta gli elementi testati, la scansione si ferma al primo
+		final AtomicInteger tested = new AtomicInteger();
+		final P<Object> counting = new P<>((value, ignored) -> tested.incrementAndGet() > 0, "any");
+		assert g.traversal().V().has("name", counting).limit(1).toList().size() == 1;
+		assert tested.get() == 1;
+		tested.set(0);
+		assert g.traversal().V().has("name", counting).hasNext();
+		assert tested.get() == 1;
+		tested.set(0);
+		assert g.traversal().V().has("name", counting).toList().size() == 6;
+		assert tested.get() == 6;
+	}
+
+	@Test
+	public void runModernOlap() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		assert g.traversal().withComputer().V().count().next() == 6L;
+		assert g.traversal().withComputer().V().hasLabel("person").toList().size() == 4;
+		assert g.traversal().withComputer().V().has("name", "lop").in("created").toList().size() == 3;
+
+		// il namespace è in modalità computer solo mentre il calcolo è in esecuzione
+		assert !g.getWaldotNamespace().inComputerMode();
+		final List<Boolean> computerMode = g.traversal().withComputer().V()
+				.map(traverser -> g.getWaldotNamespace().inComputerMode()).toList();
+		assert computerMode.size() == 6 && !computerMode.contains(false);
+		assert !g.getWaldotNamespace().inComputerMode();
+		// durante il calcolo le letture del grafo vivo vedono la vista filtrata
+		final List<Long> visibleVertices = g.traversal()
+				.withComputer(Computer.compute().vertices(__.hasLabel("person"))).V()
+				.map(traverser -> IteratorUtils.count(g.vertices())).toList();
+		assert visibleVertices.size() == 4 && visibleVertices.stream().allMatch(count -> count == 4L);
+		assert IteratorUtils.count(g.vertices()) == 6;
+
+		// the compute keys live on the snapshot, the new result graph does not touch
+		// the address space
+		final ComputerResult result = g.compute().program(PageRankVertexProgram.build().create(g)).submit().get();
+		assert IteratorUtils.count(result.graph().vertices()) == 6;
+		result.graph().vertices().forEachRemaining(vertex -> {
+			assert vertex.property(PageRankVertexProgram.PAGE_RANK).isPresent();
+		});
+		assert !g.traversal().V().has(PageRankVertexProgram.PAGE_RANK).hasNext();
+
+		// the final values are written back when the result is the original graph
+		g.compute().program(PageRankVertexProgram.build().create(g)).result(GraphComputer.ResultGraph.ORIGINAL)
+				.persist(GraphComputer.Persist.VERTEX_PROPERTIES).submit().get();
+		assert g.traversal().V().has(PageRankVertexProgram.PAGE_RANK).toList().size() == 6;
+	}
+
+	@Test
+	public void runModernWithIndexes() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		g.createIndex("name", Vertex.class);
+		g.createRangeIndex("age", Vertex.class);
+		g.createIndex("weight", "edge");
+		assert g.getIndexedKeys(Vertex.class).contains("name");
+		assert g.getIndexedKeys(Vertex.class).contains("age");
+		assert g.getIndexedKeys(Edge.class).contains("weight");
+		// le label sono sempre indicizzate ma non sono chiavi indicizzate
+		assert g.getIndexedKeys(Vertex.class).size() == 2;
+
+		// exact match, labels and ranges answered by the indexes
+		assert g.traversal().V().has("name", "marko").toList().size() == 1;
+		assert g.traversal().V().hasLabel("person").toList().size() == 4;
+		assert g.traversal().V().hasLabel("software").has("name", "lop").toList().size() == 1;
+		assert g.traversal().V().has("age", 29L).values("name").next().equals("marko");
+		assert g.traversal().V().has("age", P.gt(30)).toList().size() == 2;
+		assert g.traversal().V().has("age", P.between(27, 32)).toList().size() == 2;
+		assert g.traversal().E().has("weight", 0.4d).toList().size() == 2;
+		assert g.traversal().E().hasLabel("created").toList().size() == 4;
+
+		// indexes follow property updates and element removal
+		g.traversal().V().has("name", "vadas").property("name", "vadas2").iterate();
+		assert g.traversal().V().has("name", "vadas").toList().isEmpty();
+		assert g.traversal().V().has("name", "vadas2").toList().size() == 1;
+		g.traversal().V().has("name", "peter").drop().iterate();
+		assert g.traversal().V().has("name", "peter").toList().isEmpty();
+		assert g.traversal().V().has("age", P.gt(30)).toList().size() == 1;
+		assert g.traversal().E().hasLabel("created").toList().size() == 3;
+
+		g.dropIndex("name", Vertex.class);
+		assert !g.getIndexedKeys(Vertex.class).contains("name");
+		assert g.traversal().V().has("name", "marko").toList().size() == 1;
+	}
+
+	@Test
+	public void runParallelScan() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final AbstractOpcGraph graph = (AbstractOpcGraph) g;
+		graph.setParallelScanThreshold(0);
+		final List<Object> sequentialVertices = g.traversal().V().has("age", P.gt(28)).values("name").toList();
+		final List<Object> sequentialEdges = g.traversal().E().has("weight", P.lt(1.0)).id().toList();
+
+		// con la soglia e le partizioni minime ogni scansione senza indice è divisa in più partizioni,
+		// il risultato ha lo stesso ordine
+		graph.setParallelScanThreshold(1);
+		graph.setParallelScanPartitionSize(1);
+		assert g.traversal().V().has("age", P.gt(28)).values("name").toList().equals(sequentialVertices);
+		assert g.traversal().E().has("weight", P.lt(1.0)).id().toList().equals(sequentialEdges);
+		assert g.traversal().V().has("age", P.gt(28)).count().next() == 3;
+		assert g.traversal().V().has("age", P.gt(28)).limit(1).toList().size() == 1;
+
+		// le partizioni sono sottomesse man mano, il primo risultato non filtra tutti gli elementi
+		final List<Integer> elements = new ArrayList<>();
+		for (int i = 0; i < 100_000; i++) {
+			elements.add(i);
+		}
+		final AtomicInteger tested = new AtomicInteger();
+		final ForkJoinPool pool = new ForkJoinPool(2);
+		try (OpcParallelScanIterator<Integer> scan = new OpcParallelScanIterator<>(elements, i -> {
+			tested.incrementAndGet();
+			return i % 2 == 0;
+		}, pool, 100)) {
+			assert scan.next() == 0;
+			// 8 partizioni, la prima e al più le 2 successive
+			assert tested.get() <= 3 * 12_500;
+			int expected = 2;
+			while (scan.hasNext()) {
+				assert scan.next() == expected;
+				expected += 2;
+			}
+			assert expected == 100_000;
+			assert tested.get() == 100_000;
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void runQueryCache() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final OpcQueryCache queryCache = ((AbstractOpcGraph) g).getIndexManager().getQueryCache();
+		final String query = "g.V().hasLabel('person').count().next()";
+		assert queryCache.execute(query, () -> g.traversal().V().hasLabel("person").count().next()).equals(4L);
+		assert queryCache.execute(query, () -> g.traversal().V().hasLabel("person").count().next()).equals(4L);
+		assert queryCache.getHitCount() == 1;
+
+		// le scritture su archi e chiavi non lette lasciano il risultato valido
+		g.traversal().E().hasLabel("created").property("weight", 0.5d).iterate();
+		g.traversal().V().hasLabel("person").property("age", 40).iterate();
+		assert queryCache.execute(query, () -> g.traversal().V().hasLabel("person").count().next()).equals(4L);
+		assert queryCache.getHitCount() == 2;
+
+		// un nuovo vertice della label invalida il risultato
+		g.addVertex("id", 200, "label", "person", "name", "ada");
+		assert queryCache.execute(query, () -> g.traversal().V().hasLabel("person").count().next()).equals(5L);
+		assert queryCache.getHitCount() == 2;
+		assert queryCache.getInvalidationCount() == 1;
+
+		// le query che scrivono non vengono salvate
+		final int size = queryCache.size();
+		queryCache.execute("g.addV('rule').next()", () -> g.traversal().addV("rule").next());
+		assert queryCache.size() == size;
+		// un passo che scrive non viene salvato anche se non trova elementi
+		queryCache.execute("g.V().has('name', 'nobody').property('age', 1).count().next()",
+				() -> g.traversal().V().has("name", "nobody").property("age", 1).count().next());
+		assert queryCache.size() == size;
+
+		// la chiave è il testo senza spazi ai lati con i valori delle variabili lette
+		final long hits = queryCache.getHitCount();
+		assert queryCache.execute("  " + query + "\n", () -> g.traversal().V().hasLabel("person").count().next())
+				.equals(5L);
+		assert queryCache.getHitCount() == hits + 1;
+		final String byName = "g.V().has('name', name).count().next()";
+		queryCache.execute(byName, Map.of("name", "marko"),
+				() -> g.traversal().V().has("name", "marko").count().next());
+		assert queryCache.execute(byName, Map.of("name", "josh"),
+				() -> g.traversal().V().has("name", "josh").count().next()).equals(1L);
+		assert queryCache.getHitCount() == hits + 1;
+		queryCache.execute(byName, Map.of("name", "marko"),
+				() -> g.traversal().V().has("name", "marko").count().next());
+		assert queryCache.getHitCount() == hits + 2;
+
+		// la console passa dalla cache anche con un contesto, i comandi non vengono salvati
+		final ConsoleStrategy console = g.getWaldotNamespace().getConsoleStrategy();
+		final MapContext context = new MapContext();
+		context.set("g", g.traversal());
+		context.set("name", "marko");
+		final long consoleHits = queryCache.getHitCount();
+		assert ((Number) console.runExpression(byName, context)).longValue() == 1L;
+		assert ((Number) console.runExpression(" " + byName + " ", context)).longValue() == 1L;
+		assert queryCache.getHitCount() == consoleHits + 1;
+		context.set("name", "nobody");
+		assert ((Number) console.runExpression(byName, context)).longValue() == 0L;
+		assert queryCache.getHitCount() == consoleHits + 1;
+		context.set(ConsoleStrategy.COMMANDS_LABEL, g.traversal());
+		final int consoleSize = queryCache.size();
+		console.runExpression(ConsoleStrategy.COMMANDS_LABEL + ".V().count().next()", context);
+		assert queryCache.size() == consoleSize;
+	}
+
+	@Test
+	public void runStatistics() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final OpcGraphStatistics statistics = ((AbstractOpcGraph) g).getIndexManager().getStatistics();
+		assert statistics.getLabelCount(Vertex.class, "person") == 4;
+		assert statistics.getLabelCount(Vertex.class, "software") == 2;
+		assert statistics.getLabelCount(Edge.class, "created") == 4;
+		assert statistics.getKeyCount(Vertex.class, "age") == 4;
+		assert statistics.getDistinctValues(Vertex.class, "age") == 4;
+		// marko, josh e peter hanno creato, lop è stato creato da tre persone
+		assert statistics.getDegreeHistogram("created", Direction.OUT).getVertices() == 3;
+		assert statistics.getDegreeHistogram("created", Direction.IN).getMaxDegreeBound() == 3;
+
+		// il filtro più selettivo viene testato per primo
+		final Traversal.Admin<Vertex, Vertex> traversal = g.traversal().V().hasLabel("person").has("age", 29).asAdmin();
+		traversal.applyStrategies();
+		assert ((OpcGraphStep<?, ?>) traversal.getStartStep()).getHasContainers().get(0).getKey().equals("age");
+		assert IteratorUtils.list(traversal).size() == 1;
+
+		// le statistiche seguono le scritture e le rimozioni
+		g.traversal().V().has("name", "peter").drop().iterate();
+		assert statistics.getLabelCount(Vertex.class, "person") == 3;
+		assert statistics.getKeyCount(Vertex.class, "age") == 3;
+		assert statistics.getDegreeHistogram("created", Direction.OUT).getEdges() == 3;
+		g.traversal().V().has("name", "vadas").properties("age").drop().iterate();
+		assert statistics.getKeyCount(Vertex.class, "age") == 2;
+	}
+
+	@Test
+	public void runTextSearch() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		final OpcTextSearchFactory<Object, Object> search = new OpcTextSearchFactory<>((AbstractOpcGraph) g);
+		// termine, prefisso e sottostringa dall'indice, regex con la scansione
+		assert IteratorUtils.list(search.execute(null, Map.of("term", "JAVA"))).size() == 2;
+		assert IteratorUtils.list(search.execute(null, Map.of("prefix", "ri"))).size() == 1;
+		assert IteratorUtils.list(search.execute(null, Map.of("search", "ar"))).size() == 1;
+		assert IteratorUtils.list(search.execute(null, Map.of("search", "a", "type", "Vertex"))).size() == 4;
+		assert IteratorUtils.list(search.execute(null, Map.of("regex", "(j|p).*", "type", "Vertex"))).size() == 4;
+		assert IteratorUtils.list(search.execute(null, Map.of("term", "software", "elements", "true"))).size() == 2;
+		// i valori numerici sono cercati nella loro forma testuale, come nella scansione
+		assert IteratorUtils.list(search.execute(null, Map.of("search", "29"))).size() == 1;
+		assert IteratorUtils.list(search.execute(null, Map.of("term", "29", "elements", "true"))).size() == 1;
+		g.traversal().V().has("name", "marko").property("age", 30).iterate();
+		assert IteratorUtils.list(search.execute(null, Map.of("search", "29"))).isEmpty();
+		assert IteratorUtils.list(search.execute(null, Map.of("search", "30"))).size() == 1;
+		// l'indice segue le scritture e le rimozioni
+		g.traversal().V().has("name", "marko").property("name", "markus").iterate();
+		assert IteratorUtils.list(search.execute(null, Map.of("search", "ark"))).size() == 1;
+		assert IteratorUtils.list(search.execute(null, Map.of("term", "marko"))).isEmpty();
+		g.traversal().V().has("name", "ripple").drop().iterate();
+		assert IteratorUtils.list(search.execute(null, Map.of("prefix", "ri"))).isEmpty();
+		assert IteratorUtils.list(search.execute(null, Map.of("term", "java"))).size() == 1;
 	}
 
 	@Test
@@ -313,4 +745,83 @@ public class GraphQueryTests {
 		assert g.traversal().V().has("name", "daniel").properties("location").toList().size() == 3;
 	}
 
-}
\ No newline at end of file
+	@Test
+	public void runTransactions() throws Exception {
+		LogHelper.changeJulLogLevel("fine");
+		g = OpcFactory.createModern();
+		g.getWaldotNamespace().addListener(listener);
+		Thread.sleep(500);
+		g.createIndex("name", Vertex.class);
+		assert g.features().graph().supportsTransactions();
+
+		// le scritture restano nel buffer fino al commit, il rollback le scarta
+		g.tx().open();
+		g.traversal().V().has("name", "vadas").property("name", "vadas2").iterate();
+		final Vertex pump = g.addVertex("id", 200, "label", "pump", "name", "pump-1");
+		pump.property("state", "on");
+		assert pump.value("state").equals("on");
+		g.traversal().V().has("name", "peter").drop().iterate();
+		// la transazione legge le sue scritture, gli altri thread no
+		assert g.traversal().V().has("name", "vadas").toList().isEmpty();
+		assert g.traversal().V().has("name", "vadas2").toList().size() == 1;
+		assert g.traversal().V().has("name", "marko").out("knows").has("name", "vadas2").toList().size() == 1;
+		assert g.traversal().V().has("name", "pump-1").values("state").next().equals("on");
+		assert g.traversal().V(pump.id()).toList().size() == 1;
+		assert g.traversal().V().has("name", "peter").toList().isEmpty();
+		assert g.traversal().V().has("name", "lop").in("created").toList().size() == 2;
+		assert g.traversal().V().count().next() == 6L;
+		assert g.getWaldotNamespace().getVerticesCount() == 6;
+		final AtomicInteger seen = new AtomicInteger(-1);
+		final Thread reader = new Thread(
+				() -> seen.set(g.traversal().V().has("name", "vadas2").toList().size()));
+		reader.start();
+		reader.join();
+		assert seen.get() == 0;
+		g.tx().rollback();
+		assert g.traversal().V().has("name", "vadas").toList().size() == 1;
+		assert g.traversal().V().has("name", "vadas2").toList().isEmpty();
+		assert g.traversal().V().has("name", "pump-1").toList().isEmpty();
+		assert g.traversal().V().has("name", "peter").out("created").values("name").next().equals("lop");
+		assert g.getWaldotNamespace().getVerticesCount() == 6;
+		assert g.getWaldotNamespace().getEdgesCount() == 6;
+
+		// la transazione aperta non blocca le scritture degli altri thread
+		g.tx().open();
+		g.traversal().V().has("name", "vadas").property("name", "vadas2").iterate();
+		final Vertex valve = g.addVertex("id", 201, "label", "valve", "name", "valve-1");
+		valve.addEdge("feeds", g.traversal().V().has("name", "lop").next(), "weight", 0.5);
+		assert g.traversal().V().has("name", "valve-1").out("feeds").values("name").next().equals("lop");
+		assert g.traversal().V().has("name", "lop").in("feeds").values("name").next().equals("valve-1");
+		assert g.traversal().V().has("name", "valve-1").outE("feeds").values("weight").next().equals(0.5);
+		final Thread writer = new Thread(
+				() -> g.traversal().V().has("name", "josh").property("age", 33).iterate());
+		writer.start();
+		writer.join(5000);
+		assert !writer.isAlive();
+		g.tx().commit();
+		assert !g.tx().isOpen();
+		assert g.traversal().V().has("name", "vadas2").toList().size() == 1;
+		assert g.traversal().V().has("name", "valve-1").out("feeds").values("name").next().equals("lop");
+		assert g.traversal().V().has("name", "josh").values("age").next().equals(33);
+		assert g.getWaldotNamespace().getVerticesCount() == 7;
+		assert g.getWaldotNamespace().getEdgesCount() == 7;
+
+		// una scrittura che fallisce al commit annulla quelle già applicate
+		final Vertex ripple = g.traversal().V().has("name", "ripple").next();
+		g.tx().open();
+		g.addVertex("id", 202, "label", "pump", "name", "pump-2").addEdge("feeds", ripple);
+		final Thread remover = new Thread(ripple::remove);
+		remover.start();
+		remover.join();
+		try {
+			g.tx().commit();
+			assert false : "commit on a removed vertex";
+		} catch (final RuntimeException e) {
+			assert !g.tx().isOpen();
+		}
+		assert g.traversal().V().has("name", "pump-2").toList().isEmpty();
+		assert g.getWaldotNamespace().getVerticesCount() == 6;
+		assert !g.tx().isOpen();
+	}
+
+}
@@ -24,6 +24,26 @@ public class JexlRunnerTest {
 		return executor;
 	}
 
+	@Test
+	public void compiledScriptCacheTest() throws Exception {
+		final JexlExecutor executor = new JexlExecutor("cache", JexlExecutor.EngineProfile.PRODUCTION, 2);
+		executor.addOrUpdateContext("a", 2);
+		for (int i = 0; i < 10; i++) {
+			assert ((Number) executor.execute("a * 3")).intValue() == 6;
+		}
+		assert executor.getScriptCache().getMissCount() == 1;
+		assert executor.getScriptCache().getHitCount() == 9;
+		assert executor.compile("x + y", "x", "y") != executor.compile("x + y");
+		assert ((Number) executor.compile("x + y", "x", "y").execute(null, 1, 2)).intValue() == 3;
+		assert executor.getScriptCache().size() == 2;
+		assert executor.getScriptCache().getEvictionCount() == 1;
+		executor.invalidateCache();
+		assert executor.getScriptCache().size() == 0;
+		executor.execute("a * 3");
+		assert executor.getScriptCache().getMissCount() == 4;
+		executor.close();
+	}
+
 	public String prova() {
 		return "prova";
 	}
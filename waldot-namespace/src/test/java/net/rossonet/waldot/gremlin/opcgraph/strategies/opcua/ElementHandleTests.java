@@ -0,0 +1,142 @@
+package net.rossonet.waldot.gremlin.opcgraph.strategies.opcua;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.rossonet.waldot.api.models.WaldotEdge;
+import net.rossonet.waldot.api.models.WaldotGraph;
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.api.models.base.GremlinElement;
+import net.rossonet.waldot.gremlin.opcgraph.structure.OpcFactory;
+import net.rossonet.waldot.utils.LogHelper;
+import net.rossonet.waldot.utils.NetworkHelper;
+
+/**
+ * dense handles of the elements: release and reuse of the handles and check of
+ * the handles read before a reuse.
+ */
+public class ElementHandleTests {
+
+	private WaldotGraph g;
+
+	@AfterEach
+	public void afterEach() {
+		clean();
+		System.out.println("Test completed");
+	}
+
+	@BeforeEach
+	public void beforeEach() {
+		System.out.println("Starting test...");
+		clean();
+	}
+
+	private void clean() {
+		try {
+			Files.deleteIfExists(Path.of("/tmp/boot.conf"));
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+		if (g != null && g.getWaldotNamespace() != null) {
+			try {
+				g.getWaldotNamespace().close();
+				System.out.println("Graph namespace closed");
+				g = null;
+			} catch (final Exception e) {
+				e.printStackTrace();
+			}
+		}
+		try {
+			while (!NetworkHelper.checkLocalPortAvailable(12686)) {
+				System.out.println("Waiting for server shutdown");
+				Thread.sleep(5_000);
+			}
+			Thread.sleep(500);
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Test
+	public void releaseAndReuseHandles() {
+		final MiloSingleServerBaseElementIds elementIds = new MiloSingleServerBaseElementIds();
+		final NodeId first = new NodeId(2, "first");
+		final NodeId second = new NodeId(2, "second");
+		final NodeId third = new NodeId(2, "third");
+		assert elementIds.intern(first) == 0;
+		assert elementIds.intern(second) == 1;
+		assert elementIds.intern(third) == 2;
+		// un NodeId già presente conserva il suo handle
+		assert elementIds.intern(first) == 0;
+		assert elementIds.release(second) == 1;
+		assert elementIds.release(second) == -1;
+		assert elementIds.getHandle(second) == -1;
+		assert elementIds.getNodeId(1) == null;
+		assert elementIds.size() == 2;
+		// l'handle liberato viene riassegnato prima di crescere
+		final NodeId fourth = new NodeId(2, "fourth");
+		assert elementIds.intern(fourth) == 1;
+		assert elementIds.getNodeId(1).equals(fourth);
+		assert elementIds.capacity() == 3;
+		// la tabella cresce oltre la capacità iniziale senza perdere gli handle
+		for (int i = 0; i < 5000; i++) {
+			elementIds.intern(new NodeId(2, "element " + i));
+		}
+		assert elementIds.size() == 5003;
+		assert elementIds.getNodeId(elementIds.getHandle(new NodeId(2, "element 4999")))
+				.equals(new NodeId(2, "element 4999"));
+		assert elementIds.getHandle(first) == 0;
+		assert elementIds.getHandle(third) == 2;
+		elementIds.clear();
+		assert elementIds.size() == 0;
+		assert elementIds.getHandle(first) == -1;
+		assert elementIds.intern(third) == 0;
+	}
+
+	@Test
+	public void staleHandles() throws Exception {
+		LogHelper.changeJulLogLevel("info");
+		g = OpcFactory.createModern();
+		Thread.sleep(500);
+		final WaldotVertex marko = (WaldotVertex) g.traversal().V().has("name", "marko").next();
+		final WaldotVertex josh = (WaldotVertex) g.traversal().V().has("name", "josh").next();
+		final WaldotEdge knows = (WaldotEdge) marko.edges(Direction.OUT, "knows").next();
+		final WaldotEdge created = (WaldotEdge) josh.edges(Direction.OUT, "created").next();
+		// un indice separato da quello del grafo, gli handle degli elementi sono riassegnati dai suoi intern
+		final MiloSingleServerBaseAdjacencyIndex index = new MiloSingleServerBaseAdjacencyIndex();
+		index.addEdge(knows, "knows", marko, (WaldotVertex) knows.inVertex());
+		index.addEdge(created, "created", josh, (WaldotVertex) created.inVertex());
+		final int createdHandle = ((GremlinElement) created).getHandle();
+		assert index.getDegree(marko, Direction.OUT, null) == 1;
+		assert index.getEdge(knows.getNodeId()) != null;
+		assert index.removeVertex(marko.getNodeId()).size() == 1;
+		assert ((GremlinElement) marko).getHandle() == -1;
+		assert ((GremlinElement) knows).getHandle() == -1;
+		assert index.getEdge(knows.getNodeId()) == null;
+		assert index.getEdges(marko, Direction.BOTH, null).isEmpty();
+		assert index.size() == 1;
+		// un lettore che ha letto l'handle prima della rimozione trova un altro vertice
+		((GremlinElement) marko).setHandle(((GremlinElement) josh).getHandle());
+		assert index.getEdges(marko, Direction.BOTH, null).isEmpty();
+		assert index.getVertices(marko, Direction.BOTH, null).isEmpty();
+		assert index.getDegree(marko, Direction.BOTH, null) == 0;
+		assert index.getDegree(josh, Direction.OUT, null) == 1;
+		// l'ultimo handle liberato è il primo riassegnato
+		assert index.removeEdge(created.getNodeId());
+		assert ((GremlinElement) created).getHandle() == -1;
+		index.addEdge(knows, "knows", josh, (WaldotVertex) knows.inVertex());
+		assert ((GremlinElement) knows).getHandle() == createdHandle;
+		assert index.getEdge(created.getNodeId()) == null;
+		assert index.getEdge(knows.getNodeId()).getOutVertex() == josh;
+		assert index.getDegree(josh, Direction.OUT, null) == 1;
+		assert index.size() == 1;
+	}
+
+}
@@ -0,0 +1,102 @@
+package net.rossonet.waldot.gremlin.opcgraph.structure.edge;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.rossonet.waldot.api.models.MonitoredEdge;
+import net.rossonet.waldot.api.models.MonitoredEdgeConfiguration;
+import net.rossonet.waldot.api.models.WaldotGraph;
+import net.rossonet.waldot.api.models.WaldotVertex;
+import net.rossonet.waldot.gremlin.opcgraph.structure.OpcFactory;
+import net.rossonet.waldot.utils.LogHelper;
+import net.rossonet.waldot.utils.NetworkHelper;
+
+/**
+ * configuration cache and last fired values of the fire edges.
+ */
+public class FireMonitoredEdgeTests {
+
+	private WaldotGraph g;
+
+	@AfterEach
+	public void afterEach() {
+		clean();
+		System.out.println("Test completed");
+	}
+
+	@BeforeEach
+	public void beforeEach() {
+		System.out.println("Starting test...");
+		clean();
+	}
+
+	private void clean() {
+		try {
+			Files.deleteIfExists(Path.of("/tmp/boot.conf"));
+		} catch (final IOException e) {
+			e.printStackTrace();
+		}
+		if (g != null && g.getWaldotNamespace() != null) {
+			try {
+				g.getWaldotNamespace().close();
+				System.out.println("Graph namespace closed");
+				g = null;
+			} catch (final Exception e) {
+				e.printStackTrace();
+			}
+		}
+		try {
+			while (!NetworkHelper.checkLocalPortAvailable(12686)) {
+				System.out.println("Waiting for server shutdown");
+				Thread.sleep(5_000);
+			}
+			Thread.sleep(500);
+		} catch (final Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	@Test
+	public void configurationCacheAndLastValues() throws Exception {
+		LogHelper.changeJulLogLevel("info");
+		g = OpcFactory.createModern();
+		Thread.sleep(500);
+		final WaldotVertex source = (WaldotVertex) g.addVertex("id", "source", "name", "source vertex", "a", 1);
+		final WaldotVertex target = (WaldotVertex) g.addVertex("id", "target", "name", "target vertex");
+		final OpcEdge edge = (OpcEdge) source.addEdge("fire test", target, MonitoredEdge.DEADBAND_LABEL, 5,
+				MonitoredEdge.DEADBAND_TYPE_LABEL, MonitoredEdge.ABSOLUTE);
+		final FireMonitoredEdge monitor = new FireMonitoredEdge(g.getWaldotNamespace(), edge, source, target);
+		edge.setMonitor(monitor);
+		final MonitoredEdgeConfiguration configuration = monitor.getConfiguration();
+		assert configuration.getDeadband() == 5.0;
+		// senza modifiche alle proprietà di controllo la configurazione non viene riletta
+		assert monitor.getConfiguration() == configuration;
+		edge.property("note", "not a control property");
+		assert monitor.getConfiguration() == configuration;
+		// il primo valore è sempre inoltrato
+		source.property("a", 10);
+		assert ((Number) monitor.getLastValue("a")).intValue() == 10;
+		source.property("a", 14);
+		assert ((Number) monitor.getLastValue("a")).intValue() == 10;
+		source.property("a", 16);
+		assert ((Number) monitor.getLastValue("a")).intValue() == 16;
+		// la configurazione letta dopo la scrittura vede il nuovo valore
+		edge.property(MonitoredEdge.DEADBAND_LABEL, 1);
+		assert monitor.getConfiguration() != configuration;
+		assert monitor.getConfiguration().getDeadband() == 1.0;
+		source.property("a", 18);
+		assert ((Number) monitor.getLastValue("a")).intValue() == 18;
+		edge.property(MonitoredEdge.ACTIVE_LABEL, false);
+		assert !monitor.getConfiguration().isActive();
+		source.property("a", 100);
+		assert ((Number) monitor.getLastValue("a")).intValue() == 18;
+		monitor.remove();
+		assert monitor.getLastValue("a") == null;
+	}
+
+}
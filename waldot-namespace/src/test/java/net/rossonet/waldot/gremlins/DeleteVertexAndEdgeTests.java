@@ -7,6 +7,12 @@ import java.util.concurrent.ExecutionException;
 
 import javax.naming.ConfigurationException;
 
+import org.apache.tinkerpop.gremlin.structure.Direction;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.apache.tinkerpop.gremlin.util.iterator.IteratorUtils;
+import org.eclipse.milo.opcua.sdk.server.nodes.UaObjectTypeNode;
+import org.eclipse.milo.opcua.stack.core.NodeIds;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
@@ -15,10 +21,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 
 import net.rossonet.waldot.api.NamespaceListener;
+import net.rossonet.waldot.api.models.WaldotCommand;
+import net.rossonet.waldot.api.models.WaldotEdge;
 import net.rossonet.waldot.api.models.WaldotGraph;
+import net.rossonet.waldot.api.models.WaldotVertex;
 import net.rossonet.waldot.client.utils.WaldotTestClientHandler;
+import net.rossonet.waldot.commands.DeleteDirectory;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.MiloSingleServerBaseElementCommands;
 import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.LoggerHistoryStrategy;
 import net.rossonet.waldot.gremlin.opcgraph.structure.OpcFactory;
+import net.rossonet.waldot.opc.MiloSingleServerBaseReferenceNodeBuilder;
 import net.rossonet.waldot.utils.LogHelper;
 import net.rossonet.waldot.utils.NetworkHelper;
 
@@ -57,10 +69,15 @@ public class DeleteVertexAndEdgeTests {
 		System.out.println("Graph generated");
 		assert waldotTestClientHandler.checkOpcUaVertexExists(1);
 		assert waldotTestClientHandler.checkVertexExists(1);
+		assert g.getWaldotNamespace().getEdgesCount() == 6;
 		g.traversal().V().has("name", "marko").drop().iterate();
 		Thread.sleep(500);
 		assert !waldotTestClientHandler.checkOpcUaVertexExists(1);
 		assert !waldotTestClientHandler.checkVertexExists(1);
+		// incident edges are dropped with the vertex
+		assert g.getWaldotNamespace().getEdgesCount() == 3;
+		assert g.traversal().V().has("name", "vadas").in("knows").toList().isEmpty();
+		assert g.traversal().V().has("name", "lop").in("created").toList().size() == 2;
 	}
 
 	@Test
@@ -80,6 +97,64 @@ public class DeleteVertexAndEdgeTests {
 		assert !waldotTestClientHandler.checkVertexExists(1);
 	}
 
+	@Test
+	public void deleteVertexWithCommandTest() throws Exception {
+		simpleServerInit();
+		OpcFactory.generateModern(g);
+		final WaldotVertex marko = (WaldotVertex) g.traversal().V().has("name", "marko").next();
+		final WaldotCommand delete = g.getWaldotNamespace().getConsoleStrategy().getCommands().stream()
+				.filter(command -> command instanceof DeleteDirectory).findFirst().get();
+		final Object[] result = delete.runCommand(new String[] { marko.getNodeId().toParseableString() });
+		assert ((String) result[1]).isEmpty() : result[1];
+		assert !waldotTestClientHandler.checkVertexExists(1);
+		// gli archi incidenti sono rimossi con il vertice
+		assert g.getWaldotNamespace().getEdgesCount() == 3;
+		assert g.traversal().E().toList().size() == 3;
+		assert g.traversal().E().outV().has("name", "marko").toList().isEmpty();
+		final Vertex vadas = g.traversal().V().has("name", "vadas").next();
+		assert !vadas.edges(Direction.IN, "knows").hasNext();
+		final Vertex lop = g.traversal().V().has("name", "lop").next();
+		assert IteratorUtils.count(lop.edges(Direction.IN, "created")) == 2;
+		assert g.traversal().V().has("name", "lop").in("created").toList().size() == 2;
+	}
+
+	@Test
+	public void sharedElementMethodsWithOpcTest() throws Exception {
+		simpleServerInit();
+		OpcFactory.generateModern(g);
+		final WaldotVertex marko = (WaldotVertex) g.traversal().V().has("name", "marko").next();
+		final WaldotEdge knows = (WaldotEdge) g.traversal().V().has("name", "marko").outE("knows").next();
+		final NodeId markoNodeId = marko.getNodeId();
+		final NodeId knowsNodeId = knows.getNodeId();
+		// i metodi sono nodi condivisi dei tipi, il server trova l'elemento dall'objectId
+		String[] result = waldotTestClientHandler.callElementMethodWithOpcUa(markoNodeId,
+				MiloSingleServerBaseElementCommands.PROPERTY_COMMAND, "city", "Rome");
+		assert result[1].isEmpty() : result[1];
+		assert "Rome".equals(marko.property("city").value());
+		result = waldotTestClientHandler.callElementMethodWithOpcUa(knowsNodeId,
+				MiloSingleServerBaseElementCommands.PROPERTY_COMMAND, "since", "2010");
+		assert result[1].isEmpty() : result[1];
+		assert "2010".equals(knows.property("since").value());
+		assert isLinked(MiloSingleServerBaseReferenceNodeBuilder.edgeTypeNode, knowsNodeId);
+		assert isLinked(MiloSingleServerBaseReferenceNodeBuilder.vertexTypeNode, markoNodeId);
+		// i nodi dei metodi non crescono con il numero degli elementi
+		assert !hasInverseReference(MiloSingleServerBaseReferenceNodeBuilder.edgeTypeNode, knowsNodeId);
+		assert !hasInverseReference(MiloSingleServerBaseReferenceNodeBuilder.vertexTypeNode, markoNodeId);
+		result = waldotTestClientHandler.callElementMethodWithOpcUa(knowsNodeId,
+				MiloSingleServerBaseElementCommands.DELETE_COMMAND);
+		assert result[1].isEmpty() : result[1];
+		assert g.getWaldotNamespace().getEdgesCount() == 5;
+		assert !isLinked(MiloSingleServerBaseReferenceNodeBuilder.edgeTypeNode, knowsNodeId);
+		result = waldotTestClientHandler.callElementMethodWithOpcUa(markoNodeId,
+				MiloSingleServerBaseElementCommands.DELETE_COMMAND);
+		assert result[1].isEmpty() : result[1];
+		assert !waldotTestClientHandler.checkVertexExists(1);
+		assert !isLinked(MiloSingleServerBaseReferenceNodeBuilder.vertexTypeNode, markoNodeId);
+		// gli altri elementi restano collegati ai metodi condivisi
+		final WaldotVertex lop = (WaldotVertex) g.traversal().V().has("name", "lop").next();
+		assert isLinked(MiloSingleServerBaseReferenceNodeBuilder.vertexTypeNode, lop.getNodeId());
+	}
+
 	@BeforeEach
 	public void beforeEach() {
 		System.out.println("Starting test...");
@@ -139,6 +214,38 @@ public class DeleteVertexAndEdgeTests {
 		}
 	}
 
+	// vero se almeno uno dei metodi condivisi del tipo ha il riferimento inverso all'elemento
+	private boolean hasInverseReference(final UaObjectTypeNode typeNode, final NodeId elementNodeId) {
+		boolean found = false;
+		for (final NodeId methodNodeId : sharedMethodNodeIds(typeNode)) {
+			found |= g.getWaldotNamespace().getStorageManager().getReferences(methodNodeId).stream()
+					.anyMatch(reference -> !reference.isForward()
+							&& reference.getTargetNodeId().equals(elementNodeId.expanded()));
+		}
+		return found;
+	}
+
+	// vero se l'elemento ha il riferimento HasComponent verso entrambi i metodi condivisi del tipo
+	private boolean isLinked(final UaObjectTypeNode typeNode, final NodeId elementNodeId) {
+		boolean found = true;
+		for (final NodeId methodNodeId : sharedMethodNodeIds(typeNode)) {
+			found &= g.getWaldotNamespace().getStorageManager().getReferences(elementNodeId).stream()
+					.anyMatch(reference -> reference.isForward()
+							&& reference.getReferenceTypeId().equals(NodeIds.HasComponent)
+							&& reference.getTargetNodeId().equals(methodNodeId.expanded()));
+		}
+		return found;
+	}
+
+	private NodeId[] sharedMethodNodeIds(final UaObjectTypeNode typeNode) {
+		final String typeIdentifier = typeNode.getNodeId().getIdentifier().toString();
+		return new NodeId[] {
+				g.getWaldotNamespace()
+						.generateNodeId(typeIdentifier + "." + MiloSingleServerBaseElementCommands.DELETE_COMMAND),
+				g.getWaldotNamespace()
+						.generateNodeId(typeIdentifier + "." + MiloSingleServerBaseElementCommands.PROPERTY_COMMAND) };
+	}
+
 	private void simpleServerInit() throws ConfigurationException, InterruptedException, ExecutionException {
 		bootstrapUrlServerInit("file:///tmp/boot.conf");
 	}
@@ -18,6 +18,7 @@ import org.eclipse.milo.opcua.stack.core.types.builtin.ByteString;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
 import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
 import org.eclipse.milo.opcua.stack.core.types.builtin.LocalizedText;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
 import org.eclipse.milo.opcua.stack.core.types.builtin.QualifiedName;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -291,6 +292,25 @@ public class WritePropertiesAndEventsTests {
 		assert error == 0;
 	}
 
+	@Test
+	public void testPropertyNodesOutsideNodeManager() throws Exception {
+		simpleServerInit();
+		final String firstValue = UUID.randomUUID().toString();
+		g.addVertex("id", "test-id", "label", "test-node", "string-value", firstValue);
+		final NodeId propertyNodeId = g.getWaldotNamespace().generateNodeId("test-id/string-value");
+		// il nodo della proprietà è risolto dal vertice, non dal node manager del namespace
+		assert !g.getWaldotNamespace().getStorageManager().containsNode(propertyNodeId);
+		assert g.getWaldotNamespace().hasNodeId(propertyNodeId);
+		assert waldotTestClientHandler.checkOpcUaVertexValueEquals("test-id", "string-value", firstValue);
+		final String newValue = UUID.randomUUID().toString();
+		waldotTestClientHandler.writeOpcUaVertexValue("test-id", "string-value", newValue);
+		assert waldotTestClientHandler.checkVertexValueEquals("test-id", "string-value", newValue);
+		assert waldotTestClientHandler.checkOpcUaVertexValueEquals("test-id", "string-value", newValue);
+		g.traversal().V().has("id", "test-id").properties("string-value").drop().iterate();
+		assert !g.getWaldotNamespace().hasNodeId(propertyNodeId);
+		assert !waldotTestClientHandler.checkOpcUaVertexValueEquals("test-id", "string-value", newValue);
+	}
+
 	@Test
 	public void testWriteProperties() throws Exception {
 		simpleServerInit();
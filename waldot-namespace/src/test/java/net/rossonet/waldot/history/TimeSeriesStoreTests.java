@@ -0,0 +1,237 @@
+package net.rossonet.waldot.history;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.eclipse.milo.opcua.stack.core.StatusCodes;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DataValue;
+import org.eclipse.milo.opcua.stack.core.types.builtin.DateTime;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.eclipse.milo.opcua.stack.core.types.builtin.StatusCode;
+import org.eclipse.milo.opcua.stack.core.types.builtin.Variant;
+import org.eclipse.milo.opcua.stack.core.types.enumerated.PerformUpdateType;
+import org.eclipse.milo.opcua.stack.core.types.structured.HistoryUpdateResult;
+import org.eclipse.milo.opcua.stack.core.types.structured.UpdateDataDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.TimeSeriesHistoryStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries.Sample;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries.TimeSeriesAggregate;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries.TimeSeriesPolicy;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.timeseries.TimeSeriesStore;
+
+public class TimeSeriesStoreTests {
+
+	private static final long HOUR = 3_600_000L;
+
+	private static void assertSamples(final List<Sample> expected, final List<Sample> actual) {
+		assert expected.size() == actual.size() : "expected " + expected.size() + " samples, read " + actual.size();
+		for (int i = 0; i < expected.size(); i++) {
+			assert expected.get(i).getTime() == actual.get(i).getTime() : "time of sample " + i;
+			assert expected.get(i).getValue().equals(actual.get(i).getValue())
+					: "value of sample " + i + " " + expected.get(i) + " " + actual.get(i);
+			assert expected.get(i).getStatus() == actual.get(i).getStatus() : "status of sample " + i;
+		}
+	}
+
+	private Path directory;
+
+	private TimeSeriesStore store;
+
+	private List<Sample> appendAll(final String key, final List<Sample> samples) {
+		for (final Sample sample : samples) {
+			assert store.append(key, sample.getTime(), sample.getValue(), sample.getStatus());
+		}
+		return samples;
+	}
+
+	@BeforeEach
+	public void before() throws IOException {
+		directory = Files.createTempDirectory("waldot-timeseries");
+		store = new TimeSeriesStore(directory, policy(null, null));
+	}
+
+	@AfterEach
+	public void after() throws Exception {
+		store.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (final Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	@Test
+	public void aggregatesAndValueAt() throws Exception {
+		final long base = System.currentTimeMillis() - HOUR;
+		final List<Sample> samples = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			samples.add(new Sample(base + i * 1000L, (double) i, 0));
+		}
+		appendAll("ns=2;s=sensor/value", samples);
+		store.flush();
+		final List<Sample> read = store.read("ns=2;s=sensor/value", base, base + 9000L);
+		assert (Double) TimeSeriesAggregate.AVERAGE.compute(read) == 4.5;
+		assert (Double) TimeSeriesAggregate.MINIMUM.compute(read) == 0.0;
+		assert (Double) TimeSeriesAggregate.MAXIMUM.compute(read) == 9.0;
+		assert (Double) TimeSeriesAggregate.TOTAL.compute(read) == 45.0;
+		assert (Long) TimeSeriesAggregate.COUNT.compute(read) == 10L;
+		assert (Double) TimeSeriesAggregate.START.compute(read) == 0.0;
+		assert (Double) TimeSeriesAggregate.END.compute(read) == 9.0;
+		assert TimeSeriesAggregate.AVERAGE.compute(new ArrayList<>()) == null;
+		assert (Double) store.valueAt("ns=2;s=sensor/value", base + 4500L).getValue() == 4.0;
+		assert store.valueAt("ns=2;s=sensor/value", base - 1L) == null;
+		assert store.valueAt("ns=2;s=unknown", base) == null;
+		assert store.read("ns=2;s=unknown", base, base + 9000L).isEmpty();
+	}
+
+	@Test
+	public void insertSeesQueuedSamples() throws Exception {
+		final long base = System.currentTimeMillis() - HOUR;
+		assert store.append("ns=2;s=sensor/value", base, 1.0, 0);
+		// il campione in coda è scritto prima del controllo dei duplicati
+		assert !store.insert("ns=2;s=sensor/value", base, 2.0, 0);
+		assert store.insert("ns=2;s=sensor/value", base + 1L, 3.0, 0);
+		assert !store.insert("ns=2;s=sensor/value", base + 1L, 4.0, 0);
+		// l'inserimento è già leggibile, senza flush
+		assertSamples(List.of(new Sample(base, 1.0, 0), new Sample(base + 1L, 3.0, 0)),
+				store.read("ns=2;s=sensor/value", base, base + 1L));
+	}
+
+	private TimeSeriesPolicy policy(final Duration retention, final Duration downsampleAfter) {
+		return new TimeSeriesPolicy(retention, downsampleAfter, Duration.ofMinutes(1), 64, Duration.ofSeconds(30),
+				100_000);
+	}
+
+	@Test
+	public void historyUpdateInsert() throws Exception {
+		final Path strategyDirectory = Files.createTempDirectory("waldot-history");
+		final NodeId nodeId = NodeId.parse("ns=2;s=sensor/value");
+		final long base = System.currentTimeMillis() - HOUR;
+		final DataValue[] values = new DataValue[2];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = new DataValue(new Variant((double) i), StatusCode.GOOD,
+					new DateTime(Instant.ofEpochMilli(base + i * 1000L)), null);
+		}
+		final TimeSeriesHistoryStrategy strategy = new TimeSeriesHistoryStrategy(strategyDirectory,
+				policy(null, null));
+		try {
+			final HistoryUpdateResult inserted = strategy
+					.historyUpdate(null, List.of(new UpdateDataDetails(nodeId, PerformUpdateType.Insert, values)))
+					.get(0);
+			assert inserted.getStatusCode().isGood();
+			for (final StatusCode operationResult : inserted.getOperationResults()) {
+				assert operationResult.getValue() == StatusCodes.Good_EntryInserted;
+			}
+			strategy.getStore().flush();
+			final List<Sample> read = strategy.getStore().read(nodeId.toParseableString(), base, base + 1000L);
+			assertSamples(List.of(new Sample(base, 0.0, 0), new Sample(base + 1000L, 1.0, 0)), read);
+			// un valore esistente non viene sostituito dall'inserimento
+			final HistoryUpdateResult existing = strategy
+					.historyUpdate(null, List.of(new UpdateDataDetails(nodeId, PerformUpdateType.Insert, values)))
+					.get(0);
+			assert existing.getOperationResults()[0].getValue() == StatusCodes.Bad_EntryExists;
+			final HistoryUpdateResult replaced = strategy
+					.historyUpdate(null, List.of(new UpdateDataDetails(nodeId, PerformUpdateType.Replace, values)))
+					.get(0);
+			assert replaced.getStatusCode().getValue() == StatusCodes.Bad_HistoryOperationUnsupported;
+			// due valori con lo stesso tempo nella stessa richiesta, senza flush
+			final DataValue duplicate = new DataValue(new Variant(5.0), StatusCode.GOOD,
+					new DateTime(Instant.ofEpochMilli(base + 5000L)), null);
+			final HistoryUpdateResult duplicates = strategy.historyUpdate(null, List.of(
+					new UpdateDataDetails(nodeId, PerformUpdateType.Insert, new DataValue[] { duplicate, duplicate })))
+					.get(0);
+			assert duplicates.getOperationResults()[0].getValue() == StatusCodes.Good_EntryInserted;
+			assert duplicates.getOperationResults()[1].getValue() == StatusCodes.Bad_EntryExists;
+		} finally {
+			strategy.close();
+			try (Stream<Path> files = Files.walk(strategyDirectory)) {
+				for (final Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+					Files.deleteIfExists(file);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void retentionAndDownsampling() throws Exception {
+		store.close();
+		store = new TimeSeriesStore(directory, policy(Duration.ofDays(1), Duration.ofHours(1)));
+		final long now = System.currentTimeMillis();
+		final long expired = now - 48 * HOUR;
+		final long old = Math.floorDiv(now - 2 * HOUR, 60_000L) * 60_000L;
+		final List<Sample> expiredSamples = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			expiredSamples.add(new Sample(expired + i * 1000L, (long) i, 0));
+		}
+		appendAll("ns=2;s=counter", expiredSamples);
+		store.flush();
+		// ten samples for every minute, two minutes
+		final List<Sample> oldSamples = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			oldSamples.add(new Sample(old + i * 6000L, (long) i, 0));
+		}
+		appendAll("ns=2;s=counter", oldSamples);
+		store.flush();
+		final List<Sample> recentSamples = appendAll("ns=2;s=counter",
+				List.of(new Sample(now, 100L, 0), new Sample(now + 1000L, 101L, 0)));
+		store.flush();
+		store.maintenance();
+		assert store.read("ns=2;s=counter", expired - 1, expired + 10_000L).isEmpty();
+		final List<Sample> downsampled = store.read("ns=2;s=counter", old, old + 120_000L);
+		assert downsampled.size() == 2 : downsampled;
+		assert downsampled.get(0).getTime() == old;
+		assert (Double) downsampled.get(0).getValue() == 4.5;
+		assert downsampled.get(1).getTime() == old + 60_000L;
+		assert (Double) downsampled.get(1).getValue() == 14.5;
+		assertSamples(recentSamples, store.read("ns=2;s=counter", now, now + 1000L));
+	}
+
+	@Test
+	public void roundTripAndReopen() throws Exception {
+		final Random random = new Random(42);
+		final long base = System.currentTimeMillis() - HOUR;
+		final List<Sample> doubles = new ArrayList<>();
+		final List<Sample> longs = new ArrayList<>();
+		final List<Sample> booleans = new ArrayList<>();
+		final List<Sample> strings = new ArrayList<>();
+		long time = base;
+		for (int i = 0; i < 500; i++) {
+			// irregular sampling, with some large gaps
+			time += i % 97 == 0 ? 1_000_000L + random.nextInt(10_000) : 1000L + random.nextInt(50);
+			final int status = i % 50 < 3 ? 0x80000000 : 0;
+			doubles.add(new Sample(time, 20.0 + random.nextGaussian(), status));
+			longs.add(new Sample(time, (long) random.nextInt(1000) - 500, status));
+			booleans.add(new Sample(time, random.nextBoolean(), status));
+			strings.add(new Sample(time, "state-" + random.nextInt(5) + (i % 7 == 0 ? "\u00e0\u00e8" : ""), status));
+		}
+		appendAll("ns=2;s=d", doubles);
+		appendAll("ns=2;s=l", longs);
+		appendAll("ns=2;s=b", booleans);
+		appendAll("ns=2;s=s", strings);
+		store.flush();
+		assert store.getSeries("ns=2;s=d").getSegmentCount() > 1;
+		assertSamples(doubles, store.read("ns=2;s=d", base, time));
+		assertSamples(longs, store.read("ns=2;s=l", base, time));
+		assertSamples(booleans, store.read("ns=2;s=b", base, time));
+		assertSamples(strings, store.read("ns=2;s=s", base, time));
+		assertSamples(doubles.subList(100, 201),
+				store.read("ns=2;s=d", doubles.get(100).getTime(), doubles.get(200).getTime()));
+		store.close();
+		store = new TimeSeriesStore(directory, policy(null, null));
+		assert store.getKeys().size() == 4;
+		assertSamples(doubles, store.read("ns=2;s=d", base, time));
+		assertSamples(strings, store.read("ns=2;s=s", base, time));
+	}
+
+}
@@ -0,0 +1,288 @@
+package net.rossonet.waldot.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import org.apache.tinkerpop.gremlin.structure.Edge;
+import org.apache.tinkerpop.gremlin.structure.Element;
+import org.apache.tinkerpop.gremlin.structure.Vertex;
+import org.eclipse.milo.opcua.stack.core.types.builtin.NodeId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import net.rossonet.waldot.api.configuration.WaldotConfiguration;
+import net.rossonet.waldot.api.models.WaldotGraph;
+import net.rossonet.waldot.configuration.DefaultHomunculusConfiguration;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.history.LoggerHistoryStrategy;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence.GraphMutationHandler;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence.GraphSnapshot;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence.PersistenceCodec;
+import net.rossonet.waldot.gremlin.opcgraph.strategies.opcua.persistence.WriteAheadLog;
+import net.rossonet.waldot.gremlin.opcgraph.structure.OpcFactory;
+import net.rossonet.waldot.utils.NetworkHelper;
+
+public class GraphPersistenceTests {
+
+	private static class RecordingHandler implements GraphMutationHandler {
+		private final List<String> records = new ArrayList<>();
+
+		@Override
+		public void addEdge(final NodeId nodeId, final NodeId sourceId, final NodeId targetId, final String label,
+				final Map<String, Object> properties) {
+			records.add("edge " + nodeId.toParseableString() + " " + sourceId.toParseableString() + " "
+					+ targetId.toParseableString() + " " + label + " " + properties);
+		}
+
+		@Override
+		public void addVertex(final NodeId nodeId, final String label, final Map<String, Object> properties) {
+			records.add("vertex " + nodeId.toParseableString() + " " + label + " " + properties);
+		}
+
+		@Override
+		public void removeEdge(final NodeId nodeId) {
+			records.add("remove edge " + nodeId.toParseableString());
+		}
+
+		@Override
+		public void removeVertex(final NodeId nodeId) {
+			records.add("remove vertex " + nodeId.toParseableString());
+		}
+
+		@Override
+		public void removeVertexProperty(final NodeId propertyNodeId) {
+			records.add("remove property " + propertyNodeId.toParseableString());
+		}
+
+		@Override
+		public void setProperty(final NodeId elementId, final String key, final Object value) {
+			records.add("set " + elementId.toParseableString() + " " + key + "=" + value);
+		}
+	}
+
+	private static Map<String, Object> properties() {
+		final Map<String, Object> properties = new LinkedHashMap<>();
+		properties.put("name", "pump");
+		properties.put("flow", 12.5);
+		properties.put("count", 42L);
+		properties.put("enabled", true);
+		return properties;
+	}
+
+	private Path directory;
+
+	private WaldotGraph g;
+
+	@AfterEach
+	public void after() throws Exception {
+		stopGraph();
+		delete(directory);
+	}
+
+	private long append(final WriteAheadLog log, final String vertexId) throws IOException {
+		final PersistenceCodec.Output record = new PersistenceCodec.Output(64);
+		PersistenceCodec.writeAddVertex(record, NodeId.parse("ns=2;s=" + vertexId), "pump", properties());
+		return log.append(record);
+	}
+
+	@BeforeEach
+	public void before() throws IOException {
+		directory = Files.createTempDirectory("waldot-persistence");
+	}
+
+	private void copy(final Path source, final Path target) throws IOException {
+		try (Stream<Path> files = Files.list(source)) {
+			for (final Path file : files.toList()) {
+				Files.copy(file, target.resolve(file.getFileName()));
+			}
+		}
+	}
+
+	@Test
+	public void corruptedTailIsTruncated() throws Exception {
+		try (WriteAheadLog log = new WriteAheadLog(directory, 0)) {
+			append(log, "a");
+			append(log, "b");
+			append(log, "c");
+		}
+		final Path segment;
+		try (Stream<Path> files = Files.list(directory)) {
+			segment = files.findFirst().get();
+		}
+		// un byte alterato nell'ultimo record, il crc non corrisponde più
+		final byte[] content = Files.readAllBytes(segment);
+		content[content.length - 1] ^= 0x5a;
+		Files.write(segment, content);
+		try (WriteAheadLog log = new WriteAheadLog(directory, 0)) {
+			assert log.getSequence() == 2;
+			final RecordingHandler handler = new RecordingHandler();
+			assert log.replay(0, handler) == 2;
+			assert handler.records.get(1).startsWith("vertex ns=2;s=b");
+		}
+		// il file troncato a metà dell'ultimo frame
+		final long size = Files.size(segment);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(size - 5);
+		}
+		try (WriteAheadLog log = new WriteAheadLog(directory, 0)) {
+			assert log.getSequence() == 1;
+			assert append(log, "d") == 2;
+			final RecordingHandler handler = new RecordingHandler();
+			assert log.replay(0, handler) == 2;
+			assert handler.records.get(0).startsWith("vertex ns=2;s=a");
+			assert handler.records.get(1).startsWith("vertex ns=2;s=d");
+		}
+	}
+
+	private void delete(final Path path) throws IOException {
+		try (Stream<Path> files = Files.walk(path)) {
+			for (final Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.deleteIfExists(file);
+			}
+		}
+	}
+
+	// elementi del grafo con label, estremi e proprietà, confrontabili dopo il ripristino
+	private Map<String, String> describe() {
+		final Map<String, String> elements = new TreeMap<>();
+		g.vertices().forEachRemaining(vertex -> elements.put("vertex " + vertex.id(),
+				vertex.label() + " " + describeProperties(vertex)));
+		g.edges().forEachRemaining(edge -> elements.put("edge " + edge.id(), edge.label() + " "
+				+ edge.outVertex().id() + "->" + edge.inVertex().id() + " " + describeProperties(edge)));
+		return elements;
+	}
+
+	private Map<String, String> describeProperties(final Element element) {
+		final Map<String, String> properties = new TreeMap<>();
+		element.properties().forEachRemaining(property -> properties.put(property.key(),
+				String.valueOf(property.value())));
+		return properties;
+	}
+
+	@Test
+	public void liveGraphRestoredAfterRestart() throws Exception {
+		startGraph(directory);
+		OpcFactory.generateModern(g);
+		final Vertex marko = g.traversal().V().has("name", "marko").next();
+		marko.property("age", 30);
+		final Vertex pump = g.addVertex("name", "pump", "flow", 12.5, "enabled", true);
+		final Edge feeds = marko.addEdge("feeds", pump, "weight", 0.3);
+		feeds.property("weight", 0.7);
+		g.traversal().V().has("name", "peter").drop().iterate();
+		g.traversal().V().has("name", "vadas").properties("age").drop().iterate();
+		final Map<String, String> expected = describe();
+		assert expected.get("vertex " + marko.id()).contains("age=30");
+		assert expected.values().stream().noneMatch(description -> description.contains("name=peter"));
+		// copia dei file come li lascerebbe un arresto improvviso: solo il log
+		final Path crashed = Files.createTempDirectory("waldot-persistence-crash");
+		try {
+			copy(directory, crashed);
+			stopGraph();
+			startGraph(directory);
+			assert describe().equals(expected) : describe() + " != " + expected;
+			stopGraph();
+			startGraph(crashed);
+			assert describe().equals(expected) : describe() + " != " + expected;
+			// il grafo ripristinato continua a registrare le modifiche
+			g.traversal().V().has("name", "pump").property("flow", 1.5).iterate();
+			stopGraph();
+			startGraph(crashed);
+			assert "1.5".equals(String.valueOf(g.traversal().V().has("name", "pump").values("flow").next()));
+		} finally {
+			stopGraph();
+			delete(crashed);
+		}
+	}
+
+	@Test
+	public void replayAfterSnapshotSequence() throws Exception {
+		try (WriteAheadLog log = new WriteAheadLog(directory, 0)) {
+			append(log, "a");
+			append(log, "b");
+			final long rotated = log.rotate();
+			assert rotated == 2;
+			append(log, "c");
+			final PersistenceCodec.Output record = new PersistenceCodec.Output(64);
+			PersistenceCodec.writeSetProperty(record, NodeId.parse("ns=2;s=c"), "flow", 3.0);
+			log.append(record);
+			record.reset();
+			PersistenceCodec.writeRemove(record, PersistenceCodec.OP_REMOVE_VERTEX, NodeId.parse("ns=2;s=a"));
+			log.append(record);
+			log.deleteUpTo(rotated);
+			final RecordingHandler handler = new RecordingHandler();
+			assert log.replay(rotated, handler) == 3;
+			assert handler.records.get(0).equals("vertex ns=2;s=c pump " + properties());
+			assert handler.records.get(1).equals("set ns=2;s=c flow=3.0");
+			assert handler.records.get(2).equals("remove vertex ns=2;s=a");
+		}
+	}
+
+	@Test
+	public void snapshotRoundTrip() throws Exception {
+		try (GraphSnapshot.Writer writer = new GraphSnapshot.Writer(directory, 7)) {
+			for (int i = 0; i < 50_000; i++) {
+				writer.addVertex(NodeId.parse("ns=2;s=v" + i), "pump", properties());
+			}
+			writer.addEdge(NodeId.parse("ns=2;s=e"), NodeId.parse("ns=2;s=v1"), NodeId.parse("ns=2;s=v2"), "feeds",
+					new LinkedHashMap<>());
+			writer.commit();
+		}
+		final Path snapshot = GraphSnapshot.latest(directory);
+		assert GraphSnapshot.getSequence(snapshot) == 7;
+		final RecordingHandler handler = new RecordingHandler();
+		assert GraphSnapshot.read(snapshot, handler) == 7;
+		assert handler.records.size() == 50_001;
+		assert handler.records.get(49_999).equals("vertex ns=2;s=v49999 pump " + properties());
+		assert handler.records.get(50_000).equals("edge ns=2;s=e ns=2;s=v1 ns=2;s=v2 feeds {}");
+	}
+
+	private void startGraph(final Path persistenceDirectory) throws Exception {
+		final WaldotConfiguration configuration = DefaultHomunculusConfiguration.getDefault();
+		configuration.put(DefaultHomunculusConfiguration.PERSISTENCE_DIRECTORY_KEY, persistenceDirectory.toString());
+		// senza snapshot periodici lo stato sta tutto nel log fino alla chiusura
+		configuration.put(DefaultHomunculusConfiguration.PERSISTENCE_SNAPSHOT_INTERVAL_KEY, "0");
+		g = OpcFactory.getOpcGraph("file:///tmp/boot.conf", new LoggerHistoryStrategy(), configuration);
+	}
+
+	private void stopGraph() throws Exception {
+		if (g != null) {
+			g.getWaldotNamespace().close();
+			g = null;
+			while (!NetworkHelper.checkLocalPortAvailable(12686)) {
+				Thread.sleep(1_000);
+			}
+		}
+	}
+
+	@Test
+	public void tornTailIsTruncated() throws Exception {
+		try (WriteAheadLog log = new WriteAheadLog(directory, 0)) {
+			append(log, "a");
+			append(log, "b");
+		}
+		final Path segment;
+		try (Stream<Path> files = Files.list(directory)) {
+			segment = files.findFirst().get();
+		}
+		// scrittura interrotta a metà frame
+		Files.write(segment, new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+		try (WriteAheadLog log = new WriteAheadLog(directory, 0)) {
+			assert log.getSequence() == 2;
+			assert append(log, "c") == 3;
+			final RecordingHandler handler = new RecordingHandler();
+			assert log.replay(0, handler) == 3;
+			assert handler.records.get(2).startsWith("vertex ns=2;s=c");
+		}
+	}
+
+}
@@ -22,6 +22,9 @@ import net.rossonet.waldot.utils.TextHelper;
 import net.rossonet.zenoh.api.TelemetryData;
 import net.rossonet.zenoh.api.WaldotAgentEndpoint;
 import net.rossonet.zenoh.api.WaldotZenohClient;
+import net.rossonet.zenoh.api.message.BinaryTelemetryCodec;
+import net.rossonet.zenoh.api.message.TelemetryCodec;
+import net.rossonet.zenoh.api.message.TelemetryCodecs;
 import net.rossonet.zenoh.exception.WaldotZenohException;
 
 public final class ZenohHelper {
@@ -185,8 +188,12 @@ public final class ZenohHelper {
 	}
 
 	public static PutOptions getInternalTelemetryPutOptions() {
+		return getInternalTelemetryPutOptions(TelemetryCodecs.JSON);
+	}
+
+	public static PutOptions getInternalTelemetryPutOptions(final TelemetryCodec telemetryCodec) {
 		final PutOptions putOptions = new PutOptions();
-		putOptions.setEncoding(Encoding.ZENOH_STRING);
+		putOptions.setEncoding(getTelemetryEncoding(telemetryCodec));
 		putOptions.setCongestionControl(CongestionControl.BLOCK);
 		putOptions.setReliability(Reliability.RELIABLE);
 		putOptions.setPriority(Priority.DATA);
@@ -222,9 +229,18 @@ public final class ZenohHelper {
 		return ZenohHelper.TELEMETRY_TOPIC + ZenohHelper._TOPIC_SEPARATOR + agentUniqueId;
 	}
 
+	private static Encoding getTelemetryEncoding(final TelemetryCodec telemetryCodec) {
+		return telemetryCodec.getHeader() == BinaryTelemetryCodec.HEADER ? Encoding.ZENOH_BYTES
+				: Encoding.ZENOH_STRING;
+	}
+
 	public static PutOptions getTelemetryPutOptions() {
+		return getTelemetryPutOptions(TelemetryCodecs.JSON);
+	}
+
+	public static PutOptions getTelemetryPutOptions(final TelemetryCodec telemetryCodec) {
 		final PutOptions putOptions = new PutOptions();
-		putOptions.setEncoding(Encoding.ZENOH_STRING);
+		putOptions.setEncoding(getTelemetryEncoding(telemetryCodec));
 		putOptions.setCongestionControl(CongestionControl.BLOCK);
 		putOptions.setReliability(Reliability.RELIABLE);
 		putOptions.setPriority(Priority.DATA_HIGH);
@@ -319,15 +335,9 @@ public final class ZenohHelper {
 
 					@Override
 					public void run(final Sample sample) {
-						JSONObject payloadJson = null;
-						try {
-							payloadJson = new JSONObject(sample.getPayload());
-						} catch (final Exception e) {
-							waldotZenohClient.elaborateErrorMessage(
-									"Error parsing input telemetry message payload: " + sample.getPayload(), e);
-						}
+						// il payload è decodificato una sola volta dal codec indicato nel primo byte
 						final String topic = sample.getKeyExpr().toString();
-						waldotZenohClient.elaborateInputTelemetryMessage(topic, payloadJson);
+						waldotZenohClient.elaborateInputTelemetryMessage(topic, sample.getPayload().toBytes());
 					}
 
 				}));
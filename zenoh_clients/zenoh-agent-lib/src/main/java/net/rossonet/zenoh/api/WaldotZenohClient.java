@@ -8,6 +8,7 @@ import org.json.JSONObject;
 import io.zenoh.Session;
 import io.zenoh.exceptions.ZError;
 import io.zenoh.pubsub.CallbackSubscriber;
+import net.rossonet.zenoh.api.message.TelemetryCodec;
 import net.rossonet.zenoh.api.message.TelemetryMessage;
 import net.rossonet.zenoh.exception.WaldotZenohException;
 
@@ -25,7 +26,7 @@ public interface WaldotZenohClient extends AutoCloseable {
 
 	void elaborateErrorMessage(String message, Throwable e);
 
-	void elaborateInputTelemetryMessage(String topic, JSONObject payloadJson);
+	void elaborateInputTelemetryMessage(String topic, byte[] payload);
 
 	void elaborateParameterMessage(String topic, JSONObject payloadJson);
 
@@ -35,6 +36,8 @@ public interface WaldotZenohClient extends AutoCloseable {
 
 	Status getStatus();
 
+	TelemetryCodec getTelemetryCodec();
+
 	Map<String, CallbackSubscriber> getSubcribers();
 
 	boolean isConnected();
@@ -53,6 +56,8 @@ public interface WaldotZenohClient extends AutoCloseable {
 
 	boolean sendTelemetry(TelemetryMessage<?> telemetryData);
 
+	void setTelemetryCodec(TelemetryCodec telemetryCodec);
+
 	void start() throws WaldotZenohException;
 
 	void stop() throws WaldotZenohException;
@@ -0,0 +1,263 @@
+package net.rossonet.zenoh.api.message;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import com.jsoniter.JsonIterator;
+import com.jsoniter.any.Any;
+import com.jsoniter.output.JsonStream;
+
+import net.rossonet.zenoh.exception.ZenohSerializationException;
+
+/**
+ * Compact binary encoding of the telemetry.
+ *
+ * <p>Layout: header, id, quality, timestamp and ttl as unsigned varints, the
+ * schema tag of the value and the value. Numbers are written as zigzag varints
+ * or IEEE 754 bits, strings and byte arrays with a varint length. The values of
+ * other types are written as jsoniter documents with their class name.</p>
+ *
+ * <p>The decoder reads directly from the buffer received from Zenoh, without
+ * any intermediate string of the whole payload.</p>
+ */
+public final class BinaryTelemetryCodec implements TelemetryCodec {
+
+	private static final class Output {
+		private byte[] buffer = new byte[32];
+		private int size = 0;
+
+		private void ensure(final int length) {
+			if (size + length > buffer.length) {
+				buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+			}
+		}
+
+		private byte[] toByteArray() {
+			return Arrays.copyOf(buffer, size);
+		}
+
+		private void write(final byte value) {
+			ensure(1);
+			buffer[size++] = value;
+		}
+
+		private void write(final byte[] value) {
+			writeVarint(value.length);
+			ensure(value.length);
+			System.arraycopy(value, 0, buffer, size, value.length);
+			size += value.length;
+		}
+
+		private void writeFixed(final long value, final int bytes) {
+			ensure(bytes);
+			for (int i = bytes - 1; i >= 0; i--) {
+				buffer[size++] = (byte) (value >>> (i * 8));
+			}
+		}
+
+		private void writeVarint(final long value) {
+			ensure(10);
+			long remaining = value;
+			while ((remaining & ~0x7FL) != 0) {
+				buffer[size++] = (byte) ((remaining & 0x7F) | 0x80);
+				remaining >>>= 7;
+			}
+			buffer[size++] = (byte) remaining;
+		}
+
+		private void writeZigZag(final long value) {
+			writeVarint((value << 1) ^ (value >> 63));
+		}
+	}
+
+	// 0xB1 non può essere il primo byte di un documento JSON in UTF-8
+	public static final byte HEADER = (byte) 0xB1;
+
+	private static final byte TAG_BOOLEAN_FALSE = 1;
+	private static final byte TAG_BOOLEAN_TRUE = 2;
+	private static final byte TAG_BYTE = 3;
+	private static final byte TAG_BYTES = 4;
+	private static final byte TAG_CHARACTER = 5;
+	private static final byte TAG_DOUBLE = 6;
+	private static final byte TAG_FLOAT = 7;
+	private static final byte TAG_INTEGER = 8;
+	private static final byte TAG_JSON = 127;
+	private static final byte TAG_LONG = 9;
+	private static final byte TAG_SHORT = 10;
+	private static final byte TAG_STRING = 11;
+
+	private static byte[] readBytes(final ByteBuffer payload) throws ZenohSerializationException {
+		final byte[] bytes = new byte[readLength(payload)];
+		payload.get(bytes);
+		return bytes;
+	}
+
+	private static long readFixed(final ByteBuffer payload, final int bytes) {
+		long value = 0;
+		for (int i = 0; i < bytes; i++) {
+			value = (value << 8) | (payload.get() & 0xFF);
+		}
+		return value;
+	}
+
+	private static int readLength(final ByteBuffer payload) throws ZenohSerializationException {
+		final long length = readVarint(payload);
+		if (length > payload.remaining()) {
+			throw new ZenohSerializationException("length " + length + " exceeds the payload");
+		}
+		return (int) length;
+	}
+
+	private static String readString(final ByteBuffer payload) throws ZenohSerializationException {
+		final int length = readLength(payload);
+		if (payload.hasArray()) {
+			final String value = new String(payload.array(), payload.arrayOffset() + payload.position(), length,
+					StandardCharsets.UTF_8);
+			payload.position(payload.position() + length);
+			return value;
+		}
+		final byte[] bytes = new byte[length];
+		payload.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static Object readValue(final ByteBuffer payload) throws ZenohSerializationException {
+		final byte tag = payload.get();
+		switch (tag) {
+		case TAG_BOOLEAN_FALSE:
+			return Boolean.FALSE;
+		case TAG_BOOLEAN_TRUE:
+			return Boolean.TRUE;
+		case TAG_BYTE:
+			return payload.get();
+		case TAG_BYTES:
+			return readBytes(payload);
+		case TAG_CHARACTER:
+			return (char) readVarint(payload);
+		case TAG_DOUBLE:
+			return Double.longBitsToDouble(readFixed(payload, 8));
+		case TAG_FLOAT:
+			return Float.intBitsToFloat((int) readFixed(payload, 4));
+		case TAG_INTEGER:
+			return (int) readZigZag(payload);
+		case TAG_LONG:
+			return readZigZag(payload);
+		case TAG_SHORT:
+			return (short) readZigZag(payload);
+		case TAG_STRING:
+			return readString(payload);
+		case TAG_JSON:
+			final String type = readString(payload);
+			final Any value = JsonIterator.deserialize(readBytes(payload));
+			if (value.object() == null) {
+				throw new ZenohSerializationException("null value");
+			}
+			if (!value.object().getClass().getCanonicalName().equals(type)) {
+				throw new ZenohSerializationException("message with declared type: " + type
+						+ " but the generated object type is: " + value.object().getClass().getCanonicalName());
+			}
+			return value.object();
+		default:
+			throw new ZenohSerializationException("unknown value tag " + tag);
+		}
+	}
+
+	private static long readVarint(final ByteBuffer payload) throws ZenohSerializationException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte current = payload.get();
+			value |= (long) (current & 0x7F) << shift;
+			if ((current & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new ZenohSerializationException("malformed varint");
+	}
+
+	private static long readZigZag(final ByteBuffer payload) throws ZenohSerializationException {
+		final long value = readVarint(payload);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static void writeValue(final Output output, final Object value) {
+		if (value instanceof Boolean) {
+			output.write((Boolean) value ? TAG_BOOLEAN_TRUE : TAG_BOOLEAN_FALSE);
+		} else if (value instanceof Double) {
+			output.write(TAG_DOUBLE);
+			output.writeFixed(Double.doubleToRawLongBits((Double) value), 8);
+		} else if (value instanceof Float) {
+			output.write(TAG_FLOAT);
+			output.writeFixed(Float.floatToRawIntBits((Float) value), 4);
+		} else if (value instanceof Long) {
+			output.write(TAG_LONG);
+			output.writeZigZag((Long) value);
+		} else if (value instanceof Integer) {
+			output.write(TAG_INTEGER);
+			output.writeZigZag((Integer) value);
+		} else if (value instanceof Short) {
+			output.write(TAG_SHORT);
+			output.writeZigZag((Short) value);
+		} else if (value instanceof Byte) {
+			output.write(TAG_BYTE);
+			output.write((Byte) value);
+		} else if (value instanceof Character) {
+			output.write(TAG_CHARACTER);
+			output.writeVarint((Character) value);
+		} else if (value instanceof String) {
+			output.write(TAG_STRING);
+			output.write(((String) value).getBytes(StandardCharsets.UTF_8));
+		} else if (value instanceof byte[]) {
+			output.write(TAG_BYTES);
+			output.write((byte[]) value);
+		} else {
+			output.write(TAG_JSON);
+			output.write(value.getClass().getCanonicalName().getBytes(StandardCharsets.UTF_8));
+			output.write(JsonStream.serialize(value).getBytes(StandardCharsets.UTF_8));
+		}
+	}
+
+	BinaryTelemetryCodec() {
+	}
+
+	@Override
+	public TelemetryMessage<?> decode(final ByteBuffer payload) throws ZenohSerializationException {
+		try {
+			if (payload.get() != HEADER) {
+				throw new ZenohSerializationException("not a binary telemetry payload");
+			}
+			final long id = readVarint(payload);
+			final long quality = readVarint(payload);
+			final long timestamp = readVarint(payload);
+			final long ttl = readVarint(payload);
+			final Object value = readValue(payload);
+			return new TelemetryMessage<>(id, value, timestamp, TelemetryQuality.fromCode((int) quality), ttl);
+		} catch (final BufferUnderflowException e) {
+			throw new ZenohSerializationException("truncated binary telemetry payload", e);
+		} catch (final IllegalArgumentException e) {
+			throw new ZenohSerializationException("invalid binary telemetry payload", e);
+		}
+	}
+
+	@Override
+	public byte[] encode(final TelemetryMessage<?> message) throws ZenohSerializationException {
+		if (message.getValue() == null) {
+			throw new ZenohSerializationException("null value");
+		}
+		final Output output = new Output();
+		output.write(HEADER);
+		output.writeVarint(message.getTelemetryDataId());
+		output.writeVarint(message.getQuality().getCode());
+		output.writeVarint(message.getTimestamp());
+		output.writeVarint(message.getTtl());
+		writeValue(output, message.getValue());
+		return output.toByteArray();
+	}
+
+	@Override
+	public byte getHeader() {
+		return HEADER;
+	}
+
+}
@@ -0,0 +1,50 @@
+package net.rossonet.zenoh.api.message;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import net.rossonet.zenoh.exception.ZenohSerializationException;
+
+/**
+ * The JSON encoding of the first versions of the agents, kept for
+ * compatibility. The header is the opening brace of the JSON document.
+ */
+public final class JsonTelemetryCodec implements TelemetryCodec {
+
+	public static final byte HEADER = '{';
+
+	JsonTelemetryCodec() {
+	}
+
+	@Override
+	public TelemetryMessage<?> decode(final ByteBuffer payload) throws ZenohSerializationException {
+		final String json;
+		if (payload.hasArray()) {
+			json = new String(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining(),
+					StandardCharsets.UTF_8);
+		} else {
+			final byte[] bytes = new byte[payload.remaining()];
+			payload.duplicate().get(bytes);
+			json = new String(bytes, StandardCharsets.UTF_8);
+		}
+		try {
+			return TelemetryMessage.fromJson(new JSONObject(json));
+		} catch (final JSONException | IllegalArgumentException e) {
+			throw new ZenohSerializationException("invalid json telemetry payload", e);
+		}
+	}
+
+	@Override
+	public byte[] encode(final TelemetryMessage<?> message) {
+		return message.toJson().toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public byte getHeader() {
+		return HEADER;
+	}
+
+}
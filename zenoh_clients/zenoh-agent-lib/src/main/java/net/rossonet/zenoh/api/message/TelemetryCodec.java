@@ -0,0 +1,37 @@
+package net.rossonet.zenoh.api.message;
+
+import java.nio.ByteBuffer;
+
+import net.rossonet.zenoh.exception.ZenohSerializationException;
+
+/**
+ * Encoding of the {@link TelemetryMessage} payloads published on Zenoh.
+ *
+ * <p>The first byte of every payload is the header of the codec that wrote it,
+ * so the receiver chooses the decoder with {@link TelemetryCodecs#decode}
+ * without any configuration.</p>
+ */
+public interface TelemetryCodec {
+
+	/**
+	 * Decodes a payload, the buffer is read from its position to its limit.
+	 *
+	 * @param payload the payload, header byte included
+	 * @return the decoded message
+	 * @throws ZenohSerializationException if the payload is not valid
+	 */
+	TelemetryMessage<?> decode(ByteBuffer payload) throws ZenohSerializationException;
+
+	/**
+	 * @param message the message to encode
+	 * @return the payload, header byte included
+	 * @throws ZenohSerializationException if the value can not be encoded
+	 */
+	byte[] encode(TelemetryMessage<?> message) throws ZenohSerializationException;
+
+	/**
+	 * @return the first byte of the payloads written by this codec
+	 */
+	byte getHeader();
+
+}
@@ -0,0 +1,41 @@
+package net.rossonet.zenoh.api.message;
+
+import java.nio.ByteBuffer;
+
+import net.rossonet.zenoh.exception.ZenohSerializationException;
+
+/**
+ * The available telemetry codecs and the decoder that chooses among them by
+ * the header byte of the payload.
+ */
+public final class TelemetryCodecs {
+
+	public static final BinaryTelemetryCodec BINARY = new BinaryTelemetryCodec();
+
+	public static final JsonTelemetryCodec JSON = new JsonTelemetryCodec();
+
+	public static TelemetryMessage<?> decode(final byte[] payload) throws ZenohSerializationException {
+		return decode(ByteBuffer.wrap(payload));
+	}
+
+	public static TelemetryMessage<?> decode(final ByteBuffer payload) throws ZenohSerializationException {
+		if (!payload.hasRemaining()) {
+			throw new ZenohSerializationException("empty telemetry payload");
+		}
+		return forHeader(payload.get(payload.position())).decode(payload);
+	}
+
+	/**
+	 * @param header the first byte of a payload
+	 * @return the codec that wrote the payload, the JSON codec for the payloads
+	 *         without a known header
+	 */
+	public static TelemetryCodec forHeader(final byte header) {
+		return header == BinaryTelemetryCodec.HEADER ? BINARY : JSON;
+	}
+
+	private TelemetryCodecs() {
+		throw new IllegalStateException("Utility class");
+	}
+
+}
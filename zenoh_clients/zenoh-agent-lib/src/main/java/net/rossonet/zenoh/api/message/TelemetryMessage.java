@@ -22,18 +22,19 @@ public final class TelemetryMessage<VALUE_TYPE> {
 	public static final TelemetryMessage<?> fromJson(JSONObject jsonObject) throws ZenohSerializationException {
 		final long id = jsonObject.getLong(TELEMETRY_ID_FIELD);
 		final String type = jsonObject.getString(TELEMETRY_TYPE_FIELD);
-		final JSONObject v = jsonObject.getJSONObject(TELEMETRY_VALUE_FIELD);
+		// the value is written by toJson as a jsoniter document in a string field
+		final String v = jsonObject.getString(TELEMETRY_VALUE_FIELD);
 		final int q = jsonObject.getInt(TELEMETRY_QUALITY_FIELD);
 		final long time = jsonObject.getLong(TELEMETRY_TIMESTAMP_FIELD);
 		final long ttl = jsonObject.getLong(TELEMETRY_TTL_FIELD);
-		final Any value = JsonIterator.deserialize(v.toString());
+		final Any value = JsonIterator.deserialize(v);
 		if (value.object() == null) {
 			throw new ZenohSerializationException("null value");
 		}
 		if (!value.object().getClass().getCanonicalName().equals(type)) {
 			throw new ZenohSerializationException(
 					"message with declared type: " + type + " but the generated object type is: "
-							+ value.object().getClass().getCanonicalName() + " -- value: " + v.toString(2));
+							+ value.object().getClass().getCanonicalName() + " -- value: " + v);
 		}
 		return new TelemetryMessage<>(id, value.object(), time, TelemetryQuality.fromCode(q), ttl);
 	}
@@ -17,6 +17,7 @@ import org.json.JSONObject;
 import io.zenoh.Config;
 import io.zenoh.Session;
 import io.zenoh.Zenoh;
+import io.zenoh.bytes.ZBytes;
 import io.zenoh.config.WhatAmI;
 import io.zenoh.exceptions.ZError;
 import io.zenoh.keyexpr.KeyExpr;
@@ -31,6 +32,8 @@ import net.rossonet.zenoh.api.AgentErrorHandler;
 import net.rossonet.zenoh.api.WaldotZenohClient;
 import net.rossonet.zenoh.api.message.RpcCommand;
 import net.rossonet.zenoh.api.message.RpcConfiguration;
+import net.rossonet.zenoh.api.message.TelemetryCodec;
+import net.rossonet.zenoh.api.message.TelemetryCodecs;
 import net.rossonet.zenoh.api.message.TelemetryMessage;
 import net.rossonet.zenoh.exception.ExecutionCommandException;
 import net.rossonet.zenoh.exception.WaldotZenohException;
@@ -49,6 +52,8 @@ public class WaldotZenohClientImpl implements WaldotZenohClient {
 	private volatile boolean registered = false;
 	private final String runtimeUniqueId;
 	private final Map<String, CallbackSubscriber> subcribers = new ConcurrentHashMap<>();
+	// JSON finché il binario non viene scelto esplicitamente, WaldOT non lo decodifica ancora
+	private volatile TelemetryCodec telemetryCodec = TelemetryCodecs.JSON;
 	private long timeoutCommandSeconds = 60;
 	private Session zenohClient;
 	private Config zenohConfig;
@@ -192,16 +197,17 @@ public class WaldotZenohClientImpl implements WaldotZenohClient {
 	}
 
 	@Override
-	public void elaborateInputTelemetryMessage(final String topic, final JSONObject payload) {
+	public void elaborateInputTelemetryMessage(final String topic, final byte[] payload) {
 		try {
-			final TelemetryMessage<?> fromJson = TelemetryMessage.fromJson(payload);
-			if (!topic.endsWith(String.valueOf(fromJson.getTelemetryDataId()))) {
+			final TelemetryMessage<?> telemetry = TelemetryCodecs.decode(payload);
+			if (!topic.endsWith(String.valueOf(telemetry.getTelemetryDataId()))) {
 				elaborateErrorMessage("Input telemetry topic and telemetry id do not match: " + topic + " vs "
-						+ fromJson.getTelemetryDataId(), null);
+						+ telemetry.getTelemetryDataId(), null);
 			}
-			mainApplicationController.notifyInputTelemetry(fromJson);
+			mainApplicationController.notifyInputTelemetry(telemetry);
 		} catch (final ZenohSerializationException e) {
-			elaborateErrorMessage("Error translating input telemetry message: " + payload.toString(2), e);
+			elaborateErrorMessage("Error translating input telemetry message on topic " + topic + " ("
+					+ payload.length + " bytes)", e);
 		}
 
 	}
@@ -253,6 +259,11 @@ public class WaldotZenohClientImpl implements WaldotZenohClient {
 		return subcribers;
 	}
 
+	@Override
+	public TelemetryCodec getTelemetryCodec() {
+		return telemetryCodec;
+	}
+
 	public long getTimeoutCommandSeconds() {
 		return timeoutCommandSeconds;
 	}
@@ -338,10 +349,10 @@ public class WaldotZenohClientImpl implements WaldotZenohClient {
 				publishers.put(internalTelemetryBaseTopic, zenohClient.declarePublisher(
 						KeyExpr.tryFrom(internalTelemetryBaseTopic), ZenohHelper.getGlobalPublisherOptions()));
 			}
-			publishers.get(internalTelemetryBaseTopic).put(telemetryData.toJson().toString(),
-					ZenohHelper.getInternalTelemetryPutOptions());
+			publishers.get(internalTelemetryBaseTopic).put(new ZBytes(telemetryCodec.encode(telemetryData)),
+					ZenohHelper.getInternalTelemetryPutOptions(telemetryCodec));
 			return true;
-		} catch (final ZError e) {
+		} catch (final ZError | ZenohSerializationException e) {
 			elaborateErrorMessage("Error sending internal telemetry", e);
 			return false;
 		}
@@ -385,10 +396,10 @@ public class WaldotZenohClientImpl implements WaldotZenohClient {
 				publishers.put(internalTelemetryBaseTopic, zenohClient.declarePublisher(
 						KeyExpr.tryFrom(internalTelemetryBaseTopic), ZenohHelper.getGlobalPublisherOptions()));
 			}
-			publishers.get(internalTelemetryBaseTopic).put(telemetryData.toJson().toString(),
-					ZenohHelper.getTelemetryPutOptions());
+			publishers.get(internalTelemetryBaseTopic).put(new ZBytes(telemetryCodec.encode(telemetryData)),
+					ZenohHelper.getTelemetryPutOptions(telemetryCodec));
 			return true;
-		} catch (final ZError e) {
+		} catch (final ZError | ZenohSerializationException e) {
 			elaborateErrorMessage("Error sending internal telemetry", e);
 			return false;
 		}
@@ -405,6 +416,11 @@ public class WaldotZenohClientImpl implements WaldotZenohClient {
 				ZenohHelper.getDiscoveryPutOptions());
 	}
 
+	@Override
+	public void setTelemetryCodec(final TelemetryCodec telemetryCodec) {
+		this.telemetryCodec = telemetryCodec;
+	}
+
 	public void setTimeoutCommandSeconds(final long timeoutCommandSeconds) {
 		this.timeoutCommandSeconds = timeoutCommandSeconds;
 	}
@@ -0,0 +1,67 @@
+package net.rossonet.zenoh.api.message;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import net.rossonet.zenoh.exception.ZenohSerializationException;
+
+public class TelemetryCodecTests {
+
+	private static final Object[] VALUES = { 21.5d, -3.25f, Long.MIN_VALUE, Integer.MAX_VALUE, (short) -7, (byte) 5,
+			'x', "state \u00e0\u00e8", Boolean.TRUE, Boolean.FALSE };
+
+	@Test
+	public void binaryRoundTrip() throws ZenohSerializationException {
+		final long now = System.currentTimeMillis();
+		for (final Object value : VALUES) {
+			final TelemetryMessage<Object> message = new TelemetryMessage<>(42, value, now,
+					TelemetryQuality.UNCERTAIN, 60_000);
+			final byte[] payload = TelemetryCodecs.BINARY.encode(message);
+			assert payload[0] == BinaryTelemetryCodec.HEADER;
+			final TelemetryMessage<?> decoded = TelemetryCodecs.decode(payload);
+			assert decoded.getValue().equals(value) : value + " decoded as " + decoded.getValue();
+			assert decoded.getValue().getClass() == value.getClass();
+			assert decoded.getTelemetryDataId() == 42;
+			assert decoded.getTimestamp() == now;
+			assert decoded.getQuality() == TelemetryQuality.UNCERTAIN;
+			assert decoded.getTtl() == 60_000;
+			final ByteBuffer direct = ByteBuffer.allocateDirect(payload.length);
+			direct.put(payload).flip();
+			assert TelemetryCodecs.decode(direct).getValue().equals(value);
+		}
+		final byte[] bytes = { 1, 2, 3 };
+		final TelemetryMessage<?> decoded = TelemetryCodecs.decode(TelemetryCodecs.BINARY
+				.encode(new TelemetryMessage<>(7, bytes, now, TelemetryQuality.GOOD, 1000)));
+		assert Arrays.equals(bytes, (byte[]) decoded.getValue());
+	}
+
+	@Test
+	public void headerNegotiation() throws ZenohSerializationException {
+		final TelemetryMessage<Double> message = new TelemetryMessage<>(42, 21.5d, System.currentTimeMillis(),
+				TelemetryQuality.GOOD, 60_000);
+		final byte[] json = TelemetryCodecs.JSON.encode(message);
+		assert json[0] == JsonTelemetryCodec.HEADER;
+		assert TelemetryCodecs.forHeader(json[0]) == TelemetryCodecs.JSON;
+		assert TelemetryCodecs.decode(json).getValue().equals(21.5d);
+		final byte[] binary = TelemetryCodecs.BINARY.encode(message);
+		assert binary.length < json.length;
+		assert TelemetryCodecs.forHeader(binary[0]) == TelemetryCodecs.BINARY;
+	}
+
+	@Test
+	public void truncatedPayload() throws ZenohSerializationException {
+		final byte[] payload = TelemetryCodecs.BINARY.encode(
+				new TelemetryMessage<>(42, "value", System.currentTimeMillis(), TelemetryQuality.GOOD, 60_000));
+		for (int length = 0; length < payload.length; length++) {
+			try {
+				TelemetryCodecs.decode(Arrays.copyOf(payload, length));
+				assert false : "decoded a payload of " + length + " bytes";
+			} catch (final ZenohSerializationException e) {
+				// atteso
+			}
+		}
+	}
+
+}